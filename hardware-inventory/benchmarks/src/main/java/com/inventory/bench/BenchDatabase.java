@@ -0,0 +1,91 @@
+package com.inventory.bench;
+
+import com.inventory.dao.HardwareStore;
+import com.inventory.dao.MongoManager;
+import com.inventory.model.Dependency;
+import com.inventory.model.HardwareItem;
+import com.inventory.model.Project;
+import com.inventory.util.Config;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Seeds a throwaway database for the benchmarks that need a running mongod. The database is
+ * {@code inventory.bench.database} (default hardware_inventory_bench) on {@code inventory.mongo.uri},
+ * so a benchmark run never touches the application's own data.
+ */
+final class BenchDatabase {
+    private static final String[] STATUSES = {"available", "in-use", "maintenance"};
+    private static final String[] LOCATIONS = {"Chennai", "Bangalore", "Hyderabad", "Pune"};
+
+    private BenchDatabase() {}
+
+    /** Points MongoManager at the benchmark database; call before the first DAO is created. */
+    static MongoDatabase open() {
+        System.setProperty("inventory.mongo.database",
+                Config.get("inventory.bench.database", "hardware_inventory_bench"));
+        return MongoManager.getDatabase();
+    }
+
+    /** Writes {@code size} generated items to an empty store. */
+    static void seedHardware(HardwareStore dao, int size) {
+        List<HardwareItem> batch = new ArrayList<>(1000);
+        for (int i = 0; i < size; i++) {
+            batch.add(hardwareItem(i));
+            if (batch.size() == 1000) {
+                dao.bulkInsert(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) dao.bulkInsert(batch);
+    }
+
+    /**
+     * Replaces the advisory and recommendation collections: every other dependency of
+     * {@link #project} gets an advisory matching its version and every dependency gets a
+     * recommendation, so both checks do their full amount of work.
+     */
+    static void seedAdvisories(int dependencies) {
+        MongoDatabase db = open();
+        db.getCollection("vulnerabilities").drop();
+        db.getCollection("dependency_recommendations").drop();
+        List<Document> vulns = new ArrayList<>();
+        List<Document> recs = new ArrayList<>();
+        for (int i = 0; i < dependencies; i++) {
+            Dependency d = dependency(i);
+            if (i % 2 == 0) {
+                vulns.add(new Document("groupId", d.getGroupId())
+                        .append("artifactId", d.getArtifactId())
+                        .append("vulnerableVersion", "[1.0," + (i % 5 + 2) + ".0)")
+                        .append("cve", "CVE-2024-" + (10000 + i))
+                        .append("severity", i % 4 == 0 ? "HIGH" : "MEDIUM")
+                        .append("patchedVersion", (i % 5 + 2) + ".0")
+                        .append("recommendation", "Upgrade"));
+            }
+            recs.add(new Document("groupId", d.getGroupId())
+                    .append("artifactId", d.getArtifactId())
+                    .append("suggestedVersion", "9.0")
+                    .append("reason", "Latest release"));
+        }
+        if (!vulns.isEmpty()) db.getCollection("vulnerabilities").insertMany(vulns);
+        db.getCollection("dependency_recommendations").insertMany(recs);
+    }
+
+    static Project project(int dependencies) {
+        Project p = new Project("bench-" + dependencies, "benchmark project with " + dependencies + " dependencies");
+        for (int i = 0; i < dependencies; i++) p.addDependency(dependency(i));
+        return p;
+    }
+
+    static Dependency dependency(int i) {
+        return new Dependency("org.bench.g" + (i % 50), "artifact-" + i, "1." + (i % 10) + "." + (i % 3));
+    }
+
+    static HardwareItem hardwareItem(int i) {
+        return new HardwareItem("Laptop " + i, "SN-" + String.format("%08d", i),
+                LOCATIONS[i % LOCATIONS.length], STATUSES[i % STATUSES.length]);
+    }
+}
@@ -0,0 +1,73 @@
+package com.inventory.bench;
+
+import com.inventory.dao.DependencyWriteBuffer;
+import com.inventory.dao.MongoManager;
+import com.inventory.dao.ProjectDAO;
+import com.inventory.model.Project;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A mass dependency update against a local mongod (see {@link BenchDatabase}): 1000 additions
+ * spread over {@code projects} projects, written one updateOne at a time or through a
+ * {@link DependencyWriteBuffer} and flushed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DependencyWriteBenchmark {
+    private static final int ADDITIONS = 1000;
+
+    @Param({"10", "100"})
+    public int projects;
+
+    private ProjectDAO dao;
+    private DependencyWriteBuffer buffer;
+    private final List<String> ids = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        BenchDatabase.open().getCollection("projects").drop();
+        dao = new ProjectDAO();
+        for (int i = 0; i < projects; i++) ids.add(dao.create(new Project("bench-" + i, "write benchmark")));
+        buffer = new DependencyWriteBuffer(dao);
+    }
+
+    @TearDown
+    public void tearDown() {
+        buffer.close();
+        MongoManager.close();
+    }
+
+    @Benchmark
+    public void direct() {
+        for (int i = 0; i < ADDITIONS; i++) {
+            dao.addDependency(ids.get(i % projects), BenchDatabase.dependency(i));
+        }
+    }
+
+    @Benchmark
+    public void buffered() {
+        for (int i = 0; i < ADDITIONS; i++) {
+            buffer.addDependency(ids.get(i % projects), BenchDatabase.dependency(i));
+        }
+        buffer.flush();
+    }
+}
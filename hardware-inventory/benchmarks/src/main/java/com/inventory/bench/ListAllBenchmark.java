@@ -0,0 +1,86 @@
+package com.inventory.bench;
+
+import com.inventory.dao.EmbeddedHardwareStore;
+import com.inventory.dao.HardwareDAO;
+import com.inventory.dao.HardwareStore;
+import com.inventory.dao.MongoManager;
+import com.inventory.model.HardwareItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Full hardware listings: the materialized {@code listAll} and the streamed listing the menu prints
+ * from. {@code backend=mongo} needs a local mongod (see {@link BenchDatabase}); {@code embedded}
+ * runs on a memory-mapped log in a temporary directory. Reported as operations per second; divide
+ * by {@code size} for items per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ListAllBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"mongo", "embedded"})
+    public String backend;
+
+    private HardwareStore dao;
+    private Path dir;
+
+    @Setup
+    public void setup() throws IOException {
+        if (backend.equals("embedded")) {
+            dir = Files.createTempDirectory("inventory-bench");
+            dao = new EmbeddedHardwareStore(dir, false);
+        } else {
+            BenchDatabase.open().getCollection("hardware_items").drop();
+            dao = new HardwareDAO();
+        }
+        BenchDatabase.seedHardware(dao, size);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (dao instanceof EmbeddedHardwareStore) {
+            ((EmbeddedHardwareStore) dao).close();
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.delete(p);
+            }
+        } else {
+            MongoManager.close();
+        }
+    }
+
+    @Benchmark
+    public List<HardwareItem> listAll() {
+        return dao.listAll();
+    }
+
+    @Benchmark
+    public long stream() {
+        try (Stream<HardwareItem> items = dao.stream(1000)) {
+            return items.count();
+        }
+    }
+}
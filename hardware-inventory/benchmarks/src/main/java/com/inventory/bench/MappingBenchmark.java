@@ -0,0 +1,90 @@
+package com.inventory.bench;
+
+import com.inventory.dao.MongoManager;
+import com.inventory.model.HardwareItem;
+import com.inventory.model.Project;
+import org.bson.BsonBinaryReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BSON to model mapping as done by HardwareDAO and ProjectDAO, measured in-process on the raw
+ * bytes a query would return, so it runs without a mongod. {@code documentDecode} is the
+ * generic Document decode the DAOs used before the model codecs, kept as a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+    @Param({"10", "100", "1000"})
+    public int dependencies;
+
+    private Codec<Project> projectCodec;
+    private Codec<HardwareItem> hardwareCodec;
+    private Codec<Document> documentCodec;
+    private RawBsonDocument projectBytes;
+    private RawBsonDocument hardwareBytes;
+    private Project project;
+
+    @Setup
+    public void setup() {
+        CodecRegistry registry = MongoManager.codecRegistry();
+        projectCodec = registry.get(Project.class);
+        hardwareCodec = registry.get(HardwareItem.class);
+        documentCodec = registry.get(Document.class);
+
+        project = BenchDatabase.project(dependencies);
+        project.setId(new ObjectId().toHexString());
+        projectBytes = new RawBsonDocument(project, projectCodec);
+
+        HardwareItem item = BenchDatabase.hardwareItem(42);
+        item.setId(new ObjectId().toHexString());
+        hardwareBytes = new RawBsonDocument(item, hardwareCodec);
+    }
+
+    @Benchmark
+    public Project decodeProject() {
+        try (BsonBinaryReader reader = new BsonBinaryReader(projectBytes.getByteBuffer().asNIO())) {
+            return projectCodec.decode(reader, DecoderContext.builder().build());
+        }
+    }
+
+    @Benchmark
+    public Document documentDecodeProject() {
+        try (BsonBinaryReader reader = new BsonBinaryReader(projectBytes.getByteBuffer().asNIO())) {
+            return documentCodec.decode(reader, DecoderContext.builder().build());
+        }
+    }
+
+    @Benchmark
+    public RawBsonDocument encodeProject() {
+        return new RawBsonDocument(project, projectCodec);
+    }
+
+    @Benchmark
+    public HardwareItem decodeHardwareItem() {
+        try (BsonBinaryReader reader = new BsonBinaryReader(hardwareBytes.getByteBuffer().asNIO())) {
+            return hardwareCodec.decode(reader, DecoderContext.builder().build());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.inventory.bench;
+
+import com.inventory.dao.MongoManager;
+import com.inventory.dao.ProjectDAO;
+import com.inventory.dao.VulnerabilityIndex;
+import com.inventory.model.VulnerabilityReport;
+import com.inventory.util.Config;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * checkVulnerabilities and recommendDependencyUpdates for one project against a local mongod
+ * (see {@link BenchDatabase}). {@code mode=query} reads advisories per call; {@code mode=index}
+ * answers from a started VulnerabilityIndex, as Main runs it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VulnerabilityCheckBenchmark {
+    @Param({"10", "100", "1000"})
+    public int dependencies;
+
+    @Param({"query", "index"})
+    public String mode;
+
+    private VulnerabilityIndex vulnIndex;
+    private ProjectDAO dao;
+    private String projectId;
+
+    @Setup
+    public void setup() {
+        BenchDatabase.open().getCollection("projects").drop();
+        BenchDatabase.seedAdvisories(dependencies);
+        if (mode.equals("index")) {
+            vulnIndex = new VulnerabilityIndex(MongoManager.getDatabase(),
+                    Config.getLong("inventory.vulnIndex.ttlSeconds", 300));
+            vulnIndex.start();
+        }
+        dao = new ProjectDAO(vulnIndex);
+        projectId = dao.create(BenchDatabase.project(dependencies));
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (vulnIndex != null) vulnIndex.close();
+        MongoManager.close();
+    }
+
+    @Benchmark
+    public VulnerabilityReport checkVulnerabilities() {
+        return dao.checkVulnerabilities(projectId);
+    }
+
+    @Benchmark
+    public List<String> recommendDependencyUpdates() {
+        return dao.recommendDependencyUpdates(projectId);
+    }
+}
@@ -1,26 +1,101 @@
 package com.inventory;
 
-import com.inventory.dao.MongoManager;
+import com.inventory.dao.DuplicateKeyException;
+import com.inventory.dao.EmbeddedProjectStore;
 import com.inventory.dao.HardwareDAO;
+import com.inventory.dao.HardwareQuery;
+import com.inventory.dao.HardwareStore;
+import com.inventory.dao.HardwareSummary;
+import com.inventory.dao.HardwareUpdate;
+import com.inventory.dao.MongoManager;
+import com.inventory.dao.PortfolioScanner;
 import com.inventory.dao.ProjectDAO;
+import com.inventory.dao.ProjectStore;
+import com.inventory.dao.StatusHistory;
+import com.inventory.dao.Storage;
+import com.inventory.dao.VersionConflictException;
+import com.inventory.dao.VulnerabilityIndex;
+import com.inventory.http.InventoryServer;
+import com.inventory.ingest.AdvisoryLoader;
+import com.inventory.ingest.HardwareImporter;
+import com.inventory.ingest.ProjectImporter;
+import com.inventory.metrics.Metrics;
 import com.inventory.model.HardwareItem;
 import com.inventory.model.Project;
 import com.inventory.model.Dependency;
 import com.inventory.model.VulnerabilityReport;
+import com.inventory.report.ReportWriter;
+import com.inventory.resolve.MavenResolver;
+import com.inventory.util.Config;
 import com.inventory.util.Utils;
+import com.inventory.util.VersionRange;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
 
 public class Main {
     private static final Scanner scanner = new Scanner(System.in);
+    private static final int LIST_BATCH_SIZE = Config.getInt("inventory.list.batchSize", 500);
 
     public static void main(String[] args) {
-        System.out.println("Starting Hardware Inventory Management (MongoDB driver 4.11.0)");
-        MongoManager.init();
+        boolean embedded = Storage.isEmbedded();
+        VulnerabilityIndex vulnIndex = null;
+        if (embedded) {
+            System.out.println("Starting Hardware Inventory Management (embedded storage)");
+        } else {
+            System.out.println("Starting Hardware Inventory Management (MongoDB driver 4.11.0)");
+            MongoManager.init();
+            vulnIndex = new VulnerabilityIndex();
+            vulnIndex.start();
+        }
+        Metrics.registerMBean();
+
+        HardwareStore hardwareDAO = Storage.hardware();
+        ProjectStore projectDAO = Storage.projects(vulnIndex);
 
-        HardwareDAO hardwareDAO = new HardwareDAO();
-        ProjectDAO projectDAO = new ProjectDAO();
+        if (args.length > 0) {
+            try {
+                switch (args[0]) {
+                    case "scan": scanPortfolio(projectDAO, false); break;
+                    case "refresh": scanPortfolio(projectDAO, true); break;
+                    case "import-hardware":
+                        if (args.length < 2) throw new IllegalArgumentException("usage: import-hardware <file.csv|file.jsonl>");
+                        importHardware(hardwareDAO, args[1]);
+                        break;
+                    case "import-projects":
+                        if (args.length < 2) throw new IllegalArgumentException("usage: import-projects <sbom.json|pom.xml|gradle.lockfile|directory>");
+                        importProjects(projectDAO, args[1]);
+                        break;
+                    case "load-advisories":
+                        if (args.length < 2) throw new IllegalArgumentException("usage: load-advisories <osv-dump-dir|osv-dump.zip> [--full]");
+                        loadAdvisories(projectDAO, args[1], args.length > 2 && args[2].equals("--full"));
+                        break;
+                    case "export-report":
+                        if (args.length < 2) throw new IllegalArgumentException("usage: export-report <file.csv|file.jsonl|file.sarif> [projectId]");
+                        exportReport(projectDAO, args[1], args.length > 2 ? args[2] : "");
+                        break;
+                    case "rebuild-summary": rebuildSummary(hardwareDAO); break;
+                    case "serve":
+                        serve(hardwareDAO, projectDAO);
+                        break;
+                    default: System.err.println("Unknown command: " + args[0]);
+                }
+            } catch (Exception ex) {
+                System.err.println("Error: " + ex.getMessage());
+            }
+            if (vulnIndex != null) vulnIndex.close();
+            Storage.close();
+            return;
+        }
 
         boolean running = true;
         while (running) {
@@ -35,6 +110,28 @@ public class Main {
                     case "5": addDependencyToProject(projectDAO); break;
                     case "6": checkVulnerabilities(projectDAO); break;
                     case "7": recommendUpdates(projectDAO); break;
+                    case "8": System.out.println(vulnIndex != null ? vulnIndex.stats() : "No vulnerability index (embedded storage)"); break;
+                    case "9": scanPortfolio(projectDAO, false); break;
+                    case "10": importHardware(hardwareDAO, Utils.readLine("File (.csv or .jsonl): ")); break;
+                    case "11": findProjectsUsing(projectDAO); break;
+                    case "12": searchHardware(hardwareDAO); break;
+                    case "13": hardwareCounts(hardwareDAO); break;
+                    case "14":
+                    case "stats": printStats(hardwareDAO, projectDAO); break;
+                    case "15": scanPortfolio(projectDAO, true); break;
+                    case "16": changeHardwareStatus(hardwareDAO); break;
+                    case "17": resolveDependencies(projectDAO); break;
+                    case "18": importProjects(projectDAO, Utils.readLine("CycloneDX .json, pom.xml, gradle.lockfile or a directory of them: ")); break;
+                    case "19":
+                        loadAdvisories(projectDAO, Utils.readLine("OSV dump (directory or .zip): "),
+                                Utils.readLine("Full reload? (y/N): ").equalsIgnoreCase("y"));
+                        break;
+                    case "20":
+                        exportReport(projectDAO, Utils.readLine("Report file (.csv, .jsonl or .sarif): "),
+                                Utils.readLine("Project Id (blank for the whole portfolio): "));
+                        break;
+                    case "21": rebuildSummary(hardwareDAO); break;
+                    case "22": hardwareUtilization(hardwareDAO); break;
                     case "0": running = false; break;
                     default: System.out.println("Unknown option");
                 }
@@ -45,7 +142,8 @@ public class Main {
         }
 
         System.out.println("Exiting...");
-        MongoManager.close();
+        if (vulnIndex != null) vulnIndex.close();
+        Storage.close();
     }
 
     private static void printMenu() {
@@ -57,30 +155,154 @@ public class Main {
         System.out.println("5) Add dependency to project");
         System.out.println("6) Check vulnerabilities (check_vulnerabilities(projectId))");
         System.out.println("7) Recommend dependency updates (recommend_dependency_updates(projectId))");
+        System.out.println("8) Vulnerability index stats");
+        System.out.println("9) Scan all projects for vulnerabilities");
+        System.out.println("10) Import hardware items from file");
+        System.out.println("11) Find projects using an artifact");
+        System.out.println("12) Search hardware items");
+        System.out.println("13) Hardware counts by status and location");
+        System.out.println("14) Stats (latencies, MongoDB commands and pool)");
+        System.out.println("15) Refresh portfolio scan (only projects or advisories that changed)");
+        System.out.println("16) Change hardware status");
+        System.out.println("17) Show transitive dependencies of a project");
+        System.out.println("18) Import projects from SBOMs / pom.xml / gradle.lockfile");
+        System.out.println("19) Load advisories from an OSV dump");
+        System.out.println("20) Export vulnerability report (CSV, JSON Lines or SARIF)");
+        System.out.println("21) Rebuild hardware status/location counters");
+        System.out.println("22) Hardware utilization over a time range");
         System.out.println("0) Exit");
         System.out.print("Choose: ");
     }
 
-    private static void createHardware(HardwareDAO dao) {
+    private static void createHardware(HardwareStore dao) {
         System.out.println("Create hardware:");
         String name = Utils.readLine("Name: ");
         String serial = Utils.readLine("Serial number: ");
         String location = Utils.readLine("Location: ");
         String status = Utils.readLine("Status: ");
         HardwareItem item = new HardwareItem(name, serial, location, status);
-        String id = dao.create(item);
-        System.out.println("Hardware created with id: " + id);
+        try {
+            String id = dao.create(item);
+            System.out.println("Hardware created with id: " + id);
+        } catch (DuplicateKeyException ex) {
+            System.out.println("A hardware item with serial number " + serial + " already exists.");
+        }
     }
 
-    private static void listHardware(HardwareDAO dao) {
+    private static void listHardware(HardwareStore dao) {
         System.out.println("All hardware items:");
-        List<com.inventory.model.HardwareItem> items = dao.listAll();
-        for (com.inventory.model.HardwareItem it : items) {
+        try (Stream<HardwareItem> items = dao.stream(LIST_BATCH_SIZE)) {
+            items.forEach(it -> System.out.println(" - " + it.toString()));
+        }
+    }
+
+    private static void changeHardwareStatus(HardwareStore dao) {
+        String id = Utils.readLine("Hardware id: ");
+        HardwareItem current = dao.read(id, "status", "version");
+        if (current == null) {
+            System.out.println("No hardware item with id " + id);
+            return;
+        }
+        String status = Utils.readLine("Status (currently " + current.getStatus() + "): ");
+        try {
+            // only writes the status, and only if nobody changed the item since it was read above
+            HardwareUpdate update = new HardwareUpdate().status(status)
+                    .expectVersion(current.getVersion() == null ? 0L : current.getVersion());
+            System.out.println(dao.update(id, update) ? "Status updated." : "Status unchanged.");
+        } catch (VersionConflictException ex) {
+            System.out.println("Not updated: the item was changed meanwhile, try again.");
+        }
+    }
+
+    private static void searchHardware(HardwareStore dao) {
+        System.out.println("Search hardware (leave blank to skip a filter):");
+        HardwareQuery q = new HardwareQuery()
+                .status(Utils.readLine("Status: "))
+                .location(Utils.readLine("Location: "))
+                .namePrefix(Utils.readLine("Name starts with: "))
+                .serialPrefix(Utils.readLine("Serial starts with: "));
+        String sort = Utils.readLine("Sort by (name/serialNumber/location/status, blank for none): ");
+        if (!sort.isEmpty()) q.sortBy(sort, true);
+        String limit = Utils.readLine("Max results (blank for 50): ");
+        q.limit(limit.isEmpty() ? 50 : Integer.parseInt(limit));
+        List<HardwareItem> items = dao.search(q);
+        for (HardwareItem it : items) {
             System.out.println(" - " + it.toString());
         }
+        System.out.println(items.size() + " item(s).");
+    }
+
+    private static void hardwareCounts(HardwareStore dao) {
+        HardwareQuery all = new HardwareQuery();
+        System.out.println("By status:");
+        dao.countBy("status", all).forEach((k, v) -> System.out.println(" - " + k + ": " + v));
+        System.out.println("By location:");
+        dao.countBy("location", all).forEach((k, v) -> System.out.println(" - " + k + ": " + v));
+    }
+
+    private static void printStats(HardwareStore hardwareDAO, ProjectStore projectDAO) {
+        System.out.println(Metrics.report());
+        if (hardwareDAO instanceof HardwareDAO && ((HardwareDAO) hardwareDAO).cache() != null) {
+            System.out.println(((HardwareDAO) hardwareDAO).cache().stats());
+        }
+        if (projectDAO instanceof ProjectDAO && ((ProjectDAO) projectDAO).cache() != null) {
+            System.out.println(((ProjectDAO) projectDAO).cache().stats());
+        }
+    }
+
+    private static void rebuildSummary(HardwareStore dao) {
+        long start = System.currentTimeMillis();
+        HardwareSummary summary = dao.rebuildSummary();
+        System.out.println("Recounted " + summary.total() + " item(s) in " + (System.currentTimeMillis() - start) + " ms:");
+        summary.snapshot().forEach((status, byLocation) -> byLocation.forEach((location, n) ->
+                System.out.println(" - " + status + " @ " + location + ": " + n)));
+    }
+
+    private static void hardwareUtilization(HardwareStore dao) {
+        StatusHistory history = dao instanceof HardwareDAO ? ((HardwareDAO) dao).statusHistory() : null;
+        if (history == null) {
+            System.out.println("Status history is off (set inventory.history=true, MongoDB backend only).");
+            return;
+        }
+        HardwareQuery items = new HardwareQuery().location(Utils.readLine("Location (blank for all): "));
+        Instant from = StatusHistory.parseTime(Utils.readLine("From (yyyy-mm-dd or ISO time): "));
+        Instant to = StatusHistory.parseTime(Utils.readLine("To (yyyy-mm-dd or ISO time): "));
+        String busy = Utils.readLine("Busy status [in-use]: ");
+        if (busy.isEmpty()) busy = "in-use";
+        Map<String, Long> times = history.timeInStatus(items, from, to);
+        long total = times.values().stream().mapToLong(Long::longValue).sum();
+        times.forEach((status, millis) -> System.out.printf(" - %s: %.1f h%n", status, millis / 3_600_000.0));
+        System.out.printf("Utilization (%s): %.1f%%%n", busy, total == 0 ? 0.0 : 100.0 * times.getOrDefault(busy, 0L) / total);
+    }
+
+    private static void importHardware(HardwareStore dao, String file) throws IOException {
+        System.out.println("Importing " + file + "...");
+        HardwareImporter.Result result = new HardwareImporter(dao).importFile(Paths.get(file));
+        System.out.println(result);
+    }
+
+    private static void importProjects(ProjectStore dao, String location) throws IOException {
+        ProjectImporter importer = new ProjectImporter(dao);
+        Path path = Paths.get(location);
+        if (Files.isDirectory(path)) {
+            System.out.println(importer.importDirectory(path).size() + " manifest(s) imported.");
+        } else {
+            System.out.println(importer.importFile(path));
+        }
+    }
+
+    private static void loadAdvisories(ProjectStore store, String dump, boolean full) throws IOException {
+        System.out.println("Loading advisories from " + dump + "...");
+        if (store instanceof EmbeddedProjectStore) {
+            long start = System.currentTimeMillis();
+            int ranges = ((EmbeddedProjectStore) store).loadAdvisories(Paths.get(dump), System.out);
+            System.out.println(ranges + " advisory range(s) loaded in " + (System.currentTimeMillis() - start) + " ms");
+            return;
+        }
+        System.out.println(new AdvisoryLoader().load(Paths.get(dump), full));
     }
 
-    private static void createProject(ProjectDAO dao) {
+    private static void createProject(ProjectStore dao) {
         System.out.println("Create project:");
         String name = Utils.readLine("Name: ");
         String desc = Utils.readLine("Description: ");
@@ -99,15 +321,14 @@ public class Main {
         System.out.println("Project created with id: " + id);
     }
 
-    private static void listProjects(ProjectDAO dao) {
+    private static void listProjects(ProjectStore dao) {
         System.out.println("Projects:");
-        List<Project> list = dao.listAll();
-        for (Project p : list) {
-            System.out.println(" - " + p.toString());
+        try (Stream<Project> projects = dao.stream(LIST_BATCH_SIZE)) {
+            projects.forEach(p -> System.out.println(" - " + p.toString()));
         }
     }
 
-    private static void addDependencyToProject(ProjectDAO dao) {
+    private static void addDependencyToProject(ProjectStore dao) {
         String pid = Utils.readLine("Project Id: ");
         System.out.println("Enter dependency to add:");
         Dependency d = Utils.readDependencyInteractive();
@@ -115,13 +336,54 @@ public class Main {
         System.out.println("Dependency added? " + ok);
     }
 
-    private static void checkVulnerabilities(ProjectDAO dao) {
+    private static void checkVulnerabilities(ProjectStore dao) {
         String pid = Utils.readLine("Project Id: ");
         VulnerabilityReport report = dao.checkVulnerabilities(pid);
         System.out.println(report.toString());
     }
 
-    private static void recommendUpdates(ProjectDAO dao) {
+    /** Streams the findings of one project, or of every project when {@code projectId} is blank, to a file. */
+    private static void exportReport(ProjectStore dao, String file, String projectId) throws IOException {
+        Path path = Paths.get(file);
+        ReportWriter.Format format = ReportWriter.formatOf(path);
+        if (format == null) throw new IllegalArgumentException("Unsupported report file (expected .csv, .jsonl or .sarif): " + file);
+        long start = System.currentTimeMillis();
+        try (ReportWriter writer = new ReportWriter(path, format)) {
+            if (!projectId.isEmpty()) {
+                Project p = dao.read(projectId);
+                if (p == null) {
+                    System.out.println("No such project.");
+                    return;
+                }
+                writer.write(p, dao.checkVulnerabilities(projectId));
+            } else if (dao instanceof ProjectDAO) {
+                System.out.println(new PortfolioScanner((ProjectDAO) dao).refresh(writer::write).getSummary());
+            } else {
+                dao.forEachProject(p -> writer.write(p, dao.checkVulnerabilities(p.getId())));
+            }
+            System.out.println(writer.getFindings() + " finding(s) of " + writer.getProjects() + " project(s) written to "
+                    + path + " in " + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    private static void resolveDependencies(ProjectStore dao) {
+        Project p = dao.read(Utils.readLine("Project Id: "));
+        if (p == null) {
+            System.out.println("No such project.");
+            return;
+        }
+        MavenResolver resolver = dao instanceof ProjectDAO && ((ProjectDAO) dao).resolver() != null
+                ? ((ProjectDAO) dao).resolver() : new MavenResolver();
+        MavenResolver.Resolution res = resolver.resolve(p.getDependencies());
+        for (MavenResolver.Resolved r : res.getArtifacts()) {
+            System.out.println(" - " + (r.depth == 1 ? r.dependency.toString() : r.path()));
+        }
+        System.out.println(res.getArtifacts().size() + " artifact(s), " + p.getDependencies().size() + " declared.");
+        if (!res.getMissing().isEmpty()) System.out.println("POMs not in the repository: " + res.getMissing());
+        System.out.println(resolver.stats());
+    }
+
+    private static void recommendUpdates(ProjectStore dao) {
         String pid = Utils.readLine("Project Id: ");
         List<String> recs = dao.recommendDependencyUpdates(pid);
         System.out.println("Recommendations:");
@@ -129,4 +391,43 @@ public class Main {
             System.out.println(" - " + r);
         }
     }
+
+    private static void findProjectsUsing(ProjectStore dao) {
+        String g = Utils.readLine("  groupId: ");
+        String a = Utils.readLine("  artifactId: ");
+        String range = Utils.readLine("  version range (e.g. [,2.17.1), blank for any): ");
+        VersionRange r = range.isEmpty() ? null : VersionRange.parse(range);
+        Map<String, Set<String>> found = dao.findProjectsUsing(g, a, v -> r == null || r.containsVersion(v));
+        for (Map.Entry<String, Set<String>> e : found.entrySet()) {
+            System.out.println(" - project " + e.getKey() + " uses " + g + ":" + a + ":" + String.join(", ", e.getValue()));
+        }
+        System.out.println(found.size() + " project(s) affected.");
+    }
+
+    /** Runs the HTTP service until the process is stopped. */
+    private static void serve(HardwareStore hardwareDAO, ProjectStore projectDAO) throws IOException, InterruptedException {
+        InventoryServer server = new InventoryServer(hardwareDAO, projectDAO);
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            stopped.countDown();
+        }));
+        server.start();
+        stopped.await();
+    }
+
+    private static void scanPortfolio(ProjectStore store, boolean incremental) {
+        if (!(store instanceof ProjectDAO)) {
+            throw new UnsupportedOperationException("Portfolio scans need the MongoDB backend (inventory.storage=mongo)");
+        }
+        System.out.println(incremental ? "Refreshing portfolio scan..." : "Scanning all projects...");
+        PortfolioScanner portfolio = new PortfolioScanner((ProjectDAO) store);
+        PortfolioScanner.Result result = incremental ? portfolio.refresh() : portfolio.scan();
+        for (Map.Entry<String, VulnerabilityReport> e : result.getReports().entrySet()) {
+            if (e.getValue().hasFindings()) {
+                System.out.println("Project " + e.getKey() + ": " + e.getValue().getFindings().size() + " finding(s)");
+            }
+        }
+        System.out.println(result.getSummary());
+    }
 }
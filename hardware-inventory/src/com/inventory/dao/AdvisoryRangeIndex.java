@@ -0,0 +1,198 @@
+package com.inventory.dao;
+
+import com.inventory.model.Advisory;
+import com.inventory.model.Dependency;
+import com.inventory.util.MavenVersion;
+import com.inventory.util.VersionRange;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Advisories compiled into per-artifact interval arrays for version-range matching.
+ *
+ * For each groupId:artifactId the bounds of every advisory's {@code vulnerableVersion} range
+ * restrictions cut the version line into segments: each bound itself and the open stretches
+ * between them. Every version in a segment is contained in the same restrictions, so the answer
+ * (the first advisory in load order whose range contains it) is computed per segment when the index
+ * is built, by a sweep with a heap of the open restrictions. A lookup is one binary search over the
+ * bounds, however the ranges overlap and whether or not they are bounded above.
+ *
+ * Each artifact also keeps its list of advisories (in load order), so two builds can be compared
+ * field by field to find the artifacts whose answers may have changed. A hash could collide and
+ * hide a change; the lists only hold references to advisories the intervals keep anyway.
+ */
+class AdvisoryRangeIndex {
+    private final Map<String, Intervals> byArtifact;
+    private final Map<String, List<Advisory>> advisories;
+    private final int advisoryCount;
+    private final int intervalCount;
+
+    private AdvisoryRangeIndex(Map<String, Intervals> byArtifact, Map<String, List<Advisory>> advisories,
+                               int advisoryCount, int intervalCount) {
+        this.byArtifact = byArtifact;
+        this.advisories = advisories;
+        this.advisoryCount = advisoryCount;
+        this.intervalCount = intervalCount;
+    }
+
+    private static final class Interval {
+        final VersionRange.Restriction restriction;
+        final Advisory advisory;
+        final int order;
+        int first;   // segments covered, set by Intervals
+        int last;
+
+        Interval(VersionRange.Restriction restriction, Advisory advisory, int order) {
+            this.restriction = restriction;
+            this.advisory = advisory;
+            this.order = order;
+        }
+    }
+
+    /**
+     * With distinct sorted bounds b[0..m-1], segment 2i is the stretch below b[i] (above b[i-1]),
+     * segment 2i+1 is b[i] itself and segment 2m is everything above b[m-1].
+     */
+    private static final class Intervals {
+        final MavenVersion[] bounds;
+        final Advisory[] segments;
+
+        Intervals(List<Interval> list) {
+            List<MavenVersion> all = new ArrayList<>();
+            for (Interval i : list) {
+                if (i.restriction.getLower() != null) all.add(i.restriction.getLower());
+                if (i.restriction.getUpper() != null) all.add(i.restriction.getUpper());
+            }
+            all.sort(null);
+            List<MavenVersion> distinct = new ArrayList<>();
+            for (MavenVersion v : all) {
+                if (distinct.isEmpty() || distinct.get(distinct.size() - 1).compareTo(v) != 0) distinct.add(v);
+            }
+            bounds = distinct.toArray(new MavenVersion[0]);
+            segments = new Advisory[2 * bounds.length + 1];
+
+            List<Interval> covering = new ArrayList<>(list.size());
+            for (Interval i : list) {
+                VersionRange.Restriction r = i.restriction;
+                i.first = r.getLower() == null ? 0 : 2 * search(r.getLower()) + (r.isLowerInclusive() ? 1 : 2);
+                i.last = r.getUpper() == null ? segments.length - 1
+                        : 2 * search(r.getUpper()) + (r.isUpperInclusive() ? 1 : 0);
+                if (i.first <= i.last) covering.add(i);
+            }
+            covering.sort(Comparator.comparingInt(i -> i.first));
+
+            // sweep the segments, keeping the restrictions that cover the current one by load order
+            PriorityQueue<Interval> open = new PriorityQueue<>(Comparator.comparingInt(i -> i.order));
+            int next = 0;
+            for (int s = 0; s < segments.length; s++) {
+                while (next < covering.size() && covering.get(next).first == s) open.add(covering.get(next++));
+                while (!open.isEmpty() && open.peek().last < s) open.poll();
+                segments[s] = open.isEmpty() ? null : open.peek().advisory;
+            }
+        }
+
+        /** Index of {@code v} in bounds if present, else -(insertion point) - 1. */
+        private int search(MavenVersion v) {
+            int lo = 0, hi = bounds.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = bounds[mid].compareTo(v);
+                if (c < 0) lo = mid + 1;
+                else if (c > 0) hi = mid - 1;
+                else return mid;
+            }
+            return -(lo + 1);
+        }
+
+        Advisory find(MavenVersion v) {
+            int i = search(v);
+            return segments[i >= 0 ? 2 * i + 1 : 2 * (-i - 1)];
+        }
+    }
+
+    /** Compiles the given advisories; entries with a missing or malformed range are skipped. */
+    static AdvisoryRangeIndex build(Iterable<Advisory> advisories) {
+        Map<String, List<Interval>> grouped = new HashMap<>();
+        Map<String, List<Advisory>> perArtifact = new HashMap<>();
+        int advisoryCount = 0;
+        int intervalCount = 0;
+        int order = 0;
+        for (Advisory a : advisories) {
+            if (a.getVulnerableVersion() == null) continue;
+            VersionRange range;
+            try {
+                range = VersionRange.parse(a.getVulnerableVersion());
+            } catch (IllegalArgumentException ex) {
+                System.err.println("Skipping advisory " + a.getCve() + ": " + ex.getMessage());
+                continue;
+            }
+            String key = key(a.getGroupId(), a.getArtifactId());
+            perArtifact.computeIfAbsent(key, k -> new ArrayList<>()).add(a);
+            List<Interval> list = grouped.computeIfAbsent(key, k -> new ArrayList<>());
+            for (VersionRange.Restriction r : range.getRestrictions()) {
+                list.add(new Interval(r, a, order));
+                intervalCount++;
+            }
+            order++;
+            advisoryCount++;
+        }
+
+        Map<String, Intervals> byArtifact = new HashMap<>();
+        for (Map.Entry<String, List<Interval>> e : grouped.entrySet()) {
+            byArtifact.put(e.getKey(), new Intervals(e.getValue()));
+        }
+        return new AdvisoryRangeIndex(byArtifact, perArtifact, advisoryCount, intervalCount);
+    }
+
+    /** groupId:artifactId keys whose advisories differ between this index and {@code previous}. */
+    Set<String> changedArtifacts(AdvisoryRangeIndex previous) {
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, List<Advisory>> e : advisories.entrySet()) {
+            if (!same(e.getValue(), previous.advisories.get(e.getKey()))) changed.add(e.getKey());
+        }
+        for (String key : previous.advisories.keySet()) {
+            if (!advisories.containsKey(key)) changed.add(key);
+        }
+        return changed;
+    }
+
+    /** First advisory (in load order) whose range contains the dependency's version, or null. */
+    Advisory find(Dependency d) {
+        if (d.getVersion() == null) return null;
+        Intervals intervals = byArtifact.get(key(d.getGroupId(), d.getArtifactId()));
+        if (intervals == null) return null;
+        return intervals.find(MavenVersion.parse(d.getVersion()));
+    }
+
+    int advisoryCount() { return advisoryCount; }
+    int intervalCount() { return intervalCount; }
+    int artifactCount() { return byArtifact.size(); }
+
+    /** Whether both lists hold the same advisories in the same order, as far as lookups can tell. */
+    private static boolean same(List<Advisory> current, List<Advisory> previous) {
+        if (previous == null || current.size() != previous.size()) return false;
+        for (int i = 0; i < current.size(); i++) {
+            Advisory a = current.get(i);
+            Advisory b = previous.get(i);
+            if (!Objects.equals(a.getVulnerableVersion(), b.getVulnerableVersion()) || !Objects.equals(a.getCve(), b.getCve())
+                    || !Objects.equals(a.getSeverity(), b.getSeverity())
+                    || !Objects.equals(a.getPatchedVersion(), b.getPatchedVersion())
+                    || !Objects.equals(a.getRecommendation(), b.getRecommendation())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String key(String groupId, String artifactId) {
+        return groupId + ":" + artifactId;
+    }
+}
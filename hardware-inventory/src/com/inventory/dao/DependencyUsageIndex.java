@@ -0,0 +1,136 @@
+package com.inventory.dao;
+
+import com.inventory.model.Dependency;
+import com.inventory.model.Project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * In-memory inverted index from groupId:artifactId to the projects that use it (and which versions).
+ * ProjectDAO keeps it current on its own writes; writes made by other processes are only picked up
+ * by a rebuild.
+ *
+ * An index can take writes while it is being loaded. Between {@link #beginLoad} and
+ * {@link #finishLoad} each write also records the project and artifact it touched; a write racing
+ * the load can only leave those entries wrong, and finishLoad replaces them from the projects as
+ * stored afterwards.
+ */
+class DependencyUsageIndex {
+    // groupId:artifactId -> projectId -> versions used by that project (a project may list one twice);
+    // the version lists are replaced, never mutated, so readers need no locking
+    private final Map<String, Map<String, List<String>>> usages = new ConcurrentHashMap<>();
+    // while loading: projectId -> groupId:artifactId keys written for it; null once loaded
+    private volatile Map<String, Set<String>> written;
+
+    /** Starts recording writes; until {@link #finishLoad} the index is incomplete and not to be queried. */
+    void beginLoad() {
+        written = new ConcurrentHashMap<>();
+    }
+
+    boolean isLoaded() {
+        return written == null;
+    }
+
+    /** Adds a project read by the initial load. */
+    void load(Project p) {
+        for (Dependency d : p.getDependencies()) put(p.getId(), d);
+    }
+
+    /** Projects written since {@link #beginLoad}. */
+    Set<String> writtenProjects() {
+        Map<String, Set<String>> w = written;
+        return w == null ? Collections.emptySet() : new LinkedHashSet<>(w.keySet());
+    }
+
+    /**
+     * Replaces the recorded entries with those of {@code current} (the written projects as stored
+     * now, absent if deleted) and stops recording. The caller keeps writes out meanwhile.
+     */
+    void finishLoad(Map<String, Project> current) {
+        Map<String, Set<String>> w = written;
+        if (w == null) return;
+        for (Map.Entry<String, Set<String>> e : w.entrySet()) {
+            String projectId = e.getKey();
+            for (String key : e.getValue()) {
+                Map<String, List<String>> projects = usages.get(key);
+                if (projects != null) projects.remove(projectId);
+            }
+            Project p = current.get(projectId);
+            if (p == null) continue;
+            for (Dependency d : p.getDependencies()) {
+                if (e.getValue().contains(key(d.getGroupId(), d.getArtifactId()))) put(projectId, d);
+            }
+        }
+        written = null;
+    }
+
+    void addProject(Project p) {
+        for (Dependency d : p.getDependencies()) add(p.getId(), d);
+    }
+
+    void removeProject(Project p) {
+        for (Dependency d : p.getDependencies()) remove(p.getId(), d);
+    }
+
+    void add(String projectId, Dependency d) {
+        record(projectId, d);
+        put(projectId, d);
+    }
+
+    private void put(String projectId, Dependency d) {
+        usages.computeIfAbsent(key(d.getGroupId(), d.getArtifactId()), k -> new ConcurrentHashMap<>())
+                .compute(projectId, (id, versions) -> {
+                    List<String> out = versions == null ? new ArrayList<>(1) : new ArrayList<>(versions);
+                    out.add(d.getVersion());
+                    return out;
+                });
+    }
+
+    void remove(String projectId, Dependency d) {
+        record(projectId, d);
+        Map<String, List<String>> projects = usages.get(key(d.getGroupId(), d.getArtifactId()));
+        if (projects == null) return;
+        projects.computeIfPresent(projectId, (id, versions) -> {
+            List<String> out = new ArrayList<>(versions);
+            out.remove(d.getVersion());
+            return out.isEmpty() ? null : out;
+        });
+    }
+
+    /** Projects using groupId:artifactId at a version accepted by the predicate, with those versions. */
+    Map<String, Set<String>> find(String groupId, String artifactId, Predicate<String> versionPredicate) {
+        Map<String, List<String>> projects = usages.get(key(groupId, artifactId));
+        if (projects == null) return Collections.emptyMap();
+
+        Map<String, Set<String>> out = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> e : projects.entrySet()) {
+            for (String v : e.getValue()) {
+                if (versionPredicate.test(v)) out.computeIfAbsent(e.getKey(), k -> new LinkedHashSet<>()).add(v);
+            }
+        }
+        return out;
+    }
+
+    private void record(String projectId, Dependency d) {
+        Map<String, Set<String>> w = written;
+        if (w != null) {
+            w.computeIfAbsent(projectId, k -> ConcurrentHashMap.newKeySet()).add(key(d.getGroupId(), d.getArtifactId()));
+        }
+    }
+
+    int artifactCount() {
+        return usages.size();
+    }
+
+    private static String key(String groupId, String artifactId) {
+        return groupId + ":" + artifactId;
+    }
+}
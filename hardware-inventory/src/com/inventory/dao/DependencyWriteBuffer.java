@@ -0,0 +1,293 @@
+package com.inventory.dao;
+
+import com.inventory.metrics.LatencyHistogram;
+import com.inventory.metrics.Metrics;
+import com.inventory.model.Dependency;
+import com.inventory.model.Project;
+import com.inventory.util.Config;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Coalesces addDependency / updateDependency calls into few writes. Pending calls are flushed when
+ * {@code inventory.depWrites.batchSize} (default 500) have queued up or every
+ * {@code inventory.depWrites.flushMs} (default 20), whichever comes first:
+ * <ul>
+ *   <li>consecutive adds to the same project become one {@code $push: {$each: [...]}}</li>
+ *   <li>the writes for different projects go out together in one unordered bulkWrite</li>
+ *   <li>calls for the same project keep their order: a project's second write goes in the next
+ *       bulkWrite of the flush, so an update can follow the add it depends on</li>
+ * </ul>
+ *
+ * Each call returns a future that completes only after its write was acknowledged with the
+ * client's write concern plus journaling ({@code inventory.depWrites.journal}, default true), with
+ * the same true/false answer ProjectDAO would have given, or exceptionally if the write failed.
+ * Callers that need read-your-writes wait on it; fire-and-forget callers can {@link #flush()} at the end.
+ */
+public class DependencyWriteBuffer implements AutoCloseable {
+    private static final LatencyHistogram FLUSH_LATENCY = Metrics.histogram("DependencyWriteBuffer.flush");
+
+    private final ProjectDAO dao;
+    private final MongoCollection<Project> col;
+    private final int batchSize;
+    private final ScheduledExecutorService flusher;
+
+    private final Object lock = new Object();
+    private List<PendingWrite> pending = new ArrayList<>();
+    private boolean closed;
+
+    /** One queued call. {@code oldDep} is null for an add. */
+    private static class PendingWrite {
+        final String projectId;
+        final Dependency oldDep;
+        final Dependency dep;
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        PendingWrite(String projectId, Dependency oldDep, Dependency dep) {
+            this.projectId = projectId;
+            this.oldDep = oldDep;
+            this.dep = dep;
+        }
+    }
+
+    /** One write model and the calls it carries (several adds, or a single update). */
+    private static class Coalesced {
+        final String projectId;
+        final List<PendingWrite> writes = new ArrayList<>();
+
+        Coalesced(String projectId) {
+            this.projectId = projectId;
+        }
+
+        boolean isPush() {
+            return writes.get(0).oldDep == null;
+        }
+
+        WriteModel<Project> toModel() {
+            if (!isPush()) {
+                PendingWrite w = writes.get(0);
+                return new UpdateOneModel<>(ProjectDAO.dependencyFilter(projectId, w.oldDep),
+                        ProjectDAO.dependencyUpdate(w.dep));
+            }
+            List<Dependency> deps = new ArrayList<>(writes.size());
+            for (PendingWrite w : writes) deps.add(w.dep);
+            return new UpdateOneModel<>(Filters.eq("_id", new ObjectId(projectId)),
+                    deps.size() == 1 ? Updates.push("dependencies", deps.get(0)) : Updates.pushEach("dependencies", deps));
+        }
+    }
+
+    public DependencyWriteBuffer(ProjectDAO dao) {
+        this(dao, Config.getInt("inventory.depWrites.batchSize", 500), Config.getLong("inventory.depWrites.flushMs", 20));
+    }
+
+    public DependencyWriteBuffer(ProjectDAO dao, int batchSize, long flushMs) {
+        this.dao = dao;
+        MongoCollection<Project> projects = dao.collection();
+        if (Config.getBoolean("inventory.depWrites.journal", true)) {
+            WriteConcern wc = projects.getWriteConcern();
+            projects = projects.withWriteConcern((wc.isAcknowledged() ? wc : WriteConcern.ACKNOWLEDGED).withJournal(true));
+        }
+        this.col = projects;
+        this.batchSize = batchSize;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "dependency-write-buffer");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushPending, flushMs, flushMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Queues {@code $push} of one dependency; completes with false if there is no such project. */
+    public CompletableFuture<Boolean> addDependency(String projectId, Dependency d) {
+        new ObjectId(projectId); // reject a malformed id now rather than failing the whole batch
+        return submit(new PendingWrite(projectId, null, d));
+    }
+
+    /** Queues a dependency replacement; completes with false if the project or old dependency is missing. */
+    public CompletableFuture<Boolean> updateDependency(String projectId, Dependency oldDep, Dependency newDep) {
+        new ObjectId(projectId);
+        return submit(new PendingWrite(projectId, oldDep, newDep));
+    }
+
+    private CompletableFuture<Boolean> submit(PendingWrite w) {
+        boolean full;
+        synchronized (lock) {
+            if (closed) throw new IllegalStateException("DependencyWriteBuffer is closed");
+            pending.add(w);
+            full = pending.size() >= batchSize;
+        }
+        if (full) flusher.execute(this::flushPending);
+        return w.result;
+    }
+
+    /** Writes everything queued so far and waits until it is acknowledged. */
+    public void flush() {
+        try {
+            flusher.submit(this::flushPending).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Flush failed", ex.getCause());
+        }
+    }
+
+    /** Flushes what is queued and stops the background flusher. */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed) return;
+            closed = true;
+        }
+        flush();
+        flusher.shutdown();
+    }
+
+    /** Runs on the flusher thread only, so flushes never overlap and calls stay in order. */
+    private void flushPending() {
+        List<PendingWrite> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) return;
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+        long start = System.nanoTime();
+        try {
+            for (List<Coalesced> round : rounds(batch)) {
+                writeRound(round);
+            }
+        } catch (RuntimeException ex) {
+            for (PendingWrite w : batch) w.result.completeExceptionally(ex);
+        } finally {
+            FLUSH_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Groups the calls per project into write models (merging runs of adds) and deals them out so
+     * round N holds every project's N-th model. Usually everything fits in round 0.
+     */
+    private static List<List<Coalesced>> rounds(List<PendingWrite> batch) {
+        Map<String, List<Coalesced>> perProject = new LinkedHashMap<>();
+        for (PendingWrite w : batch) {
+            List<Coalesced> models = perProject.computeIfAbsent(w.projectId, k -> new ArrayList<>());
+            Coalesced last = models.isEmpty() ? null : models.get(models.size() - 1);
+            if (last == null || !last.isPush() || w.oldDep != null) {
+                last = new Coalesced(w.projectId);
+                models.add(last);
+            }
+            last.writes.add(w);
+        }
+        List<List<Coalesced>> rounds = new ArrayList<>();
+        for (List<Coalesced> models : perProject.values()) {
+            for (int i = 0; i < models.size(); i++) {
+                if (rounds.size() == i) rounds.add(new ArrayList<>());
+                rounds.get(i).add(models.get(i));
+            }
+        }
+        return rounds;
+    }
+
+    private void writeRound(List<Coalesced> round) {
+        // the usage index must not be reconciled between the write and its index update
+        Lock writing = dao.indexWriteLock();
+        writing.lock();
+        try {
+            List<WriteModel<Project>> models = new ArrayList<>(round.size());
+            boolean updates = false;
+            for (Coalesced c : round) {
+                models.add(c.toModel());
+                updates |= !c.isPush();
+            }
+            // bulkWrite only reports totals, and after the fact an update that matched nothing can
+            // look applied; the write lock keeps this instance's other writes out, so read beforehand
+            Map<String, Project> before = updates ? fetch(round) : null;
+
+            BulkWriteResult result;
+            Map<Integer, BulkWriteError> failed = new HashMap<>();
+            try {
+                result = col.bulkWrite(models, new BulkWriteOptions().ordered(false));
+            } catch (MongoBulkWriteException ex) {
+                result = ex.getWriteResult();
+                for (BulkWriteError e : ex.getWriteErrors()) failed.put(e.getIndex(), e);
+            }
+
+            // bulkWrite only reports totals; when some model matched nothing, look up which
+            Map<String, Project> after = null;
+            if (result.getMatchedCount() < models.size() - failed.size()) after = fetch(round);
+
+            for (int i = 0; i < round.size(); i++) {
+                Coalesced c = round.get(i);
+                dao.invalidate(c.projectId);
+                BulkWriteError error = failed.get(i);
+                if (error != null) {
+                    RuntimeException ex = new IllegalStateException("Dependency write failed for project "
+                            + c.projectId + ": " + error.getMessage());
+                    for (PendingWrite w : c.writes) w.result.completeExceptionally(ex);
+                    continue;
+                }
+                boolean ok = after == null || applied(c, before, after);
+                if (ok) {
+                    for (PendingWrite w : c.writes) {
+                        if (w.oldDep == null) dao.dependencyAdded(w.projectId, w.dep);
+                        else dao.dependencyUpdated(w.projectId, w.oldDep, w.dep);
+                    }
+                }
+                for (PendingWrite w : c.writes) w.result.complete(ok);
+            }
+        } finally {
+            writing.unlock();
+        }
+    }
+
+    private Map<String, Project> fetch(List<Coalesced> round) {
+        Set<ObjectId> ids = new LinkedHashSet<>();
+        for (Coalesced c : round) ids.add(new ObjectId(c.projectId));
+        Map<String, Project> out = new HashMap<>();
+        for (Project p : col.find(Filters.in("_id", ids)).projection(Projections.include("dependencies"))) {
+            out.put(p.getId(), p);
+        }
+        return out;
+    }
+
+    /** Whether a model matched: a push needs the project, an update needs it to have held the old dependency. */
+    private static boolean applied(Coalesced c, Map<String, Project> before, Map<String, Project> after) {
+        if (c.isPush()) return after.get(c.projectId) != null;
+        Project p = before.get(c.projectId);
+        return p != null && contains(p, c.writes.get(0).oldDep);
+    }
+
+    private static boolean contains(Project p, Dependency d) {
+        for (Dependency e : p.getDependencies()) {
+            if (Objects.equals(e.getGroupId(), d.getGroupId()) && Objects.equals(e.getArtifactId(), d.getArtifactId())
+                    && Objects.equals(e.getVersion(), d.getVersion())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,17 @@
+package com.inventory.dao;
+
+/**
+ * A write was rejected because it would break a unique key (the id or a hardware serial number).
+ * Thrown by both storage backends so callers need not know which one they talk to.
+ */
+public class DuplicateKeyException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public DuplicateKeyException(String message) {
+        super(message);
+    }
+
+    public DuplicateKeyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,255 @@
+package com.inventory.dao;
+
+import com.inventory.dao.codec.HardwareItemCodec;
+import com.inventory.metrics.LatencyHistogram;
+import com.inventory.metrics.Metrics;
+import com.inventory.model.HardwareItem;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Hardware items in a local {@link MappedLog} ({@code hardware_items.log} under the storage path),
+ * for sites without a MongoDB server. Reads by id and serial-number checks go through the
+ * off-heap indexes; searches, counts and pages scan the log, which is fine at the size of a
+ * single site's inventory. Serial numbers are unique when set, as with the MongoDB partial index.
+ * Status/location counts are taken once when the log is opened and then kept in a
+ * {@link HardwareSummary} adjusted by every write.
+ */
+public class EmbeddedHardwareStore implements HardwareStore, AutoCloseable {
+    private static final LatencyHistogram CREATE_LATENCY = Metrics.histogram("EmbeddedHardwareStore.create");
+    private static final LatencyHistogram READ_LATENCY = Metrics.histogram("EmbeddedHardwareStore.read");
+    private static final LatencyHistogram LIST_ALL_LATENCY = Metrics.histogram("EmbeddedHardwareStore.listAll");
+    private static final LatencyHistogram STREAM_LATENCY = Metrics.histogram("EmbeddedHardwareStore.stream");
+    private static final LatencyHistogram LIST_PAGE_LATENCY = Metrics.histogram("EmbeddedHardwareStore.listPage");
+    private static final LatencyHistogram SEARCH_LATENCY = Metrics.histogram("EmbeddedHardwareStore.search");
+    private static final LatencyHistogram COUNT_BY_LATENCY = Metrics.histogram("EmbeddedHardwareStore.countBy");
+    private static final LatencyHistogram BULK_INSERT_LATENCY = Metrics.histogram("EmbeddedHardwareStore.bulkInsert");
+    private static final LatencyHistogram UPDATE_LATENCY = Metrics.histogram("EmbeddedHardwareStore.update");
+    private static final LatencyHistogram DELETE_LATENCY = Metrics.histogram("EmbeddedHardwareStore.delete");
+    private static final LatencyHistogram REBUILD_SUMMARY_LATENCY = Metrics.histogram("EmbeddedHardwareStore.rebuildSummary");
+
+    private final HardwareItemCodec codec = new HardwareItemCodec();
+    private final MappedLog<HardwareItem> log;
+    private final HardwareSummary summary = new HardwareSummary();
+
+    public EmbeddedHardwareStore(Path dir, boolean syncWrites) {
+        log = new MappedLog<>(dir.resolve("hardware_items.log"), codec, HardwareItem::getId,
+                HardwareItem::getSerialNumber, syncWrites);
+        rebuildSummary();
+    }
+
+    @Override
+    public String create(HardwareItem item) {
+        long start = System.nanoTime();
+        try {
+            codec.generateIdIfAbsentFromDocument(item);
+            if (item.getVersion() == null) item.setVersion(0L);
+            try {
+                log.insert(item);
+            } catch (DuplicateKeyException ex) {
+                throw new DuplicateKeyException("A hardware item with serial number " + item.getSerialNumber()
+                        + " already exists", ex);
+            }
+            summary.add(item.getStatus(), item.getLocation(), 1);
+            return item.getId();
+        } finally {
+            CREATE_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public HardwareItem read(String id) {
+        long start = System.nanoTime();
+        try {
+            return log.get(id);
+        } finally {
+            READ_LATENCY.recordSince(start);
+        }
+    }
+
+    /** Decodes the whole record and copies out the requested fields; the log has no cheaper path. */
+    @Override
+    public HardwareItem read(String id, String... fields) {
+        long start = System.nanoTime();
+        try {
+            return HardwareQuery.project(log.get(id), fields);
+        } finally {
+            READ_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<HardwareItem> listAll() {
+        long start = System.nanoTime();
+        try (Stream<HardwareItem> items = log.stream()) {
+            return items.collect(Collectors.toList());
+        } finally {
+            LIST_ALL_LATENCY.recordSince(start);
+        }
+    }
+
+    /** All fields are always returned; {@code batchSize} and {@code fields} do not apply to a local log. */
+    @Override
+    public Stream<HardwareItem> stream(int batchSize, String... fields) {
+        long start = System.nanoTime();
+        return log.stream().onClose(() -> STREAM_LATENCY.recordSince(start));
+    }
+
+    @Override
+    public List<HardwareItem> listPage(String afterId, int limit) {
+        return listPage(afterId, limit, new String[0]);
+    }
+
+    @Override
+    public List<HardwareItem> listPage(String afterId, int limit, String... fields) {
+        long start = System.nanoTime();
+        try (Stream<HardwareItem> items = log.stream()) {
+            // ObjectId hex strings sort like the ids themselves
+            return items.filter(it -> afterId == null || it.getId().compareTo(afterId) > 0)
+                    .sorted(Comparator.comparing(HardwareItem::getId))
+                    .limit(limit)
+                    .map(it -> HardwareQuery.project(it, fields))
+                    .collect(Collectors.toList());
+        } finally {
+            LIST_PAGE_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<HardwareItem> search(HardwareQuery query) {
+        long start = System.nanoTime();
+        try (Stream<HardwareItem> items = log.stream()) {
+            Stream<HardwareItem> matches = items.filter(query::matches).sorted(query.comparator());
+            if (query.getLimit() > 0) matches = matches.limit(query.getLimit());
+            return matches.map(it -> HardwareQuery.project(it, query.getFields())).collect(Collectors.toList());
+        } finally {
+            SEARCH_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public Map<String, Long> countBy(String field, HardwareQuery query) {
+        long start = System.nanoTime();
+        try {
+            if (!HardwareQuery.SORTABLE.contains(field) || field.equals("_id")) {
+                throw new IllegalArgumentException("Cannot group by " + field);
+            }
+            if ((field.equals("status") || field.equals("location")) && query.isSummarizable()) {
+                return summary.countBy(field, query.getStatus(), query.getLocation());
+            }
+            Function<HardwareItem, String> key = HardwareQuery.field(field);
+            Map<String, Long> counts = new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
+            try (Stream<HardwareItem> items = log.stream()) {
+                items.filter(query::matches).forEach(it -> counts.merge(key.apply(it), 1L, Long::sum));
+            }
+            return new LinkedHashMap<>(counts);
+        } finally {
+            COUNT_BY_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public BulkResult bulkInsert(List<HardwareItem> items) {
+        long start = System.nanoTime();
+        try {
+            int inserted = 0;
+            List<BulkResult.RowError> errors = new ArrayList<>();
+            for (int i = 0; i < items.size(); i++) {
+                HardwareItem item = items.get(i);
+                codec.generateIdIfAbsentFromDocument(item);
+                if (item.getVersion() == null) item.setVersion(0L);
+                try {
+                    log.insert(item);
+                    summary.add(item.getStatus(), item.getLocation(), 1);
+                    inserted++;
+                } catch (DuplicateKeyException ex) {
+                    errors.add(new BulkResult.RowError(i, true, ex.getMessage()));
+                } catch (RuntimeException ex) {
+                    errors.add(new BulkResult.RowError(i, false, ex.getMessage()));
+                }
+            }
+            return new BulkResult(inserted, errors);
+        } finally {
+            BULK_INSERT_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean update(String id, HardwareItem updated) {
+        return update(id, HardwareUpdate.of(updated));
+    }
+
+    /** Read, check and replace under the store's lock, so concurrent updates cannot interleave. */
+    @Override
+    public synchronized boolean update(String id, HardwareUpdate update) {
+        long start = System.nanoTime();
+        try {
+            HardwareItem current = log.get(id);
+            if (current == null) return false;
+            Long expected = update.getExpectedVersion();
+            if (expected != null && HardwareUpdate.version(current) != expected) {
+                throw new VersionConflictException(id, expected, HardwareUpdate.version(current));
+            }
+            if (!update.changes(current)) return false;
+            try {
+                HardwareItem next = update.applyTo(current);
+                if (!log.replace(next)) return false;
+                summary.add(current.getStatus(), current.getLocation(), -1);
+                summary.add(next.getStatus(), next.getLocation(), 1);
+                return true;
+            } catch (DuplicateKeyException ex) {
+                throw new DuplicateKeyException("Another hardware item already has that serial number", ex);
+            }
+        } finally {
+            UPDATE_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public boolean delete(String id) {
+        long start = System.nanoTime();
+        try {
+            HardwareItem removed = log.remove(id);
+            if (removed == null) return false;
+            summary.add(removed.getStatus(), removed.getLocation(), -1);
+            return true;
+        } finally {
+            DELETE_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public HardwareSummary summary() {
+        return summary;
+    }
+
+    /** Recounts from a scan of the log. */
+    @Override
+    public HardwareSummary rebuildSummary() {
+        long start = System.nanoTime();
+        try {
+            HardwareSummary counted = new HardwareSummary();
+            try (Stream<HardwareItem> items = log.stream()) {
+                items.forEach(it -> counted.add(it.getStatus(), it.getLocation(), 1));
+            }
+            summary.reset(counted.snapshot());
+            return summary;
+        } finally {
+            REBUILD_SUMMARY_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public void close() {
+        log.close();
+    }
+}
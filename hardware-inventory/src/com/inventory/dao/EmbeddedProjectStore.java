@@ -0,0 +1,336 @@
+package com.inventory.dao;
+
+import com.inventory.dao.codec.DependencyCodec;
+import com.inventory.dao.codec.ProjectCodec;
+import com.inventory.ingest.AdvisoryLoader;
+import com.inventory.metrics.LatencyHistogram;
+import com.inventory.metrics.Metrics;
+import com.inventory.model.Advisory;
+import com.inventory.model.Dependency;
+import com.inventory.model.Project;
+import com.inventory.model.VulnerabilityReport;
+import org.bson.Document;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Projects in a local {@link MappedLog} ({@code projects.log} under the storage path). The reverse
+ * dependency index is always on, built from the log when the store opens. Dependency changes are
+ * read-modify-write of the whole project, serialized by this store.
+ *
+ * Advisories are kept in {@code advisories.jsonl} next to the log, one vulnerabilities document
+ * per line as {@link AdvisoryLoader} normalizes them, and matched through an
+ * {@link AdvisoryRangeIndex} built when the store opens. {@link #loadAdvisories} replaces the file
+ * and the index from an OSV dump. There are no dependency_recommendations here, so
+ * recommendations only cover vulnerable dependencies.
+ */
+public class EmbeddedProjectStore implements ProjectStore, AutoCloseable {
+    private static final LatencyHistogram LOAD_ADVISORIES_LATENCY = Metrics.histogram("EmbeddedProjectStore.loadAdvisories");
+    private static final LatencyHistogram CREATE_LATENCY = Metrics.histogram("EmbeddedProjectStore.create");
+    private static final LatencyHistogram READ_LATENCY = Metrics.histogram("EmbeddedProjectStore.read");
+    private static final LatencyHistogram LIST_ALL_LATENCY = Metrics.histogram("EmbeddedProjectStore.listAll");
+    private static final LatencyHistogram STREAM_LATENCY = Metrics.histogram("EmbeddedProjectStore.stream");
+    private static final LatencyHistogram LIST_PAGE_LATENCY = Metrics.histogram("EmbeddedProjectStore.listPage");
+    private static final LatencyHistogram FIND_PROJECTS_USING_LATENCY = Metrics.histogram("EmbeddedProjectStore.findProjectsUsing");
+    private static final LatencyHistogram ADD_DEPENDENCY_LATENCY = Metrics.histogram("EmbeddedProjectStore.addDependency");
+    private static final LatencyHistogram FIND_ID_BY_NAME_LATENCY = Metrics.histogram("EmbeddedProjectStore.findIdByName");
+    private static final LatencyHistogram ADD_DEPENDENCIES_LATENCY = Metrics.histogram("EmbeddedProjectStore.addDependencies");
+    private static final LatencyHistogram REMOVE_DEPENDENCIES_LATENCY = Metrics.histogram("EmbeddedProjectStore.removeDependencies");
+    private static final LatencyHistogram UPDATE_DEPENDENCY_LATENCY = Metrics.histogram("EmbeddedProjectStore.updateDependency");
+    private static final LatencyHistogram DELETE_PROJECT_LATENCY = Metrics.histogram("EmbeddedProjectStore.deleteProject");
+    private static final LatencyHistogram CHECK_VULNERABILITIES_LATENCY = Metrics.histogram("EmbeddedProjectStore.checkVulnerabilities");
+    private static final LatencyHistogram RECOMMEND_DEPENDENCY_UPDATES_LATENCY = Metrics.histogram("EmbeddedProjectStore.recommendDependencyUpdates");
+
+    private final ProjectCodec codec = new ProjectCodec(new DependencyCodec());
+    private final MappedLog<Project> log;
+    private final DependencyUsageIndex usageIndex = new DependencyUsageIndex();
+    private final Path advisoryFile;
+    private volatile AdvisoryRangeIndex advisories;
+
+    public EmbeddedProjectStore(Path dir, boolean syncWrites) {
+        log = new MappedLog<>(dir.resolve("projects.log"), codec, Project::getId, null, syncWrites);
+        try (Stream<Project> projects = log.stream()) {
+            projects.forEach(usageIndex::addProject);
+        }
+        advisoryFile = dir.resolve("advisories.jsonl");
+        advisories = readAdvisories(advisoryFile);
+    }
+
+    /**
+     * Replaces the advisories with those of a directory or .zip OSV dump. The file is written aside
+     * and moved into place, so a failed load leaves the previous advisories in use.
+     *
+     * @return the number of advisory ranges loaded
+     */
+    public synchronized int loadAdvisories(Path dump, PrintStream errors) throws IOException {
+        long start = System.nanoTime();
+        try {
+            List<Document> docs = AdvisoryLoader.parse(dump, errors);
+            Path tmp = advisoryFile.resolveSibling(advisoryFile.getFileName() + ".tmp");
+            try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (Document d : docs) {
+                    out.write(d.toJson());
+                    out.newLine();
+                }
+            }
+            Files.move(tmp, advisoryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            List<Advisory> loaded = new ArrayList<>(docs.size());
+            for (Document d : docs) loaded.add(ProjectDAO.toAdvisory(d));
+            advisories = AdvisoryRangeIndex.build(loaded);
+            return docs.size();
+        } finally {
+            LOAD_ADVISORIES_LATENCY.recordSince(start);
+        }
+    }
+
+    private static AdvisoryRangeIndex readAdvisories(Path file) {
+        if (!Files.exists(file)) return AdvisoryRangeIndex.build(Collections.emptyList());
+        try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            return AdvisoryRangeIndex.build(lines.filter(l -> !l.isBlank())
+                    .map(l -> ProjectDAO.toAdvisory(Document.parse(l)))
+                    .collect(Collectors.toList()));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read " + file, ex);
+        }
+    }
+
+    @Override
+    public String create(Project p) {
+        long start = System.nanoTime();
+        try {
+            codec.generateIdIfAbsentFromDocument(p);
+            log.insert(p);
+            usageIndex.addProject(p);
+            return p.getId();
+        } finally {
+            CREATE_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public Project read(String id) {
+        long start = System.nanoTime();
+        try {
+            return log.get(id);
+        } finally {
+            READ_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Project> listAll() {
+        long start = System.nanoTime();
+        try (Stream<Project> projects = log.stream()) {
+            return projects.collect(Collectors.toList());
+        } finally {
+            LIST_ALL_LATENCY.recordSince(start);
+        }
+    }
+
+    /** All fields are always returned; {@code batchSize} and {@code fields} do not apply to a local log. */
+    @Override
+    public Stream<Project> stream(int batchSize, String... fields) {
+        long start = System.nanoTime();
+        return log.stream().onClose(() -> STREAM_LATENCY.recordSince(start));
+    }
+
+    @Override
+    public List<Project> listPage(String afterId, int limit) {
+        long start = System.nanoTime();
+        try (Stream<Project> projects = log.stream()) {
+            return projects.filter(p -> afterId == null || p.getId().compareTo(afterId) > 0)
+                    .sorted(Comparator.comparing(Project::getId))
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        } finally {
+            LIST_PAGE_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public void forEachProject(Consumer<Project> action) {
+        try (Stream<Project> projects = log.stream()) {
+            projects.forEach(action);
+        }
+    }
+
+    @Override
+    public Map<String, Set<String>> findProjectsUsing(String groupId, String artifactId,
+                                                     Predicate<String> versionPredicate) {
+        long start = System.nanoTime();
+        try {
+            return usageIndex.find(groupId, artifactId, versionPredicate);
+        } finally {
+            FIND_PROJECTS_USING_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public synchronized boolean addDependency(String projectId, Dependency d) {
+        long start = System.nanoTime();
+        try {
+            Project p = log.get(projectId);
+            if (p == null) return false;
+            p.addDependency(d);
+            log.replace(p);
+            usageIndex.add(projectId, d);
+            return true;
+        } finally {
+            ADD_DEPENDENCY_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public String findIdByName(String name) {
+        long start = System.nanoTime();
+        try (Stream<Project> projects = log.stream()) {
+            return projects.filter(p -> Objects.equals(name, p.getName()))
+                    .map(Project::getId)
+                    .min(Comparator.naturalOrder())
+                    .orElse(null);
+        } finally {
+            FIND_ID_BY_NAME_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public synchronized boolean addDependencies(String projectId, List<Dependency> deps) {
+        long start = System.nanoTime();
+        try {
+            Project p = log.get(projectId);
+            if (p == null) return false;
+            if (deps.isEmpty()) return true;
+            for (Dependency d : deps) p.addDependency(d);
+            log.replace(p);
+            for (Dependency d : deps) usageIndex.add(projectId, d);
+            return true;
+        } finally {
+            ADD_DEPENDENCIES_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public synchronized boolean removeDependencies(String projectId, Collection<Dependency> deps) {
+        long start = System.nanoTime();
+        try {
+            Project p = log.get(projectId);
+            if (p == null) return false;
+            Set<String> remove = new HashSet<>();
+            for (Dependency d : deps) remove.add(d.toString());
+            List<Dependency> removed = new ArrayList<>();
+            for (Dependency d : p.getDependencies()) {
+                if (remove.contains(d.toString())) removed.add(d);
+            }
+            if (!removed.isEmpty()) {
+                p.getDependencies().removeAll(removed);
+                log.replace(p);
+                for (Dependency d : removed) usageIndex.remove(projectId, d);
+            }
+            return true;
+        } finally {
+            REMOVE_DEPENDENCIES_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public synchronized boolean updateDependency(String projectId, Dependency oldDep, Dependency newDep) {
+        long start = System.nanoTime();
+        try {
+            Project p = log.get(projectId);
+            if (p == null) return false;
+            List<Dependency> deps = p.getDependencies();
+            for (int i = 0; i < deps.size(); i++) {
+                Dependency d = deps.get(i);
+                if (Objects.equals(d.getGroupId(), oldDep.getGroupId())
+                        && Objects.equals(d.getArtifactId(), oldDep.getArtifactId())
+                        && Objects.equals(d.getVersion(), oldDep.getVersion())) {
+                    deps.set(i, new Dependency(newDep.getGroupId(), newDep.getArtifactId(), newDep.getVersion()));
+                    log.replace(p);
+                    usageIndex.remove(projectId, oldDep);
+                    usageIndex.add(projectId, newDep);
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            UPDATE_DEPENDENCY_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public synchronized boolean deleteProject(String projectId) {
+        long start = System.nanoTime();
+        try {
+            Project deleted = log.remove(projectId);
+            if (deleted == null) return false;
+            usageIndex.removeProject(deleted);
+            return true;
+        } finally {
+            DELETE_PROJECT_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public VulnerabilityReport checkVulnerabilities(String projectId) {
+        long start = System.nanoTime();
+        try {
+            VulnerabilityReport report = new VulnerabilityReport();
+            Project p = log.get(projectId);
+            if (p == null) return report;
+            AdvisoryRangeIndex index = advisories;
+            for (Dependency dep : p.getDependencies()) {
+                Advisory found = index.find(dep);
+                if (found != null) report.addFinding(ProjectDAO.toFinding(dep, found));
+            }
+            return report;
+        } finally {
+            CHECK_VULNERABILITIES_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<String> recommendDependencyUpdates(String projectId) {
+        long start = System.nanoTime();
+        try {
+            List<String> recs = new ArrayList<>();
+            Project p = log.get(projectId);
+            if (p == null) return recs;
+            AdvisoryRangeIndex index = advisories;
+            for (Dependency dep : p.getDependencies()) {
+                Advisory found = index.find(dep);
+                if (found != null) {
+                    recs.add(dep.toString() + " => VULNERABLE -> " + ProjectDAO.toFinding(dep, found).recommendation);
+                }
+            }
+            if (recs.isEmpty()) recs.add("No updates or vulnerabilities found for project dependencies.");
+            return recs;
+        } finally {
+            RECOMMEND_DEPENDENCY_UPDATES_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public void close() {
+        log.close();
+    }
+}
@@ -0,0 +1,282 @@
+package com.inventory.dao;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded read-through cache of entities by id, for the DAOs' {@code read(id)}.
+ *
+ * Entries are weighed by their estimated heap size, and the cache holds at most
+ * {@code maxBytes} of them. It is split into 16 segments, each an access-ordered LinkedHashMap
+ * behind its own lock, and each segment evicts its least recently used entries once it exceeds
+ * its share. With a TTL, an entry older than that is reloaded on its next read. Misses are not
+ * cached.
+ *
+ * The DAO invalidates an id after each of its own writes to it. Every segment has an epoch that
+ * any invalidation bumps, and a value loaded before a concurrent invalidation is returned but not
+ * stored, so a racing write cannot leave a stale entry behind. Writes by other processes are
+ * picked up through {@link #watch} (a change stream on the collection, where the deployment
+ * supports it) or else after the TTL; {@link #stats()} shows which.
+ *
+ * Entities are mutable, so the cache stores a copy of what was loaded and hands out copies.
+ */
+public class EntityCache<V> implements AutoCloseable {
+    private static final int SEGMENTS = 16;
+    private static final long MIN_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 60_000;
+    // $changeStream only on replica sets / unknown pipeline stage: retrying cannot help
+    private static final Set<Integer> NO_CHANGE_STREAMS = Set.of(40573, 40324);
+
+    private final String name;
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final ToLongFunction<V> weigher;
+    private final UnaryOperator<V> copier;
+    private final Segment<V>[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private volatile boolean closed;
+    private Thread watcher;
+    // "off" until watch(), then "live", "reconnecting" or "ttl-only"
+    private volatile String watchState = "off";
+
+    private static final class Entry<V> {
+        final V value;
+        final long weight;
+        final long loadedAt;
+
+        Entry(V value, long weight, long loadedAt) {
+            this.value = value;
+            this.weight = weight;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private static final class Segment<V> {
+        final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>(64, 0.75f, true);
+        final long maxWeight;
+        long weight;
+        long epoch;
+
+        Segment(long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+    }
+
+    /**
+     * @param name     shown in {@link #stats()}
+     * @param maxBytes approximate heap the cached entities may take
+     * @param ttlMillis how long an entry is served before it is reloaded; 0 for no limit
+     * @param weigher  estimated heap size of an entity, in bytes
+     * @param copier   deep enough copy of an entity that callers can modify theirs freely
+     */
+    @SuppressWarnings("unchecked")
+    public EntityCache(String name, long maxBytes, long ttlMillis, ToLongFunction<V> weigher, UnaryOperator<V> copier) {
+        this.name = name;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttlMillis));
+        this.weigher = weigher;
+        this.copier = copier;
+        this.segments = (Segment<V>[]) new Segment<?>[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) segments[i] = new Segment<>(Math.max(1, maxBytes / SEGMENTS));
+    }
+
+    /** The cached entity, or {@code loader}'s result (stored unless null or invalidated meanwhile). */
+    public V get(String id, Function<String, V> loader) {
+        Segment<V> s = segment(id);
+        long epoch;
+        synchronized (s) {
+            Entry<V> e = s.entries.get(id);
+            if (e != null) {
+                if (ttlNanos == 0 || System.nanoTime() - e.loadedAt < ttlNanos) {
+                    hits.increment();
+                    return copier.apply(e.value);
+                }
+                s.entries.remove(id);
+                s.weight -= e.weight;
+                expirations.increment();
+            }
+            epoch = s.epoch;
+        }
+        misses.increment();
+        V loaded = loader.apply(id);
+        if (loaded == null) return null;
+        long weight = weigher.applyAsLong(loaded);
+        if (weight > s.maxWeight) return loaded;
+        Entry<V> entry = new Entry<>(copier.apply(loaded), weight, System.nanoTime());
+        synchronized (s) {
+            if (s.epoch != epoch) return loaded;
+            Entry<V> old = s.entries.put(id, entry);
+            s.weight += weight - (old != null ? old.weight : 0);
+            Iterator<Entry<V>> eldest = s.entries.values().iterator();
+            while (s.weight > s.maxWeight && eldest.hasNext()) {
+                Entry<V> e = eldest.next();
+                eldest.remove();
+                s.weight -= e.weight;
+                evictions.increment();
+            }
+        }
+        return loaded;
+    }
+
+    /** Drops the entry for {@code id}, and keeps a load of it already in flight from being stored. */
+    public void invalidate(String id) {
+        Segment<V> s = segment(id);
+        synchronized (s) {
+            Entry<V> e = s.entries.remove(id);
+            if (e != null) s.weight -= e.weight;
+            s.epoch++;
+        }
+        invalidations.increment();
+    }
+
+    public void clear() {
+        for (Segment<V> s : segments) {
+            synchronized (s) {
+                s.entries.clear();
+                s.weight = 0;
+                s.epoch++;
+            }
+        }
+    }
+
+    /**
+     * Invalidates the ids that other processes update, replace or delete in {@code col}, from a
+     * daemon thread following its change stream.
+     */
+    public synchronized void watch(MongoCollection<?> col) {
+        if (watcher != null) return;
+        List<Bson> pipeline = List.of(
+                Aggregates.match(Filters.in("operationType", "update", "replace", "delete")),
+                Aggregates.project(new Document("documentKey", 1).append("operationType", 1)));
+        watchState = "reconnecting";
+        watcher = new Thread(() -> follow(col.withDocumentClass(Document.class), pipeline), name + "-cache-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Follows the change stream until closed. A stream that fails is logged and reopened after a
+     * backoff doubling from a second up to a minute; the cache is cleared on reopening, since
+     * changes made in the gap were never seen. Without change streams (a standalone server) it
+     * stops, and entries go stale for at most the TTL.
+     */
+    private void follow(MongoCollection<Document> col, List<Bson> pipeline) {
+        long backoff = MIN_BACKOFF_MILLIS;
+        boolean reopened = false;
+        while (!closed) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = col.watch(pipeline).cursor()) {
+                if (reopened) clear();
+                watchState = "live";
+                backoff = MIN_BACKOFF_MILLIS;
+                while (!closed) {
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    if (change == null || change.getDocumentKey() == null) continue;
+                    String id = id(change.getDocumentKey().get("_id"));
+                    if (id != null) invalidate(id);
+                }
+            } catch (MongoException ex) {
+                if (closed) return;
+                if (ex instanceof MongoCommandException
+                        && NO_CHANGE_STREAMS.contains(((MongoCommandException) ex).getErrorCode())) {
+                    watchState = "ttl-only";
+                    System.err.println(name + " cache: change streams unavailable (" + ex.getMessage()
+                            + "), other processes' writes show up after the TTL");
+                    return;
+                }
+                watchState = "reconnecting";
+                System.err.println(name + " cache: change stream failed (" + ex.getMessage()
+                        + "), reopening in " + backoff + " ms");
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            reopened = true;
+        }
+    }
+
+    /** The cache key of a changed document's _id: the hex of an ObjectId, or the string itself. */
+    static String id(BsonValue id) {
+        if (id == null) return null;
+        if (id.isObjectId()) return id.asObjectId().getValue().toHexString();
+        if (id.isString()) return id.asString().getValue();
+        return null;
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+
+    public long size() {
+        long n = 0;
+        for (Segment<V> s : segments) {
+            synchronized (s) {
+                n += s.entries.size();
+            }
+        }
+        return n;
+    }
+
+    public long weight() {
+        long w = 0;
+        for (Segment<V> s : segments) {
+            synchronized (s) {
+                w += s.weight;
+            }
+        }
+        return w;
+    }
+
+    public String stats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        return String.format(Locale.ROOT,
+                "EntityCache{%s: entries=%d, approxBytes=%d/%d, hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, "
+                        + "expirations=%d, invalidations=%d, watch=%s}", name, size(), weight(), maxBytes, h, m,
+                h + m == 0 ? 0.0 : 100.0 * h / (h + m), evictions.sum(), expirations.sum(), invalidations.sum(),
+                watchState);
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (watcher != null) watcher.interrupt();
+    }
+
+    private Segment<V> segment(String id) {
+        int h = id.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    /** Rough heap size of a string, matching the estimate used by {@link VulnerabilityIndex}. */
+    static long sizeOf(String s) {
+        return s == null ? 0 : 40 + s.length();
+    }
+}
@@ -1,71 +1,483 @@
 package com.inventory.dao;
 
 import com.inventory.model.HardwareItem;
+import com.inventory.metrics.LatencyHistogram;
+import com.inventory.metrics.Metrics;
+import com.inventory.util.Config;
 import org.bson.Document;
 import org.bson.types.ObjectId;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndDeleteOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import org.bson.conversions.Bson;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class HardwareDAO {
-    private final MongoCollection<Document> col;
+/**
+ * Hardware items in "hardware_items".
+ *
+ * Counts per status and location live only in a {@link HardwareSummary} in memory. They are
+ * derived from the items themselves by one $group over the (status, location, name) index, and counted
+ * again once they are older than {@code inventory.summary.refreshMillis} (default 5000) to pick
+ * up other processes' writes. In between, every create, bulk insert, delete and every update that
+ * moves an item to another status or location adjusts them right after the item is written;
+ * updates and deletes use findOneAndUpdate / findOneAndDelete to learn the item's previous status
+ * and location in the same round-trip. Nothing but the items is stored, so there is no second
+ * write to race or to lose in a crash: a count can be off only until the next recount.
+ *
+ * With {@link #enableStatusHistory} every status or location change is also recorded in a
+ * {@link StatusHistory}, for utilization queries over time.
+ *
+ * With {@link #enableCache} reads by id are served from an {@link EntityCache} (projected reads
+ * are cut from the cached item), which this DAO's updates and deletes invalidate.
+ *
+ * {@link #listAll}, {@link #stream} and the aggregation in {@link #countBy} read through
+ * {@link MongoManager#scanReadPreference()} (primary unless configured otherwise); every other
+ * read, including {@link #listPage} and the summary recount, goes to the primary.
+ */
+public class HardwareDAO implements HardwareStore {
+    private static final LatencyHistogram CREATE_LATENCY = Metrics.histogram("HardwareDAO.create");
+    private static final LatencyHistogram READ_LATENCY = Metrics.histogram("HardwareDAO.read");
+    private static final LatencyHistogram LIST_ALL_LATENCY = Metrics.histogram("HardwareDAO.listAll");
+    private static final LatencyHistogram STREAM_LATENCY = Metrics.histogram("HardwareDAO.stream");
+    private static final LatencyHistogram LIST_PAGE_LATENCY = Metrics.histogram("HardwareDAO.listPage");
+    private static final LatencyHistogram SEARCH_LATENCY = Metrics.histogram("HardwareDAO.search");
+    private static final LatencyHistogram COUNT_BY_LATENCY = Metrics.histogram("HardwareDAO.countBy");
+    private static final LatencyHistogram BULK_INSERT_LATENCY = Metrics.histogram("HardwareDAO.bulkInsert");
+    private static final LatencyHistogram UPDATE_LATENCY = Metrics.histogram("HardwareDAO.update");
+    private static final LatencyHistogram DELETE_LATENCY = Metrics.histogram("HardwareDAO.delete");
+    private static final LatencyHistogram REBUILD_SUMMARY_LATENCY = Metrics.histogram("HardwareDAO.rebuildSummary");
+
+    private final MongoCollection<HardwareItem> col;
+    // same collection routed by MongoManager.scanReadPreference() for listings and reports
+    private final MongoCollection<HardwareItem> scanCol;
+    private final HardwareSummary summary = new HardwareSummary();
+    private final long summaryRefreshMillis = Config.getLong("inventory.summary.refreshMillis", 5000);
+    private volatile long summaryLoadedAt;
+    private volatile StatusHistory history;
+    private volatile EntityCache<HardwareItem> cache;
 
     public HardwareDAO() {
-        col = MongoManager.getDatabase().getCollection("hardware_items");
+        col = MongoManager.getDatabase().getCollection("hardware_items", HardwareItem.class);
+        scanCol = col.withReadPreference(MongoManager.scanReadPreference());
+        ensureIndexes();
+        rebuildSummary();
+    }
+
+    /**
+     * Records status and location changes in {@code history} from now on. The first time, every
+     * existing item starts being tracked from now, which reads the items once.
+     */
+    public void enableStatusHistory(StatusHistory history) {
+        if (history.isEmpty()) {
+            // from the primary: a lagging secondary would leave recent changes out of the history for good
+            try (Stream<HardwareItem> items = stream(col, 1000, "name", "status", "location", "version")) {
+                history.seed(items, Instant.now());
+            }
+        }
+        this.history = history;
+    }
+
+    /** The status history, or null when changes are not recorded. */
+    public StatusHistory statusHistory() {
+        return history;
+    }
+
+    /** Serves reads by id from {@code cache}; {@code watch} also invalidates on other processes' writes. */
+    public void enableCache(EntityCache<HardwareItem> cache, boolean watch) {
+        if (watch) cache.watch(col);
+        this.cache = cache;
+    }
+
+    /** The read cache, or null when reads always query. */
+    public EntityCache<HardwareItem> cache() {
+        return cache;
+    }
+
+    /** Estimated heap size of an item, for the cache's byte budget. */
+    static long weigh(HardwareItem item) {
+        return 64 + EntityCache.sizeOf(item.getId()) + EntityCache.sizeOf(item.getName())
+                + EntityCache.sizeOf(item.getSerialNumber()) + EntityCache.sizeOf(item.getLocation())
+                + EntityCache.sizeOf(item.getStatus());
+    }
+
+    static HardwareItem copy(HardwareItem item) {
+        HardwareItem c = new HardwareItem(item.getName(), item.getSerialNumber(), item.getLocation(), item.getStatus());
+        c.setId(item.getId());
+        c.setVersion(item.getVersion());
+        return c;
     }
 
+    private void invalidate(String id) {
+        EntityCache<HardwareItem> c = cache;
+        if (c != null) c.invalidate(id);
+    }
+
+    private void ensureIndexes() {
+        // search/filter indexes: status first for help-desk lookups, location first for per-site views
+        col.createIndex(Indexes.ascending("status", "location", "name"));
+        col.createIndex(Indexes.ascending("location", "status"));
+        col.createIndex(Indexes.ascending("name"));
+        // unique serial numbers; items entered without a serial ("" or missing) are not constrained.
+        // Without the index create() and the imports would accept duplicates, so refuse to start.
+        IndexOptions unique = new IndexOptions().unique(true)
+                .partialFilterExpression(Filters.gt("serialNumber", ""));
+        try {
+            col.createIndex(Indexes.ascending("serialNumber"), unique);
+        } catch (MongoCommandException ex) {
+            throw new IllegalStateException("Could not create the unique serialNumber index: " + ex.getErrorMessage()
+                    + duplicateSerials() + ". Fix the items and restart.", ex);
+        }
+    }
+
+    /** A few serial numbers held by more than one item, as an addition to an error message. */
+    private String duplicateSerials() {
+        List<String> serials = new ArrayList<>();
+        List<Bson> pipeline = Arrays.asList(Aggregates.match(Filters.gt("serialNumber", "")),
+                Aggregates.group("$serialNumber", Accumulators.sum("count", 1)),
+                Aggregates.match(Filters.gt("count", 1)), Aggregates.limit(10));
+        for (Document d : col.aggregate(pipeline, Document.class)) serials.add(String.valueOf(d.get("_id")));
+        return serials.isEmpty() ? "" : " (duplicated serial numbers include " + String.join(", ", serials) + ")";
+    }
+
+    @Override
     public String create(HardwareItem item) {
-        Document doc = new Document()
-                .append("name", item.getName())
-                .append("serialNumber", item.getSerialNumber())
-                .append("location", item.getLocation())
-                .append("status", item.getStatus());
-        col.insertOne(doc);
-        ObjectId id = doc.getObjectId("_id");
-        return id.toHexString();
+        long start = System.nanoTime();
+        try {
+            if (item.getVersion() == null) item.setVersion(0L);
+            try {
+                col.insertOne(item);
+            } catch (MongoWriteException ex) {
+                if (ex.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) throw ex;
+                throw new DuplicateKeyException("A hardware item with serial number " + item.getSerialNumber()
+                        + " already exists", ex);
+            }
+            summary.add(item.getStatus(), item.getLocation(), 1);
+            StatusHistory h = history;
+            if (h != null) h.recordCreated(Collections.singletonList(item), Instant.now());
+            return item.getId();
+        } finally {
+            CREATE_LATENCY.recordSince(start);
+        }
     }
 
+    @Override
     public HardwareItem read(String id) {
-        Document doc = col.find(Filters.eq("_id", new ObjectId(id))).first();
-        if (doc == null) return null;
-        HardwareItem item = new HardwareItem();
-        item.setId(doc.getObjectId("_id").toHexString());
-        item.setName(doc.getString("name"));
-        item.setSerialNumber(doc.getString("serialNumber"));
-        item.setLocation(doc.getString("location"));
-        item.setStatus(doc.getString("status"));
-        return item;
+        long start = System.nanoTime();
+        try {
+            EntityCache<HardwareItem> c = cache;
+            return c != null ? c.get(id, this::find) : find(id);
+        } finally {
+            READ_LATENCY.recordSince(start);
+        }
+    }
+
+    private HardwareItem find(String id) {
+        return col.find(Filters.eq("_id", new ObjectId(id))).first();
+    }
+
+    @Override
+    public HardwareItem read(String id, String... fields) {
+        long start = System.nanoTime();
+        try {
+            EntityCache<HardwareItem> c = cache;
+            if (c != null) return HardwareQuery.project(c.get(id, this::find), fields);
+            return col.find(Filters.eq("_id", new ObjectId(id))).projection(HardwareQuery.projection(fields)).first();
+        } finally {
+            READ_LATENCY.recordSince(start);
+        }
     }
 
+    @Override
     public List<HardwareItem> listAll() {
-        List<HardwareItem> res = new ArrayList<>();
-        FindIterable<Document> it = col.find();
-        for (Document doc : it) {
-            HardwareItem item = new HardwareItem();
-            item.setId(doc.getObjectId("_id").toHexString());
-            item.setName(doc.getString("name"));
-            item.setSerialNumber(doc.getString("serialNumber"));
-            item.setLocation(doc.getString("location"));
-            item.setStatus(doc.getString("status"));
-            res.add(item);
+        long start = System.nanoTime();
+        try {
+            List<HardwareItem> res = new ArrayList<>();
+            FindIterable<HardwareItem> it = scanCol.find();
+            for (HardwareItem item : it) {
+                res.add(item);
+            }
+            return res;
+        } finally {
+            LIST_ALL_LATENCY.recordSince(start);
         }
-        return res;
     }
 
+    /**
+     * Streams items straight off the driver cursor, {@code batchSize} documents per round-trip.
+     * Only the given fields are fetched when any are passed (the id is always included).
+     * The stream holds an open cursor, so close it (try-with-resources); its metric covers the whole iteration.
+     */
+    @Override
+    public Stream<HardwareItem> stream(int batchSize, String... fields) {
+        return stream(scanCol, batchSize, fields);
+    }
+
+    private static Stream<HardwareItem> stream(MongoCollection<HardwareItem> from, int batchSize, String... fields) {
+        long start = System.nanoTime();
+        FindIterable<HardwareItem> it = from.find().batchSize(batchSize);
+        if (fields.length > 0) it = it.projection(HardwareQuery.projection(fields));
+        MongoCursor<HardwareItem> cursor = it.iterator();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED), false)
+                .onClose(() -> {
+                    cursor.close();
+                    STREAM_LATENCY.recordSince(start);
+                });
+    }
+
+    /**
+     * Keyset pagination on _id: returns up to {@code limit} items whose id sorts after {@code afterId}
+     * (pass null for the first page). Pass the id of the last item to get the next page.
+     */
+    @Override
+    public List<HardwareItem> listPage(String afterId, int limit) {
+        return listPage(afterId, limit, new String[0]);
+    }
+
+    @Override
+    public List<HardwareItem> listPage(String afterId, int limit, String... fields) {
+        long start = System.nanoTime();
+        try {
+            Bson filter = afterId == null ? new Document() : Filters.gt("_id", new ObjectId(afterId));
+            return col.find(filter).projection(HardwareQuery.projection(fields))
+                    .sort(Sorts.ascending("_id")).limit(limit).into(new ArrayList<>(limit));
+        } finally {
+            LIST_PAGE_LATENCY.recordSince(start);
+        }
+    }
+
+    /** Items matching the query, sorted and limited as the query specifies. */
+    @Override
+    public List<HardwareItem> search(HardwareQuery query) {
+        long start = System.nanoTime();
+        try {
+            FindIterable<HardwareItem> it = col.find(query.toFilter())
+                    .projection(HardwareQuery.projection(query.getFields())).sort(query.toSort());
+            if (query.getLimit() > 0) it = it.limit(query.getLimit());
+            return it.into(new ArrayList<>());
+        } finally {
+            SEARCH_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Counts the items matching the query grouped by {@code field} (e.g. "status" or "location"),
+     * computed server-side with an aggregation so no items are transferred.
+     */
+    @Override
+    public Map<String, Long> countBy(String field, HardwareQuery query) {
+        long start = System.nanoTime();
+        try {
+            if (!HardwareQuery.SORTABLE.contains(field) || field.equals("_id")) {
+                throw new IllegalArgumentException("Cannot group by " + field);
+            }
+            if ((field.equals("status") || field.equals("location")) && query.isSummarizable()) {
+                return summary().countBy(field, query.getStatus(), query.getLocation());
+            }
+            List<Bson> pipeline = Arrays.asList(
+                    Aggregates.match(query.toFilter()),
+                    Aggregates.group("$" + field, Accumulators.sum("count", 1L)),
+                    Aggregates.sort(Sorts.ascending("_id")));
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (Document d : scanCol.aggregate(pipeline, Document.class)) {
+                Object key = d.get("_id");
+                counts.put(key == null ? null : String.valueOf(key), ((Number) d.get("count")).longValue());
+            }
+            return counts;
+        } finally {
+            COUNT_BY_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Inserts the items with one unordered bulkWrite. A rejected item (for example a duplicate
+     * serial number) does not stop the others; it is reported in the result instead.
+     */
+    @Override
+    public BulkResult bulkInsert(List<HardwareItem> items) {
+        long start = System.nanoTime();
+        try {
+            if (items.isEmpty()) return new BulkResult(0, new ArrayList<>());
+            List<InsertOneModel<HardwareItem>> models = new ArrayList<>(items.size());
+            for (HardwareItem item : items) {
+                if (item.getVersion() == null) item.setVersion(0L);
+                models.add(new InsertOneModel<>(item));
+            }
+            BulkResult result;
+            try {
+                result = new BulkResult(col.bulkWrite(models, new BulkWriteOptions().ordered(false)).getInsertedCount(),
+                        new ArrayList<>());
+            } catch (MongoBulkWriteException ex) {
+                List<BulkResult.RowError> errors = new ArrayList<>();
+                for (BulkWriteError e : ex.getWriteErrors()) {
+                    boolean duplicate = ErrorCategory.fromErrorCode(e.getCode()) == ErrorCategory.DUPLICATE_KEY;
+                    errors.add(new BulkResult.RowError(e.getIndex(), duplicate, e.getMessage()));
+                }
+                result = new BulkResult(ex.getWriteResult().getInsertedCount(), errors);
+            }
+            Set<Integer> rejected = new HashSet<>();
+            for (BulkResult.RowError e : result.getErrors()) rejected.add(e.index);
+            HardwareSummary inserted = new HardwareSummary();
+            List<HardwareItem> stored = new ArrayList<>(items.size());
+            for (int i = 0; i < items.size(); i++) {
+                if (rejected.contains(i)) continue;
+                inserted.add(items.get(i).getStatus(), items.get(i).getLocation(), 1);
+                stored.add(items.get(i));
+            }
+            inserted.snapshot().forEach((status, byLocation) -> byLocation.forEach((location, n) -> summary.add(status, location, n)));
+            StatusHistory h = history;
+            if (h != null) h.recordCreated(stored, Instant.now());
+            return result;
+        } finally {
+            BULK_INSERT_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
     public boolean update(String id, HardwareItem updated) {
-        Document update = new Document()
-                .append("name", updated.getName())
-                .append("serialNumber", updated.getSerialNumber())
-                .append("location", updated.getLocation())
-                .append("status", updated.getStatus());
-        Document set = new Document("$set", update);
-        return col.updateOne(Filters.eq("_id", new ObjectId(id)), set).getModifiedCount() > 0;
+        return update(id, HardwareUpdate.of(updated));
+    }
+
+    /**
+     * One updateOne carrying just the changed fields. The filter only matches when the update
+     * changes something (and the version matches), so the common case needs no read; only when
+     * nothing matched is the item's version fetched to tell a missing item, a no-op and a
+     * conflict apart. An update of status or location is a findOneAndUpdate instead, returning
+     * the previous values for the summary counts.
+     */
+    @Override
+    public boolean update(String id, HardwareUpdate update) {
+        long start = System.nanoTime();
+        try {
+            if (update.isEmpty()) return false;
+            try {
+                if (update.touches("status") || update.touches("location")) {
+                    HardwareItem before = col.findOneAndUpdate(update.toFilter(id), update.toUpdate(),
+                            new FindOneAndUpdateOptions()
+                                    .projection(HardwareQuery.projection("name", "status", "location", "version"))
+                                    .returnDocument(ReturnDocument.BEFORE));
+                    if (before != null) {
+                        invalidate(id);
+                        HardwareItem after = update.applyTo(before);
+                        if (!Objects.equals(before.getStatus(), after.getStatus())
+                                || !Objects.equals(before.getLocation(), after.getLocation())) {
+                            summary.add(before.getStatus(), before.getLocation(), -1);
+                            summary.add(after.getStatus(), after.getLocation(), 1);
+                            StatusHistory h = history;
+                            if (h != null) h.record(after, Instant.now());
+                        }
+                        return true;
+                    }
+                } else if (col.updateOne(update.toFilter(id), update.toUpdate()).getMatchedCount() > 0) {
+                    invalidate(id);
+                    return true;
+                }
+            } catch (MongoWriteException ex) {
+                if (ex.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) throw ex;
+                throw new DuplicateKeyException("Another hardware item already has that serial number", ex);
+            } catch (MongoCommandException ex) {
+                // findAndModify reports a duplicate key as a command error rather than a write error
+                if (ErrorCategory.fromErrorCode(ex.getErrorCode()) != ErrorCategory.DUPLICATE_KEY) throw ex;
+                throw new DuplicateKeyException("Another hardware item already has that serial number", ex);
+            }
+            Long expected = update.getExpectedVersion();
+            if (expected == null) return false;
+            // straight from the database: a cached version could hide the conflict
+            HardwareItem current = col.find(Filters.eq("_id", new ObjectId(id)))
+                    .projection(HardwareQuery.projection("version")).first();
+            if (current != null && HardwareUpdate.version(current) != expected) {
+                throw new VersionConflictException(id, expected, HardwareUpdate.version(current));
+            }
+            return false;
+        } finally {
+            UPDATE_LATENCY.recordSince(start);
+        }
     }
 
+    @Override
     public boolean delete(String id) {
-        return col.deleteOne(Filters.eq("_id", new ObjectId(id))).getDeletedCount() > 0;
+        long start = System.nanoTime();
+        try {
+            HardwareItem deleted = col.findOneAndDelete(Filters.eq("_id", new ObjectId(id)),
+                    new FindOneAndDeleteOptions().projection(HardwareQuery.projection("status", "location")));
+            invalidate(id);
+            if (deleted == null) return false;
+            summary.add(deleted.getStatus(), deleted.getLocation(), -1);
+            StatusHistory h = history;
+            if (h != null) h.recordRemoved(id, Instant.now());
+            return true;
+        } finally {
+            DELETE_LATENCY.recordSince(start);
+        }
+    }
+
+    /** The in-memory counts, recounted first if they are older than the refresh interval. */
+    @Override
+    public HardwareSummary summary() {
+        if (summaryRefreshMillis > 0 && System.currentTimeMillis() - summaryLoadedAt > summaryRefreshMillis) {
+            synchronized (summary) {
+                // one poller recounts, the others find it fresh
+                if (System.currentTimeMillis() - summaryLoadedAt > summaryRefreshMillis) rebuildSummary();
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Counts the items per status and location with one aggregation and replaces the in-memory
+     * counts with the result. Sorting and projecting on the (status, location, name) index first lets the
+     * server count from the index alone. A write by this DAO racing the recount may be counted
+     * twice or not at all, until the next one. It counts on the primary, so its own writes are seen.
+     */
+    @Override
+    public HardwareSummary rebuildSummary() {
+        long start = System.nanoTime();
+        try {
+            List<Bson> pipeline = Arrays.asList(
+                    Aggregates.sort(Sorts.ascending("status", "location")),
+                    Aggregates.project(Projections.fields(Projections.include("status", "location"), Projections.excludeId())),
+                    Aggregates.group(new Document("status", "$status").append("location", "$location"),
+                            Accumulators.sum("count", 1L)));
+            HardwareSummary counted = new HardwareSummary();
+            for (Document d : col.aggregate(pipeline, Document.class)) {
+                Document key = d.get("_id", Document.class);
+                counted.add(key.getString("status"), key.getString("location"), ((Number) d.get("count")).longValue());
+            }
+            summary.reset(counted.snapshot());
+            summaryLoadedAt = System.currentTimeMillis();
+            return summary;
+        } finally {
+            REBUILD_SUMMARY_LATENCY.recordSince(start);
+        }
     }
 }
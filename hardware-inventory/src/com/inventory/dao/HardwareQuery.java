@@ -0,0 +1,173 @@
+package com.inventory.dao;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import com.inventory.model.HardwareItem;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Combinable filters for {@link HardwareDAO#search} and {@link HardwareDAO#countBy}.
+ * Unset (null or blank) criteria are ignored, so an empty query matches every item.
+ *
+ * <pre>
+ *   new HardwareQuery().status("available").location("Chennai").namePrefix("Dell").limit(20)
+ *   new HardwareQuery().location("Chennai").fields("status")     // ids and statuses only
+ * </pre>
+ *
+ * Prefix criteria become anchored, case-sensitive regexes so they can use the name and
+ * serialNumber indexes. The embedded backend evaluates the same criteria in memory through
+ * {@link #matches} and {@link #comparator}.
+ */
+public class HardwareQuery {
+    static final List<String> SORTABLE = Arrays.asList("_id", "name", "serialNumber", "location", "status");
+    static final List<String> PROJECTABLE = Arrays.asList("name", "serialNumber", "location", "status", "version");
+
+    private String status;
+    private String location;
+    private String namePrefix;
+    private String serialPrefix;
+    private String sortField = "_id";
+    private boolean ascending = true;
+    private int limit;
+    private String[] fields = new String[0];
+
+    public HardwareQuery status(String status) { this.status = blankToNull(status); return this; }
+    public HardwareQuery location(String location) { this.location = blankToNull(location); return this; }
+    public HardwareQuery namePrefix(String prefix) { this.namePrefix = blankToNull(prefix); return this; }
+    public HardwareQuery serialPrefix(String prefix) { this.serialPrefix = blankToNull(prefix); return this; }
+
+    /** Sort by one of _id, name, serialNumber, location or status. */
+    public HardwareQuery sortBy(String field, boolean ascending) {
+        if (!SORTABLE.contains(field)) throw new IllegalArgumentException("Cannot sort by " + field);
+        this.sortField = field;
+        this.ascending = ascending;
+        return this;
+    }
+
+    /** Maximum number of results; 0 means no limit. */
+    public HardwareQuery limit(int limit) { this.limit = Math.max(0, limit); return this; }
+
+    /** Fetch only these fields (plus the id) of each result; none means whole items. */
+    public HardwareQuery fields(String... fields) {
+        projection(fields);
+        this.fields = fields.clone();
+        return this;
+    }
+
+    Bson toFilter() {
+        List<Bson> clauses = new ArrayList<>();
+        if (status != null) clauses.add(Filters.eq("status", status));
+        if (location != null) clauses.add(Filters.eq("location", location));
+        if (namePrefix != null) clauses.add(Filters.regex("name", prefixRegex(namePrefix)));
+        if (serialPrefix != null) {
+            // the redundant $gt lets the planner use the partial unique index on serialNumber
+            clauses.add(Filters.gt("serialNumber", ""));
+            clauses.add(Filters.regex("serialNumber", prefixRegex(serialPrefix)));
+        }
+        if (clauses.isEmpty()) return new Document();
+        return clauses.size() == 1 ? clauses.get(0) : Filters.and(clauses);
+    }
+
+    Bson toSort() {
+        return ascending ? Sorts.ascending(sortField) : Sorts.descending(sortField);
+    }
+
+    int getLimit() { return limit; }
+
+    String[] getFields() { return fields; }
+
+    /**
+     * Inclusion projection for the given fields (the id is always returned); null when no fields
+     * are given, meaning whole documents. Rejects anything but the {@link #PROJECTABLE} fields.
+     */
+    static Bson projection(String... fields) {
+        if (fields.length == 0) return null;
+        for (String f : fields) {
+            if (!PROJECTABLE.contains(f)) throw new IllegalArgumentException("Unknown field " + f);
+        }
+        return Projections.include(fields);
+    }
+
+    /** In-memory equivalent of {@link #projection}: a copy of the item with only the id and given fields. */
+    static HardwareItem project(HardwareItem item, String... fields) {
+        if (fields.length == 0 || item == null) return item;
+        projection(fields);
+        HardwareItem out = new HardwareItem();
+        out.setId(item.getId());
+        for (String f : fields) {
+            switch (f) {
+                case "name": out.setName(item.getName()); break;
+                case "serialNumber": out.setSerialNumber(item.getSerialNumber()); break;
+                case "location": out.setLocation(item.getLocation()); break;
+                case "status": out.setStatus(item.getStatus()); break;
+                case "version": out.setVersion(item.getVersion()); break;
+                default: break;
+            }
+        }
+        return out;
+    }
+
+    /** Whether the query filters on status and location only, so {@link HardwareSummary} can count it. */
+    boolean isSummarizable() {
+        return namePrefix == null && serialPrefix == null;
+    }
+
+    boolean hasSerialFilter() {
+        return serialPrefix != null;
+    }
+
+    String getStatus() { return status; }
+    String getLocation() { return location; }
+
+    /** In-memory equivalent of {@link #toFilter()}. */
+    boolean matches(HardwareItem item) {
+        if (status != null && !status.equals(item.getStatus())) return false;
+        if (location != null && !location.equals(item.getLocation())) return false;
+        if (namePrefix != null && (item.getName() == null || !item.getName().startsWith(namePrefix))) return false;
+        if (serialPrefix != null) {
+            String serial = item.getSerialNumber();
+            if (serial == null || serial.isEmpty() || !serial.startsWith(serialPrefix)) return false;
+        }
+        return true;
+    }
+
+    /** In-memory equivalent of {@link #toSort()}; missing values sort first, as in MongoDB. */
+    Comparator<HardwareItem> comparator() {
+        Comparator<HardwareItem> c = Comparator.comparing(field(sortField), Comparator.nullsFirst(Comparator.naturalOrder()));
+        return ascending ? c : c.reversed();
+    }
+
+    /** Getter for one of the {@link #SORTABLE} fields. */
+    static Function<HardwareItem, String> field(String name) {
+        switch (name) {
+            case "_id": return HardwareItem::getId;
+            case "name": return HardwareItem::getName;
+            case "serialNumber": return HardwareItem::getSerialNumber;
+            case "location": return HardwareItem::getLocation;
+            case "status": return HardwareItem::getStatus;
+            default: throw new IllegalArgumentException("Unknown field " + name);
+        }
+    }
+
+    /** "^" + the prefix with regex metacharacters escaped (not \Q..\E, which defeats the index bounds). */
+    private static String prefixRegex(String prefix) {
+        StringBuilder sb = new StringBuilder("^");
+        for (char c : prefix.toCharArray()) {
+            if ("\\^$.|?*+()[]{}".indexOf(c) >= 0) sb.append('\\');
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : s;
+    }
+}
@@ -0,0 +1,101 @@
+package com.inventory.dao;
+
+import com.inventory.model.HardwareItem;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Storage for hardware items. {@link HardwareDAO} keeps them in MongoDB and
+ * {@link EmbeddedHardwareStore} in a local memory-mapped log; {@link Storage} picks one from config.
+ * Ids are ObjectId hex strings in both.
+ */
+public interface HardwareStore {
+
+    /** Outcome of {@link #bulkInsert}: how many items were written and which ones were rejected. */
+    class BulkResult {
+        public static class RowError {
+            public final int index;
+            public final boolean duplicate;
+            public final String message;
+
+            RowError(int index, boolean duplicate, String message) {
+                this.index = index;
+                this.duplicate = duplicate;
+                this.message = message;
+            }
+        }
+
+        private final int inserted;
+        private final List<RowError> errors;
+
+        BulkResult(int inserted, List<RowError> errors) {
+            this.inserted = inserted;
+            this.errors = errors;
+        }
+
+        public int getInserted() { return inserted; }
+        /** Rejected items; {@code index} is the position in the list passed to bulkInsert. */
+        public List<RowError> getErrors() { return errors; }
+    }
+
+    /** Stores the item, assigning its id; throws {@link DuplicateKeyException} if the serial number is taken. */
+    String create(HardwareItem item);
+
+    /** The item, or null if there is none with that id. */
+    HardwareItem read(String id);
+
+    /** The item with only the id and the given fields filled in (see {@link HardwareQuery#fields}), or null. */
+    HardwareItem read(String id, String... fields);
+
+    List<HardwareItem> listAll();
+
+    /**
+     * Streams every item without materializing the list. {@code fields} limits what is fetched
+     * where the backend supports projections; close the stream when done.
+     */
+    Stream<HardwareItem> stream(int batchSize, String... fields);
+
+    /** Up to {@code limit} items whose id sorts after {@code afterId} (null for the first page), in id order. */
+    List<HardwareItem> listPage(String afterId, int limit);
+
+    /** {@link #listPage(String, int)} fetching only the id and the given fields of each item. */
+    List<HardwareItem> listPage(String afterId, int limit, String... fields);
+
+    List<HardwareItem> search(HardwareQuery query);
+
+    /**
+     * Counts of the items matching the query grouped by {@code field}, in key order; items without
+     * the field count under a null key, first. Grouping by status or location with at most a
+     * status and location filter is answered from {@link #summary()}.
+     */
+    Map<String, Long> countBy(String field, HardwareQuery query);
+
+    /** Item counts per status and location, adjusted on every write and recounted now and then. */
+    HardwareSummary summary();
+
+    /** Recounts {@link #summary()} from the items themselves, now rather than at the next refresh. */
+    HardwareSummary rebuildSummary();
+
+    /** Inserts all items; rejected ones are reported in the result instead of failing the batch. */
+    BulkResult bulkInsert(List<HardwareItem> items);
+
+    /**
+     * Replaces the item's fields with those of {@code updated}, removing the ones it leaves null,
+     * whatever version either has; same as {@code update(id, HardwareUpdate.of(updated))}. Returns
+     * false if there is no such item or nothing changed. Partial and version-checked updates go
+     * through {@link #update(String, HardwareUpdate)}.
+     */
+    boolean update(String id, HardwareItem updated);
+
+    /**
+     * Writes only the fields the update names and bumps the version. Returns false if there is no
+     * such item or the update would not change it; throws {@link VersionConflictException} if it
+     * expects a version the item no longer has and {@link DuplicateKeyException} if the new serial
+     * number is taken.
+     */
+    boolean update(String id, HardwareUpdate update);
+
+    boolean delete(String id);
+}
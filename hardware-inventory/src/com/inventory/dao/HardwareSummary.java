@@ -0,0 +1,103 @@
+package com.inventory.dao;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number of hardware items per (status, location), kept up to date by the store on every create,
+ * update and delete so totals never need a scan of the items. A missing status or location counts
+ * under a null key, as in {@link HardwareStore#countBy}, so it never mixes with an item whose
+ * status is the string "null".
+ *
+ * Each cell is a {@link LongAdder}, so concurrent writers adjusting the same cell do not contend
+ * and reads take no lock. Cells that drop to zero are kept; they are cheap and usually come back.
+ * {@link #reset} builds a whole new table and swaps it in, so a reader never sees a half-reset
+ * table; an {@link #add} racing the swap may land in the old table, as a write racing a recount
+ * may be missed by it.
+ */
+public class HardwareSummary {
+    // ConcurrentHashMap takes no null keys: a missing value is stored under this instead
+    private static final Object MISSING = new Object();
+    private static final Comparator<String> KEY_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private volatile Map<Object, Map<Object, LongAdder>> counts = new ConcurrentHashMap<>();
+
+    /** Adds {@code delta} (negative to remove) to the count of items with this status and location. */
+    public void add(String status, String location, long delta) {
+        add(counts, status, location, delta);
+    }
+
+    private static void add(Map<Object, Map<Object, LongAdder>> counts, String status, String location, long delta) {
+        counts.computeIfAbsent(key(status), s -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key(location), l -> new LongAdder())
+                .add(delta);
+    }
+
+    /** Items with this status and location; a null argument matches any value. */
+    public long count(String status, String location) {
+        long total = 0;
+        for (Map.Entry<Object, Map<Object, LongAdder>> s : counts.entrySet()) {
+            if (status != null && !status.equals(s.getKey())) continue;
+            for (Map.Entry<Object, LongAdder> l : s.getValue().entrySet()) {
+                if (location == null || location.equals(l.getKey())) total += l.getValue().sum();
+            }
+        }
+        return total;
+    }
+
+    public long total() {
+        return count(null, null);
+    }
+
+    /** status -> location -> count, in key order (null first), without zero counts. */
+    public Map<String, Map<String, Long>> snapshot() {
+        Map<String, Map<String, Long>> out = new TreeMap<>(KEY_ORDER);
+        for (Map.Entry<Object, Map<Object, LongAdder>> s : counts.entrySet()) {
+            for (Map.Entry<Object, LongAdder> l : s.getValue().entrySet()) {
+                long n = l.getValue().sum();
+                if (n != 0) out.computeIfAbsent(value(s.getKey()), k -> new TreeMap<>(KEY_ORDER)).put(value(l.getKey()), n);
+            }
+        }
+        return out;
+    }
+
+    /** Counts grouped by "status" or "location", in key order, like {@link HardwareStore#countBy}. */
+    public Map<String, Long> countBy(String field) {
+        return countBy(field, null, null);
+    }
+
+    /** {@link #countBy(String)} over the items with this status and location; null matches any. */
+    Map<String, Long> countBy(String field, String status, String location) {
+        boolean byStatus;
+        if (field.equals("status")) byStatus = true;
+        else if (field.equals("location")) byStatus = false;
+        else throw new IllegalArgumentException("The summary only groups by status or location, not " + field);
+        Map<String, Long> out = new TreeMap<>(KEY_ORDER);
+        snapshot().forEach((s, byLocation) -> byLocation.forEach((l, n) -> {
+            if ((status == null || Objects.equals(status, s)) && (location == null || Objects.equals(location, l))) {
+                out.merge(byStatus ? s : l, n, Long::sum);
+            }
+        }));
+        return new LinkedHashMap<>(out);
+    }
+
+    /** Replaces every count with those in {@code snapshot} (null keys allowed), as recounted. */
+    void reset(Map<String, Map<String, Long>> snapshot) {
+        Map<Object, Map<Object, LongAdder>> fresh = new ConcurrentHashMap<>();
+        snapshot.forEach((status, byLocation) -> byLocation.forEach((location, n) -> add(fresh, status, location, n)));
+        counts = fresh;
+    }
+
+    private static Object key(String value) {
+        return value == null ? MISSING : value;
+    }
+
+    private static String value(Object key) {
+        return key == MISSING ? null : (String) key;
+    }
+}
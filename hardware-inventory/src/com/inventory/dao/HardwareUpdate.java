@@ -0,0 +1,136 @@
+package com.inventory.dao;
+
+import com.inventory.model.HardwareItem;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A partial change to a hardware item for {@link HardwareStore#update(String, HardwareUpdate)}:
+ * only the fields named here are written, so a status flip sends and replicates just the status.
+ *
+ * <pre>
+ *   new HardwareUpdate().status("in-use").expectVersion(item.getVersion())
+ * </pre>
+ *
+ * Setting a field to null removes it. Every applied update bumps the item's version; with
+ * {@link #expectVersion} the update only applies if nobody bumped it since, otherwise it fails with
+ * {@link VersionConflictException}. Items stored before versioning count as version 0.
+ */
+public class HardwareUpdate {
+    static final List<String> FIELDS = Arrays.asList("name", "serialNumber", "location", "status");
+
+    private final Map<String, String> changes = new LinkedHashMap<>();
+    private Long expectedVersion;
+
+    public HardwareUpdate name(String name) { changes.put("name", name); return this; }
+    public HardwareUpdate serialNumber(String serialNumber) { changes.put("serialNumber", serialNumber); return this; }
+    public HardwareUpdate location(String location) { changes.put("location", location); return this; }
+    public HardwareUpdate status(String status) { changes.put("status", status); return this; }
+
+    /** Sets one of name, serialNumber, location or status by name. */
+    public HardwareUpdate set(String field, String value) {
+        if (!FIELDS.contains(field)) throw new IllegalArgumentException("Cannot update " + field);
+        changes.put(field, value);
+        return this;
+    }
+
+    /** Applies only if the stored item is still at {@code version}; null means apply unconditionally. */
+    public HardwareUpdate expectVersion(Long version) { this.expectedVersion = version; return this; }
+
+    /**
+     * Every field of the item, nulls included (removing those fields), so the stored item ends up
+     * like {@code item}. Its version is ignored: add {@link #expectVersion} for a checked replace.
+     */
+    public static HardwareUpdate of(HardwareItem item) {
+        HardwareUpdate u = new HardwareUpdate();
+        for (String field : FIELDS) u.changes.put(field, HardwareQuery.field(field).apply(item));
+        return u;
+    }
+
+    /**
+     * Just the fields that differ between two states of an item (a field that became null is
+     * removed), expecting the version {@code before} was read at.
+     */
+    public static HardwareUpdate diff(HardwareItem before, HardwareItem after) {
+        HardwareUpdate u = new HardwareUpdate();
+        for (String field : FIELDS) {
+            String value = HardwareQuery.field(field).apply(after);
+            if (!Objects.equals(HardwareQuery.field(field).apply(before), value)) u.changes.put(field, value);
+        }
+        return u.expectVersion(before.getVersion() == null ? 0L : before.getVersion());
+    }
+
+    public boolean isEmpty() { return changes.isEmpty(); }
+
+    Long getExpectedVersion() { return expectedVersion; }
+
+    /** Whether the update writes {@code field} (possibly removing it). */
+    boolean touches(String field) { return changes.containsKey(field); }
+
+    /**
+     * Matches the item only if the update would change it (and, with an expected version, only at
+     * that version), so re-sending the current values writes nothing and does not bump the version.
+     */
+    Bson toFilter(String id) {
+        List<Bson> clauses = new ArrayList<>();
+        clauses.add(Filters.eq("_id", new ObjectId(id)));
+        if (expectedVersion != null) clauses.add(versionFilter(expectedVersion));
+        List<Bson> differs = new ArrayList<>();
+        for (Map.Entry<String, String> c : changes.entrySet()) differs.add(Filters.ne(c.getKey(), c.getValue()));
+        clauses.add(differs.size() == 1 ? differs.get(0) : Filters.or(differs));
+        return Filters.and(clauses);
+    }
+
+    Bson toUpdate() {
+        List<Bson> ops = new ArrayList<>();
+        for (Map.Entry<String, String> c : changes.entrySet()) {
+            ops.add(c.getValue() == null ? Updates.unset(c.getKey()) : Updates.set(c.getKey(), c.getValue()));
+        }
+        ops.add(Updates.inc("version", 1L));
+        return Updates.combine(ops);
+    }
+
+    /** Whether applying this would change the item. */
+    boolean changes(HardwareItem current) {
+        for (Map.Entry<String, String> c : changes.entrySet()) {
+            if (!Objects.equals(HardwareQuery.field(c.getKey()).apply(current), c.getValue())) return true;
+        }
+        return false;
+    }
+
+    /** In-memory equivalent of {@link #toUpdate()}: a copy of {@code current} with the changes applied. */
+    HardwareItem applyTo(HardwareItem current) {
+        HardwareItem next = new HardwareItem(current.getName(), current.getSerialNumber(),
+                current.getLocation(), current.getStatus());
+        next.setId(current.getId());
+        for (Map.Entry<String, String> c : changes.entrySet()) {
+            switch (c.getKey()) {
+                case "name": next.setName(c.getValue()); break;
+                case "serialNumber": next.setSerialNumber(c.getValue()); break;
+                case "location": next.setLocation(c.getValue()); break;
+                case "status": next.setStatus(c.getValue()); break;
+                default: throw new IllegalStateException(c.getKey());
+            }
+        }
+        next.setVersion(version(current) + 1);
+        return next;
+    }
+
+    static long version(HardwareItem item) {
+        return item.getVersion() == null ? 0 : item.getVersion();
+    }
+
+    /** Version 0 also matches items stored before versioning, which have no version field. */
+    private static Bson versionFilter(long version) {
+        return version == 0 ? Filters.in("version", 0L, null) : Filters.eq("version", version);
+    }
+}
@@ -0,0 +1,514 @@
+package com.inventory.dao;
+
+import org.bson.BsonBinaryReader;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.types.ObjectId;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, memory-mapped record log for the embedded backend. Every write appends a record;
+ * nothing is updated in place, so a crash can at worst lose the record being written (its CRC
+ * will not match and it is dropped on the next open).
+ *
+ * <pre>
+ *   file   := magic(8) record*
+ *   record := length(4) crc32(4) op(1) id(12) keyLength(4) key(keyLength) bson(...)
+ * </pre>
+ *
+ * {@code length} counts the bytes after the crc; a zero length marks the end of the log. {@code op}
+ * is PUT (bson holds the whole value) or DELETE (no bson). The optional {@code key} is a unique
+ * secondary key such as a serial number, stored outside the BSON so both indexes can be rebuilt on
+ * open from the record headers alone, without decoding any values.
+ *
+ * The primary index (id to offset) and the secondary index live off-heap in {@link OffHeapIndex}.
+ * When more than half of the log is superseded records, or it is past half its maximum size with
+ * anything to reclaim, it is compacted on open. Compaction writes the live records to the next
+ * generation of the file ({@code name.1}, {@code name.2}, ...; the first is {@code name} itself),
+ * renames it into place only once complete, and switches to it. The old generation is never
+ * renamed over or truncated while mapped, which Windows refuses; it is deleted once possible,
+ * at the latest on the next open. A {@code name.lock} file keeps other processes out.
+ *
+ * Offsets are ints and the whole file is one mapping, so a log holds at most 2 GB. An append that
+ * would go past that fails with an IllegalStateException saying so and writes nothing.
+ */
+final class MappedLog<T> implements AutoCloseable {
+    private static final long MAGIC = 0x494E564C4F473031L; // "INVLOG01"
+    private static final int FILE_HEADER = 8;
+    private static final int RECORD_HEADER = 4 + 4 + 1 + 12 + 4;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int MIN_MAPPING = 1 << 20;
+    private static final int MAX_MAPPING = Integer.MAX_VALUE - 8;
+    private static final long COMPACT_MIN_DEAD_BYTES = 1 << 20;
+    private static final String COMPACT_SUFFIX = ".compact";
+
+    private final Path base;
+    private final Codec<T> codec;
+    private final Function<T, String> idOf;
+    private final Function<T, String> uniqueKeyOf;   // null if the values have no secondary key
+    private final boolean syncWrites;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Path path;                                // the current generation
+    private int generation;
+    private FileChannel lockChannel;
+    private FileLock fileLock;
+    private FileChannel channel;
+    private volatile MappedByteBuffer buf;
+    private int end;                                  // where the next record goes
+    private long deadBytes;
+    private OffHeapIndex primary;
+    private OffHeapIndex secondary;
+
+    /**
+     * Opens (or creates) the log at {@code path}. {@code uniqueKeyOf} may return null or "" for
+     * values without a key, which are not constrained.
+     */
+    MappedLog(Path path, Codec<T> codec, Function<T, String> idOf, Function<T, String> uniqueKeyOf,
+              boolean syncWrites) {
+        this.base = path;
+        this.path = path;
+        this.codec = codec;
+        this.idOf = idOf;
+        this.uniqueKeyOf = uniqueKeyOf;
+        this.syncWrites = syncWrites;
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            lock();
+            try {
+                generation = latestGeneration();
+                this.path = generation(generation);
+                deleteOtherGenerations();
+                open();
+                if (deadBytes > COMPACT_MIN_DEAD_BYTES && deadBytes > end - FILE_HEADER - deadBytes
+                        || deadBytes > COMPACT_MIN_DEAD_BYTES && end > MAX_MAPPING / 2) {
+                    compact();
+                }
+            } catch (IOException | RuntimeException ex) {
+                if (channel != null) channel.close();
+                fileLock.release();
+                lockChannel.close();
+                throw ex;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not open " + path, ex);
+        }
+    }
+
+    private void lock() throws IOException {
+        Path lockFile = base.resolveSibling(base.getFileName() + ".lock");
+        lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            fileLock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException ex) {
+            fileLock = null;   // held by this process
+        }
+        if (fileLock == null) {
+            lockChannel.close();
+            throw new IllegalStateException(base + " is in use by another process");
+        }
+    }
+
+    /** The file of generation {@code n}: the base name itself for 0, {@code name.n} after that. */
+    private Path generation(int n) {
+        return n == 0 ? base : base.resolveSibling(base.getFileName() + "." + n);
+    }
+
+    /** The highest complete generation on disk (0 if there is none yet). */
+    private int latestGeneration() throws IOException {
+        int latest = 0;
+        String prefix = base.getFileName() + ".";
+        try (Stream<Path> files = Files.list(base.toAbsolutePath().getParent())) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                String name = f.getFileName().toString();
+                if (!name.startsWith(prefix)) continue;
+                String suffix = name.substring(prefix.length());
+                if (!suffix.isEmpty() && suffix.length() < 10 && suffix.chars().allMatch(Character::isDigit)) {
+                    latest = Math.max(latest, Integer.parseInt(suffix));
+                }
+            }
+        }
+        return latest;
+    }
+
+    /** Removes older generations and unfinished compactions left by an earlier run. */
+    private void deleteOtherGenerations() throws IOException {
+        String prefix = base.getFileName() + ".";
+        try (Stream<Path> files = Files.list(base.toAbsolutePath().getParent())) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                String name = f.getFileName().toString();
+                boolean older = name.equals(base.getFileName().toString()) && generation > 0;
+                if (name.startsWith(prefix)) {
+                    String suffix = name.substring(prefix.length());
+                    older |= suffix.endsWith(COMPACT_SUFFIX);
+                    older |= !suffix.isEmpty() && suffix.length() < 10 && suffix.chars().allMatch(Character::isDigit)
+                            && Integer.parseInt(suffix) < generation;
+                }
+                if (older) deleteQuietly(f);
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            // still mapped (Windows); the next open deletes it
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size > MAX_MAPPING) throw new IllegalStateException(path + " is larger than a single mapping");
+        buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(MIN_MAPPING, size));
+        if (size == 0) {
+            buf.putLong(0, MAGIC);
+        } else if (buf.getLong(0) != MAGIC) {
+            throw new IllegalStateException(path + " is not an inventory log");
+        }
+        rebuild();
+    }
+
+    /** Replays the record headers into fresh indexes and finds the end of the valid log. */
+    private void rebuild() {
+        primary = new OffHeapIndex(1024);
+        secondary = new OffHeapIndex(uniqueKeyOf != null ? 1024 : 0);
+        deadBytes = 0;
+        int pos = FILE_HEADER;
+        CRC32 crc = new CRC32();
+        while (pos + RECORD_HEADER <= buf.capacity()) {
+            int length = buf.getInt(pos);
+            if (length < RECORD_HEADER - 8 || pos + 8L + length > buf.capacity()) break;
+            crc.reset();
+            crc.update(buf.slice(pos + 8, length));
+            if ((int) crc.getValue() != buf.getInt(pos + 4)) break;   // torn write: the log ends here
+
+            byte[] id = idAt(pos);
+            long idHash = OffHeapIndex.hash(id);
+            int previous = primary.find(idHash, o -> idMatches(o, id));
+            if (previous >= 0) {
+                removeKey(previous);
+                deadBytes += recordSize(previous);
+            }
+            if (buf.get(pos + 8) == PUT) {
+                if (previous >= 0) primary.replace(idHash, previous, pos); else primary.put(idHash, pos);
+                byte[] key = keyAt(pos);
+                if (key != null) secondary.put(OffHeapIndex.hash(key), pos);
+            } else {
+                if (previous >= 0) primary.remove(idHash, previous);
+                deadBytes += 8 + length;
+            }
+            pos += 8 + length;
+        }
+        end = pos;
+        // clear whatever follows (a torn record) so later appends are not mistaken for it
+        for (int i = end; i < Math.min(buf.capacity(), end + RECORD_HEADER); i++) buf.put(i, (byte) 0);
+    }
+
+    /**
+     * Rewrites the live records into the next generation and switches to it. The new file is only
+     * renamed to its generation name once complete, so a crash half-way leaves the old one current.
+     */
+    private void compact() throws IOException {
+        Path next = generation(generation + 1);
+        Path tmp = next.resolveSibling(next.getFileName() + COMPACT_SUFFIX);
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer magic = ByteBuffer.allocate(FILE_HEADER).putLong(0, MAGIC);
+            out.write(magic);
+            for (int pos = FILE_HEADER; pos < end; pos += recordSize(pos)) {
+                if (buf.get(pos + 8) == PUT && isLive(pos)) out.write(buf.slice(pos, recordSize(pos)));
+            }
+            out.force(true);
+        }
+        Files.move(tmp, next, StandardCopyOption.ATOMIC_MOVE);
+        // the old mapping stays valid until it is collected; only then can its file go
+        channel.close();
+        Path old = path;
+        generation++;
+        path = next;
+        open();
+        deleteQuietly(old);
+    }
+
+    T get(String id) {
+        byte[] key = new ObjectId(id).toByteArray();
+        lock.readLock().lock();
+        try {
+            int offset = primary.find(OffHeapIndex.hash(key), o -> idMatches(o, key));
+            return offset < 0 ? null : decode(buf, offset);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Appends a new value; throws DuplicateKeyException if the id or unique key is taken. */
+    void insert(T value) {
+        byte[] id = new ObjectId(idOf.apply(value)).toByteArray();
+        byte[] key = uniqueKey(value);
+        lock.writeLock().lock();
+        try {
+            long idHash = OffHeapIndex.hash(id);
+            if (primary.find(idHash, o -> idMatches(o, id)) >= 0) {
+                throw new DuplicateKeyException("Duplicate id " + idOf.apply(value) + " in " + path.getFileName());
+            }
+            checkUniqueKey(key, -1);
+            int offset = append(PUT, id, key, encode(value));
+            primary.put(idHash, offset);
+            if (key != null) secondary.put(OffHeapIndex.hash(key), offset);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Appends a new version of an existing value; false if there is no value with its id. */
+    boolean replace(T value) {
+        byte[] id = new ObjectId(idOf.apply(value)).toByteArray();
+        byte[] key = uniqueKey(value);
+        lock.writeLock().lock();
+        try {
+            long idHash = OffHeapIndex.hash(id);
+            int previous = primary.find(idHash, o -> idMatches(o, id));
+            if (previous < 0) return false;
+            checkUniqueKey(key, previous);
+            int offset = append(PUT, id, key, encode(value));
+            removeKey(previous);
+            deadBytes += recordSize(previous);
+            primary.replace(idHash, previous, offset);
+            if (key != null) secondary.put(OffHeapIndex.hash(key), offset);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Appends a delete marker; returns the removed value, or null if there was none. */
+    T remove(String id) {
+        byte[] idBytes = new ObjectId(id).toByteArray();
+        lock.writeLock().lock();
+        try {
+            long idHash = OffHeapIndex.hash(idBytes);
+            int previous = primary.find(idHash, o -> idMatches(o, idBytes));
+            if (previous < 0) return null;
+            T old = decode(buf, previous);
+            int offset = append(DELETE, idBytes, null, new byte[0]);
+            removeKey(previous);
+            deadBytes += recordSize(previous) + recordSize(offset);
+            primary.remove(idHash, previous);
+            return old;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return primary.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Off-heap bytes held by the two indexes. */
+    long indexMemoryBytes() {
+        lock.readLock().lock();
+        try {
+            return primary.memoryBytes() + secondary.memoryBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Streams the live values in write order (the position of each value's latest version).
+     * Records are never moved while the log is open, so the stream needs no lock between values
+     * and sees writes made up to the moment it was opened.
+     */
+    Stream<T> stream() {
+        MappedByteBuffer mapping;
+        int limit;
+        lock.readLock().lock();
+        try {
+            mapping = buf;
+            limit = end;
+        } finally {
+            lock.readLock().unlock();
+        }
+        Iterator<T> it = new Iterator<T>() {
+            private int pos = FILE_HEADER;
+            private T next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && pos < limit) {
+                    int record = pos;
+                    pos += 8 + mapping.getInt(record);
+                    if (mapping.get(record + 8) != PUT) continue;
+                    lock.readLock().lock();
+                    try {
+                        if (isLive(record)) next = decode(mapping, record);
+                    } finally {
+                        lock.readLock().unlock();
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                T out = next;
+                next = null;
+                return out;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(it, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (!channel.isOpen()) return;
+            buf.force();
+            channel.close();
+            fileLock.release();
+            lockChannel.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not close " + path, ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int append(byte op, byte[] id, byte[] key, byte[] bson) {
+        int keyLength = key == null ? 0 : key.length;
+        int size = RECORD_HEADER + keyLength + bson.length;
+        ensureCapacity(end + (long) size + RECORD_HEADER);
+        int pos = end;
+        MappedByteBuffer b = buf;
+        b.put(pos + 8, op);
+        b.put(pos + 9, id);
+        b.putInt(pos + 21, key == null ? -1 : keyLength);
+        if (key != null) b.put(pos + RECORD_HEADER, key);
+        b.put(pos + RECORD_HEADER + keyLength, bson);
+        CRC32 crc = new CRC32();
+        crc.update(b.slice(pos + 8, size - 8));
+        b.putInt(pos + 4, (int) crc.getValue());
+        // the length goes last: until it is written the record reads as the end of the log
+        b.putInt(pos, size - 8);
+        if (syncWrites) b.force(pos, size);
+        end = pos + size;
+        return pos;
+    }
+
+    /** Grows the mapping (doubling) so that {@code required} bytes fit. */
+    private void ensureCapacity(long required) {
+        if (required <= buf.capacity()) return;
+        if (required > MAX_MAPPING) {
+            throw new IllegalStateException(path + " has reached the 2 GB limit of an embedded log ("
+                    + deadBytes + " bytes of superseded records are reclaimed by compaction on the next open)");
+        }
+        long size = buf.capacity();
+        while (size < required) size = Math.min(size * 2, MAX_MAPPING);
+        try {
+            buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not grow " + path, ex);
+        }
+    }
+
+    private void checkUniqueKey(byte[] key, int ownOffset) {
+        if (key == null) return;
+        int existing = secondary.find(OffHeapIndex.hash(key), o -> Arrays.equals(keyAt(o), key));
+        if (existing >= 0 && existing != ownOffset) {
+            throw new DuplicateKeyException("Duplicate key " + new String(key, StandardCharsets.UTF_8)
+                    + " in " + path.getFileName());
+        }
+    }
+
+    private void removeKey(int offset) {
+        byte[] key = keyAt(offset);
+        if (key != null) secondary.remove(OffHeapIndex.hash(key), offset);
+    }
+
+    private boolean isLive(int offset) {
+        byte[] id = idAt(offset);
+        return primary.find(OffHeapIndex.hash(id), o -> o == offset) == offset;
+    }
+
+    private byte[] uniqueKey(T value) {
+        if (uniqueKeyOf == null) return null;
+        String key = uniqueKeyOf.apply(value);
+        return key == null || key.isEmpty() ? null : key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private int recordSize(int offset) {
+        return 8 + buf.getInt(offset);
+    }
+
+    private boolean idMatches(int offset, byte[] id) {
+        for (int i = 0; i < id.length; i++) {
+            if (buf.get(offset + 9 + i) != id[i]) return false;
+        }
+        return true;
+    }
+
+    private byte[] idAt(int offset) {
+        byte[] id = new byte[12];
+        buf.get(offset + 9, id);
+        return id;
+    }
+
+    private byte[] keyAt(int offset) {
+        int length = buf.getInt(offset + 21);
+        if (length < 0) return null;
+        byte[] key = new byte[length];
+        buf.get(offset + RECORD_HEADER, key);
+        return key;
+    }
+
+    private byte[] encode(T value) {
+        ByteBuffer bson = new RawBsonDocument(value, codec).getByteBuffer().asNIO();
+        byte[] out = new byte[bson.remaining()];
+        bson.get(out);
+        return out;
+    }
+
+    private T decode(ByteBuffer mapping, int offset) {
+        int keyLength = Math.max(0, mapping.getInt(offset + 21));
+        int start = offset + RECORD_HEADER + keyLength;
+        int length = offset + 8 + mapping.getInt(offset) - start;
+        try (BsonBinaryReader reader = new BsonBinaryReader(mapping.slice(start, length))) {
+            return codec.decode(reader, DecoderContext.builder().build());
+        }
+    }
+}
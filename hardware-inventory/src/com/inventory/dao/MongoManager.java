@@ -2,27 +2,137 @@ package com.inventory.dao;
 
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadConcernLevel;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoDatabase;
+import com.inventory.dao.codec.DependencyCodec;
+import com.inventory.dao.codec.HardwareItemCodec;
+import com.inventory.dao.codec.ProjectCodec;
+import com.inventory.metrics.Metrics;
+import com.inventory.util.Config;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the shared MongoClient. Connection settings come from {@link Config}:
+ *
+ * <pre>
+ *   inventory.mongo.uri                       connection string (default mongodb://localhost:27017)
+ *   inventory.mongo.database                  database name (default hardware_inventory_db)
+ *   inventory.mongo.pool.maxSize / minSize    connection pool bounds
+ *   inventory.mongo.pool.maxWaitMs            how long a thread waits for a pooled connection
+ *   inventory.mongo.pool.maxIdleMs            idle connections are closed after this
+ *   inventory.mongo.connectTimeoutMs          socket connect timeout
+ *   inventory.mongo.socketTimeoutMs           socket read timeout
+ *   inventory.mongo.serverSelectionTimeoutMs  how long to wait for a suitable server
+ *   inventory.mongo.compressors               comma list of zstd, snappy, zlib
+ *   inventory.mongo.readConcern               local, majority, available, ...
+ *   inventory.mongo.writeConcern              majority or a node count; inventory.mongo.journal=true to wait for the journal
+ *   inventory.mongo.scan.readPreference       read preference for heavy reads (default primary)
+ *   inventory.mongo.scan.maxStalenessSeconds  how stale a secondary may be for heavy reads (default 120, min 90)
+ * </pre>
+ *
+ * Unset keys leave the connection-string / driver defaults in place. Interactive reads and all
+ * writes use the client's default (primary) read preference; heavy reads (listings, portfolio
+ * scans, reports) go through {@link #scanReadPreference()}, which is the primary as well unless
+ * scan.readPreference opts in to secondaries (e.g. secondaryPreferred). Those reads may then lag
+ * this process's own writes by up to maxStalenessSeconds. Reads that seed in-memory state which
+ * is then kept current by later writes or change events (the usage index, status history, hardware
+ * summary and vulnerability index) stay on the primary, where a stale seed would never be repaired.
+ */
 public class MongoManager {
     private static MongoClient client;
     private static MongoDatabase database;
+    private static ReadPreference scanReadPreference;
 
-    // Change this connection string if needed
     private static final String CONNECTION_STRING = "mongodb://localhost:27017";
     private static final String DB_NAME = "hardware_inventory_db";
 
-    public static void init() {
+    /**
+     * Default codecs plus the model codecs, so collections can be typed as
+     * MongoCollection&lt;HardwareItem&gt; / MongoCollection&lt;Project&gt; and decode without a Document.
+     */
+    public static CodecRegistry codecRegistry() {
+        DependencyCodec dependencyCodec = new DependencyCodec();
+        return CodecRegistries.fromRegistries(
+                CodecRegistries.fromCodecs(dependencyCodec, new HardwareItemCodec(), new ProjectCodec(dependencyCodec)),
+                MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+    public static synchronized void init() {
         if (client == null) {
-            ConnectionString conn = new ConnectionString(CONNECTION_STRING);
-            MongoClientSettings settings = MongoClientSettings.builder()
+            ConnectionString conn = new ConnectionString(Config.get("inventory.mongo.uri", CONNECTION_STRING));
+            MongoClientSettings.Builder builder = MongoClientSettings.builder()
                     .applyConnectionString(conn)
-                    .build();
-            client = MongoClients.create(settings);
-            database = client.getDatabase(DB_NAME);
+                    .codecRegistry(codecRegistry())
+                    .addCommandListener(Metrics.commandListener());
+            applyConfig(builder);
+            client = MongoClients.create(builder.build());
+            database = client.getDatabase(Config.get("inventory.mongo.database", DB_NAME));
+            scanReadPreference = buildScanReadPreference();
+        }
+    }
+
+    private static void applyConfig(MongoClientSettings.Builder builder) {
+        builder.applyToConnectionPoolSettings(pool -> {
+            pool.addConnectionPoolListener(Metrics.poolListener());
+            String v;
+            if ((v = Config.get("inventory.mongo.pool.maxSize")) != null) pool.maxSize(Integer.parseInt(v));
+            if ((v = Config.get("inventory.mongo.pool.minSize")) != null) pool.minSize(Integer.parseInt(v));
+            if ((v = Config.get("inventory.mongo.pool.maxWaitMs")) != null) pool.maxWaitTime(Long.parseLong(v), TimeUnit.MILLISECONDS);
+            if ((v = Config.get("inventory.mongo.pool.maxIdleMs")) != null) pool.maxConnectionIdleTime(Long.parseLong(v), TimeUnit.MILLISECONDS);
+        });
+        builder.applyToSocketSettings(socket -> {
+            String v;
+            if ((v = Config.get("inventory.mongo.connectTimeoutMs")) != null) socket.connectTimeout(Integer.parseInt(v), TimeUnit.MILLISECONDS);
+            if ((v = Config.get("inventory.mongo.socketTimeoutMs")) != null) socket.readTimeout(Integer.parseInt(v), TimeUnit.MILLISECONDS);
+        });
+        builder.applyToClusterSettings(cluster -> {
+            String v = Config.get("inventory.mongo.serverSelectionTimeoutMs");
+            if (v != null) cluster.serverSelectionTimeout(Long.parseLong(v), TimeUnit.MILLISECONDS);
+        });
+
+        String compressors = Config.get("inventory.mongo.compressors");
+        if (compressors != null) {
+            List<MongoCompressor> list = new ArrayList<>();
+            for (String name : compressors.split(",")) {
+                switch (name.trim().toLowerCase()) {
+                    case "zstd": list.add(MongoCompressor.createZstdCompressor()); break;
+                    case "snappy": list.add(MongoCompressor.createSnappyCompressor()); break;
+                    case "zlib": list.add(MongoCompressor.createZlibCompressor()); break;
+                    default: throw new IllegalArgumentException("Unknown compressor: " + name);
+                }
+            }
+            builder.compressorList(list);
         }
+
+        String readConcern = Config.get("inventory.mongo.readConcern");
+        if (readConcern != null) builder.readConcern(new ReadConcern(ReadConcernLevel.fromString(readConcern)));
+
+        String w = Config.get("inventory.mongo.writeConcern");
+        WriteConcern writeConcern = null;
+        if (w != null) writeConcern = w.equalsIgnoreCase("majority") ? WriteConcern.MAJORITY : new WriteConcern(Integer.parseInt(w));
+        if (Config.getBoolean("inventory.mongo.journal", false)) {
+            writeConcern = (writeConcern != null ? writeConcern : WriteConcern.ACKNOWLEDGED).withJournal(true);
+        }
+        if (writeConcern != null) builder.writeConcern(writeConcern);
+    }
+
+    private static ReadPreference buildScanReadPreference() {
+        String name = Config.get("inventory.mongo.scan.readPreference", "primary");
+        if (name.equalsIgnoreCase("primary")) return ReadPreference.primary();
+        long staleness = Config.getLong("inventory.mongo.scan.maxStalenessSeconds", 120);
+        return ReadPreference.valueOf(name, Collections.emptyList(), staleness, TimeUnit.SECONDS);
     }
 
     public static MongoDatabase getDatabase() {
@@ -30,6 +140,12 @@ public class MongoManager {
         return database;
     }
 
+    /** Read preference for heavy, staleness-tolerant reads (listings, scans, advisory lookups). */
+    public static ReadPreference scanReadPreference() {
+        if (scanReadPreference == null) init();
+        return scanReadPreference;
+    }
+
     public static void close() {
         if (client != null) client.close();
     }
@@ -0,0 +1,125 @@
+package com.inventory.dao;
+
+import java.nio.ByteBuffer;
+import java.util.function.IntPredicate;
+
+/**
+ * Open-addressing hash table from a 64-bit key hash to a record offset in a {@link MappedLog},
+ * kept in a direct buffer so a large store adds next to nothing to the Java heap (12 bytes per
+ * slot, at most half full). Hashes may collide: lookups hand every candidate offset to a
+ * predicate that checks the key stored in the record itself. Not thread-safe; MappedLog locks.
+ */
+final class OffHeapIndex {
+    private static final int SLOT = 12;          // long hash, int offset
+    private static final int EMPTY = 0;          // offsets start after the log header, so 0 is free
+    private static final int TOMBSTONE = -1;
+
+    private ByteBuffer table;
+    private int mask;
+    private int size;
+    private int used;                            // live entries plus tombstones
+
+    OffHeapIndex(int expected) {
+        allocate(tableSizeFor(expected));
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Off-heap bytes held by the table. */
+    long memoryBytes() {
+        return table.capacity();
+    }
+
+    /** The offset stored under {@code hash} that {@code matches} accepts, or -1. */
+    int find(long hash, IntPredicate matches) {
+        for (int slot = slot(hash); ; slot = (slot + 1) & mask) {
+            int offset = offsetAt(slot);
+            if (offset == EMPTY) return -1;
+            if (offset != TOMBSTONE && hashAt(slot) == hash && matches.test(offset)) return offset;
+        }
+    }
+
+    /** Adds an entry; the caller has checked there is no live entry for the same key. */
+    void put(long hash, int offset) {
+        if ((used + 1) * 2L > mask + 1) allocate(tableSizeFor(size + 1));
+        int slot = slot(hash);
+        while (offsetAt(slot) != EMPTY && offsetAt(slot) != TOMBSTONE) slot = (slot + 1) & mask;
+        if (offsetAt(slot) == EMPTY) used++;
+        table.putLong(slot * SLOT, hash);
+        table.putInt(slot * SLOT + 8, offset);
+        size++;
+    }
+
+    /** Points the entry for {@code oldOffset} at {@code newOffset}; false if there is no such entry. */
+    boolean replace(long hash, int oldOffset, int newOffset) {
+        int slot = locate(hash, oldOffset);
+        if (slot < 0) return false;
+        table.putInt(slot * SLOT + 8, newOffset);
+        return true;
+    }
+
+    boolean remove(long hash, int offset) {
+        int slot = locate(hash, offset);
+        if (slot < 0) return false;
+        table.putInt(slot * SLOT + 8, TOMBSTONE);
+        size--;
+        return true;
+    }
+
+    private int locate(long hash, int offset) {
+        for (int slot = slot(hash); ; slot = (slot + 1) & mask) {
+            int o = offsetAt(slot);
+            if (o == EMPTY) return -1;
+            if (o == offset && hashAt(slot) == hash) return slot;
+        }
+    }
+
+    /** Rehashes the live entries into a table of {@code slots} slots, dropping tombstones. */
+    private void allocate(int slots) {
+        ByteBuffer old = table;
+        table = ByteBuffer.allocateDirect(slots * SLOT);
+        mask = slots - 1;
+        size = 0;
+        used = 0;
+        if (old == null) return;
+        for (int pos = 0; pos < old.capacity(); pos += SLOT) {
+            int offset = old.getInt(pos + 8);
+            if (offset != EMPTY && offset != TOMBSTONE) put(old.getLong(pos), offset);
+        }
+    }
+
+    private int slot(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private long hashAt(int slot) {
+        return table.getLong(slot * SLOT);
+    }
+
+    private int offsetAt(int slot) {
+        return table.getInt(slot * SLOT + 8);
+    }
+
+    private static int tableSizeFor(int entries) {
+        int slots = 16;
+        while (slots < entries * 4L && slots < (1 << 27)) slots <<= 1;
+        return slots;
+    }
+
+    /** 64-bit FNV-1a over the key's bytes, finished with a murmur3 mix so nearby keys spread out. */
+    static long hash(byte[] key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9f3e15c5a1bL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
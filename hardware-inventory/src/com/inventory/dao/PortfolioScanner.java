@@ -0,0 +1,328 @@
+package com.inventory.dao;
+
+import com.inventory.model.Advisory;
+import com.inventory.model.Dependency;
+import com.inventory.model.Project;
+import com.inventory.model.VulnerabilityReport;
+import com.inventory.util.Config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Scans every project in the portfolio for known vulnerabilities.
+ *
+ * Projects are streamed from a single cursor and handed to a fork-join pool in chunks.
+ * Dependency coordinates are interned across projects, so each unique groupId:artifactId:version
+ * is resolved once (in a batch with the other new coordinates of its chunk) no matter how many
+ * projects use it. Only a bounded number of chunks is in flight at a time, so memory grows with
+ * the number of unique coordinates rather than with the total number of dependencies.
+ *
+ * When the DAO has the scan cache on, every scanned project's result is stored, and
+ * {@link #refresh()} rescans only the projects whose dependencies changed, whose result was marked
+ * stale, or that were scanned against an older advisory dataset; the rest reuse their stored result.
+ *
+ * With transitive resolution on in the DAO, each project's dependencies are expanded on the scan
+ * threads, so resolution runs in parallel and shares the resolver's per-GAV cache.
+ *
+ * Passing a {@link ReportListener} hands each project's report over as soon as its chunk is done
+ * and keeps none of them, so exporting a whole portfolio needs no more memory than one chunk.
+ */
+public class PortfolioScanner {
+    private static final int CHUNK_SIZE = 256;
+
+    private final Source dao;
+    private final int parallelism;
+
+    /** What a scan reads and stores: a {@link ProjectDAO} and its scan results outside of tests. */
+    interface Source {
+        void forEachProject(Consumer<Project> action);
+        List<Dependency> scanDependencies(Project p);
+        Map<String, Advisory> findVulnerabilities(List<Dependency> deps);
+        /** The stored results, or null without the scan cache. */
+        Results scanResults();
+    }
+
+    /** The part of {@link ScanResultStore} a scan uses. */
+    interface Results {
+        long datasetVersion();
+        Map<String, ScanResultStore.CachedScan> findAll(Collection<String> projectIds);
+        void saveAll(List<ScanResultStore.Scan> scans);
+    }
+
+    public static class Summary {
+        public long projects;
+        public long rescanned;
+        public long dependencies;
+        public long uniqueCoordinates;
+        public long vulnerableProjects;
+        public long findings;
+        public long elapsedMillis;
+
+        @Override
+        public String toString() {
+            return "Portfolio scan: " + projects + " projects (" + rescanned + " scanned, " +
+                    (projects - rescanned) + " unchanged), " + dependencies + " dependencies (" +
+                    uniqueCoordinates + " unique), " + vulnerableProjects + " vulnerable projects, " +
+                    findings + " findings in " + elapsedMillis + " ms";
+        }
+    }
+
+    public static class Result {
+        private final Map<String, VulnerabilityReport> reports;
+        private final Summary summary;
+
+        Result(Map<String, VulnerabilityReport> reports, Summary summary) {
+            this.reports = reports;
+            this.summary = summary;
+        }
+
+        /** Reports keyed by project id; empty when the scan was given a {@link ReportListener}. */
+        public Map<String, VulnerabilityReport> getReports() { return reports; }
+        public Summary getSummary() { return summary; }
+    }
+
+    /** Receives each project's report as it is produced; called from the scan threads. */
+    public interface ReportListener {
+        void onReport(Project project, VulnerabilityReport report);
+    }
+
+    /** Interned coordinate: the shared Dependency instance plus its (possibly pending) lookup. */
+    private static final class Coordinate {
+        final Dependency dependency;
+        final CompletableFuture<Advisory> advisory = new CompletableFuture<>();
+
+        Coordinate(Dependency dependency) {
+            this.dependency = dependency;
+        }
+    }
+
+    public PortfolioScanner(ProjectDAO dao) {
+        this(dao, Config.getInt("inventory.scan.parallelism", Runtime.getRuntime().availableProcessors()));
+    }
+
+    public PortfolioScanner(ProjectDAO dao, int parallelism) {
+        this(source(dao), parallelism);
+    }
+
+    PortfolioScanner(Source dao, int parallelism) {
+        this.dao = dao;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    private static Source source(ProjectDAO dao) {
+        return new Source() {
+            @Override
+            public void forEachProject(Consumer<Project> action) {
+                dao.forEachProject(action);
+            }
+
+            @Override
+            public List<Dependency> scanDependencies(Project p) {
+                return dao.scanDependencies(p);
+            }
+
+            @Override
+            public Map<String, Advisory> findVulnerabilities(List<Dependency> deps) {
+                return dao.findVulnerabilities(deps);
+            }
+
+            @Override
+            public Results scanResults() {
+                ScanResultStore store = dao.scanResults();
+                if (store == null) return null;
+                return new Results() {
+                    @Override
+                    public long datasetVersion() {
+                        return store.datasetVersion();
+                    }
+
+                    @Override
+                    public Map<String, ScanResultStore.CachedScan> findAll(Collection<String> projectIds) {
+                        return store.findAll(projectIds);
+                    }
+
+                    @Override
+                    public void saveAll(List<ScanResultStore.Scan> scans) {
+                        store.saveAll(scans);
+                    }
+                };
+            }
+        };
+    }
+
+    /** Scans every project. */
+    public Result scan() {
+        return run(false, null);
+    }
+
+    /** Scans every project, handing the reports to {@code listener} instead of keeping them. */
+    public Result scan(ReportListener listener) {
+        return run(false, listener);
+    }
+
+    /** Scans only the projects without a current stored result; a full scan without the scan cache. */
+    public Result refresh() {
+        return run(true, null);
+    }
+
+    /** {@link #refresh()}, handing stored and fresh reports alike to {@code listener}. */
+    public Result refresh(ReportListener listener) {
+        return run(true, listener);
+    }
+
+    private Result run(boolean incremental, ReportListener listener) {
+        Results store = dao.scanResults();
+        boolean reuse = incremental && store != null;
+        long start = System.currentTimeMillis();
+        Map<String, Coordinate> coordinates = new ConcurrentHashMap<>();
+        Map<String, VulnerabilityReport> reports = new ConcurrentHashMap<>();
+        ReportListener sink = listener != null ? listener : (p, r) -> reports.put(p.getId(), r);
+        AtomicLong vulnerableCount = new AtomicLong();
+        AtomicLong findingCount = new AtomicLong();
+        ReportListener counting = (p, r) -> {
+            if (r.hasFindings()) vulnerableCount.incrementAndGet();
+            findingCount.addAndGet(r.getFindings().size());
+            sink.onReport(p, r);
+        };
+        AtomicLong dependencyCount = new AtomicLong();
+        AtomicLong projectCount = new AtomicLong();
+        AtomicLong rescanCount = new AtomicLong();
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+
+        try {
+            List<Project> chunk = new ArrayList<>(CHUNK_SIZE);
+            dao.forEachProject(p -> {
+                chunk.add(p);
+                if (chunk.size() == CHUNK_SIZE) {
+                    pending.add(submit(new ArrayList<>(chunk), store, reuse, pool, inFlight, coordinates, counting,
+                            dependencyCount, projectCount, rescanCount));
+                    chunk.clear();
+                }
+            });
+            if (!chunk.isEmpty()) {
+                pending.add(submit(chunk, store, reuse, pool, inFlight, coordinates, counting,
+                        dependencyCount, projectCount, rescanCount));
+            }
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            pool.shutdown();
+        }
+
+        Summary summary = new Summary();
+        summary.projects = projectCount.get();
+        summary.rescanned = rescanCount.get();
+        summary.dependencies = dependencyCount.get();
+        summary.uniqueCoordinates = coordinates.size();
+        summary.vulnerableProjects = vulnerableCount.get();
+        summary.findings = findingCount.get();
+        summary.elapsedMillis = System.currentTimeMillis() - start;
+        return new Result(reports, summary);
+    }
+
+    private CompletableFuture<Void> submit(List<Project> chunk, Results store, boolean reuse,
+                                           ForkJoinPool pool, Semaphore inFlight,
+                                           Map<String, Coordinate> coordinates,
+                                           ReportListener reports,
+                                           AtomicLong dependencyCount, AtomicLong projectCount,
+                                           AtomicLong rescanCount) {
+        inFlight.acquireUninterruptibly();
+        return CompletableFuture.runAsync(() -> scanChunk(chunk, store, reuse, coordinates, reports,
+                        dependencyCount, projectCount, rescanCount), pool)
+                .whenComplete((v, ex) -> inFlight.release());
+    }
+
+    private void scanChunk(List<Project> all, Results store, boolean reuse,
+                           Map<String, Coordinate> coordinates,
+                           ReportListener reports,
+                           AtomicLong dependencyCount, AtomicLong projectCount, AtomicLong rescanCount) {
+        long startedAt = System.currentTimeMillis();
+        long version = store != null ? store.datasetVersion() : 0;
+
+        List<List<Dependency>> allDeps = new ArrayList<>(all.size());
+        for (Project p : all) allDeps.add(dao.scanDependencies(p));
+
+        // take stored results that are still current, scan the rest
+        List<Project> chunk = all;
+        List<List<Dependency>> chunkDeps = allDeps;
+        if (reuse) {
+            List<String> ids = new ArrayList<>(all.size());
+            for (Project p : all) ids.add(p.getId());
+            Map<String, ScanResultStore.CachedScan> cached = store.findAll(ids);
+            chunk = new ArrayList<>();
+            chunkDeps = new ArrayList<>();
+            for (int i = 0; i < all.size(); i++) {
+                Project p = all.get(i);
+                List<Dependency> deps = allDeps.get(i);
+                ScanResultStore.CachedScan c = cached.get(p.getId());
+                if (c != null && c.isCurrent(ScanResultStore.dependencyHash(deps), version)) {
+                    reports.onReport(p, c.report);
+                    dependencyCount.addAndGet(deps.size());
+                } else {
+                    chunk.add(p);
+                    chunkDeps.add(deps);
+                }
+            }
+        }
+
+        // intern every coordinate; the chunk that first sees a coordinate owns its lookup
+        List<Coordinate> owned = new ArrayList<>();
+        List<List<Coordinate>> perProject = new ArrayList<>(chunk.size());
+        for (List<Dependency> deps : chunkDeps) {
+            List<Coordinate> coords = new ArrayList<>(deps.size());
+            for (Dependency d : deps) {
+                String key = d.toString();
+                Coordinate c = coordinates.get(key);
+                if (c == null) {
+                    Coordinate fresh = new Coordinate(d);
+                    c = coordinates.putIfAbsent(key, fresh);
+                    if (c == null) {
+                        c = fresh;
+                        owned.add(fresh);
+                    }
+                }
+                coords.add(c);
+            }
+            perProject.add(coords);
+            dependencyCount.addAndGet(coords.size());
+        }
+
+        if (!owned.isEmpty()) {
+            List<Dependency> deps = new ArrayList<>(owned.size());
+            for (Coordinate c : owned) deps.add(c.dependency);
+            try {
+                Map<String, Advisory> found = dao.findVulnerabilities(deps);
+                for (Coordinate c : owned) c.advisory.complete(found.get(c.dependency.toString()));
+            } catch (RuntimeException ex) {
+                for (Coordinate c : owned) c.advisory.completeExceptionally(ex);
+                throw ex;
+            }
+        }
+
+        List<ScanResultStore.Scan> scans = store != null ? new ArrayList<>(chunk.size()) : Collections.emptyList();
+        for (int i = 0; i < chunk.size(); i++) {
+            VulnerabilityReport report = new VulnerabilityReport();
+            for (Coordinate c : perProject.get(i)) {
+                Advisory a = c.advisory.join();
+                if (a != null) report.addFinding(ProjectDAO.toFinding(c.dependency, a));
+            }
+            Project p = chunk.get(i);
+            reports.onReport(p, report);
+            if (store != null) scans.add(new ScanResultStore.Scan(p.getId(), chunkDeps.get(i), report, version, startedAt));
+        }
+        if (store != null) store.saveAll(scans);
+        projectCount.addAndGet(all.size());
+        rescanCount.addAndGet(chunk.size());
+    }
+}
@@ -1,17 +1,50 @@
 package com.inventory.dao;
 
+import com.inventory.model.Advisory;
 import com.inventory.model.Dependency;
+import com.inventory.model.DependencyRecommendation;
 import com.inventory.model.Project;
 import com.inventory.model.VulnerabilityReport;
 import com.inventory.model.VulnerabilityReport.Finding;
+import com.inventory.metrics.LatencyHistogram;
+import com.inventory.metrics.Metrics;
+import com.inventory.resolve.MavenResolver;
+import com.inventory.util.Config;
+import com.inventory.util.MavenVersion;
 import org.bson.Document;
 import org.bson.types.ObjectId;
+import com.mongodb.ReadPreference;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndDeleteOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
+import org.bson.conversions.Bson;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * ProjectDAO handles CRUD for projects and vulnerability checks / recommendations.
@@ -20,186 +53,797 @@ import java.util.List;
  * - vulnerabilities are stored in collection "vulnerabilities"
  *   Each vulnerability doc fields:
  *     groupId, artifactId, vulnerableVersion, cve, severity, patchedVersion, recommendation
+ *   vulnerableVersion is either a single version ("2.14.1") or a Maven range ("[2.0,2.17.1)"),
+ *   compared with Maven version ordering. AdvisoryLoader fills the collection from an OSV dump
+ *   and adds osvId and sourceFile, which are ignored here.
  *
  * - recommendations may be stored in "dependency_recommendations" (optional)
+ *
+ * Lookups for a project are batched: one $or query per collection instead of one
+ * query per dependency, backed by compound indexes created when the DAO starts.
+ * When constructed with a {@link VulnerabilityIndex} the lookups are answered from memory instead.
+ *
+ * With {@link #enableScanCache()} each check is stored in a {@link ScanResultStore} and reused
+ * until the project's dependencies or the advisory data change; when the index reports changed
+ * advisories, only the projects using those artifacts are rescanned. Every check then reads and
+ * writes "scan_results". Only an {@link com.inventory.ingest.AdvisoryLoader} run bumps the dataset
+ * version, so without an index an advisory edited any other way is missed by stored results for
+ * up to {@code inventory.scanCache.ttlSeconds} (default 3600), their maximum age; with one, until
+ * the index has reloaded and the rescan of the affected projects has run.
+ *
+ * With {@link #enableUsageIndex} reverse dependency lookups are answered from memory. The index only
+ * sees this DAO's writes (including {@link DependencyWriteBuffer}'s), so it is for deployments where
+ * one process writes projects; with several instances writing, leave it off.
+ *
+ * With {@link #enableTransitiveResolution} vulnerability checks and scans cover each project's
+ * transitive dependencies, resolved from a local Maven repository, instead of only the declared ones.
+ *
+ * With {@link #enableCache} {@link #read} is served from an {@link EntityCache}, so a check followed
+ * by recommendations for the same project fetches its dependency array once. Every write here
+ * (and through {@link DependencyWriteBuffer}) invalidates the project's entry.
+ *
+ * With {@link #enableWriteBuffer} {@link #addDependency}, {@link #addDependencies} and
+ * {@link #updateDependency} queue their writes in a {@link DependencyWriteBuffer} and wait for them,
+ * so concurrent callers share round-trips. Either way they answer the same: true when the project
+ * (and for an update, the old dependency) was there to write to.
+ *
+ * {@link #listAll}, {@link #stream}, {@link #forEachProject} (and so portfolio scans) and the
+ * advisory and recommendation lookups read through {@link MongoManager#scanReadPreference()}
+ * (primary unless configured otherwise); every other read, including {@link #read},
+ * {@link #listPage} and the usage index build, goes to the primary.
  */
-public class ProjectDAO {
-    private final MongoCollection<Document> col;
+public class ProjectDAO implements ProjectStore {
+    private static final LatencyHistogram ENABLE_USAGE_INDEX_LATENCY = Metrics.histogram("ProjectDAO.enableUsageIndex");
+    private static final LatencyHistogram CREATE_LATENCY = Metrics.histogram("ProjectDAO.create");
+    private static final LatencyHistogram READ_LATENCY = Metrics.histogram("ProjectDAO.read");
+    private static final LatencyHistogram LIST_ALL_LATENCY = Metrics.histogram("ProjectDAO.listAll");
+    private static final LatencyHistogram STREAM_LATENCY = Metrics.histogram("ProjectDAO.stream");
+    private static final LatencyHistogram LIST_PAGE_LATENCY = Metrics.histogram("ProjectDAO.listPage");
+    private static final LatencyHistogram FIND_PROJECTS_USING_LATENCY = Metrics.histogram("ProjectDAO.findProjectsUsing");
+    private static final LatencyHistogram ADD_DEPENDENCY_LATENCY = Metrics.histogram("ProjectDAO.addDependency");
+    private static final LatencyHistogram FIND_ID_BY_NAME_LATENCY = Metrics.histogram("ProjectDAO.findIdByName");
+    private static final LatencyHistogram ADD_DEPENDENCIES_LATENCY = Metrics.histogram("ProjectDAO.addDependencies");
+    private static final LatencyHistogram REMOVE_DEPENDENCIES_LATENCY = Metrics.histogram("ProjectDAO.removeDependencies");
+    private static final LatencyHistogram UPDATE_DEPENDENCY_LATENCY = Metrics.histogram("ProjectDAO.updateDependency");
+    private static final LatencyHistogram DELETE_PROJECT_LATENCY = Metrics.histogram("ProjectDAO.deleteProject");
+    private static final LatencyHistogram CHECK_VULNERABILITIES_LATENCY = Metrics.histogram("ProjectDAO.checkVulnerabilities");
+    private static final LatencyHistogram CHECK_VULNERABILITIES_CACHED_LATENCY = Metrics.histogram("ProjectDAO.checkVulnerabilities.cached");
+    private static final LatencyHistogram RESCAN_AFFECTED_LATENCY = Metrics.histogram("ProjectDAO.rescanAffected");
+    private static final LatencyHistogram RECOMMEND_DEPENDENCY_UPDATES_LATENCY = Metrics.histogram("ProjectDAO.recommendDependencyUpdates");
+    private static final LatencyHistogram FIND_VULNERABILITIES_LATENCY = Metrics.histogram("ProjectDAO.findVulnerabilities");
+
+    private static final int RESCAN_BATCH = 256;
+
+    private final MongoCollection<Project> col;
+    // same collection routed by MongoManager.scanReadPreference() for listings and portfolio scans
+    private final MongoCollection<Project> scanCol;
     private final MongoCollection<Document> vulnCol;
     private final MongoCollection<Document> recCol;
+    private final VulnerabilityIndex vulnIndex;
+    private volatile DependencyUsageIndex usageIndex;
+    private final ReentrantReadWriteLock indexWrites = new ReentrantReadWriteLock();
+    private volatile ScanResultStore scanResults;
+    private volatile MavenResolver resolver;
+    private volatile EntityCache<Project> cache;
+    private volatile DependencyWriteBuffer writeBuffer;
 
     public ProjectDAO() {
-        col = MongoManager.getDatabase().getCollection("projects");
-        vulnCol = MongoManager.getDatabase().getCollection("vulnerabilities");
-        recCol = MongoManager.getDatabase().getCollection("dependency_recommendations");
+        this(null);
     }
 
-    public String create(Project p) {
-        Document doc = new Document()
-                .append("name", p.getName())
-                .append("description", p.getDescription());
+    public ProjectDAO(VulnerabilityIndex vulnIndex) {
+        this.vulnIndex = vulnIndex;
+        ReadPreference scan = MongoManager.scanReadPreference();
+        col = MongoManager.getDatabase().getCollection("projects", Project.class);
+        scanCol = col.withReadPreference(scan);
+        // advisory data changes rarely, so it is always read with the scan preference
+        vulnCol = MongoManager.getDatabase().getCollection("vulnerabilities").withReadPreference(scan);
+        recCol = MongoManager.getDatabase().getCollection("dependency_recommendations").withReadPreference(scan);
+        ensureIndexes();
+    }
+
+    private void ensureIndexes() {
+        vulnCol.createIndex(Indexes.ascending("groupId", "artifactId", "vulnerableVersion"));
+        recCol.createIndex(Indexes.ascending("groupId", "artifactId"));
+        col.createIndex(Indexes.ascending("name"));
+        // multikey index for reverse lookups ("which projects use this artifact?")
+        col.createIndex(Indexes.ascending("dependencies.groupId", "dependencies.artifactId"));
+    }
+
+    /**
+     * Builds the in-memory reverse dependency index from all projects and keeps it current on this
+     * DAO's writes from then on, so {@link #findProjectsUsing} no longer queries the database.
+     *
+     * The index is installed before the projects are read, so writes made during the build are
+     * applied to it (and recorded) rather than lost; the projects they touched are re-read once the
+     * build is done, with writes held back for that moment only. Queries use the database until then.
+     */
+    public void enableUsageIndex() {
+        long start = System.nanoTime();
+        try {
+            DependencyUsageIndex index = new DependencyUsageIndex();
+            index.beginLoad();
+            // writes already under way finish first, so the read below sees them
+            indexWrites.writeLock().lock();
+            try {
+                usageIndex = index;
+            } finally {
+                indexWrites.writeLock().unlock();
+            }
+            // from the primary: what a lagging secondary has not seen yet would stay missing from the index
+            try (Stream<Project> projects = stream(col, 1000, "dependencies")) {
+                projects.forEach(index::load);
+            }
+            indexWrites.writeLock().lock();
+            try {
+                Map<String, Project> current = new HashMap<>();
+                List<ObjectId> ids = new ArrayList<>();
+                for (String id : index.writtenProjects()) ids.add(new ObjectId(id));
+                for (int from = 0; from < ids.size(); from += RESCAN_BATCH) {
+                    for (Project p : col.find(Filters.in("_id", ids.subList(from, Math.min(ids.size(), from + RESCAN_BATCH))))
+                            .projection(Projections.include("dependencies"))) {
+                        current.put(p.getId(), p);
+                    }
+                }
+                index.finishLoad(current);
+            } finally {
+                indexWrites.writeLock().unlock();
+            }
+        } finally {
+            ENABLE_USAGE_INDEX_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Held (shared) by every write from its database write through its usage index update, so that
+     * {@link #enableUsageIndex} can briefly keep writes out.
+     */
+    Lock indexWriteLock() {
+        return indexWrites.readLock();
+    }
+
+    /**
+     * Stores vulnerability check results and answers repeated checks from them. With a
+     * VulnerabilityIndex, advisory changes it reports trigger {@link #rescanAffected}; without one,
+     * results expire after {@code inventory.scanCache.ttlSeconds}.
+     */
+    public void enableScanCache() {
+        ScanResultStore results = new ScanResultStore(MongoManager.getDatabase());
+        if (vulnIndex != null) {
+            vulnIndex.addChangeListener(this::rescanAffected);
+        } else {
+            results.expireAfter(TimeUnit.SECONDS.toMillis(Config.getLong("inventory.scanCache.ttlSeconds", 3600)));
+        }
+        scanResults = results;
+    }
+
+    /** Checks transitive dependencies too, as resolved by {@code resolver}. */
+    public void enableTransitiveResolution(MavenResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    /** Serves {@link #read} from {@code cache}; {@code watch} also invalidates on other processes' writes. */
+    public void enableCache(EntityCache<Project> cache, boolean watch) {
+        if (watch) cache.watch(col);
+        this.cache = cache;
+    }
 
-        List<Document> deps = new ArrayList<>();
+    /** The read cache, or null when reads always query. */
+    public EntityCache<Project> cache() {
+        return cache;
+    }
+
+    /** Sends dependency additions and updates through a {@link DependencyWriteBuffer}. */
+    public synchronized void enableWriteBuffer() {
+        if (writeBuffer == null) writeBuffer = new DependencyWriteBuffer(this);
+    }
+
+    /** Estimated heap size of a project, for the cache's byte budget. */
+    static long weigh(Project p) {
+        long bytes = 64 + EntityCache.sizeOf(p.getId()) + EntityCache.sizeOf(p.getName()) + EntityCache.sizeOf(p.getDescription());
         for (Dependency d : p.getDependencies()) {
-            deps.add(new Document("groupId", d.getGroupId())
-                    .append("artifactId", d.getArtifactId())
-                    .append("version", d.getVersion()));
+            bytes += 32 + EntityCache.sizeOf(d.getGroupId()) + EntityCache.sizeOf(d.getArtifactId()) + EntityCache.sizeOf(d.getVersion());
         }
-        doc.append("dependencies", deps);
+        return bytes;
+    }
+
+    /** Copy of a project and its dependencies. */
+    static Project copy(Project p) {
+        Project c = new Project(p.getName(), p.getDescription());
+        c.setId(p.getId());
+        List<Dependency> deps = new ArrayList<>(p.getDependencies().size());
+        for (Dependency d : p.getDependencies()) deps.add(new Dependency(d.getGroupId(), d.getArtifactId(), d.getVersion()));
+        c.setDependencies(deps);
+        return c;
+    }
+
+    /** Drops the project's cached copy after a write to it. */
+    void invalidate(String projectId) {
+        EntityCache<Project> c = cache;
+        if (c != null) c.invalidate(projectId);
+    }
+
+    /** The resolver, or null when only declared dependencies are checked. */
+    public MavenResolver resolver() {
+        return resolver;
+    }
+
+    /** What a vulnerability check covers: the declared dependencies, expanded when resolution is on. */
+    List<Dependency> scanDependencies(Project p) {
+        MavenResolver r = resolver;
+        return r == null ? p.getDependencies() : r.resolve(p.getDependencies()).dependencies();
+    }
+
+    /** The scan result store, or null when the scan cache is off. */
+    ScanResultStore scanResults() {
+        return scanResults;
+    }
 
-        col.insertOne(doc);
-        ObjectId id = doc.getObjectId("_id");
-        return id.toHexString();
+    @Override
+    public String create(Project p) {
+        long start = System.nanoTime();
+        Lock writing = indexWrites.readLock();
+        writing.lock();
+        try {
+            col.insertOne(p);
+            DependencyUsageIndex index = usageIndex;
+            if (index != null) index.addProject(p);
+            return p.getId();
+        } finally {
+            writing.unlock();
+            CREATE_LATENCY.recordSince(start);
+        }
     }
 
+    @Override
     public Project read(String id) {
-        Document doc = col.find(Filters.eq("_id", new ObjectId(id))).first();
-        if (doc == null) return null;
-
-        Project p = new Project();
-        p.setId(doc.getObjectId("_id").toHexString());
-        p.setName(doc.getString("name"));
-        p.setDescription(doc.getString("description"));
-
-        Object depsObj = doc.get("dependencies");
-        if (depsObj instanceof List<?>) {
-            List<?> rawList = (List<?>) depsObj;
-            List<Dependency> list = new ArrayList<>();
-            for (Object o : rawList) {
-                if (o instanceof Document d) {
-                    list.add(new Dependency(
-                            d.getString("groupId"),
-                            d.getString("artifactId"),
-                            d.getString("version")
-                    ));
-                }
-            }
-            p.setDependencies(list);
+        long start = System.nanoTime();
+        try {
+            EntityCache<Project> c = cache;
+            return c != null ? c.get(id, this::find) : find(id);
+        } finally {
+            READ_LATENCY.recordSince(start);
         }
+    }
 
-        return p;
+    private Project find(String id) {
+        return col.find(Filters.eq("_id", new ObjectId(id))).first();
     }
 
+    @Override
     public List<Project> listAll() {
-        List<Project> out = new ArrayList<>();
-        FindIterable<Document> it = col.find();
-
-        for (Document doc : it) {
-            Project p = new Project();
-            p.setId(doc.getObjectId("_id").toHexString());
-            p.setName(doc.getString("name"));
-            p.setDescription(doc.getString("description"));
-
-            Object depsObj = doc.get("dependencies");
-            if (depsObj instanceof List<?>) {
-                List<?> rawList = (List<?>) depsObj;
-                List<Dependency> depsList = new ArrayList<>();
-                for (Object o : rawList) {
-                    if (o instanceof Document d) {
-                        depsList.add(new Dependency(
-                                d.getString("groupId"),
-                                d.getString("artifactId"),
-                                d.getString("version")
-                        ));
+        long start = System.nanoTime();
+        try {
+            List<Project> out = new ArrayList<>();
+            FindIterable<Project> it = scanCol.find();
+
+            for (Project p : it) {
+                out.add(p);
+            }
+
+            return out;
+        } finally {
+            LIST_ALL_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Streams projects straight off the driver cursor, {@code batchSize} documents per round-trip.
+     * Only the given fields are fetched when any are passed (the id is always included).
+     * The stream holds an open cursor, so close it (try-with-resources); its metric covers the whole iteration.
+     */
+    @Override
+    public Stream<Project> stream(int batchSize, String... fields) {
+        return stream(scanCol, batchSize, fields);
+    }
+
+    private static Stream<Project> stream(MongoCollection<Project> from, int batchSize, String... fields) {
+        long start = System.nanoTime();
+        FindIterable<Project> it = from.find().batchSize(batchSize);
+        if (fields.length > 0) it = it.projection(Projections.include(fields));
+        MongoCursor<Project> cursor = it.iterator();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED), false)
+                .onClose(() -> {
+                    cursor.close();
+                    STREAM_LATENCY.recordSince(start);
+                });
+    }
+
+    /**
+     * Keyset pagination on _id: returns up to {@code limit} projects whose id sorts after {@code afterId}
+     * (pass null for the first page). Pass the id of the last project to get the next page.
+     */
+    @Override
+    public List<Project> listPage(String afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            Bson filter = afterId == null ? new Document() : Filters.gt("_id", new ObjectId(afterId));
+            return col.find(filter).sort(Sorts.ascending("_id")).limit(limit).into(new ArrayList<>(limit));
+        } finally {
+            LIST_PAGE_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Walks every project through a single server cursor without collecting them,
+     * so callers can process the whole portfolio in bounded memory.
+     */
+    @Override
+    public void forEachProject(Consumer<Project> action) {
+        try (Stream<Project> projects = stream(500)) {
+            projects.forEach(action);
+        }
+    }
+
+    /**
+     * Returns the projects using groupId:artifactId at a version accepted by {@code versionPredicate},
+     * keyed by project id with the matching versions. Answered from the usage index when enabled,
+     * otherwise with a query on the dependencies multikey index.
+     */
+    @Override
+    public Map<String, Set<String>> findProjectsUsing(String groupId, String artifactId,
+                                                     Predicate<String> versionPredicate) {
+        long start = System.nanoTime();
+        try {
+            DependencyUsageIndex index = usageIndex;
+            if (index != null && index.isLoaded()) return index.find(groupId, artifactId, versionPredicate);
+
+            Map<String, Set<String>> out = new LinkedHashMap<>();
+            Bson filter = Filters.elemMatch("dependencies",
+                    Filters.and(Filters.eq("groupId", groupId), Filters.eq("artifactId", artifactId)));
+            for (Project p : col.find(filter).projection(Projections.include("dependencies"))) {
+                for (Dependency d : p.getDependencies()) {
+                    if (Objects.equals(d.getGroupId(), groupId) && Objects.equals(d.getArtifactId(), artifactId)
+                            && versionPredicate.test(d.getVersion())) {
+                        out.computeIfAbsent(p.getId(), k -> new LinkedHashSet<>()).add(d.getVersion());
                     }
                 }
-                p.setDependencies(depsList);
             }
+            return out;
+        } finally {
+            FIND_PROJECTS_USING_LATENCY.recordSince(start);
+        }
+    }
 
-            out.add(p);
+    @Override
+    public boolean addDependency(String projectId, Dependency d) {
+        long start = System.nanoTime();
+        DependencyWriteBuffer buffer = writeBuffer;
+        if (buffer != null) {
+            // the flush takes the index write lock, so wait without holding the read lock
+            try {
+                return await(buffer.addDependency(projectId, d));
+            } finally {
+                ADD_DEPENDENCY_LATENCY.recordSince(start);
+            }
+        }
+        Lock writing = indexWrites.readLock();
+        writing.lock();
+        try {
+            boolean ok = col.updateOne(Filters.eq("_id", new ObjectId(projectId)),
+                    Updates.push("dependencies", d)).getMatchedCount() > 0;
+            invalidate(projectId);
+            if (ok) dependencyAdded(projectId, d);
+            return ok;
+        } finally {
+            writing.unlock();
+            ADD_DEPENDENCY_LATENCY.recordSince(start);
         }
+    }
 
-        return out;
+    @Override
+    public String findIdByName(String name) {
+        long start = System.nanoTime();
+        try {
+            Project p = col.find(Filters.eq("name", name)).projection(Projections.include("_id"))
+                    .sort(Sorts.ascending("_id")).first();
+            return p == null ? null : p.getId();
+        } finally {
+            FIND_ID_BY_NAME_LATENCY.recordSince(start);
+        }
     }
 
-    public boolean addDependency(String projectId, Dependency d) {
-        Document doc = new Document("groupId", d.getGroupId())
-                .append("artifactId", d.getArtifactId())
-                .append("version", d.getVersion());
-        Document push = new Document("$push", new Document("dependencies", doc));
-        return col.updateOne(Filters.eq("_id", new ObjectId(projectId)), push).getModifiedCount() > 0;
+    /** One {@code $push: {$each: [...]}} for the whole list. */
+    @Override
+    public boolean addDependencies(String projectId, List<Dependency> deps) {
+        long start = System.nanoTime();
+        DependencyWriteBuffer buffer = writeBuffer;
+        if (buffer != null && !deps.isEmpty()) {
+            try {
+                // queued back to back, so the buffer pushes them together
+                List<CompletableFuture<Boolean>> results = new ArrayList<>(deps.size());
+                for (Dependency d : deps) results.add(buffer.addDependency(projectId, d));
+                boolean ok = true;
+                for (CompletableFuture<Boolean> r : results) ok &= await(r);
+                return ok;
+            } finally {
+                ADD_DEPENDENCIES_LATENCY.recordSince(start);
+            }
+        }
+        Lock writing = indexWrites.readLock();
+        writing.lock();
+        try {
+            if (deps.isEmpty()) return col.countDocuments(Filters.eq("_id", new ObjectId(projectId))) > 0;
+            boolean ok = col.updateOne(Filters.eq("_id", new ObjectId(projectId)),
+                    Updates.pushEach("dependencies", deps)).getMatchedCount() > 0;
+            invalidate(projectId);
+            if (ok) {
+                for (Dependency d : deps) dependencyAdded(projectId, d);
+            }
+            return ok;
+        } finally {
+            writing.unlock();
+            ADD_DEPENDENCIES_LATENCY.recordSince(start);
+        }
     }
 
+    /** One {@code $pull} matching any of the dependencies. */
+    @Override
+    public boolean removeDependencies(String projectId, Collection<Dependency> deps) {
+        long start = System.nanoTime();
+        Lock writing = indexWrites.readLock();
+        writing.lock();
+        try {
+            if (deps.isEmpty()) return col.countDocuments(Filters.eq("_id", new ObjectId(projectId))) > 0;
+            List<Bson> matches = new ArrayList<>(deps.size());
+            for (Dependency d : deps) {
+                matches.add(Filters.and(Filters.eq("groupId", d.getGroupId()), Filters.eq("artifactId", d.getArtifactId()),
+                        Filters.eq("version", d.getVersion())));
+            }
+            boolean ok = col.updateOne(Filters.eq("_id", new ObjectId(projectId)),
+                    Updates.pullByFilter(Filters.or(matches))).getMatchedCount() > 0;
+            invalidate(projectId);
+            DependencyUsageIndex index = usageIndex;
+            if (ok && index != null) {
+                for (Dependency d : deps) index.remove(projectId, d);
+            }
+            return ok;
+        } finally {
+            writing.unlock();
+            REMOVE_DEPENDENCIES_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
     public boolean updateDependency(String projectId, Dependency oldDep, Dependency newDep) {
-        Document filter = new Document("_id", new ObjectId(projectId))
+        long start = System.nanoTime();
+        DependencyWriteBuffer buffer = writeBuffer;
+        if (buffer != null) {
+            try {
+                return await(buffer.updateDependency(projectId, oldDep, newDep));
+            } finally {
+                UPDATE_DEPENDENCY_LATENCY.recordSince(start);
+            }
+        }
+        Lock writing = indexWrites.readLock();
+        writing.lock();
+        try {
+            // matched, not modified: replacing a dependency with an equal one still found it
+            boolean ok = col.updateOne(dependencyFilter(projectId, oldDep), dependencyUpdate(newDep)).getMatchedCount() > 0;
+            invalidate(projectId);
+            if (ok) dependencyUpdated(projectId, oldDep, newDep);
+            return ok;
+        } finally {
+            writing.unlock();
+            UPDATE_DEPENDENCY_LATENCY.recordSince(start);
+        }
+    }
+
+    /** The answer of a buffered write, rethrowing its failure as is. */
+    private static boolean await(CompletableFuture<Boolean> result) {
+        try {
+            return result.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+            throw ex;
+        }
+    }
+
+    /** Matches the project holding {@code oldDep}, so that {@link #dependencyUpdate} can address it with $. */
+    static Bson dependencyFilter(String projectId, Dependency oldDep) {
+        return new Document("_id", new ObjectId(projectId))
                 .append("dependencies", new Document("$elemMatch",
                         new Document("groupId", oldDep.getGroupId())
                                 .append("artifactId", oldDep.getArtifactId())
                                 .append("version", oldDep.getVersion())));
+    }
+
+    static Bson dependencyUpdate(Dependency newDep) {
         Document newDoc = new Document("dependencies.$.groupId", newDep.getGroupId())
                 .append("dependencies.$.artifactId", newDep.getArtifactId())
                 .append("dependencies.$.version", newDep.getVersion());
-        Document update = new Document("$set", newDoc);
-        return col.updateOne(filter, update).getModifiedCount() > 0;
+        return new Document("$set", newDoc);
+    }
+
+    /** The projects collection, for {@link DependencyWriteBuffer}. */
+    MongoCollection<Project> collection() {
+        return col;
+    }
+
+    /** Keeps the usage index current after a dependency was pushed (here or by the write buffer). */
+    void dependencyAdded(String projectId, Dependency d) {
+        DependencyUsageIndex index = usageIndex;
+        if (index != null) index.add(projectId, d);
+    }
+
+    void dependencyUpdated(String projectId, Dependency oldDep, Dependency newDep) {
+        DependencyUsageIndex index = usageIndex;
+        if (index != null) {
+            index.remove(projectId, oldDep);
+            index.add(projectId, newDep);
+        }
     }
 
+    @Override
     public boolean deleteProject(String projectId) {
-        return col.deleteOne(Filters.eq("_id", new ObjectId(projectId))).getDeletedCount() > 0;
+        long start = System.nanoTime();
+        Lock writing = indexWrites.readLock();
+        writing.lock();
+        try {
+            ScanResultStore results = scanResults;
+            if (results != null) results.delete(projectId);
+            DependencyUsageIndex index = usageIndex;
+            if (index == null) {
+                boolean deleted = col.deleteOne(Filters.eq("_id", new ObjectId(projectId))).getDeletedCount() > 0;
+                invalidate(projectId);
+                return deleted;
+            }
+            // fetch the deleted document in the same round-trip so its dependencies can be unindexed
+            Project deleted = col.findOneAndDelete(Filters.eq("_id", new ObjectId(projectId)),
+                    new FindOneAndDeleteOptions().projection(Projections.include("dependencies")));
+            invalidate(projectId);
+            if (deleted == null) return false;
+            index.removeProject(deleted);
+            return true;
+        } finally {
+            writing.unlock();
+            DELETE_PROJECT_LATENCY.recordSince(start);
+        }
     }
 
+    @Override
     public VulnerabilityReport checkVulnerabilities(String projectId) {
-        Project p = read(projectId);
-        VulnerabilityReport report = new VulnerabilityReport();
-        if (p == null) return report;
+        long start = System.nanoTime();
+        LatencyHistogram latency = CHECK_VULNERABILITIES_LATENCY;
+        try {
+            Project p = read(projectId);
+            if (p == null) return new VulnerabilityReport();
 
-        for (Dependency dep : p.getDependencies()) {
-            Document vulnFilter = new Document("groupId", dep.getGroupId())
-                    .append("artifactId", dep.getArtifactId())
-                    .append("vulnerableVersion", dep.getVersion());
+            List<Dependency> deps = scanDependencies(p);
+            ScanResultStore results = scanResults;
+            if (results == null) return buildReport(deps, findVulnerabilities(deps));
 
-            Document found = vulnCol.find(vulnFilter).first();
-            if (found != null) {
-                String cve = found.getString("cve");
-                String severity = found.getString("severity");
-                String patched = found.getString("patchedVersion");
-                String recommendation = found.getString("recommendation");
+            long startedAt = System.currentTimeMillis();
+            long version = results.datasetVersion();
+            ScanResultStore.CachedScan cached = results.find(projectId);
+            if (cached != null && cached.isCurrent(ScanResultStore.dependencyHash(deps), version)) {
+                latency = CHECK_VULNERABILITIES_CACHED_LATENCY;
+                return cached.report;
+            }
+            VulnerabilityReport report = buildReport(deps, findVulnerabilities(deps));
+            results.save(new ScanResultStore.Scan(projectId, deps, report, version, startedAt));
+            return report;
+        } finally {
+            latency.recordSince(start);
+        }
+    }
 
-                if (recommendation == null) {
-                    recommendation = "Upgrade to " + (patched != null ? patched : "latest safe version");
-                }
+    /**
+     * Marks the stored results of the projects using any of the groupId:artifactId keys stale and
+     * rescans those projects; returns how many were rescanned. A no-op without the scan cache.
+     */
+    public int rescanAffected(Set<String> gaKeys) {
+        long start = System.nanoTime();
+        try {
+            ScanResultStore results = scanResults;
+            if (results == null || gaKeys.isEmpty()) return 0;
+            results.markStale(gaKeys);
+            Set<String> ids = new LinkedHashSet<>();
+            for (String key : gaKeys) {
+                int sep = key.indexOf(':');
+                ids.addAll(findProjectsUsing(key.substring(0, sep), key.substring(sep + 1), v -> true).keySet());
+            }
+            // projects that only use the artifacts transitively are known from their stored results
+            if (resolver != null) ids.addAll(results.projectsUsing(gaKeys));
+            return rescan(ids);
+        } finally {
+            RESCAN_AFFECTED_LATENCY.recordSince(start);
+        }
+    }
+
+    /** Rescans the given projects in batches (one advisory lookup per batch) and stores the results. */
+    private int rescan(Collection<String> projectIds) {
+        ScanResultStore results = scanResults;
+        List<String> ids = new ArrayList<>(projectIds);
+        int rescanned = 0;
+        for (int from = 0; from < ids.size(); from += RESCAN_BATCH) {
+            long startedAt = System.currentTimeMillis();
+            long version = results.datasetVersion();
+            List<ObjectId> batch = new ArrayList<>();
+            for (String id : ids.subList(from, Math.min(ids.size(), from + RESCAN_BATCH))) batch.add(new ObjectId(id));
+
+            List<Project> projects = col.find(Filters.in("_id", batch)).projection(Projections.include("dependencies"))
+                    .into(new ArrayList<>());
+            List<List<Dependency>> depsOf = new ArrayList<>(projects.size());
+            List<Dependency> allDeps = new ArrayList<>();
+            for (Project p : projects) {
+                List<Dependency> deps = scanDependencies(p);
+                depsOf.add(deps);
+                allDeps.addAll(deps);
+            }
+            Map<String, Advisory> vulns = findVulnerabilities(allDeps);
 
-                report.addFinding(new Finding(dep, cve, severity, patched, recommendation));
+            List<ScanResultStore.Scan> scans = new ArrayList<>(projects.size());
+            for (int i = 0; i < projects.size(); i++) {
+                List<Dependency> deps = depsOf.get(i);
+                scans.add(new ScanResultStore.Scan(projects.get(i).getId(), deps, buildReport(deps, vulns), version, startedAt));
             }
+            results.saveAll(scans);
+            rescanned += projects.size();
         }
+        return rescanned;
+    }
 
+    /** The findings for {@code deps} given the advisory matches from {@link #findVulnerabilities}. */
+    static VulnerabilityReport buildReport(List<Dependency> deps, Map<String, Advisory> vulns) {
+        VulnerabilityReport report = new VulnerabilityReport();
+        for (Dependency dep : deps) {
+            Advisory found = vulns.get(dep.toString());
+            if (found != null) {
+                report.addFinding(toFinding(dep, found));
+            }
+        }
         return report;
     }
 
+    @Override
     public List<String> recommendDependencyUpdates(String projectId) {
-        Project p = read(projectId);
-        List<String> recs = new ArrayList<>();
-        if (p == null) return recs;
-
-        for (Dependency dep : p.getDependencies()) {
-            Document vulnFilter = new Document("groupId", dep.getGroupId())
-                    .append("artifactId", dep.getArtifactId())
-                    .append("vulnerableVersion", dep.getVersion());
-            Document foundVuln = vulnCol.find(vulnFilter).first();
-
-            if (foundVuln != null) {
-                String patched = foundVuln.getString("patchedVersion");
-                String recommendation = foundVuln.getString("recommendation");
-                if (recommendation == null)
-                    recommendation = "Upgrade to " + (patched != null ? patched : "latest patched version");
-                recs.add(dep.toString() + " => VULNERABLE -> " + recommendation);
-                continue;
-            }
-
-            Document recFilter = new Document("groupId", dep.getGroupId())
-                    .append("artifactId", dep.getArtifactId());
-            Document recDoc = recCol.find(recFilter).first();
-
-            if (recDoc != null) {
-                String suggested = recDoc.getString("suggestedVersion");
-                String reason = recDoc.getString("reason");
-                if (suggested != null && !suggested.equals(dep.getVersion())) {
-                    recs.add(dep.toString() + " => Suggest upgrade to " + suggested +
-                            " (" + (reason != null ? reason : "recommended") + ")");
+        long start = System.nanoTime();
+        try {
+            Project p = read(projectId);
+            List<String> recs = new ArrayList<>();
+            if (p == null) return recs;
+
+            Map<String, Advisory> vulns = findVulnerabilities(p.getDependencies());
+            List<Dependency> notVulnerable = new ArrayList<>();
+            for (Dependency dep : p.getDependencies()) {
+                if (!vulns.containsKey(dep.toString())) notVulnerable.add(dep);
+            }
+            Map<String, DependencyRecommendation> suggestions = findRecommendations(notVulnerable);
+
+            for (Dependency dep : p.getDependencies()) {
+                Advisory foundVuln = vulns.get(dep.toString());
+
+                if (foundVuln != null) {
+                    String patched = foundVuln.getPatchedVersion();
+                    String recommendation = foundVuln.getRecommendation();
+                    if (recommendation == null)
+                        recommendation = "Upgrade to " + (patched != null ? patched : "latest patched version");
+                    recs.add(dep.toString() + " => VULNERABLE -> " + recommendation);
+                    continue;
+                }
+
+                DependencyRecommendation recDoc = suggestions.get(dep.getGroupId() + ":" + dep.getArtifactId());
+
+                if (recDoc != null) {
+                    String suggested = recDoc.getSuggestedVersion();
+                    String reason = recDoc.getReason();
+                    if (suggested != null && isNewer(suggested, dep.getVersion())) {
+                        recs.add(dep.toString() + " => Suggest upgrade to " + suggested +
+                                " (" + (reason != null ? reason : "recommended") + ")");
+                    }
                 }
             }
+
+            if (recs.isEmpty()) recs.add("No updates or vulnerabilities found for project dependencies.");
+            return recs;
+        } finally {
+            RECOMMEND_DEPENDENCY_UPDATES_LATENCY.recordSince(start);
         }
+    }
+
+    /**
+     * Finds the advisory matching each dependency, keyed by groupId:artifactId:version.
+     * Without an index, all advisories for the involved artifacts are fetched in one $or query
+     * and matched against their vulnerableVersion ranges; the first match per coordinate wins.
+     */
+    Map<String, Advisory> findVulnerabilities(List<Dependency> deps) {
+        long start = System.nanoTime();
+        try {
+            Map<String, Advisory> out = new HashMap<>();
+            if (vulnIndex != null) {
+                for (Dependency d : deps) {
+                    Advisory a = vulnIndex.findVulnerability(d);
+                    if (a != null) out.put(d.toString(), a);
+                }
+                return out;
+            }
+
+            Set<String> keys = new LinkedHashSet<>();
+            List<Bson> clauses = new ArrayList<>();
+            for (Dependency d : deps) {
+                if (keys.add(d.getGroupId() + ":" + d.getArtifactId())) {
+                    clauses.add(Filters.and(
+                            Filters.eq("groupId", d.getGroupId()),
+                            Filters.eq("artifactId", d.getArtifactId())));
+                }
+            }
+            if (clauses.isEmpty()) return out;
+
+            List<Advisory> advisories = new ArrayList<>();
+            for (Document doc : vulnCol.find(Filters.or(clauses))) {
+                advisories.add(toAdvisory(doc));
+            }
+            AdvisoryRangeIndex ranges = AdvisoryRangeIndex.build(advisories);
+            for (Dependency d : deps) {
+                Advisory a = ranges.find(d);
+                if (a != null) out.put(d.toString(), a);
+            }
+            return out;
+        } finally {
+            FIND_VULNERABILITIES_LATENCY.recordSince(start);
+        }
+    }
+
+    /** Fetches the recommendation docs for all given dependencies in one $or query, keyed by groupId:artifactId. */
+    private Map<String, DependencyRecommendation> findRecommendations(List<Dependency> deps) {
+        Map<String, DependencyRecommendation> out = new HashMap<>();
+        if (vulnIndex != null) {
+            for (Dependency d : deps) {
+                DependencyRecommendation r = vulnIndex.findRecommendation(d.getGroupId(), d.getArtifactId());
+                if (r != null) out.put(d.getGroupId() + ":" + d.getArtifactId(), r);
+            }
+            return out;
+        }
+
+        Set<String> keys = new LinkedHashSet<>();
+        List<Bson> clauses = new ArrayList<>();
+        for (Dependency d : deps) {
+            if (keys.add(d.getGroupId() + ":" + d.getArtifactId())) {
+                clauses.add(Filters.and(
+                        Filters.eq("groupId", d.getGroupId()),
+                        Filters.eq("artifactId", d.getArtifactId())));
+            }
+        }
+        if (clauses.isEmpty()) return out;
+
+        for (Document doc : recCol.find(Filters.or(clauses))) {
+            out.putIfAbsent(doc.getString("groupId") + ":" + doc.getString("artifactId"), toRecommendation(doc));
+        }
+        return out;
+    }
+
+    /** True if {@code candidate} is a strictly higher Maven version than {@code current}. */
+    private static boolean isNewer(String candidate, String current) {
+        if (current == null) return true;
+        return MavenVersion.parse(candidate).compareTo(MavenVersion.parse(current)) > 0;
+    }
+
+    static Finding toFinding(Dependency dep, Advisory found) {
+        String patched = found.getPatchedVersion();
+        String recommendation = found.getRecommendation();
+        if (recommendation == null) {
+            recommendation = "Upgrade to " + (patched != null ? patched : "latest safe version");
+        }
+        return new Finding(dep, found.getCve(), found.getSeverity(), patched, recommendation);
+    }
+
+    static Advisory toAdvisory(Document doc) {
+        return new Advisory(
+                doc.getString("groupId"),
+                doc.getString("artifactId"),
+                doc.getString("vulnerableVersion"),
+                doc.getString("cve"),
+                doc.getString("severity"),
+                doc.getString("patchedVersion"),
+                doc.getString("recommendation"));
+    }
 
-        if (recs.isEmpty()) recs.add("No updates or vulnerabilities found for project dependencies.");
-        return recs;
+    static DependencyRecommendation toRecommendation(Document doc) {
+        return new DependencyRecommendation(
+                doc.getString("groupId"),
+                doc.getString("artifactId"),
+                doc.getString("suggestedVersion"),
+                doc.getString("reason"));
     }
 }
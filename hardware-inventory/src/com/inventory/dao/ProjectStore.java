@@ -0,0 +1,65 @@
+package com.inventory.dao;
+
+import com.inventory.model.Dependency;
+import com.inventory.model.Project;
+import com.inventory.model.VulnerabilityReport;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Storage for projects and their dependencies. {@link ProjectDAO} keeps them in MongoDB next to the
+ * advisory collections; {@link EmbeddedProjectStore} keeps them in a local memory-mapped log and
+ * checks them against advisories loaded into a local file.
+ */
+public interface ProjectStore {
+
+    /** Stores the project, assigning its id. */
+    String create(Project p);
+
+    /** The project, or null if there is none with that id. */
+    Project read(String id);
+
+    List<Project> listAll();
+
+    /**
+     * Streams every project without materializing the list. {@code fields} limits what is fetched
+     * where the backend supports projections; close the stream when done.
+     */
+    Stream<Project> stream(int batchSize, String... fields);
+
+    /** Up to {@code limit} projects whose id sorts after {@code afterId} (null for the first page), in id order. */
+    List<Project> listPage(String afterId, int limit);
+
+    /** Walks every project in bounded memory. */
+    void forEachProject(Consumer<Project> action);
+
+    /** Projects using groupId:artifactId at a version accepted by the predicate, keyed by id with those versions. */
+    Map<String, Set<String>> findProjectsUsing(String groupId, String artifactId, Predicate<String> versionPredicate);
+
+    /** Id of a project with this name (the first one if several share it), or null. */
+    String findIdByName(String name);
+
+    /** Appends a dependency; false if there is no such project. */
+    boolean addDependency(String projectId, Dependency d);
+
+    /** Appends all the dependencies in one write; false if there is no such project. */
+    boolean addDependencies(String projectId, List<Dependency> deps);
+
+    /** Removes every dependency equal to one of {@code deps} in one write; false if there is no such project. */
+    boolean removeDependencies(String projectId, Collection<Dependency> deps);
+
+    /** Replaces the first dependency equal to {@code oldDep}; false if the project or dependency is missing. */
+    boolean updateDependency(String projectId, Dependency oldDep, Dependency newDep);
+
+    boolean deleteProject(String projectId);
+
+    VulnerabilityReport checkVulnerabilities(String projectId);
+
+    List<String> recommendDependencyUpdates(String projectId);
+}
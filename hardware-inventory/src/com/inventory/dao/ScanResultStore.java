@@ -0,0 +1,297 @@
+package com.inventory.dao;
+
+import com.inventory.model.Dependency;
+import com.inventory.model.VulnerabilityReport;
+import com.inventory.model.VulnerabilityReport.Finding;
+import com.inventory.util.Config;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Last vulnerability scan of each project, in "scan_results":
+ *
+ * <pre>
+ *   { _id: projectId, depsHash, datasetVersion, stale, startedAt, gaKeys: [groupId:artifactId, ...],
+ *     findings: [{groupId, artifactId, version, cve, severity, patchedVersion, recommendation}, ...] }
+ * </pre>
+ *
+ * A stored result is reused while the project's dependency hash and the advisory dataset version
+ * (in "advisory_dataset", bumped by bulk advisory loads) are unchanged and it has not been marked
+ * stale. Single advisory edits do not bump the version; instead the results of the projects using
+ * the changed artifacts are marked stale through the multikey index on gaKeys and rescanned. A
+ * store whose owner is not told about such edits (no {@link VulnerabilityIndex}) is given a maximum
+ * age with {@link #expireAfter} instead.
+ *
+ * While a bulk load runs, the dataset document carries {@code loadingSince}; the
+ * {@link VulnerabilityIndex} holds off reloading until the load finishes and bumps the version.
+ *
+ * A result only replaces one from a scan that started earlier, so a slow scan cannot overwrite the
+ * result of a rescan triggered after it began.
+ */
+public class ScanResultStore {
+    private static final String DATASET_ID = "vulnerabilities";
+
+    private final MongoCollection<Document> results;
+    private final MongoCollection<Document> datasets;
+    private final long versionTtlMs;
+
+    private volatile long cachedVersion = -1;
+    private volatile long cachedAt;
+    private volatile long maxAgeMs;                   // 0: results do not expire
+
+    /** A stored scan: what it was computed from and the report it produced. */
+    static class CachedScan {
+        final String depsHash;
+        final long datasetVersion;
+        final boolean stale;
+        final long expiresAt;
+        final VulnerabilityReport report;
+
+        CachedScan(String depsHash, long datasetVersion, boolean stale, long expiresAt, VulnerabilityReport report) {
+            this.depsHash = depsHash;
+            this.datasetVersion = datasetVersion;
+            this.stale = stale;
+            this.expiresAt = expiresAt;
+            this.report = report;
+        }
+
+        boolean isCurrent(String depsHash, long datasetVersion) {
+            return !stale && this.datasetVersion == datasetVersion && depsHash.equals(this.depsHash)
+                    && System.currentTimeMillis() < expiresAt;
+        }
+    }
+
+    /** A result to store; {@code startedAt} is when its scan began (epoch millis). */
+    static class Scan {
+        final String projectId;
+        final List<Dependency> dependencies;
+        final VulnerabilityReport report;
+        final long datasetVersion;
+        final long startedAt;
+
+        Scan(String projectId, List<Dependency> dependencies, VulnerabilityReport report,
+             long datasetVersion, long startedAt) {
+            this.projectId = projectId;
+            this.dependencies = dependencies;
+            this.report = report;
+            this.datasetVersion = datasetVersion;
+            this.startedAt = startedAt;
+        }
+    }
+
+    public ScanResultStore() {
+        this(MongoManager.getDatabase());
+    }
+
+    public ScanResultStore(MongoDatabase db) {
+        results = db.getCollection("scan_results");
+        datasets = db.getCollection("advisory_dataset");
+        // the version is read at most this often; bumps made through this store are seen at once
+        versionTtlMs = Config.getLong("inventory.scanCache.versionTtlMs", 1000);
+        results.createIndex(Indexes.ascending("gaKeys"));
+    }
+
+    /** The current advisory dataset version (0 until the first bump). */
+    public long datasetVersion() {
+        long now = System.currentTimeMillis();
+        if (cachedVersion < 0 || now - cachedAt > versionTtlMs) {
+            Document d = datasets.find(Filters.eq("_id", DATASET_ID)).first();
+            cachedVersion = d == null ? 0 : ((Number) d.get("version")).longValue();
+            cachedAt = now;
+        }
+        return cachedVersion;
+    }
+
+    /** Marks every stored result out of date, e.g. after a bulk advisory load; returns the new version. */
+    public long bumpDatasetVersion() {
+        Document d = datasets.findOneAndUpdate(Filters.eq("_id", DATASET_ID),
+                Updates.combine(Updates.inc("version", 1L), Updates.currentDate("updatedAt")),
+                new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER));
+        cachedVersion = ((Number) d.get("version")).longValue();
+        cachedAt = System.currentTimeMillis();
+        return cachedVersion;
+    }
+
+    /** Marks a bulk advisory load as running, until {@link #finishBulkLoad}. */
+    public void beginBulkLoad() {
+        datasets.updateOne(Filters.eq("_id", DATASET_ID), Updates.currentDate("loadingSince"),
+                new UpdateOptions().upsert(true));
+    }
+
+    /** Ends a bulk load, bumping the version if it {@code changed} anything, in one write. */
+    public void finishBulkLoad(boolean changed) {
+        if (!changed) {
+            datasets.updateOne(Filters.eq("_id", DATASET_ID), Updates.unset("loadingSince"));
+            return;
+        }
+        Document d = datasets.findOneAndUpdate(Filters.eq("_id", DATASET_ID),
+                Updates.combine(Updates.unset("loadingSince"), Updates.inc("version", 1L), Updates.currentDate("updatedAt")),
+                new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER));
+        cachedVersion = ((Number) d.get("version")).longValue();
+        cachedAt = System.currentTimeMillis();
+    }
+
+    /** Treats results from scans that started more than {@code maxAgeMs} ago as out of date (0: never). */
+    void expireAfter(long maxAgeMs) {
+        this.maxAgeMs = Math.max(0, maxAgeMs);
+    }
+
+    /** The dataset document as stored now ({@code version}, {@code loadingSince}); empty before the first bump. */
+    Document datasetState() {
+        Document d = datasets.find(Filters.eq("_id", DATASET_ID)).first();
+        return d != null ? d : new Document();
+    }
+
+    CachedScan find(String projectId) {
+        Document d = results.find(Filters.eq("_id", new ObjectId(projectId))).first();
+        return d == null ? null : toCachedScan(d);
+    }
+
+    /** Stored scans for the given projects, keyed by project id (projects never scanned are absent). */
+    Map<String, CachedScan> findAll(Collection<String> projectIds) {
+        List<ObjectId> ids = new ArrayList<>(projectIds.size());
+        for (String id : projectIds) ids.add(new ObjectId(id));
+        Map<String, CachedScan> out = new HashMap<>();
+        for (Document d : results.find(Filters.in("_id", ids))) {
+            out.put(d.getObjectId("_id").toHexString(), toCachedScan(d));
+        }
+        return out;
+    }
+
+    void save(Scan scan) {
+        try {
+            results.replaceOne(newerThan(scan), toDocument(scan), new ReplaceOptions().upsert(true));
+        } catch (MongoWriteException ex) {
+            // the upsert collided with a result from a later scan, which is kept
+            if (ex.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) throw ex;
+        }
+    }
+
+    void saveAll(List<Scan> scans) {
+        if (scans.isEmpty()) return;
+        List<ReplaceOneModel<Document>> models = new ArrayList<>(scans.size());
+        for (Scan scan : scans) {
+            models.add(new ReplaceOneModel<>(newerThan(scan), toDocument(scan), new ReplaceOptions().upsert(true)));
+        }
+        try {
+            results.bulkWrite(models, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException ex) {
+            for (BulkWriteError e : ex.getWriteErrors()) {
+                if (ErrorCategory.fromErrorCode(e.getCode()) != ErrorCategory.DUPLICATE_KEY) throw ex;
+            }
+        }
+    }
+
+    /** Flags the results of every project using one of the groupId:artifactId keys; returns how many. */
+    long markStale(Collection<String> gaKeys) {
+        if (gaKeys.isEmpty()) return 0;
+        return results.updateMany(Filters.in("gaKeys", gaKeys), Updates.set("stale", true)).getModifiedCount();
+    }
+
+    /** Ids of the projects whose stored result covers one of the groupId:artifactId keys. */
+    Set<String> projectsUsing(Collection<String> gaKeys) {
+        Set<String> ids = new LinkedHashSet<>();
+        if (gaKeys.isEmpty()) return ids;
+        for (Document d : results.find(Filters.in("gaKeys", gaKeys)).projection(Projections.include("_id"))) {
+            ids.add(d.getObjectId("_id").toHexString());
+        }
+        return ids;
+    }
+
+    void delete(String projectId) {
+        results.deleteOne(Filters.eq("_id", new ObjectId(projectId)));
+    }
+
+    /**
+     * Order-independent SHA-256 over the project's groupId:artifactId:version coordinates, so
+     * reordering the dependency list does not force a rescan.
+     */
+    static String dependencyHash(List<Dependency> deps) {
+        List<String> coords = new ArrayList<>(deps.size());
+        for (Dependency d : deps) coords.add(d.toString());
+        coords.sort(null);
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            for (String c : coords) {
+                sha.update(c.getBytes(StandardCharsets.UTF_8));
+                sha.update((byte) '\n');
+            }
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : sha.digest()) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    private static Bson newerThan(Scan scan) {
+        return Filters.and(Filters.eq("_id", new ObjectId(scan.projectId)), Filters.lt("startedAt", scan.startedAt));
+    }
+
+    private static Document toDocument(Scan scan) {
+        Set<String> gaKeys = new LinkedHashSet<>();
+        for (Dependency d : scan.dependencies) gaKeys.add(d.getGroupId() + ":" + d.getArtifactId());
+        List<Document> findings = new ArrayList<>();
+        for (Finding f : scan.report.getFindings()) {
+            findings.add(new Document("groupId", f.dependency.getGroupId())
+                    .append("artifactId", f.dependency.getArtifactId())
+                    .append("version", f.dependency.getVersion())
+                    .append("cve", f.cve)
+                    .append("severity", f.severity)
+                    .append("patchedVersion", f.patchedVersion)
+                    .append("recommendation", f.recommendation));
+        }
+        return new Document("_id", new ObjectId(scan.projectId))
+                .append("depsHash", dependencyHash(scan.dependencies))
+                .append("datasetVersion", scan.datasetVersion)
+                .append("stale", false)
+                .append("startedAt", scan.startedAt)
+                .append("scannedAt", new Date())
+                .append("gaKeys", new ArrayList<>(gaKeys))
+                .append("findings", findings);
+    }
+
+    private CachedScan toCachedScan(Document d) {
+        VulnerabilityReport report = new VulnerabilityReport();
+        for (Document f : d.getList("findings", Document.class, new ArrayList<>())) {
+            Dependency dep = new Dependency(f.getString("groupId"), f.getString("artifactId"), f.getString("version"));
+            report.addFinding(new Finding(dep, f.getString("cve"), f.getString("severity"),
+                    f.getString("patchedVersion"), f.getString("recommendation")));
+        }
+        Number version = (Number) d.get("datasetVersion");
+        Number startedAt = (Number) d.get("startedAt");
+        long maxAge = maxAgeMs;
+        long expiresAt = maxAge == 0 ? Long.MAX_VALUE : (startedAt == null ? 0 : startedAt.longValue()) + maxAge;
+        return new CachedScan(d.getString("depsHash"), version == null ? -1 : version.longValue(),
+                d.getBoolean("stale", false), expiresAt, report);
+    }
+}
@@ -0,0 +1,474 @@
+package com.inventory.dao;
+
+import com.inventory.metrics.LatencyHistogram;
+import com.inventory.metrics.Metrics;
+import com.inventory.model.HardwareItem;
+import com.inventory.util.Config;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.TimeSeriesGranularity;
+import com.mongodb.client.model.TimeSeriesOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Status and location history of hardware items, kept by {@link HardwareDAO} once
+ * {@link HardwareDAO#enableStatusHistory} is called:
+ *
+ * <pre>
+ *   hardware_status_events   time-series collection (timeField "at", metaField "hardwareId"), one
+ *                            event per change: { at, hardwareId, status, location, name, version,
+ *                            previousStatus, previousLocation, removed }
+ *   hardware_status_current  { _id: hardwareId, status, location, name, version, since }
+ *   hardware_status_hourly   { _id: { t, s, l }, bucket, status, location, millis, delta }
+ *   hardware_status_daily    { _id: { t, s, l }, bucket, status, location, millis, delta, offset }
+ * </pre>
+ *
+ * Rollups are per status and location, not per item. When an item changes, its entry in "current"
+ * is swapped for the new state (only for a newer item version, so racing changes are closed in the
+ * order MongoDB applied them) and the interval it spent in the old state is closed into the
+ * rollups with a constant number of $inc upserts, however long the interval was:
+ * <ul>
+ *   <li>the partial hours at either end go into {@code millis} of their hour;</li>
+ *   <li>the whole hours in between count as the item entering the state at the first of them
+ *       ({@code delta} +1 on that hour) and leaving it at the end of the last ({@code delta} -1).</li>
+ * </ul>
+ * A daily document sums the hourly {@code millis} and {@code delta} of its day, and keeps
+ * {@code offset}, the sum of each delta times its distance from the start of the day, so whole
+ * days can be weighed without their hours.
+ *
+ * Every closed interval's deltas add up to zero, so the number of items in a state during whole
+ * hours in [lo, hi) follows from the deltas after lo alone: those whole hours total
+ * {@code -sum(delta * (min(t, hi) - lo))} over the deltas at t &gt; lo. Intervals still open (the
+ * time since each item's last change) are read from "current" and never backfilled. A range query
+ * therefore reads the rollups from the start of the range on, one document per status, location
+ * and day (hours only at the two ends), plus the current states: its cost grows with the number
+ * of statuses and locations, not with the number of items or events.
+ *
+ * Queries can select by status and location only. The history of a single item comes from its
+ * raw events, which expire after {@code inventory.history.eventRetentionDays} (default 400; 0
+ * keeps them). Rollups are kept. The events collection needs MongoDB 5.0 or later.
+ */
+public class StatusHistory {
+    private static final LatencyHistogram RECORD_LATENCY = Metrics.histogram("StatusHistory.record");
+    private static final LatencyHistogram TIME_IN_STATUS_LATENCY = Metrics.histogram("StatusHistory.timeInStatus");
+
+    static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final int SEED_BATCH = 1000;
+
+    private final MongoCollection<Document> events;
+    private final MongoCollection<Document> current;
+    private final MongoCollection<Document> hourly;
+    private final MongoCollection<Document> daily;
+
+    public StatusHistory() {
+        this(MongoManager.getDatabase());
+    }
+
+    public StatusHistory(MongoDatabase db) {
+        createEvents(db, Config.getInt("inventory.history.eventRetentionDays", 400));
+        events = db.getCollection("hardware_status_events");
+        current = db.getCollection("hardware_status_current");
+        hourly = db.getCollection("hardware_status_hourly");
+        daily = db.getCollection("hardware_status_daily");
+        // per-site range queries; unfiltered ranges use the bucket index
+        for (MongoCollection<Document> rollup : Arrays.asList(hourly, daily)) {
+            rollup.createIndex(Indexes.ascending("location", "bucket"));
+            rollup.createIndex(Indexes.ascending("bucket"));
+        }
+        current.createIndex(Indexes.ascending("location"));
+        events.createIndex(Indexes.ascending("hardwareId", "at"));
+    }
+
+    private static void createEvents(MongoDatabase db, int retentionDays) {
+        for (String name : db.listCollectionNames()) {
+            if (name.equals("hardware_status_events")) return;
+        }
+        CreateCollectionOptions options = new CreateCollectionOptions().timeSeriesOptions(
+                new TimeSeriesOptions("at").metaField("hardwareId").granularity(TimeSeriesGranularity.HOURS));
+        if (retentionDays > 0) options.expireAfter(retentionDays, TimeUnit.DAYS);
+        try {
+            db.createCollection("hardware_status_events", options);
+        } catch (MongoCommandException ex) {
+            if (ex.getErrorCode() != 48) throw ex;   // NamespaceExists: another instance created it first
+        }
+    }
+
+    /** Whether no item is tracked yet, i.e. history was just turned on. */
+    boolean isEmpty() {
+        return current.estimatedDocumentCount() == 0;
+    }
+
+    /**
+     * Starts tracking existing items from {@code at}, as if they had been created then; items
+     * already tracked are left alone. Their time before {@code at} is unknown and not counted.
+     */
+    void seed(Stream<HardwareItem> items, Instant at) {
+        List<HardwareItem> batch = new ArrayList<>(SEED_BATCH);
+        items.forEach(item -> {
+            batch.add(item);
+            if (batch.size() == SEED_BATCH) {
+                recordCreated(batch, at);
+                batch.clear();
+            }
+        });
+        if (!batch.isEmpty()) recordCreated(batch, at);
+    }
+
+    /** Records that new items were stored at {@code at} with their status and location. */
+    void recordCreated(List<HardwareItem> items, Instant at) {
+        if (items.isEmpty()) return;
+        long start = System.nanoTime();
+        try {
+            List<Document> states = new ArrayList<>(items.size());
+            List<Document> created = new ArrayList<>(items.size());
+            for (HardwareItem item : items) {
+                states.add(currentDoc(item, at));
+                created.add(event(item.getId(), at, item, null));
+            }
+            insertIgnoringDuplicates(current, states);
+            events.insertMany(created, new InsertManyOptions().ordered(false));
+        } finally {
+            RECORD_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Records that the item moved to its (new) status and location at {@code at}: closes the
+     * interval it spent in its previous state into the rollups and starts a new one.
+     * {@code item} needs its id, status, location, name and version.
+     */
+    void record(HardwareItem item, Instant at) {
+        long start = System.nanoTime();
+        try {
+            Document previous;
+            try {
+                previous = current.findOneAndUpdate(
+                        Filters.and(Filters.eq("_id", item.getId()),
+                                Filters.or(Filters.lt("version", HardwareUpdate.version(item)), Filters.exists("version", false))),
+                        Updates.combine(Updates.set("status", item.getStatus()), Updates.set("location", item.getLocation()),
+                                Updates.set("name", item.getName()), Updates.set("version", HardwareUpdate.version(item)),
+                                Updates.set("since", Date.from(at))),
+                        new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.BEFORE));
+            } catch (MongoCommandException ex) {
+                if (ErrorCategory.fromErrorCode(ex.getErrorCode()) != ErrorCategory.DUPLICATE_KEY) throw ex;
+                // a newer version is already current: keep the event, its interval was closed by the newer change
+                events.insertOne(event(item.getId(), at, item, null));
+                return;
+            }
+            events.insertOne(event(item.getId(), at, item, previous));
+            if (previous != null) addInterval(previous, at.toEpochMilli());
+        } finally {
+            RECORD_LATENCY.recordSince(start);
+        }
+    }
+
+    /** Records that the item was deleted at {@code at}, closing its last interval. */
+    void recordRemoved(String hardwareId, Instant at) {
+        long start = System.nanoTime();
+        try {
+            Document previous = current.findOneAndDelete(Filters.eq("_id", hardwareId));
+            if (previous == null) return;
+            events.insertOne(new Document("at", Date.from(at)).append("hardwareId", hardwareId)
+                    .append("previousStatus", previous.getString("status"))
+                    .append("previousLocation", previous.getString("location"))
+                    .append("removed", true));
+            addInterval(previous, at.toEpochMilli());
+        } finally {
+            RECORD_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Milliseconds spent in each status, summed over the items the query selects (by status and
+     * location; name and serial prefixes are not supported) during [from, to), widened to whole
+     * hours. Time at other locations, or before an item was tracked, is not counted.
+     */
+    public Map<String, Long> timeInStatus(HardwareQuery items, Instant from, Instant to) {
+        if (!items.isSummarizable()) {
+            throw new IllegalArgumentException("Status history is rolled up by status and location; it cannot filter by name or serial number");
+        }
+        // rollups and current states carry status and location under the item's field names
+        return timeInStatus(items.toFilter(), from, to);
+    }
+
+    /**
+     * Milliseconds one item spent in each status during [from, to), widened to whole hours, replayed
+     * from its raw events; time before the oldest event still kept is not counted.
+     */
+    public Map<String, Long> timeInStatus(String hardwareId, Instant from, Instant to) {
+        long start = System.nanoTime();
+        try {
+            long lo = floor(from.toEpochMilli(), HOUR);
+            long hi = Math.min(ceil(to.toEpochMilli(), HOUR), System.currentTimeMillis());
+            Map<String, Long> totals = new TreeMap<>();
+            if (hi <= lo) return totals;
+            Bson item = Filters.eq("hardwareId", hardwareId);
+            Document before = events.find(Filters.and(item, Filters.lt("at", new Date(lo))))
+                    .sort(Sorts.descending("at", "version")).first();
+            List<Document> changes = events.find(Filters.and(item, Filters.gte("at", new Date(lo)), Filters.lt("at", new Date(hi))))
+                    .sort(Sorts.ascending("at", "version")).into(new ArrayList<>());
+            String status;
+            if (before != null) status = stateAfter(before);
+            else if (!changes.isEmpty()) status = changes.get(0).getString("previousStatus");
+            else status = null;
+            long t = lo;
+            for (Document change : changes) {
+                long at = change.getDate("at").getTime();
+                if (status != null && at > t) totals.merge(status, at - t, Long::sum);
+                status = stateAfter(change);
+                t = Math.max(t, at);
+            }
+            if (before == null && changes.isEmpty()) {
+                // nothing recorded in or before the range: unchanged since it was tracked, if it is
+                Document state = current.find(Filters.eq("_id", hardwareId)).first();
+                if (state != null) {
+                    t = Math.max(lo, state.getDate("since").getTime());
+                    status = state.getString("status");
+                }
+            }
+            if (status != null && hi > t) totals.merge(status, hi - t, Long::sum);
+            return totals;
+        } finally {
+            TIME_IN_STATUS_LATENCY.recordSince(start);
+        }
+    }
+
+    /** The status an item is in after an event; null once removed. */
+    private static String stateAfter(Document event) {
+        return event.getBoolean("removed", false) ? null : event.getString("status");
+    }
+
+    /** Share of the tracked time the selected items spent in {@code busyStatus}; 0 when none was tracked. */
+    public double utilization(HardwareQuery items, Instant from, Instant to, String busyStatus) {
+        Map<String, Long> times = timeInStatus(items, from, to);
+        long total = 0;
+        for (long t : times.values()) total += t;
+        return total == 0 ? 0 : (double) times.getOrDefault(busyStatus, 0L) / total;
+    }
+
+    private Map<String, Long> timeInStatus(Bson filter, Instant from, Instant to) {
+        long start = System.nanoTime();
+        try {
+            long lo = floor(from.toEpochMilli(), HOUR);
+            long hi = ceil(to.toEpochMilli(), HOUR);
+            Map<String, Long> totals = new TreeMap<>();
+            if (hi <= lo) return totals;
+            // partial hours of closed intervals
+            long firstDay = ceil(lo, DAY);
+            long lastDay = floor(hi, DAY);
+            if (firstDay < lastDay) {
+                sum(daily, filter, firstDay, lastDay, "$millis", totals);
+                sum(hourly, filter, lo, firstDay, "$millis", totals);
+                sum(hourly, filter, lastDay, hi, "$millis", totals);
+            } else {
+                sum(hourly, filter, lo, hi, "$millis", totals);
+            }
+            // whole hours of closed intervals: -sum(delta * (min(t, hi) - lo)) over the deltas after lo
+            Map<String, Long> whole = new TreeMap<>();
+            long dayAfterLo = floor(lo, DAY) + DAY;
+            Document loDate = new Document("$literal", new Date(lo));
+            Document hourWeight = product("$delta", new Document("$subtract",
+                    Arrays.asList(new Document("$min", Arrays.asList("$bucket", new Date(hi))), loDate)));
+            Document dayWeight = new Document("$add", Arrays.asList(
+                    product("$delta", new Document("$subtract", Arrays.asList("$bucket", loDate))), "$offset"));
+            Document afterWeight = product("$delta", hi - lo);
+            sum(hourly, filter, lo + 1, dayAfterLo, hourWeight, whole);
+            long tail = dayAfterLo;
+            if (hi > dayAfterLo) {
+                long hiDay = floor(hi, DAY);
+                sum(daily, filter, dayAfterLo, hiDay, dayWeight, whole);
+                tail = hiDay;
+                if (hi > hiDay) {
+                    sum(hourly, filter, hiDay, hiDay + DAY, hourWeight, whole);
+                    tail = hiDay + DAY;
+                }
+            }
+            sum(daily, filter, tail, Long.MAX_VALUE, afterWeight, whole);
+            whole.forEach((status, millis) -> totals.merge(status, -millis, Long::sum));
+            sumOpen(filter, lo, Math.min(hi, System.currentTimeMillis()), totals);
+            totals.values().removeIf(millis -> millis == 0);
+            return totals;
+        } finally {
+            TIME_IN_STATUS_LATENCY.recordSince(start);
+        }
+    }
+
+    private static Document product(Object a, Object b) {
+        return new Document("$multiply", Arrays.asList(a, b));
+    }
+
+    /** Adds the sum of {@code value} over the rollup documents with from &lt;= bucket &lt; to, per status. */
+    private static void sum(MongoCollection<Document> rollup, Bson filter, long from, long to, Object value, Map<String, Long> totals) {
+        if (to <= from) return;
+        Bson range = to == Long.MAX_VALUE ? Filters.gte("bucket", new Date(from))
+                : Filters.and(Filters.gte("bucket", new Date(from)), Filters.lt("bucket", new Date(to)));
+        List<Bson> pipeline = Arrays.asList(
+                Aggregates.match(Filters.and(filter, range)),
+                Aggregates.group("$status", Accumulators.sum("millis", value)));
+        for (Document d : rollup.aggregate(pipeline)) {
+            totals.merge(String.valueOf(d.get("_id")), ((Number) d.get("millis")).longValue(), Long::sum);
+        }
+    }
+
+    /** Adds the overlap of [from, to) with each selected item's current, not yet rolled-up interval. */
+    private void sumOpen(Bson filter, long from, long to, Map<String, Long> totals) {
+        if (to <= from) return;
+        Bson match = Filters.and(filter, Filters.lt("since", new Date(to)));
+        Document overlap = new Document("$max", Arrays.asList(0L, new Document("$subtract", Arrays.asList(
+                new Date(to), new Document("$max", Arrays.asList(new Date(from), "$since"))))));
+        List<Bson> pipeline = Arrays.asList(Aggregates.match(match),
+                Aggregates.group("$status", Accumulators.sum("millis", overlap)));
+        for (Document d : current.aggregate(pipeline)) {
+            long millis = ((Number) d.get("millis")).longValue();
+            if (millis > 0) totals.merge(String.valueOf(d.get("_id")), millis, Long::sum);
+        }
+    }
+
+    /** Closes [since, end) of the previous state into the rollups: at most three hours and three days. */
+    private void addInterval(Document previous, long end) {
+        Date since = previous.getDate("since");
+        if (since == null || since.getTime() >= end) return;
+        Map<Long, long[]> hours = hourSlices(since.getTime(), end);
+        Map<Long, long[]> days = new TreeMap<>();
+        hours.forEach((hour, v) -> {
+            long day = floor(hour, DAY);
+            long[] d = days.computeIfAbsent(day, k -> new long[3]);
+            d[0] += v[0];
+            d[1] += v[1];
+            d[2] += v[1] * (hour - day);
+        });
+        String status = previous.getString("status");
+        String location = previous.getString("location");
+        List<WriteModel<Document>> hourWrites = new ArrayList<>();
+        List<WriteModel<Document>> dayWrites = new ArrayList<>();
+        hours.forEach((hour, v) -> hourWrites.add(rollupWrite(hour, status, location,
+                Updates.inc("millis", v[0]), Updates.inc("delta", v[1]))));
+        days.forEach((day, v) -> dayWrites.add(rollupWrite(day, status, location,
+                Updates.inc("millis", v[0]), Updates.inc("delta", v[1]), Updates.inc("offset", v[2]))));
+        BulkWriteOptions unordered = new BulkWriteOptions().ordered(false);
+        hourly.bulkWrite(hourWrites, unordered);
+        daily.bulkWrite(dayWrites, unordered);
+    }
+
+    /**
+     * hour -> {millis, delta} for an interval [from, to): partial hours as millis, the whole hours
+     * in between as +1 at the first and -1 at the end of the last.
+     */
+    static Map<Long, long[]> hourSlices(long from, long to) {
+        Map<Long, long[]> hours = new TreeMap<>();
+        long first = ceil(from, HOUR);
+        long last = floor(to, HOUR);
+        if (first < last) {
+            if (from < first) hours.computeIfAbsent(first - HOUR, k -> new long[2])[0] += first - from;
+            hours.computeIfAbsent(first, k -> new long[2])[1] += 1;
+            long[] end = hours.computeIfAbsent(last, k -> new long[2]);
+            end[0] += to - last;
+            end[1] -= 1;
+        } else {
+            for (long t = from; t < to; ) {
+                long bucket = floor(t, HOUR);
+                long end = Math.min(to, bucket + HOUR);
+                hours.computeIfAbsent(bucket, k -> new long[2])[0] += end - t;
+                t = end;
+            }
+        }
+        return hours;
+    }
+
+    private static WriteModel<Document> rollupWrite(long bucket, String status, String location, Bson... increments) {
+        List<Bson> updates = new ArrayList<>(Arrays.asList(increments));
+        updates.add(Updates.setOnInsert("bucket", new Date(bucket)));
+        updates.add(Updates.setOnInsert("status", status));
+        updates.add(Updates.setOnInsert("location", location));
+        Document id = new Document("t", new Date(bucket)).append("s", status).append("l", location);
+        return new UpdateOneModel<>(Filters.eq("_id", id), Updates.combine(updates), new UpdateOptions().upsert(true));
+    }
+
+    private static Document currentDoc(HardwareItem item, Instant at) {
+        return new Document("_id", item.getId())
+                .append("status", item.getStatus())
+                .append("location", item.getLocation())
+                .append("name", item.getName())
+                .append("version", HardwareUpdate.version(item))
+                .append("since", Date.from(at));
+    }
+
+    private static Document event(String hardwareId, Instant at, HardwareItem item, Document previous) {
+        Document e = new Document("at", Date.from(at))
+                .append("hardwareId", hardwareId)
+                .append("status", item.getStatus())
+                .append("location", item.getLocation())
+                .append("name", item.getName())
+                .append("version", HardwareUpdate.version(item));
+        if (previous != null) {
+            e.append("previousStatus", previous.getString("status")).append("previousLocation", previous.getString("location"));
+        }
+        return e;
+    }
+
+    private static void insertIgnoringDuplicates(MongoCollection<Document> col, List<Document> docs) {
+        List<InsertOneModel<Document>> inserts = new ArrayList<>(docs.size());
+        for (Document d : docs) inserts.add(new InsertOneModel<>(d));
+        try {
+            col.bulkWrite(inserts, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException ex) {
+            for (BulkWriteError e : ex.getWriteErrors()) {
+                if (ErrorCategory.fromErrorCode(e.getCode()) != ErrorCategory.DUPLICATE_KEY) throw ex;
+            }
+        } catch (MongoWriteException ex) {
+            if (ex.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) throw ex;
+        }
+    }
+
+    /** Parses "2026-07-01" (start of that UTC day) or an ISO-8601 instant such as "2026-07-01T12:00:00Z". */
+    public static Instant parseTime(String value) {
+        try {
+            return value.length() == 10 ? LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant() : Instant.parse(value);
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Not a date or ISO-8601 time: " + value);
+        }
+    }
+
+    static long floor(long millis, long size) {
+        return Math.floorDiv(millis, size) * size;
+    }
+
+    static long ceil(long millis, long size) {
+        return -Math.floorDiv(-millis, size) * size;
+    }
+}
@@ -0,0 +1,110 @@
+package com.inventory.dao;
+
+import com.inventory.resolve.MavenResolver;
+import com.inventory.util.Config;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Chooses the storage backend from config:
+ *
+ * <pre>
+ *   inventory.storage                   mongo (default) or embedded
+ *   inventory.storage.path              directory of the embedded logs (default data)
+ *   inventory.storage.syncWrites        embedded: force every write to disk before returning (default false)
+ *   inventory.usageIndex                mongo: keep the reverse dependency index in memory (default false; it only
+ *                                       sees this process's writes, so for a single writing instance)
+ *   inventory.depWrites.coalesce        mongo: coalesce concurrent dependency additions and updates through a
+ *                                       {@link DependencyWriteBuffer} (default true; see there for its settings)
+ *   inventory.scanCache                 mongo: store vulnerability check results and rescan incrementally (default false)
+ *   inventory.scanCache.ttlSeconds      mongo without a vulnerability index: reuse stored results at most this long
+ *                                       (default 3600)
+ *   inventory.resolve.transitive        mongo: check transitive dependencies from a local Maven repository (default false;
+ *                                       see {@link MavenResolver} for its settings)
+ *   inventory.history                   mongo: record hardware status/location changes for utilization queries
+ *                                       (default false; see {@link StatusHistory})
+ *   inventory.cache.maxBytes            mongo: heap for cached hardware items and projects read by id, each
+ *                                       (default 0, off; see {@link EntityCache})
+ *   inventory.cache.ttlSeconds          mongo: reload cached entries older than this (default 60; 0 for never)
+ *   inventory.cache.watch               mongo: invalidate on other processes' writes via change streams (default true)
+ * </pre>
+ *
+ * The embedded backend needs no server and opens in the time it takes to read the record headers;
+ * a directory can be used by one process at a time. Without syncWrites, writes survive a crash of
+ * the process but not of the machine.
+ */
+public final class Storage {
+    private static EmbeddedHardwareStore embeddedHardware;
+    private static EmbeddedProjectStore embeddedProjects;
+
+    private Storage() {}
+
+    public static boolean isEmbedded() {
+        String backend = Config.get("inventory.storage", "mongo");
+        if (backend.equalsIgnoreCase("embedded")) return true;
+        if (backend.equalsIgnoreCase("mongo")) return false;
+        throw new IllegalArgumentException("Unknown inventory.storage: " + backend);
+    }
+
+    public static synchronized HardwareStore hardware() {
+        if (!isEmbedded()) {
+            HardwareDAO dao = new HardwareDAO();
+            if (Config.getBoolean("inventory.history", false)) dao.enableStatusHistory(new StatusHistory());
+            if (cacheBytes() > 0) {
+                dao.enableCache(new EntityCache<>("hardware", cacheBytes(), cacheTtlMillis(), HardwareDAO::weigh,
+                        HardwareDAO::copy), cacheWatch());
+            }
+            return dao;
+        }
+        if (embeddedHardware == null) embeddedHardware = new EmbeddedHardwareStore(path(), syncWrites());
+        return embeddedHardware;
+    }
+
+    /** {@code vulnIndex} (may be null) serves the MongoDB backend's vulnerability checks. */
+    public static synchronized ProjectStore projects(VulnerabilityIndex vulnIndex) {
+        if (!isEmbedded()) {
+            ProjectDAO dao = new ProjectDAO(vulnIndex);
+            if (Config.getBoolean("inventory.usageIndex", false)) dao.enableUsageIndex();
+            if (Config.getBoolean("inventory.depWrites.coalesce", true)) dao.enableWriteBuffer();
+            if (Config.getBoolean("inventory.scanCache", false)) dao.enableScanCache();
+            if (Config.getBoolean("inventory.resolve.transitive", false)) dao.enableTransitiveResolution(new MavenResolver());
+            if (cacheBytes() > 0) {
+                dao.enableCache(new EntityCache<>("projects", cacheBytes(), cacheTtlMillis(), ProjectDAO::weigh,
+                        ProjectDAO::copy), cacheWatch());
+            }
+            return dao;
+        }
+        if (embeddedProjects == null) embeddedProjects = new EmbeddedProjectStore(path(), syncWrites());
+        return embeddedProjects;
+    }
+
+    /** Closes the embedded logs or the MongoDB client, whichever was used. */
+    public static synchronized void close() {
+        if (embeddedHardware != null) embeddedHardware.close();
+        if (embeddedProjects != null) embeddedProjects.close();
+        embeddedHardware = null;
+        embeddedProjects = null;
+        if (!isEmbedded()) MongoManager.close();
+    }
+
+    private static Path path() {
+        return Paths.get(Config.get("inventory.storage.path", "data"));
+    }
+
+    private static long cacheBytes() {
+        return Config.getLong("inventory.cache.maxBytes", 0);
+    }
+
+    private static long cacheTtlMillis() {
+        return Config.getLong("inventory.cache.ttlSeconds", 60) * 1000;
+    }
+
+    private static boolean cacheWatch() {
+        return Config.getBoolean("inventory.cache.watch", true);
+    }
+
+    private static boolean syncWrites() {
+        return Config.getBoolean("inventory.storage.syncWrites", false);
+    }
+}
@@ -0,0 +1,20 @@
+package com.inventory.dao;
+
+/**
+ * A {@link HardwareUpdate} expected a version the item no longer has: someone else updated it
+ * since it was read. Re-read the item and retry the change against the current version.
+ */
+public class VersionConflictException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final long currentVersion;
+
+    public VersionConflictException(String id, long expectedVersion, long currentVersion) {
+        super("Hardware item " + id + " is at version " + currentVersion + ", expected " + expectedVersion);
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
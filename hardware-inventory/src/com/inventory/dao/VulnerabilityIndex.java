@@ -0,0 +1,334 @@
+package com.inventory.dao;
+
+import com.inventory.model.Advisory;
+import com.inventory.model.Dependency;
+import com.inventory.model.DependencyRecommendation;
+import com.inventory.util.Config;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * In-memory copy of the "vulnerabilities" and "dependency_recommendations" collections.
+ *
+ * Advisories are compiled into an {@link AdvisoryRangeIndex} (per groupId:artifactId interval
+ * lookup over the vulnerableVersion ranges) and recommendations are keyed by groupId:artifactId,
+ * so ProjectDAO can answer lookups without a database round-trip. The index reloads itself when
+ * a change stream reports a write to either collection; on a standalone server (no change streams)
+ * it falls back to polling every {@code inventory.vulnIndex.ttlSeconds} seconds (default 300).
+ * The stream is opened before the initial load, so no write slips in between the two, and a
+ * failed reload is retried on the next change rather than giving up on the stream. Changes are
+ * coalesced: the reload waits until the stream has been quiet for
+ * {@code inventory.vulnIndex.coalesceMs} (default 500), or at most ten times that since the first
+ * unapplied change, so a run of single edits costs one reload rather than one each.
+ *
+ * While an {@link com.inventory.ingest.AdvisoryLoader} run is flagged in the advisory dataset
+ * document, reloads are held back (for at most {@code inventory.vulnIndex.maxLoadWaitMinutes},
+ * default 60, in case the loader died) and happen once, when the load ends.
+ *
+ * After a reload, change listeners are told which groupId:artifactId keys have different
+ * advisories than before, whichever way the reload was triggered; except after a bulk load, whose
+ * dataset version bump already makes every stored scan result out of date. Listeners run on a
+ * notifier thread of their own, so a slow rescan holds up neither reloads nor the change stream;
+ * changes reported while a listener runs are merged into its next call.
+ */
+public class VulnerabilityIndex implements AutoCloseable {
+    private static final long DEFAULT_TTL_SECONDS = 300;
+
+    // rough JVM sizes used for the footprint estimate (compressed oops)
+    private static final int MAP_ENTRY_BYTES = 48;
+    private static final int OBJECT_BYTES = 32;
+    private static final int STRING_BYTES = 40;
+    private static final int INTERVAL_BYTES = 64;
+    private static final int REFERENCE_BYTES = 4;
+
+    private final MongoDatabase db;
+    private final MongoCollection<Document> vulnCol;
+    private final MongoCollection<Document> recCol;
+    private final long ttlSeconds;
+    private final ScanResultStore dataset;
+    private final long maxLoadWaitMs;
+    private final long coalesceMs;
+
+    private volatile Snapshot snapshot =
+            new Snapshot(AdvisoryRangeIndex.build(Collections.emptyList()), Collections.emptyMap(), 0, 0, 0);
+    private volatile boolean closed;
+    private final List<Consumer<Set<String>>> changeListeners = new CopyOnWriteArrayList<>();
+    private final Set<String> pendingChanges = new HashSet<>();   // guarded by itself
+    private final ExecutorService notifier = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "vuln-index-notifier");
+        t.setDaemon(true);
+        return t;
+    });
+    private Thread watcher;
+    private ScheduledExecutorService poller;
+
+    private static final class Snapshot {
+        final AdvisoryRangeIndex vulns;
+        final Map<String, DependencyRecommendation> recs;
+        final long memoryBytes;
+        final long refreshedAt;
+        final long datasetVersion;
+
+        Snapshot(AdvisoryRangeIndex vulns, Map<String, DependencyRecommendation> recs,
+                 long memoryBytes, long refreshedAt, long datasetVersion) {
+            this.vulns = vulns;
+            this.recs = recs;
+            this.memoryBytes = memoryBytes;
+            this.refreshedAt = refreshedAt;
+            this.datasetVersion = datasetVersion;
+        }
+    }
+
+    public VulnerabilityIndex() {
+        this(MongoManager.getDatabase(), Config.getLong("inventory.vulnIndex.ttlSeconds", DEFAULT_TTL_SECONDS));
+    }
+
+    public VulnerabilityIndex(MongoDatabase db, long ttlSeconds) {
+        this.db = db;
+        // loads read the primary: a reload triggered by a change must see that change
+        this.vulnCol = db.getCollection("vulnerabilities");
+        this.recCol = db.getCollection("dependency_recommendations");
+        this.ttlSeconds = ttlSeconds;
+        this.dataset = new ScanResultStore(db);
+        this.maxLoadWaitMs = TimeUnit.MINUTES.toMillis(Config.getLong("inventory.vulnIndex.maxLoadWaitMinutes", 60));
+        this.coalesceMs = Math.max(1, Config.getLong("inventory.vulnIndex.coalesceMs", 500));
+    }
+
+    /** Starts listening for changes, then loads both collections. */
+    public synchronized void start() {
+        if (watcher != null || poller != null) {
+            refresh();
+            return;
+        }
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+        try {
+            // an empty getMore then means the stream was quiet for coalesceMs
+            cursor = db.watch(List.of(Aggregates.match(
+                    Filters.in("ns.coll", "vulnerabilities", "dependency_recommendations", "advisory_dataset"))))
+                    .maxAwaitTime(coalesceMs, TimeUnit.MILLISECONDS).cursor();
+        } catch (MongoException ex) {
+            refresh();
+            System.err.println("Change streams unavailable (" + ex.getMessage() + "), polling every " +
+                    ttlSeconds + "s instead");
+            startPolling();
+            return;
+        }
+        try {
+            refresh();
+        } catch (RuntimeException ex) {
+            cursor.close();
+            throw ex;
+        }
+        watcher = new Thread(() -> watchChanges(cursor), "vuln-index-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Calls {@code listener} on the notifier thread with the groupId:artifactId keys whose
+     * advisories changed, after reloads that changed any (not on the initial load).
+     */
+    public void addChangeListener(Consumer<Set<String>> listener) {
+        changeListeners.add(listener);
+    }
+
+    /** Reloads both collections and atomically swaps the new maps in. */
+    public void refresh() {
+        Number datasetVersion = (Number) dataset.datasetState().get("version");
+        long version = datasetVersion == null ? 0 : datasetVersion.longValue();
+        Map<String, String> strings = new HashMap<>();
+        List<Advisory> advisories = new ArrayList<>();
+        Map<String, DependencyRecommendation> recs = new HashMap<>();
+        long bytes = 0;
+
+        for (Document doc : vulnCol.find()) {
+            Advisory a = ProjectDAO.toAdvisory(doc);
+            a.setGroupId(intern(strings, a.getGroupId()));
+            a.setArtifactId(intern(strings, a.getArtifactId()));
+            a.setVulnerableVersion(intern(strings, a.getVulnerableVersion()));
+            a.setSeverity(intern(strings, a.getSeverity()));
+            a.setPatchedVersion(intern(strings, a.getPatchedVersion()));
+            a.setRecommendation(intern(strings, a.getRecommendation()));
+            advisories.add(a);
+            bytes += OBJECT_BYTES + sizeOf(a.getCve());
+        }
+        AdvisoryRangeIndex vulns = AdvisoryRangeIndex.build(advisories);
+        bytes += (long) vulns.intervalCount() * INTERVAL_BYTES
+                + (long) vulns.artifactCount() * (MAP_ENTRY_BYTES + OBJECT_BYTES)
+                + (long) vulns.advisoryCount() * REFERENCE_BYTES;
+        for (Document doc : recCol.find()) {
+            DependencyRecommendation r = ProjectDAO.toRecommendation(doc);
+            r.setGroupId(intern(strings, r.getGroupId()));
+            r.setArtifactId(intern(strings, r.getArtifactId()));
+            r.setSuggestedVersion(intern(strings, r.getSuggestedVersion()));
+            r.setReason(intern(strings, r.getReason()));
+            String key = r.getGroupId() + ":" + r.getArtifactId();
+            if (recs.putIfAbsent(key, r) == null) {
+                bytes += MAP_ENTRY_BYTES + OBJECT_BYTES + sizeOf(key);
+            }
+        }
+        for (String s : strings.keySet()) bytes += sizeOf(s);
+
+        // reloads can race (start() and the watcher); the lock keeps each diff against its predecessor
+        synchronized (changeListeners) {
+            Snapshot previous = snapshot;
+            snapshot = new Snapshot(vulns, recs, bytes, System.currentTimeMillis(), version);
+            if (previous.refreshedAt != 0 && previous.datasetVersion == version) {
+                notifyChanged(vulns.changedArtifacts(previous.vulns));
+            }
+        }
+    }
+
+    /** Queues {@code changed} for the listeners; a delivery still waiting to run takes them along. */
+    private void notifyChanged(Set<String> changed) {
+        if (changed.isEmpty() || changeListeners.isEmpty() || closed) return;
+        synchronized (pendingChanges) {
+            boolean queued = !pendingChanges.isEmpty();
+            pendingChanges.addAll(changed);
+            if (queued) return;
+        }
+        try {
+            notifier.execute(this::deliverChanges);
+        } catch (RejectedExecutionException ex) {
+            // closed meanwhile; nobody is listening any more
+        }
+    }
+
+    private void deliverChanges() {
+        Set<String> changed;
+        synchronized (pendingChanges) {
+            changed = new HashSet<>(pendingChanges);
+            pendingChanges.clear();
+        }
+        for (Consumer<Set<String>> listener : changeListeners) {
+            try {
+                listener.accept(changed);
+            } catch (RuntimeException ex) {
+                System.err.println("Vulnerability change listener failed: " + ex.getMessage());
+            }
+        }
+    }
+
+    public Advisory findVulnerability(Dependency d) {
+        return snapshot.vulns.find(d);
+    }
+
+    public DependencyRecommendation findRecommendation(String groupId, String artifactId) {
+        return snapshot.recs.get(groupId + ":" + artifactId);
+    }
+
+    /** Number of advisory plus recommendation entries currently held. */
+    public int size() {
+        Snapshot s = snapshot;
+        return s.vulns.advisoryCount() + s.recs.size();
+    }
+
+    /** Estimated heap used by the index, in bytes. */
+    public long estimatedMemoryBytes() {
+        return snapshot.memoryBytes;
+    }
+
+    /** Epoch millis of the last successful reload, or 0 if never loaded. */
+    public long getLastRefreshTime() {
+        return snapshot.refreshedAt;
+    }
+
+    public String stats() {
+        Snapshot s = snapshot;
+        return "VulnerabilityIndex{advisories=" + s.vulns.advisoryCount() +
+                ", ranges=" + s.vulns.intervalCount() + ", recommendations=" + s.recs.size() +
+                ", approxBytes=" + s.memoryBytes + ", lastRefresh=" +
+                (s.refreshedAt == 0 ? "never" : new java.util.Date(s.refreshedAt).toString()) +
+                ", mode=" + (poller != null ? "poll(" + ttlSeconds + "s)" : "changeStream") + "}";
+    }
+
+    private void watchChanges(MongoChangeStreamCursor<ChangeStreamDocument<Document>> stream) {
+        boolean stale = false;
+        long staleSince = 0;
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream) {
+            while (!closed) {
+                // null only once nothing arrived for coalesceMs
+                if (cursor.tryNext() != null) {
+                    if (!stale) staleSince = System.currentTimeMillis();
+                    stale = true;
+                    if (System.currentTimeMillis() - staleSince < 10 * coalesceMs) continue;
+                }
+                if (!stale) continue;
+                try {
+                    if (bulkLoadRunning()) continue;
+                    refresh();
+                    stale = false;
+                } catch (MongoException ex) {
+                    // keep the stream; the next await on it paces the retry
+                    System.err.println("Vulnerability index refresh failed, retrying: " + ex.getMessage());
+                }
+            }
+        } catch (MongoException ex) {
+            if (closed) return;
+            System.err.println("Change streams unavailable (" + ex.getMessage() + "), polling every " +
+                    ttlSeconds + "s instead");
+            startPolling();
+        }
+    }
+
+    private synchronized void startPolling() {
+        if (closed || poller != null) return;
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "vuln-index-poller");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                if (!bulkLoadRunning()) refresh();
+            } catch (MongoException ex) {
+                System.err.println("Vulnerability index refresh failed: " + ex.getMessage());
+            }
+        }, ttlSeconds, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    /** Whether an advisory bulk load is flagged and started less than {@code maxLoadWaitMs} ago. */
+    private boolean bulkLoadRunning() {
+        java.util.Date since = dataset.datasetState().getDate("loadingSince");
+        return since != null && System.currentTimeMillis() - since.getTime() < maxLoadWaitMs;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        notifier.shutdownNow();
+        if (poller != null) poller.shutdownNow();
+        if (watcher != null) watcher.interrupt();
+    }
+
+    private static String intern(Map<String, String> strings, String s) {
+        if (s == null) return null;
+        String existing = strings.putIfAbsent(s, s);
+        return existing != null ? existing : s;
+    }
+
+    private static long sizeOf(String s) {
+        return s == null ? 0 : STRING_BYTES + s.length();
+    }
+}
@@ -0,0 +1,67 @@
+package com.inventory.dao.codec;
+
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonString;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.types.ObjectId;
+
+/** Small helpers shared by the model codecs. */
+final class BsonReaders {
+    private BsonReaders() {}
+
+    /** Reads the current value as a string; null for BSON null, skipped (null) for any other type. */
+    static String readStringOrNull(BsonReader reader) {
+        BsonType type = reader.getCurrentBsonType();
+        if (type == BsonType.STRING) return reader.readString();
+        if (type == BsonType.NULL) {
+            reader.readNull();
+        } else {
+            reader.skipValue();
+        }
+        return null;
+    }
+
+    /** Reads an int32/int64/double as a long; null for BSON null or any other type. */
+    static Long readLongOrNull(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case INT64: return reader.readInt64();
+            case INT32: return (long) reader.readInt32();
+            case DOUBLE: return (long) reader.readDouble();
+            case NULL: reader.readNull(); return null;
+            default: reader.skipValue(); return null;
+        }
+    }
+
+    /** Reads an _id as a hex string (ObjectId) or plain string. */
+    static String readId(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.OBJECT_ID) return reader.readObjectId().toHexString();
+        return readStringOrNull(reader);
+    }
+
+    /**
+     * The _id as stored: an ObjectId for 24 hex digits, otherwise the string {@link #readId} read.
+     * (A string _id that is itself 24 hex digits cannot be told apart and comes back as an ObjectId.)
+     */
+    static BsonValue idValue(String id) {
+        return ObjectId.isValid(id) ? new BsonObjectId(new ObjectId(id)) : new BsonString(id);
+    }
+
+    static void writeId(BsonWriter writer, String id) {
+        if (ObjectId.isValid(id)) {
+            writer.writeObjectId("_id", new ObjectId(id));
+        } else {
+            writer.writeString("_id", id);
+        }
+    }
+
+    static void writeStringOrNull(BsonWriter writer, String name, String value) {
+        if (value == null) {
+            writer.writeNull(name);
+        } else {
+            writer.writeString(name, value);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.inventory.dao.codec;
+
+import com.inventory.model.Dependency;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import static com.inventory.dao.codec.BsonReaders.readStringOrNull;
+import static com.inventory.dao.codec.BsonReaders.writeStringOrNull;
+
+/** Encodes a dependency as {groupId, artifactId, version}. */
+public class DependencyCodec implements Codec<Dependency> {
+
+    @Override
+    public void encode(BsonWriter writer, Dependency d, EncoderContext ctx) {
+        writer.writeStartDocument();
+        writeStringOrNull(writer, "groupId", d.getGroupId());
+        writeStringOrNull(writer, "artifactId", d.getArtifactId());
+        writeStringOrNull(writer, "version", d.getVersion());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Dependency decode(BsonReader reader, DecoderContext ctx) {
+        Dependency d = new Dependency();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "groupId": d.setGroupId(readStringOrNull(reader)); break;
+                case "artifactId": d.setArtifactId(readStringOrNull(reader)); break;
+                case "version": d.setVersion(readStringOrNull(reader)); break;
+                default: reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return d;
+    }
+
+    @Override
+    public Class<Dependency> getEncoderClass() {
+        return Dependency.class;
+    }
+}
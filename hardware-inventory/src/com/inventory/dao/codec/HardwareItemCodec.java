@@ -0,0 +1,78 @@
+package com.inventory.dao.codec;
+
+import com.inventory.model.HardwareItem;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import static com.inventory.dao.codec.BsonReaders.idValue;
+import static com.inventory.dao.codec.BsonReaders.readId;
+import static com.inventory.dao.codec.BsonReaders.readLongOrNull;
+import static com.inventory.dao.codec.BsonReaders.readStringOrNull;
+import static com.inventory.dao.codec.BsonReaders.writeId;
+import static com.inventory.dao.codec.BsonReaders.writeStringOrNull;
+
+/**
+ * Maps hardware_items documents to HardwareItem directly from the BSON stream.
+ * Fields missing from the document (e.g. excluded by a projection) stay null.
+ */
+public class HardwareItemCodec implements CollectibleCodec<HardwareItem> {
+
+    @Override
+    public void encode(BsonWriter writer, HardwareItem item, EncoderContext ctx) {
+        writer.writeStartDocument();
+        if (item.getId() != null) writeId(writer, item.getId());
+        writeStringOrNull(writer, "name", item.getName());
+        writeStringOrNull(writer, "serialNumber", item.getSerialNumber());
+        writeStringOrNull(writer, "location", item.getLocation());
+        writeStringOrNull(writer, "status", item.getStatus());
+        if (item.getVersion() != null) writer.writeInt64("version", item.getVersion());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public HardwareItem decode(BsonReader reader, DecoderContext ctx) {
+        HardwareItem item = new HardwareItem();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id": item.setId(readId(reader)); break;
+                case "name": item.setName(readStringOrNull(reader)); break;
+                case "serialNumber": item.setSerialNumber(readStringOrNull(reader)); break;
+                case "location": item.setLocation(readStringOrNull(reader)); break;
+                case "status": item.setStatus(readStringOrNull(reader)); break;
+                case "version": item.setVersion(readLongOrNull(reader)); break;
+                default: reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return item;
+    }
+
+    @Override
+    public Class<HardwareItem> getEncoderClass() {
+        return HardwareItem.class;
+    }
+
+    @Override
+    public HardwareItem generateIdIfAbsentFromDocument(HardwareItem item) {
+        if (item.getId() == null) item.setId(new ObjectId().toHexString());
+        return item;
+    }
+
+    @Override
+    public boolean documentHasId(HardwareItem item) {
+        return item.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(HardwareItem item) {
+        if (item.getId() == null) throw new IllegalStateException("HardwareItem has no id");
+        return idValue(item.getId());
+    }
+}
@@ -0,0 +1,104 @@
+package com.inventory.dao.codec;
+
+import com.inventory.model.Dependency;
+import com.inventory.model.Project;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.inventory.dao.codec.BsonReaders.idValue;
+import static com.inventory.dao.codec.BsonReaders.readId;
+import static com.inventory.dao.codec.BsonReaders.readStringOrNull;
+import static com.inventory.dao.codec.BsonReaders.writeId;
+import static com.inventory.dao.codec.BsonReaders.writeStringOrNull;
+
+/**
+ * Maps projects documents (with their embedded dependencies array) to Project directly from
+ * the BSON stream. Fields missing from the document (e.g. excluded by a projection) stay unset.
+ */
+public class ProjectCodec implements CollectibleCodec<Project> {
+    private final DependencyCodec dependencyCodec;
+
+    public ProjectCodec(DependencyCodec dependencyCodec) {
+        this.dependencyCodec = dependencyCodec;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Project p, EncoderContext ctx) {
+        writer.writeStartDocument();
+        if (p.getId() != null) writeId(writer, p.getId());
+        writeStringOrNull(writer, "name", p.getName());
+        writeStringOrNull(writer, "description", p.getDescription());
+        writer.writeStartArray("dependencies");
+        for (Dependency d : p.getDependencies()) {
+            ctx.encodeWithChildContext(dependencyCodec, writer, d);
+        }
+        writer.writeEndArray();
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Project decode(BsonReader reader, DecoderContext ctx) {
+        Project p = new Project();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id": p.setId(readId(reader)); break;
+                case "name": p.setName(readStringOrNull(reader)); break;
+                case "description": p.setDescription(readStringOrNull(reader)); break;
+                case "dependencies": p.setDependencies(readDependencies(reader, ctx)); break;
+                default: reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return p;
+    }
+
+    private List<Dependency> readDependencies(BsonReader reader, DecoderContext ctx) {
+        List<Dependency> deps = new ArrayList<>();
+        if (reader.getCurrentBsonType() != BsonType.ARRAY) {
+            reader.skipValue();
+            return deps;
+        }
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            if (reader.getCurrentBsonType() == BsonType.DOCUMENT) {
+                deps.add(dependencyCodec.decode(reader, ctx));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.readEndArray();
+        return deps;
+    }
+
+    @Override
+    public Class<Project> getEncoderClass() {
+        return Project.class;
+    }
+
+    @Override
+    public Project generateIdIfAbsentFromDocument(Project p) {
+        if (p.getId() == null) p.setId(new ObjectId().toHexString());
+        return p;
+    }
+
+    @Override
+    public boolean documentHasId(Project p) {
+        return p.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(Project p) {
+        if (p.getId() == null) throw new IllegalStateException("Project has no id");
+        return idValue(p.getId());
+    }
+}
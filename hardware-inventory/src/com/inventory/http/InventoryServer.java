@@ -0,0 +1,693 @@
+package com.inventory.http;
+
+import com.inventory.dao.DuplicateKeyException;
+import com.inventory.dao.HardwareDAO;
+import com.inventory.dao.HardwareQuery;
+import com.inventory.dao.HardwareStore;
+import com.inventory.dao.HardwareSummary;
+import com.inventory.dao.HardwareUpdate;
+import com.inventory.dao.ProjectStore;
+import com.inventory.dao.StatusHistory;
+import com.inventory.dao.VersionConflictException;
+import com.inventory.ingest.ProjectImporter;
+import com.inventory.model.Dependency;
+import com.inventory.model.HardwareItem;
+import com.inventory.model.Project;
+import com.inventory.model.VulnerabilityReport;
+import com.inventory.util.Config;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoInterruptedException;
+import com.mongodb.MongoSocketReadTimeoutException;
+import com.mongodb.MongoTimeoutException;
+import com.mongodb.MongoWriteException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.bson.Document;
+import org.bson.json.JsonParseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless HTTP/JSON front-end over the hardware and project stores (MongoDB or embedded).
+ *
+ * <pre>
+ *   GET    /hardware?after=&lt;id&gt;&amp;limit=n     list (keyset paginated; fields=status,location to fetch only those)
+ *   POST   /hardware                         create
+ *   GET    /hardware/{id}                    read (also takes fields=...)
+ *   PUT    /hardware/{id}                    update the fields given (null-valued ones are kept)
+ *   PATCH  /hardware/{id}                    update the fields given (null removes one)
+ *   DELETE /hardware/{id}                    delete
+ *   GET    /hardware/summary                 item counts per status and location (no query behind it)
+ *   GET    /hardware/utilization?from=&amp;to=&amp;location=&amp;status=&amp;busy=in-use
+ *                                            hours per status and the busy share over a time range
+ *   GET    /hardware/{id}/history?from=&amp;to=  hours per status of one item (both need inventory.history)
+ *   GET    /projects?after=&lt;id&gt;&amp;limit=n     list (keyset paginated)
+ *   POST   /projects                         create (optionally with "dependencies")
+ *   POST   /projects/import?format=f&amp;name=n  create or update a project from the manifest in the body
+ *                                            (cyclonedx, pom or gradle-lockfile; name is used if the manifest has none)
+ *   GET    /projects/{id}                    read
+ *   DELETE /projects/{id}                    delete
+ *   POST   /projects/{id}/dependencies       add a dependency, or several as {"dependencies": [...]}
+ *   GET    /projects/{id}/vulnerabilities    vulnerability check
+ *   GET    /projects/{id}/recommendations    dependency update recommendations
+ * </pre>
+ *
+ * Each request runs on its own virtual thread when the JDK has them (21+), otherwise on a pool of
+ * {@code maxConcurrent + queueCapacity} platform threads. Admission happens on the dispatcher
+ * thread: at most {@code maxConcurrent} requests are handled at once and at most
+ * {@code queueCapacity} more ({@code inventory.http.queueCapacity}, default {@code maxConcurrent})
+ * wait up to {@code queueTimeoutMs} for a slot; anything beyond that, or still waiting after the
+ * timeout, is answered 503 with Retry-After instead of piling up on the driver's connection pool.
+ * A request still running after {@code inventory.http.requestTimeoutMs} (default 30000; 0 for none)
+ * has its thread interrupted, and is answered 504 only if that aborted it (a lock, pool or queue
+ * wait, or I/O on a virtual thread); a handler that finishes anyway, even late, answers with its own
+ * result, since its write may have gone through. Interrupts do not abort socket I/O on platform
+ * threads (the JDK 17 fallback), so there the driver's socket timeout is what bounds a request.
+ * Driver pool-wait and server-selection timeouts surface as 503 and socket read timeouts as 504.
+ *
+ * With the MongoDB backend, dependency additions from concurrent requests share $push/bulkWrite
+ * round-trips when the store coalesces them ({@code inventory.depWrites.coalesce}, see
+ * {@link com.inventory.dao.Storage}); each request still answers only once its write is acknowledged.
+ *
+ * PUT and PATCH bodies may carry the "version" the client read; the update then fails with 409
+ * if the item changed since.
+ */
+public class InventoryServer {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final HardwareStore hardwareDAO;
+    private final ProjectStore projectDAO;
+    private final int port;
+    private final int maxConcurrent;
+    private final long queueTimeoutMs;
+    private final int queueCapacity;
+    private final long requestTimeoutMs;
+    private final Semaphore slots;
+    private final Semaphore admitted;
+
+    private HttpServer server;
+    private ExecutorService workers;
+    private ScheduledExecutorService timeouts;
+
+    /** Set while a request that was not admitted runs on the dispatcher thread, to answer 503. */
+    private static final ThreadLocal<Boolean> REJECTED = new ThreadLocal<>();
+
+    /** Thrown by handlers to answer with a specific status code. */
+    private static class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    public InventoryServer(HardwareStore hardwareDAO, ProjectStore projectDAO) {
+        this(hardwareDAO, projectDAO,
+                Config.getInt("inventory.http.port", 8080),
+                Config.getInt("inventory.http.maxConcurrent", 200),
+                Config.getLong("inventory.http.queueTimeoutMs", 2000));
+    }
+
+    public InventoryServer(HardwareStore hardwareDAO, ProjectStore projectDAO, int port, int maxConcurrent, long queueTimeoutMs) {
+        this(hardwareDAO, projectDAO, port, maxConcurrent, queueTimeoutMs,
+                Config.getInt("inventory.http.queueCapacity", maxConcurrent),
+                Config.getLong("inventory.http.requestTimeoutMs", 30000));
+    }
+
+    public InventoryServer(HardwareStore hardwareDAO, ProjectStore projectDAO, int port, int maxConcurrent,
+                           long queueTimeoutMs, int queueCapacity, long requestTimeoutMs) {
+        this.hardwareDAO = hardwareDAO;
+        this.projectDAO = projectDAO;
+        this.port = port;
+        this.maxConcurrent = maxConcurrent;
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.queueCapacity = Math.max(0, queueCapacity);
+        this.requestTimeoutMs = requestTimeoutMs;
+        this.slots = new Semaphore(maxConcurrent);
+        this.admitted = new Semaphore(maxConcurrent + this.queueCapacity);
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        workers = newRequestExecutor(maxConcurrent + queueCapacity);
+        timeouts = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "http-request-timeouts");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(this::admit);
+        server.createContext("/hardware", ex -> handle(ex, this::hardware));
+        server.createContext("/projects", ex -> handle(ex, this::projects));
+        server.start();
+        System.out.println("Inventory HTTP service listening on port " + port);
+    }
+
+    public void stop() {
+        if (server != null) server.stop(1);
+        if (workers != null) workers.shutdown();
+        if (timeouts != null) timeouts.shutdownNow();
+    }
+
+    /**
+     * Virtual-thread-per-request executor when available (JDK 21+), otherwise a platform pool with
+     * a thread for every request that can be admitted, so admitted requests never sit in its queue.
+     */
+    private static ExecutorService newRequestExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return Executors.newFixedThreadPool(threads);
+        }
+    }
+
+    /**
+     * Runs on the server's dispatcher thread. Requests beyond the running and queued ones are not
+     * handed to the workers at all: they run right here, flagged, and {@link #handle} answers 503.
+     */
+    private void admit(Runnable exchange) {
+        if (admitted.tryAcquire()) {
+            try {
+                workers.execute(() -> {
+                    try {
+                        exchange.run();
+                    } finally {
+                        admitted.release();
+                    }
+                });
+                return;
+            } catch (RejectedExecutionException ex) {
+                admitted.release();
+            }
+        }
+        REJECTED.set(Boolean.TRUE);
+        try {
+            exchange.run();
+        } finally {
+            REJECTED.remove();
+        }
+    }
+
+    /** Interrupts the handling thread once the request has run for {@code requestTimeoutMs}. */
+    private static final class Deadline {
+        private final Thread thread = Thread.currentThread();
+        private ScheduledFuture<?> timer;
+        private boolean done;
+        private boolean expired;
+
+        Deadline(ScheduledExecutorService timeouts, long timeoutMs) {
+            if (timeoutMs > 0) timer = timeouts.schedule(this::expire, timeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void expire() {
+            if (done) return;
+            expired = true;
+            thread.interrupt();
+        }
+
+        /** Stops the timer and clears an interrupt it delivered; true if it had expired. */
+        synchronized boolean finish() {
+            done = true;
+            if (timer != null) timer.cancel(false);
+            if (expired) Thread.interrupted();
+            return expired;
+        }
+    }
+
+    private interface Handler {
+        Object handle(String method, List<String> path, Map<String, String> query, HttpExchange ex) throws IOException;
+    }
+
+    private void handle(HttpExchange ex, Handler handler) throws IOException {
+        if (REJECTED.get() != null) {
+            try {
+                ex.getResponseHeaders().add("Retry-After", "1");
+                send(ex, 503, error("Server busy, retry later"));
+            } finally {
+                ex.close();
+            }
+            return;
+        }
+        Deadline deadline = null;
+        try {
+            boolean acquired;
+            try {
+                acquired = slots.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            }
+            if (!acquired) {
+                ex.getResponseHeaders().add("Retry-After", "1");
+                send(ex, 503, error("Server busy, retry later"));
+                return;
+            }
+            deadline = new Deadline(timeouts, requestTimeoutMs);
+            try {
+                URI uri = ex.getRequestURI();
+                List<String> path = new ArrayList<>();
+                for (String part : uri.getPath().split("/")) {
+                    if (!part.isEmpty()) path.add(part);
+                }
+                Object body = handler.handle(ex.getRequestMethod(), path, parseQuery(uri.getRawQuery()), ex);
+                deadline.finish();
+                if (body instanceof Integer) {
+                    send(ex, (Integer) body, null);
+                } else {
+                    send(ex, ex.getRequestMethod().equals("POST") ? 201 : 200, (Document) body);
+                }
+            } finally {
+                slots.release();
+            }
+        } catch (RuntimeException e) {
+            if (deadline != null && deadline.finish() && interrupted(e)) {
+                send(ex, 504, error("Request timed out after " + requestTimeoutMs + " ms"));
+            } else {
+                sendError(ex, e);
+            }
+        } finally {
+            if (deadline != null) deadline.finish();
+            ex.close();
+        }
+    }
+
+    /** Whether {@code e} was caused by an interrupt, rather than being the handler's own answer. */
+    private static boolean interrupted(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof InterruptedException || t instanceof InterruptedIOException
+                    || t instanceof ClosedByInterruptException || t instanceof MongoInterruptedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void sendError(HttpExchange ex, RuntimeException error) throws IOException {
+        try {
+            throw error;
+        } catch (HttpError e) {
+            send(ex, e.status, error(e.getMessage()));
+        } catch (IllegalArgumentException | JsonParseException e) {
+            send(ex, 400, error(e.getMessage()));
+        } catch (DuplicateKeyException e) {
+            send(ex, 409, error(e.getMessage()));
+        } catch (VersionConflictException e) {
+            send(ex, 409, error(e.getMessage()).append("version", e.getCurrentVersion()));
+        } catch (UnsupportedOperationException e) {
+            send(ex, 501, error(e.getMessage()));
+        } catch (MongoWriteException e) {
+            if (e.getError().getCategory() == ErrorCategory.DUPLICATE_KEY) {
+                send(ex, 409, error("Duplicate key: " + e.getError().getMessage()));
+            } else {
+                send(ex, 500, error(e.getMessage()));
+            }
+        } catch (MongoTimeoutException e) {
+            ex.getResponseHeaders().add("Retry-After", "1");
+            send(ex, 503, error("Database unavailable: " + e.getMessage()));
+        } catch (MongoSocketReadTimeoutException e) {
+            send(ex, 504, error("Database timed out"));
+        } catch (RuntimeException e) {
+            send(ex, 500, error(e.getMessage()));
+        }
+    }
+
+    private Object hardware(String method, List<String> path, Map<String, String> query, HttpExchange ex) throws IOException {
+        if (path.size() == 1) {
+            switch (method) {
+                case "GET": {
+                    String[] fields = fields(query);
+                    List<Document> items = new ArrayList<>();
+                    for (HardwareItem item : hardwareDAO.listPage(query.get("after"), pageSize(query), fields)) {
+                        items.add(toJson(item, fields));
+                    }
+                    return page(items);
+                }
+                case "POST": {
+                    HardwareItem item = fromJson(readBody(ex), new HardwareItem());
+                    return new Document("id", hardwareDAO.create(item));
+                }
+                default: throw methodNotAllowed(method);
+            }
+        }
+        if (path.size() == 2 && path.get(1).equals("summary")) {
+            if (!method.equals("GET")) throw methodNotAllowed(method);
+            HardwareSummary summary = hardwareDAO.summary();
+            Document counts = new Document();
+            summary.snapshot().forEach((status, byLocation) -> counts.append(label(status), labeled(byLocation)));
+            return new Document("total", summary.total())
+                    .append("byStatus", labeled(summary.countBy("status")))
+                    .append("byLocation", labeled(summary.countBy("location")))
+                    .append("counts", counts);
+        }
+        if (path.size() == 2 && path.get(1).equals("utilization")) {
+            if (!method.equals("GET")) throw methodNotAllowed(method);
+            HardwareQuery items = new HardwareQuery().location(query.get("location")).status(query.get("status"));
+            Instant from = StatusHistory.parseTime(required(query, "from"));
+            Instant to = StatusHistory.parseTime(required(query, "to"));
+            String busy = query.getOrDefault("busy", "in-use");
+            StatusHistory history = statusHistory();
+            return new Document("from", from.toString()).append("to", to.toString())
+                    .append("hours", hours(history.timeInStatus(items, from, to)))
+                    .append("utilization", history.utilization(items, from, to, busy));
+        }
+        if (path.size() == 3 && path.get(2).equals("history")) {
+            if (!method.equals("GET")) throw methodNotAllowed(method);
+            Instant from = StatusHistory.parseTime(required(query, "from"));
+            Instant to = StatusHistory.parseTime(required(query, "to"));
+            return new Document("id", path.get(1)).append("from", from.toString()).append("to", to.toString())
+                    .append("hours", hours(statusHistory().timeInStatus(path.get(1), from, to)));
+        }
+        if (path.size() == 2) {
+            String id = path.get(1);
+            switch (method) {
+                case "GET": {
+                    String[] fields = fields(query);
+                    HardwareItem item = hardwareDAO.read(id, fields);
+                    if (item == null) throw notFound("hardware", id);
+                    return toJson(item, fields);
+                }
+                case "PUT": {
+                    // replaces every field; a "version" in the body makes it a checked replace
+                    HardwareItem item = fromJson(readBody(ex), new HardwareItem());
+                    HardwareUpdate update = HardwareUpdate.of(item).expectVersion(item.getVersion());
+                    if (!hardwareDAO.update(id, update) && hardwareDAO.read(id, "version") == null) throw notFound("hardware", id);
+                    return toJson(hardwareDAO.read(id));
+                }
+                case "PATCH": {
+                    Document body = readBody(ex);
+                    HardwareUpdate update = new HardwareUpdate();
+                    for (String field : body.keySet()) {
+                        if (field.equals("version")) {
+                            Long version = wholeNumber(body, "version");
+                            if (version == null) throw new IllegalArgumentException("version must be a whole number");
+                            update.expectVersion(version);
+                        } else {
+                            update.set(field, string(body, field));
+                        }
+                    }
+                    if (!hardwareDAO.update(id, update) && hardwareDAO.read(id, "version") == null) throw notFound("hardware", id);
+                    return toJson(hardwareDAO.read(id));
+                }
+                case "DELETE":
+                    if (!hardwareDAO.delete(id)) throw notFound("hardware", id);
+                    return 204;
+                default: throw methodNotAllowed(method);
+            }
+        }
+        throw new HttpError(404, "No such resource");
+    }
+
+    private StatusHistory statusHistory() {
+        StatusHistory history = hardwareDAO instanceof HardwareDAO ? ((HardwareDAO) hardwareDAO).statusHistory() : null;
+        if (history == null) throw new UnsupportedOperationException("Status history is off (inventory.history=true, MongoDB backend)");
+        return history;
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) throw new IllegalArgumentException(name + "= is required");
+        return value;
+    }
+
+    /** JSON keys cannot be null: items without a status or location are listed under "(none)". */
+    private static String label(String key) {
+        return key == null ? "(none)" : key;
+    }
+
+    private static Document labeled(Map<String, Long> counts) {
+        Document out = new Document();
+        counts.forEach((key, n) -> out.append(label(key), n));
+        return out;
+    }
+
+    /** A string field of a request body, null if absent; any other type is a bad request. */
+    private static String string(Document body, String field) {
+        Object value = body.get(field);
+        if (value == null || value instanceof String) return (String) value;
+        throw new IllegalArgumentException(field + " must be a string");
+    }
+
+    /** A whole-number field of a request body, null if absent; any other type is a bad request. */
+    private static Long wholeNumber(Document body, String field) {
+        Object value = body.get(field);
+        if (value == null) return null;
+        if (value instanceof Integer || value instanceof Long) return ((Number) value).longValue();
+        throw new IllegalArgumentException(field + " must be a whole number");
+    }
+
+    /** The objects of a list field of a request body, null if absent; anything else is a bad request. */
+    private static List<Document> documents(Document body, String field) {
+        Object value = body.get(field);
+        if (value == null) return null;
+        if (!(value instanceof List)) throw new IllegalArgumentException(field + " must be a list");
+        List<Document> out = new ArrayList<>();
+        for (Object o : (List<?>) value) {
+            if (!(o instanceof Document)) throw new IllegalArgumentException(field + " must be a list of objects");
+            out.add((Document) o);
+        }
+        return out;
+    }
+
+    private static Document hours(Map<String, Long> millis) {
+        Document out = new Document();
+        millis.forEach((status, ms) -> out.append(status, ms / 3_600_000.0));
+        return out;
+    }
+
+    private Object projects(String method, List<String> path, Map<String, String> query, HttpExchange ex) throws IOException {
+        if (path.size() == 1) {
+            switch (method) {
+                case "GET": {
+                    List<Document> projects = new ArrayList<>();
+                    for (Project p : projectDAO.listPage(query.get("after"), pageSize(query))) {
+                        projects.add(toJson(p));
+                    }
+                    return page(projects);
+                }
+                case "POST": {
+                    Document body = readBody(ex);
+                    Project p = new Project(string(body, "name"), string(body, "description"));
+                    List<Document> deps = documents(body, "dependencies");
+                    if (deps != null) {
+                        for (Document d : deps) p.addDependency(toDependency(d));
+                    }
+                    return new Document("id", projectDAO.create(p));
+                }
+                default: throw methodNotAllowed(method);
+            }
+        }
+
+        if (path.size() == 2 && path.get(1).equals("import")) {
+            if (!method.equals("POST")) throw methodNotAllowed(method);
+            String format = query.get("format");
+            if (format == null) throw new IllegalArgumentException("format=cyclonedx|pom|gradle-lockfile required");
+            String name = query.getOrDefault("name", "upload");
+            ProjectImporter.Result r;
+            try (InputStream in = ex.getRequestBody()) {
+                // streamed straight from the request body, however large the manifest is
+                r = new ProjectImporter(projectDAO).importStream(in, ProjectImporter.parseFormat(format), name, "upload");
+            }
+            return new Document("id", r.projectId)
+                    .append("name", r.projectName)
+                    .append("created", r.created)
+                    .append("dependencies", r.dependencies)
+                    .append("added", r.added)
+                    .append("removed", r.removed)
+                    .append("skipped", r.skipped);
+        }
+
+        String id = path.get(1);
+        if (path.size() == 2) {
+            switch (method) {
+                case "GET": {
+                    Project p = projectDAO.read(id);
+                    if (p == null) throw notFound("project", id);
+                    return toJson(p);
+                }
+                case "DELETE":
+                    if (!projectDAO.deleteProject(id)) throw notFound("project", id);
+                    return 204;
+                default: throw methodNotAllowed(method);
+            }
+        }
+        if (path.size() == 3) {
+            switch (path.get(2)) {
+                case "dependencies": {
+                    if (!method.equals("POST")) throw methodNotAllowed(method);
+                    Document body = readBody(ex);
+                    List<Dependency> deps = new ArrayList<>();
+                    List<Document> many = documents(body, "dependencies");
+                    if (many == null) {
+                        deps.add(toDependency(body));
+                    } else {
+                        for (Document d : many) deps.add(toDependency(d));
+                    }
+                    if (!projectDAO.addDependencies(id, deps)) throw notFound("project", id);
+                    List<String> added = new ArrayList<>();
+                    for (Dependency d : deps) added.add(d.toString());
+                    return new Document("added", many == null ? added.get(0) : added);
+                }
+                case "vulnerabilities": {
+                    if (!method.equals("GET")) throw methodNotAllowed(method);
+                    return toJson(projectDAO.checkVulnerabilities(id));
+                }
+                case "recommendations": {
+                    if (!method.equals("GET")) throw methodNotAllowed(method);
+                    return new Document("recommendations", projectDAO.recommendDependencyUpdates(id));
+                }
+                default: break;
+            }
+        }
+        throw new HttpError(404, "No such resource");
+    }
+
+    private static Document toJson(HardwareItem item) {
+        return new Document("id", item.getId())
+                .append("name", item.getName())
+                .append("serialNumber", item.getSerialNumber())
+                .append("location", item.getLocation())
+                .append("status", item.getStatus())
+                .append("version", item.getVersion() == null ? 0L : item.getVersion());
+    }
+
+    /** Only the id and the requested fields when the item was read with a projection. */
+    private static Document toJson(HardwareItem item, String[] fields) {
+        Document full = toJson(item);
+        if (fields.length == 0) return full;
+        Document out = new Document("id", item.getId());
+        for (String f : fields) out.append(f, full.get(f));
+        return out;
+    }
+
+    private static HardwareItem fromJson(Document body, HardwareItem item) {
+        item.setName(string(body, "name"));
+        item.setSerialNumber(string(body, "serialNumber"));
+        item.setLocation(string(body, "location"));
+        item.setStatus(string(body, "status"));
+        Long version = wholeNumber(body, "version");
+        if (version != null) item.setVersion(version);
+        return item;
+    }
+
+    /** The comma-separated {@code fields} query parameter, empty when absent. */
+    private static String[] fields(Map<String, String> query) {
+        String fields = query.get("fields");
+        if (fields == null || fields.isBlank()) return new String[0];
+        return fields.trim().split("\\s*,\\s*");
+    }
+
+    private static Document toJson(Project p) {
+        List<Document> deps = new ArrayList<>();
+        for (Dependency d : p.getDependencies()) deps.add(toJson(d));
+        return new Document("id", p.getId())
+                .append("name", p.getName())
+                .append("description", p.getDescription())
+                .append("dependencies", deps);
+    }
+
+    private static Document toJson(Dependency d) {
+        return new Document("groupId", d.getGroupId())
+                .append("artifactId", d.getArtifactId())
+                .append("version", d.getVersion());
+    }
+
+    private static Dependency toDependency(Document d) {
+        return new Dependency(string(d, "groupId"), string(d, "artifactId"), string(d, "version"));
+    }
+
+    private static Document toJson(VulnerabilityReport report) {
+        List<Document> findings = new ArrayList<>();
+        for (VulnerabilityReport.Finding f : report.getFindings()) {
+            findings.add(new Document("dependency", toJson(f.dependency))
+                    .append("cve", f.cve)
+                    .append("severity", f.severity)
+                    .append("patchedVersion", f.patchedVersion)
+                    .append("recommendation", f.recommendation));
+        }
+        return new Document("findings", findings);
+    }
+
+    private static Document page(List<Document> items) {
+        Document page = new Document("items", items);
+        if (!items.isEmpty()) page.append("next", items.get(items.size() - 1).getString("id"));
+        return page;
+    }
+
+    private static int pageSize(Map<String, String> query) {
+        String limit = query.get("limit");
+        if (limit == null) return DEFAULT_PAGE_SIZE;
+        return Math.max(1, Math.min(MAX_PAGE_SIZE, Integer.parseInt(limit)));
+    }
+
+    private static Document readBody(HttpExchange ex) throws IOException {
+        try (InputStream in = ex.getRequestBody()) {
+            String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            if (body.isBlank()) throw new IllegalArgumentException("Request body required");
+            return Document.parse(body);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String raw) {
+        Map<String, String> out = new HashMap<>();
+        if (raw == null) return out;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            out.put(decode(pair.substring(0, eq)), decode(pair.substring(eq + 1)));
+        }
+        return out;
+    }
+
+    private static String decode(String s) {
+        return URLDecoder.decode(s, StandardCharsets.UTF_8);
+    }
+
+    private static Document error(String message) {
+        return new Document("error", message);
+    }
+
+    private static HttpError notFound(String kind, String id) {
+        return new HttpError(404, "No " + kind + " with id " + id);
+    }
+
+    private static HttpError methodNotAllowed(String method) {
+        return new HttpError(405, "Method " + method + " not allowed");
+    }
+
+    private static void send(HttpExchange ex, int status, Document body) throws IOException {
+        if (body == null) {
+            ex.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = body.toJson().getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
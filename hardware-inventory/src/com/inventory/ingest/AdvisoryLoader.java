@@ -0,0 +1,458 @@
+package com.inventory.ingest;
+
+import com.inventory.dao.MongoManager;
+import com.inventory.dao.ScanResultStore;
+import com.inventory.metrics.LatencyHistogram;
+import com.inventory.metrics.Metrics;
+import com.inventory.util.Config;
+import com.inventory.util.VersionRange;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Loads an offline OSV / GHSA advisory dump (a directory tree or a zip of one JSON file per
+ * advisory, as published by osv.dev) into the "vulnerabilities" collection.
+ *
+ * Each affected Maven package range becomes one document in the schema ProjectDAO reads:
+ *
+ * <pre>
+ *   { _id: "GHSA-...|group:artifact|[2.0,2.17.1)", groupId, artifactId, vulnerableVersion: "[2.0,2.17.1)",
+ *     cve, severity, patchedVersion, recommendation, osvId, sourceFile }
+ * </pre>
+ *
+ * OSV events are normalized to Maven ranges: introduced/fixed to {@code [introduced,fixed)},
+ * introduced/last_affected to {@code [introduced,last_affected]}, and "0" to an open lower bound.
+ * The cve is the first CVE alias, or the OSV id if there is none.
+ *
+ * Files are parsed by {@code inventory.advisories.workers} threads (default: number of CPUs).
+ * Each thread upserts its batch of {@code inventory.advisories.batchSize} files (default 500) with
+ * one unordered bulkWrite, so a bad document does not stop the rest.
+ *
+ * Loads are incremental. "advisory_sources" remembers a fingerprint of every file: size and
+ * mtime, or CRC and size for zip entries. Unchanged files are skipped without being parsed. A
+ * changed file replaces its documents and drops those it no longer produces. Files gone from the
+ * dump, and withdrawn advisories, lose their documents.
+ *
+ * A full load into an empty collection drops this loader's two indexes first and builds them once
+ * at the end instead of maintaining them per insert; other indexes on the collection are left
+ * alone. A forced full load over existing advisories keeps them, since readers and the per-file
+ * cleanup by sourceFile still rely on them.
+ *
+ * An interrupted load stops after the batches in flight: it neither removes the files missing
+ * from the dump nor builds the indexes, and the next load picks up where it stopped.
+ *
+ * The load is flagged in the advisory dataset document while it runs, so VulnerabilityIndex
+ * instances do not reload (and rescan) on every batch but once, when the load ends. The flag is
+ * cleared in the same write that bumps the dataset version when anything changed, and that bump
+ * is what makes stored scan results get recomputed.
+ */
+public class AdvisoryLoader {
+    private static final LatencyHistogram LOAD_LATENCY = Metrics.histogram("AdvisoryLoader.load");
+    private static final LatencyHistogram PARSE_LATENCY = Metrics.histogram("AdvisoryLoader.parse");
+
+    private static final Bson LOOKUP_INDEX = Indexes.ascending("groupId", "artifactId", "vulnerableVersion");
+    private static final Bson SOURCE_INDEX = Indexes.ascending("sourceFile");
+    private static final int INDEX_NOT_FOUND = 27;
+
+    private final MongoDatabase db;
+    private final MongoCollection<Document> vulnCol;
+    private final MongoCollection<Document> sources;
+    private final int batchSize;
+    private final int workers;
+    private final PrintStream log;
+
+    public static class Result {
+        public long files;
+        public long unchanged;
+        public long parsed;
+        public long advisories;
+        public long removedFiles;
+        public long errors;
+        public boolean full;
+        public long elapsedMillis;
+
+        public boolean changed() {
+            return parsed > 0 || removedFiles > 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s advisory load: %d files (%d unchanged, %d parsed, %d removed, %d errors), "
+                            + "%d advisory ranges written in %.1fs", full ? "Full" : "Incremental", files, unchanged, parsed,
+                    removedFiles, errors, advisories, elapsedMillis / 1000.0);
+        }
+    }
+
+    /** One file of the dump, from a directory or a zip. */
+    private interface Source {
+        String name();
+        String fingerprint();
+        byte[] read() throws IOException;
+    }
+
+    public AdvisoryLoader() {
+        this(MongoManager.getDatabase(), Config.getInt("inventory.advisories.batchSize", 500),
+                Config.getInt("inventory.advisories.workers", Runtime.getRuntime().availableProcessors()), System.out);
+    }
+
+    public AdvisoryLoader(MongoDatabase db, int batchSize, int workers, PrintStream log) {
+        this.db = db;
+        this.vulnCol = db.getCollection("vulnerabilities");
+        this.sources = db.getCollection("advisory_sources");
+        this.batchSize = Math.max(1, batchSize);
+        this.workers = Math.max(1, workers);
+        this.log = log;
+    }
+
+    /** Loads a directory or .zip dump; {@code full} reloads every file and rebuilds the indexes. */
+    public Result load(Path dump, boolean full) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return withSources(dump, files -> load(files, full));
+        } finally {
+            LOAD_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * The vulnerabilities documents of a directory or .zip dump, parsed without a database (the
+     * embedded store keeps them in a local file). Files that do not parse are reported to
+     * {@code log} and skipped.
+     */
+    public static List<Document> parse(Path dump, PrintStream log) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return withSources(dump, files -> {
+                List<Document> out = new ArrayList<>();
+                for (Source s : files) {
+                    try {
+                        out.addAll(normalize(Document.parse(new String(s.read(), StandardCharsets.UTF_8)), s.name()));
+                    } catch (IOException | RuntimeException ex) {
+                        log.println(s.name() + ": " + ex.getMessage());
+                    }
+                }
+                return out;
+            });
+        } finally {
+            PARSE_LATENCY.recordSince(start);
+        }
+    }
+
+    /** Applies {@code action} to the .json files of a dump; a zip stays open until it returns. */
+    private static <T> T withSources(Path dump, Function<List<Source>, T> action) throws IOException {
+        if (Files.isDirectory(dump)) {
+            List<Source> files = new ArrayList<>();
+            try (Stream<Path> walk = Files.walk(dump)) {
+                walk.filter(p -> p.getFileName().toString().endsWith(".json")).forEach(p -> files.add(fileSource(dump, p)));
+            }
+            return action.apply(files);
+        }
+        try (ZipFile zip = new ZipFile(dump.toFile())) {
+            List<Source> entries = new ArrayList<>();
+            for (ZipEntry e : Collections.list(zip.entries())) {
+                if (!e.isDirectory() && e.getName().endsWith(".json")) entries.add(zipSource(zip, e));
+            }
+            return action.apply(entries);
+        }
+    }
+
+    private Result load(List<Source> files, boolean full) {
+        ScanResultStore dataset = new ScanResultStore(db);
+        Result result = new Result();
+        dataset.beginBulkLoad();
+        boolean completed = false;
+        try {
+            load(files, full, result);
+            completed = true;
+        } finally {
+            // a load that failed half-way may have written some of its batches
+            dataset.finishBulkLoad(!completed || result.changed());
+        }
+        return result;
+    }
+
+    private void load(List<Source> files, boolean full, Result result) {
+        long start = System.currentTimeMillis();
+        result.files = files.size();
+        Map<String, String> known = new HashMap<>();
+        for (Document d : sources.find()) known.put(d.getString("_id"), d.getString("fingerprint"));
+        boolean empty = vulnCol.estimatedDocumentCount() == 0;
+        result.full = full || known.isEmpty() || empty;
+        if (empty) {
+            // maintaining these indexes during a bulk load costs more than building them once afterwards
+            dropIndex(LOOKUP_INDEX);
+            dropIndex(SOURCE_INDEX);
+        }
+
+        AtomicLong unchanged = new AtomicLong();
+        AtomicLong parsed = new AtomicLong();
+        AtomicLong advisories = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        Semaphore inFlight = new Semaphore(workers * 2);
+        try {
+            for (int from = 0; from < files.size(); from += batchSize) {
+                List<Source> batch = files.subList(from, Math.min(files.size(), from + batchSize));
+                inFlight.acquireUninterruptibly();
+                pool.execute(() -> {
+                    try {
+                        loadBatch(batch, result.full ? Collections.emptyMap() : known, known, unchanged, parsed, advisories, errors);
+                    } catch (RuntimeException ex) {
+                        errors.addAndGet(batch.size());
+                        log.println("Batch starting at " + batch.get(0).name() + " failed: " + ex.getMessage());
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                // batches not yet written would look like removed files; leave all of that to the next load
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while loading advisories", ex);
+            }
+        }
+
+        // whatever was loaded before but is no longer in the dump
+        Set<String> present = new HashSet<>(files.size() * 2);
+        for (Source s : files) present.add(s.name());
+        List<String> removed = new ArrayList<>();
+        for (String name : known.keySet()) {
+            if (!present.contains(name)) removed.add(name);
+        }
+        for (int from = 0; from < removed.size(); from += batchSize) {
+            List<String> names = removed.subList(from, Math.min(removed.size(), from + batchSize));
+            vulnCol.deleteMany(Filters.in("sourceFile", names));
+            sources.deleteMany(Filters.in("_id", names));
+        }
+
+        vulnCol.createIndex(LOOKUP_INDEX);
+        vulnCol.createIndex(SOURCE_INDEX);
+
+        result.unchanged = unchanged.get();
+        result.parsed = parsed.get();
+        result.advisories = advisories.get();
+        result.errors = errors.get();
+        result.removedFiles = removed.size();
+        result.elapsedMillis = System.currentTimeMillis() - start;
+    }
+
+    private void dropIndex(Bson keys) {
+        try {
+            vulnCol.dropIndex(keys);
+        } catch (MongoCommandException ex) {
+            if (ex.getErrorCode() != INDEX_NOT_FOUND) throw ex;
+        }
+    }
+
+    /**
+     * Parses the changed files of one batch and writes them with one unordered bulkWrite. Their
+     * fingerprints are recorded only after that succeeded, so a failed batch is retried next time.
+     */
+    private void loadBatch(List<Source> batch, Map<String, String> skipIfSame, Map<String, String> known,
+                           AtomicLong unchanged, AtomicLong parsed, AtomicLong advisories, AtomicLong errors) {
+        List<WriteModel<Document>> writes = new ArrayList<>();
+        List<WriteModel<Document>> fingerprints = new ArrayList<>();
+        ReplaceOptions upsert = new ReplaceOptions().upsert(true);
+        for (Source s : batch) {
+            String fingerprint = s.fingerprint();
+            if (fingerprint.equals(skipIfSame.get(s.name()))) {
+                unchanged.incrementAndGet();
+                continue;
+            }
+            List<Document> docs;
+            try {
+                docs = normalize(Document.parse(new String(s.read(), StandardCharsets.UTF_8)), s.name());
+            } catch (IOException | RuntimeException ex) {
+                errors.incrementAndGet();
+                log.println(s.name() + ": " + ex.getMessage());
+                continue;
+            }
+            List<Object> ids = new ArrayList<>(docs.size());
+            for (Document d : docs) {
+                ids.add(d.get("_id"));
+                writes.add(new ReplaceOneModel<>(Filters.eq("_id", d.get("_id")), d, upsert));
+            }
+            if (known.containsKey(s.name())) {
+                writes.add(new DeleteManyModel<>(Filters.and(Filters.eq("sourceFile", s.name()), Filters.nin("_id", ids))));
+            }
+            fingerprints.add(new ReplaceOneModel<>(Filters.eq("_id", s.name()),
+                    new Document("_id", s.name()).append("fingerprint", fingerprint), upsert));
+            parsed.incrementAndGet();
+            advisories.addAndGet(docs.size());
+        }
+        if (!writes.isEmpty()) vulnCol.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+        if (!fingerprints.isEmpty()) sources.bulkWrite(fingerprints, new BulkWriteOptions().ordered(false));
+    }
+
+    /** The vulnerabilities documents for one OSV record; none if it is withdrawn or has no Maven ranges. */
+    static List<Document> normalize(Document osv, String sourceFile) {
+        List<Document> out = new ArrayList<>();
+        String id = osv.getString("id");
+        if (id == null) throw new IllegalArgumentException("not an OSV record (no id)");
+        if (osv.get("withdrawn") != null) return out;
+
+        String cve = id;
+        for (Object alias : osv.getList("aliases", Object.class, Collections.emptyList())) {
+            if (alias instanceof String && ((String) alias).startsWith("CVE-")) {
+                cve = (String) alias;
+                break;
+            }
+        }
+        String recordSeverity = severity(osv.get("database_specific", Document.class));
+
+        Set<String> seen = new LinkedHashSet<>();
+        for (Document affected : osv.getList("affected", Document.class, Collections.emptyList())) {
+            Document pkg = affected.get("package", Document.class);
+            if (pkg == null || !"Maven".equals(pkg.getString("ecosystem"))) continue;
+            String name = pkg.getString("name");
+            int colon = name == null ? -1 : name.indexOf(':');
+            if (colon <= 0) continue;
+            String groupId = name.substring(0, colon);
+            String artifactId = name.substring(colon + 1);
+            String severity = severity(affected.get("ecosystem_specific", Document.class));
+            if (severity == null) severity = severity(affected.get("database_specific", Document.class));
+            if (severity == null) severity = recordSeverity != null ? recordSeverity : "UNKNOWN";
+
+            List<String[]> ranges = new ArrayList<>();   // {spec, patchedVersion}
+            for (Document range : affected.getList("ranges", Document.class, Collections.emptyList())) {
+                if ("ECOSYSTEM".equals(range.getString("type"))) ranges.addAll(toRanges(range));
+            }
+            if (ranges.isEmpty()) {
+                // no ranges: the record lists the affected versions one by one
+                StringBuilder spec = new StringBuilder();
+                for (Object v : affected.getList("versions", Object.class, Collections.emptyList())) {
+                    if (spec.length() > 0) spec.append(',');
+                    spec.append('[').append(v).append(']');
+                }
+                if (spec.length() > 0) ranges.add(new String[]{spec.toString(), null});
+            }
+            for (String[] r : ranges) {
+                VersionRange.parse(r[0]);   // reject what ProjectDAO could not match later
+                String docId = id + "|" + groupId + ":" + artifactId + "|" + r[0];
+                if (!seen.add(docId)) continue;
+                out.add(new Document("_id", docId)
+                        .append("groupId", groupId)
+                        .append("artifactId", artifactId)
+                        .append("vulnerableVersion", r[0])
+                        .append("cve", cve)
+                        .append("severity", severity)
+                        .append("patchedVersion", r[1])
+                        .append("recommendation", r[1] != null ? "Upgrade to " + r[1] + " or later"
+                                : summary(osv))
+                        .append("osvId", id)
+                        .append("sourceFile", sourceFile));
+            }
+        }
+        return out;
+    }
+
+    /** One Maven range per introduced..fixed / introduced..last_affected pair of an ECOSYSTEM range. */
+    private static List<String[]> toRanges(Document range) {
+        List<String[]> out = new ArrayList<>();
+        String introduced = null;
+        boolean open = false;
+        for (Document event : range.getList("events", Document.class, Collections.emptyList())) {
+            if (event.containsKey("introduced")) {
+                introduced = event.getString("introduced");
+                open = true;
+            } else if (event.containsKey("fixed") && open) {
+                String fixed = event.getString("fixed");
+                out.add(new String[]{lower(introduced) + "," + fixed + ")", fixed});
+                open = false;
+            } else if (event.containsKey("last_affected") && open) {
+                out.add(new String[]{lower(introduced) + "," + event.getString("last_affected") + "]", null});
+                open = false;
+            }
+        }
+        if (open) out.add(new String[]{lower(introduced) + ",)", null});
+        return out;
+    }
+
+    private static String lower(String introduced) {
+        return introduced == null || introduced.equals("0") ? "(" : "[" + introduced;
+    }
+
+    /** GHSA-style "severity" (HIGH, MODERATE, ...) upper-cased, MODERATE as MEDIUM; null if absent. */
+    private static String severity(Document specific) {
+        if (specific == null || !(specific.get("severity") instanceof String)) return null;
+        String s = specific.getString("severity").toUpperCase(Locale.ROOT);
+        return s.equals("MODERATE") ? "MEDIUM" : s;
+    }
+
+    private static String summary(Document osv) {
+        String summary = osv.getString("summary");
+        return summary != null ? summary : "No fixed version published; see " + osv.getString("id");
+    }
+
+    private static Source fileSource(Path root, Path file) {
+        String name = root.relativize(file).toString().replace('\\', '/');
+        return new Source() {
+            public String name() { return name; }
+
+            public String fingerprint() {
+                try {
+                    BasicFileAttributes a = Files.readAttributes(file, BasicFileAttributes.class);
+                    return a.size() + ":" + a.lastModifiedTime().toMillis();
+                } catch (IOException ex) {
+                    return "unreadable";
+                }
+            }
+
+            public byte[] read() throws IOException { return Files.readAllBytes(file); }
+        };
+    }
+
+    private static Source zipSource(ZipFile zip, ZipEntry entry) {
+        return new Source() {
+            public String name() { return entry.getName(); }
+            public String fingerprint() { return Long.toHexString(entry.getCrc()) + ":" + entry.getSize(); }
+
+            public byte[] read() throws IOException {
+                try (InputStream in = zip.getInputStream(entry)) {
+                    return in.readAllBytes();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,225 @@
+package com.inventory.ingest;
+
+import com.inventory.dao.HardwareStore;
+import com.inventory.model.HardwareItem;
+import com.inventory.util.Config;
+import org.bson.Document;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk-loads hardware items from a CSV or JSON Lines file.
+ *
+ * The file is read line by line and written in unordered bulkWrite batches of {@code batchSize}
+ * rows by a small pool of writer threads, so parsing overlaps with the round-trips and only a few
+ * batches are held in memory at any time. Duplicate serial numbers and malformed rows are reported
+ * per line (to {@code log}) without aborting the rest of the batch.
+ *
+ * CSV files need a header row naming the columns (name, serialNumber, location, status, in any order).
+ * JSONL files hold one JSON object per line with the same field names.
+ */
+public class HardwareImporter {
+    private static final long PROGRESS_INTERVAL_MS = 2000;
+
+    private final HardwareStore dao;
+    private final int batchSize;
+    private final int writers;
+    private final PrintStream log;
+
+    public static class Result {
+        public long rows;
+        public long inserted;
+        public long duplicates;
+        public long errors;
+        public long elapsedMillis;
+
+        public double rowsPerSecond() {
+            return elapsedMillis == 0 ? rows : rows * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "Imported %d of %d rows (%d duplicates, %d errors) in %.1fs, %.0f rows/s",
+                    inserted, rows, duplicates, errors, elapsedMillis / 1000.0, rowsPerSecond());
+        }
+    }
+
+    public HardwareImporter(HardwareStore dao) {
+        this(dao, Config.getInt("inventory.import.batchSize", 1000),
+                Config.getInt("inventory.import.writers", 4), System.out);
+    }
+
+    public HardwareImporter(HardwareStore dao, int batchSize, int writers, PrintStream log) {
+        this.dao = dao;
+        this.batchSize = Math.max(1, batchSize);
+        this.writers = Math.max(1, writers);
+        this.log = log;
+    }
+
+    public Result importFile(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        boolean csv = name.endsWith(".csv");
+        if (!csv && !name.endsWith(".jsonl") && !name.endsWith(".ndjson")) {
+            throw new IllegalArgumentException("Unsupported file type (expected .csv, .jsonl or .ndjson): " + file);
+        }
+
+        Result result = new Result();
+        AtomicLong inserted = new AtomicLong();
+        AtomicLong duplicates = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long start = System.currentTimeMillis();
+        long lastProgress = start;
+
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        Semaphore inFlight = new Semaphore(writers * 2);
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String[] header = null;
+            if (csv) {
+                String first = in.readLine();
+                if (first == null) return result;
+                header = parseCsvLine(first).toArray(new String[0]);
+            }
+
+            List<HardwareItem> items = new ArrayList<>(batchSize);
+            List<Long> lineNumbers = new ArrayList<>(batchSize);
+            long lineNo = csv ? 1 : 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+                result.rows++;
+                try {
+                    items.add(csv ? fromCsv(header, line) : fromJson(line));
+                    lineNumbers.add(lineNo);
+                } catch (RuntimeException ex) {
+                    errors.incrementAndGet();
+                    log.println("line " + lineNo + ": " + ex.getMessage());
+                }
+
+                if (items.size() == batchSize) {
+                    submit(pool, inFlight, items, lineNumbers, inserted, duplicates, errors);
+                    items = new ArrayList<>(batchSize);
+                    lineNumbers = new ArrayList<>(batchSize);
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - lastProgress >= PROGRESS_INTERVAL_MS) {
+                    lastProgress = now;
+                    log.printf(Locale.ROOT, "  %d rows read, %d inserted, %.0f rows/s%n",
+                            result.rows, inserted.get(), result.rows * 1000.0 / (now - start));
+                }
+            }
+            if (!items.isEmpty()) submit(pool, inFlight, items, lineNumbers, inserted, duplicates, errors);
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        result.inserted = inserted.get();
+        result.duplicates = duplicates.get();
+        result.errors = errors.get();
+        result.elapsedMillis = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    private void submit(ExecutorService pool, Semaphore inFlight, List<HardwareItem> items, List<Long> lineNumbers,
+                        AtomicLong inserted, AtomicLong duplicates, AtomicLong errors) {
+        inFlight.acquireUninterruptibly();
+        pool.execute(() -> {
+            try {
+                HardwareStore.BulkResult r = dao.bulkInsert(items);
+                inserted.addAndGet(r.getInserted());
+                for (HardwareStore.BulkResult.RowError e : r.getErrors()) {
+                    long lineNo = lineNumbers.get(e.index);
+                    if (e.duplicate) {
+                        duplicates.incrementAndGet();
+                        log.println("line " + lineNo + ": duplicate serial number " + items.get(e.index).getSerialNumber());
+                    } else {
+                        errors.incrementAndGet();
+                        log.println("line " + lineNo + ": " + e.message);
+                    }
+                }
+            } catch (RuntimeException ex) {
+                errors.addAndGet(items.size());
+                log.println("lines " + lineNumbers.get(0) + "-" + lineNumbers.get(lineNumbers.size() - 1) +
+                        ": batch failed: " + ex.getMessage());
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private static HardwareItem fromJson(String line) {
+        Document doc = Document.parse(line);
+        return new HardwareItem(doc.getString("name"), doc.getString("serialNumber"),
+                doc.getString("location"), doc.getString("status"));
+    }
+
+    private static HardwareItem fromCsv(String[] header, String line) {
+        List<String> values = parseCsvLine(line);
+        if (values.size() != header.length) {
+            throw new IllegalArgumentException("expected " + header.length + " columns but found " + values.size());
+        }
+        HardwareItem item = new HardwareItem();
+        for (int i = 0; i < header.length; i++) {
+            String v = values.get(i);
+            switch (header[i].trim()) {
+                case "name": item.setName(v); break;
+                case "serialNumber": item.setSerialNumber(v); break;
+                case "location": item.setLocation(v); break;
+                case "status": item.setStatus(v); break;
+                default: break;
+            }
+        }
+        return item;
+    }
+
+    /** Splits one CSV line, honouring double-quoted fields with "" escapes. */
+    static List<String> parseCsvLine(String line) {
+        List<String> out = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        cur.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    cur.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                out.add(cur.toString().trim());
+                cur.setLength(0);
+            } else {
+                cur.append(c);
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("unterminated quoted field");
+        out.add(cur.toString().trim());
+        return out;
+    }
+}
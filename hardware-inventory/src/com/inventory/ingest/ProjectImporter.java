@@ -0,0 +1,434 @@
+package com.inventory.ingest;
+
+import com.inventory.dao.ProjectStore;
+import com.inventory.model.Dependency;
+import com.inventory.model.Project;
+import com.inventory.resolve.Pom;
+import com.inventory.resolve.PomReader;
+import com.inventory.util.Config;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.json.JsonReader;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Creates or updates a project from a build manifest:
+ * <ul>
+ *   <li>CycloneDX JSON SBOM ({@code *.json}): every component with a Maven purl, or with group,
+ *       name and version, including nested components. The project is named after
+ *       metadata.component.</li>
+ *   <li>{@code pom.xml} / {@code *.pom}: the declared dependencies except test and import scope,
+ *       with the POM's own ${properties} filled in. The project is named groupId:artifactId.</li>
+ *   <li>{@code gradle.lockfile}: every locked module except those only on test configurations.
+ *       The project is named after the directory holding the lockfile.</li>
+ * </ul>
+ *
+ * SBOMs are read with a streaming JSON reader, and lockfiles line by line, so a file of any size
+ * is never held in memory. Only the set of coordinates seen so far is kept, to drop duplicates.
+ * Dependencies are written in batches of {@code inventory.import.dependencyBatchSize} (default
+ * 1000) with one $push per batch.
+ *
+ * A project with the same name is updated rather than duplicated. Coordinates it already has are
+ * left alone, new ones are appended, and ones the manifest no longer lists are removed at the end.
+ * A directory is imported with {@code inventory.import.projectWorkers} (default 4) files in
+ * parallel. Each project should come from one manifest: imports that resolve to the same project
+ * name run one after the other, so the last one to finish decides the project's dependencies.
+ */
+public class ProjectImporter {
+    private final ProjectStore dao;
+    private final int batchSize;
+    private final int workers;
+    private final PrintStream log;
+    // one import per project name at a time (striped by name), from find-or-create until its removals
+    // are done, so files imported in parallel neither both create a project nor $pull each other's dependencies
+    private final ReentrantLock[] projectLocks = new ReentrantLock[64];
+
+    public enum Format { CYCLONEDX, POM, GRADLE_LOCKFILE }
+
+    public static class Result {
+        public String source;
+        public String projectId;
+        public String projectName;
+        public boolean created;
+        public long dependencies;
+        public long added;
+        public long removed;
+        public long skipped;
+        public long elapsedMillis;
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s -> %s project %s (%s): %d dependencies, %d added, %d removed, %d skipped in %d ms",
+                    source, created ? "created" : "updated", projectName, projectId, dependencies, added, removed,
+                    skipped, elapsedMillis);
+        }
+    }
+
+    public ProjectImporter(ProjectStore dao) {
+        this(dao, Config.getInt("inventory.import.dependencyBatchSize", 1000),
+                Config.getInt("inventory.import.projectWorkers", 4), System.out);
+    }
+
+    public ProjectImporter(ProjectStore dao, int batchSize, int workers, PrintStream log) {
+        this.dao = dao;
+        this.batchSize = Math.max(1, batchSize);
+        this.workers = Math.max(1, workers);
+        this.log = log;
+        for (int i = 0; i < projectLocks.length; i++) projectLocks[i] = new ReentrantLock();
+    }
+
+    /** The format of a manifest file by name, or null if it is not one this importer reads. */
+    public static Format formatOf(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.equals("pom.xml") || name.endsWith(".pom")) return Format.POM;
+        if (name.endsWith(".lockfile")) return Format.GRADLE_LOCKFILE;
+        if (name.endsWith(".json")) return Format.CYCLONEDX;
+        return null;
+    }
+
+    /** Parses a format name as accepted on the command line and over HTTP (cyclonedx, pom, gradle-lockfile). */
+    public static Format parseFormat(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "cyclonedx": case "sbom": return Format.CYCLONEDX;
+            case "pom": case "maven": return Format.POM;
+            case "gradle-lockfile": case "lockfile": case "gradle": return Format.GRADLE_LOCKFILE;
+            default: throw new IllegalArgumentException("Unknown manifest format: " + name);
+        }
+    }
+
+    public Result importFile(Path file) throws IOException {
+        Format format = formatOf(file);
+        if (format == null) {
+            throw new IllegalArgumentException("Unsupported file (expected *.json CycloneDX, pom.xml or gradle.lockfile): " + file);
+        }
+        // a lockfile says nothing about its project, so it is named after its directory
+        Path dir = file.toAbsolutePath().getParent();
+        String fallbackName = format == Format.GRADLE_LOCKFILE && dir != null
+                ? dir.getFileName().toString() : file.getFileName().toString();
+        try (InputStream in = Files.newInputStream(file)) {
+            return importStream(in, format, fallbackName, file.toString());
+        }
+    }
+
+    /**
+     * Imports a manifest read from {@code in}. {@code fallbackName} names the project when the
+     * manifest does not (always the case for lockfiles).
+     */
+    public Result importStream(InputStream in, Format format, String fallbackName, String source) throws IOException {
+        ProjectSink sink = new ProjectSink(source, fallbackName);
+        try {
+            switch (format) {
+                case CYCLONEDX: readCycloneDx(in, sink); break;
+                case POM: readPom(in, sink); break;
+                case GRADLE_LOCKFILE: readLockfile(in, sink); break;
+                default: throw new IllegalStateException(format.toString());
+            }
+            return sink.finish();
+        } finally {
+            sink.release();
+        }
+    }
+
+    /** Imports every manifest under {@code dir} (recursively), several files at a time; failures are logged and skipped. */
+    public List<Result> importDirectory(Path dir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            files = walk.filter(Files::isRegularFile).filter(f -> formatOf(f) != null).sorted().collect(Collectors.toList());
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            Map<Path, Future<Result>> pending = new LinkedHashMap<>();
+            for (Path f : files) pending.put(f, pool.submit(() -> importFile(f)));
+            List<Result> results = new ArrayList<>(files.size());
+            for (Map.Entry<Path, Future<Result>> e : pending.entrySet()) {
+                try {
+                    Result r = e.getValue().get();
+                    log.println(r);
+                    results.add(r);
+                } catch (ExecutionException ex) {
+                    log.println(e.getKey() + ": " + ex.getCause().getMessage());
+                }
+            }
+            return results;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while importing " + dir, ex);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // ---- CycloneDX ----
+
+    private void readCycloneDx(InputStream in, ProjectSink sink) {
+        BsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "bomFormat": {
+                    String format = readString(reader);
+                    if (!"CycloneDX".equals(format)) throw new IllegalArgumentException("Not a CycloneDX SBOM (bomFormat " + format + ")");
+                    break;
+                }
+                case "metadata": readMetadata(reader, sink); break;
+                case "components": readComponents(reader, sink); break;
+                default: reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+    }
+
+    private void readMetadata(BsonReader reader, ProjectSink sink) {
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            if (reader.readName().equals("component") && reader.getCurrentBsonType() == BsonType.DOCUMENT) {
+                Map<String, String> c = readComponentFields(reader, null);
+                String group = c.get("group");
+                String name = c.get("name");
+                if (name != null) sink.name(group == null || group.isEmpty() ? name : group + ":" + name);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+    }
+
+    private void readComponents(BsonReader reader, ProjectSink sink) {
+        if (reader.getCurrentBsonType() != BsonType.ARRAY) {
+            reader.skipValue();
+            return;
+        }
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            if (reader.getCurrentBsonType() != BsonType.DOCUMENT) {
+                reader.skipValue();
+                continue;
+            }
+            Map<String, String> c = readComponentFields(reader, sink);
+            Dependency d = toDependency(c);
+            if (d != null) {
+                sink.add(d);
+            } else {
+                sink.skipped++;
+            }
+        }
+        reader.readEndArray();
+    }
+
+    /** The component's string fields; nested components go straight to {@code sink} (null: skip them). */
+    private Map<String, String> readComponentFields(BsonReader reader, ProjectSink sink) {
+        Map<String, String> fields = new HashMap<>();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            if (name.equals("components") && sink != null) {
+                readComponents(reader, sink);
+            } else if (reader.getCurrentBsonType() == BsonType.STRING) {
+                fields.put(name, reader.readString());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return fields;
+    }
+
+    /** A Maven coordinate from the component's purl, else from group/name/version; null if it has none. */
+    static Dependency toDependency(Map<String, String> c) {
+        if ("excluded".equals(c.get("scope"))) return null;
+        String purl = c.get("purl");
+        if (purl != null && purl.startsWith("pkg:")) {
+            if (!purl.startsWith("pkg:maven/")) return null;
+            String rest = purl.substring("pkg:maven/".length());
+            int cut = rest.length();
+            for (char ch : new char[]{'?', '#'}) {
+                int i = rest.indexOf(ch);
+                if (i >= 0 && i < cut) cut = i;
+            }
+            rest = rest.substring(0, cut);
+            int at = rest.lastIndexOf('@');
+            int slash = rest.lastIndexOf('/', at < 0 ? rest.length() : at);
+            if (at < 0 || slash < 0) return null;
+            return new Dependency(decode(rest.substring(0, slash)), decode(rest.substring(slash + 1, at)),
+                    decode(rest.substring(at + 1)));
+        }
+        String group = c.get("group");
+        String name = c.get("name");
+        String version = c.get("version");
+        if (group == null || group.isEmpty() || name == null || version == null) return null;
+        return new Dependency(group, name, version);
+    }
+
+    private static String decode(String s) {
+        return URLDecoder.decode(s.replace("+", "%2B"), StandardCharsets.UTF_8);
+    }
+
+    private static String readString(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.STRING) return reader.readString();
+        reader.skipValue();
+        return null;
+    }
+
+    // ---- pom.xml ----
+
+    private void readPom(InputStream in, ProjectSink sink) throws IOException {
+        Pom pom;
+        try {
+            pom = PomReader.read(in);
+        } catch (XMLStreamException ex) {
+            throw new IOException("Malformed POM " + sink.source + ": " + ex.getMessage(), ex);
+        }
+        if (pom.getArtifactId() != null) {
+            sink.name(pom.getGroupId() == null ? pom.getArtifactId() : pom.getGroupId() + ":" + pom.getArtifactId());
+        }
+        for (Pom.Dep d : pom.getDependencies()) {
+            String scope = d.getScope() == null ? "compile" : pom.interpolate(d.getScope());
+            String version = pom.interpolate(d.getVersion());
+            if (scope.equals("test") || scope.equals("import")) {
+                sink.skipped++;
+            } else if (version == null || version.contains("${")) {
+                // managed by a parent or BOM that is not part of this file
+                log.println(sink.source + ": no version for " + d.getGroupId() + ":" + d.getArtifactId() + ", skipped");
+                sink.skipped++;
+            } else {
+                sink.add(new Dependency(pom.interpolate(d.getGroupId()), pom.interpolate(d.getArtifactId()), version));
+            }
+        }
+    }
+
+    // ---- gradle.lockfile ----
+
+    private void readLockfile(InputStream in, ProjectSink sink) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("empty=")) continue;
+            int eq = line.indexOf('=');
+            String[] gav = (eq < 0 ? line : line.substring(0, eq)).split(":");
+            if (gav.length != 3) {
+                sink.skipped++;
+                continue;
+            }
+            boolean testOnly = eq >= 0;
+            if (eq >= 0) {
+                for (String conf : line.substring(eq + 1).split(",")) {
+                    if (!conf.trim().startsWith("test")) testOnly = false;
+                }
+            }
+            if (testOnly) {
+                sink.skipped++;
+            } else {
+                sink.add(new Dependency(gav[0], gav[1], gav[2]));
+            }
+        }
+    }
+
+    /**
+     * Collects one manifest's dependencies and writes them in batches. The project is looked up
+     * (or created) on the first write, so a name found early in the file is used, and the name's
+     * lock is held from then until {@link #release()}.
+     */
+    private final class ProjectSink {
+        final String source;
+        String name;
+        long skipped;
+
+        private final Result result = new Result();
+        private final long start = System.currentTimeMillis();
+        private final Set<String> seen = new HashSet<>();
+        private final Map<String, Dependency> existing = new HashMap<>();
+        private List<Dependency> batch = new ArrayList<>();
+        private ReentrantLock projectLock;
+
+        ProjectSink(String source, String fallbackName) {
+            this.source = source;
+            this.name = fallbackName;
+        }
+
+        /** Names the project; ignored once it has been opened. */
+        void name(String name) {
+            if (result.projectId == null) this.name = name;
+        }
+
+        void add(Dependency d) {
+            if (!seen.add(d.toString())) return;
+            batch.add(d);
+            if (batch.size() >= batchSize) flush();
+        }
+
+        private void open() {
+            projectLock = projectLocks[Math.floorMod(name.hashCode(), projectLocks.length)];
+            projectLock.lock();
+            result.projectName = name;
+            result.projectId = dao.findIdByName(name);
+            if (result.projectId == null) {
+                result.projectId = dao.create(new Project(name, "Imported from " + source));
+                result.created = true;
+                return;
+            }
+            Project p = dao.read(result.projectId);
+            if (p != null) {
+                for (Dependency d : p.getDependencies()) existing.put(d.toString(), d);
+            }
+        }
+
+        private void flush() {
+            if (result.projectId == null) open();
+            List<Dependency> fresh = new ArrayList<>(batch.size());
+            for (Dependency d : batch) {
+                if (existing.remove(d.toString()) == null) fresh.add(d);
+            }
+            batch = new ArrayList<>();
+            if (fresh.isEmpty()) return;
+            if (!dao.addDependencies(result.projectId, fresh)) {
+                throw new IllegalStateException("Project " + result.projectId + " was deleted during the import");
+            }
+            result.added += fresh.size();
+        }
+
+        Result finish() {
+            flush();
+            // whatever the project had that the manifest did not list is gone from the build
+            if (!existing.isEmpty()) {
+                dao.removeDependencies(result.projectId, existing.values());
+                result.removed = existing.size();
+            }
+            result.source = source;
+            result.dependencies = seen.size();
+            result.skipped = skipped;
+            result.elapsedMillis = System.currentTimeMillis() - start;
+            return result;
+        }
+
+        void release() {
+            if (projectLock != null) projectLock.unlock();
+            projectLock = null;
+        }
+    }
+}
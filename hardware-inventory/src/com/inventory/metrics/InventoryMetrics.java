@@ -0,0 +1,13 @@
+package com.inventory.metrics;
+
+/** Standard MBean backed by the static {@link Metrics} registry. */
+public class InventoryMetrics implements InventoryMetricsMBean {
+    @Override public String[] getLatencies() { return Metrics.histogramLines().toArray(new String[0]); }
+    @Override public int getOpenConnections() { return Metrics.poolListener().getOpenConnections(); }
+    @Override public int getCheckedOutConnections() { return Metrics.poolListener().getCheckedOutConnections(); }
+    @Override public long getPeakCheckedOutConnections() { return Metrics.poolListener().getPeakCheckedOutConnections(); }
+    @Override public long getCheckOutFailures() { return Metrics.poolListener().getCheckOutFailures(); }
+    @Override public long getFailedCommands() { return Metrics.commandListener().getFailedCount(); }
+    @Override public long getSlowCommands() { return Metrics.commandListener().getSlowCount(); }
+    @Override public void reset() { Metrics.reset(); }
+}
@@ -0,0 +1,14 @@
+package com.inventory.metrics;
+
+/** JMX view of {@link Metrics}, registered as com.inventory:type=Metrics. */
+public interface InventoryMetricsMBean {
+    /** One line per DAO method / command: count, mean, p50, p99, p999, max. */
+    String[] getLatencies();
+    int getOpenConnections();
+    int getCheckedOutConnections();
+    long getPeakCheckedOutConnections();
+    long getCheckOutFailures();
+    long getFailedCommands();
+    long getSlowCommands();
+    void reset();
+}
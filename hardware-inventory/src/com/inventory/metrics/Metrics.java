@@ -0,0 +1,82 @@
+package com.inventory.metrics;
+
+import com.inventory.util.Config;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Process-wide metrics: one {@link LatencyHistogram} per DAO method plus the MongoDB driver
+ * command and connection-pool listeners. Everything is readable through {@link #report()}
+ * (the "stats" menu) and over JMX as {@code com.inventory:type=Metrics}.
+ *
+ * DAO methods look their histogram up once and time themselves with it:
+ * <pre>
+ *   private static final LatencyHistogram READ_LATENCY = Metrics.histogram("HardwareDAO.read");
+ *   ...
+ *   long start = System.nanoTime();
+ *   try { ... } finally { READ_LATENCY.recordSince(start); }
+ * </pre>
+ * {@link #reset()} clears histograms in place, so handles held this way stay valid.
+ */
+public final class Metrics {
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final MongoCommandMetrics COMMANDS =
+            new MongoCommandMetrics(Config.getLong("inventory.metrics.slowCommandMs", 100));
+    private static final MongoPoolMetrics POOL = new MongoPoolMetrics();
+    private static volatile boolean registered;
+
+    private Metrics() {}
+
+    /** The histogram registered under {@code name}, created on first use. */
+    public static LatencyHistogram histogram(String name) {
+        LatencyHistogram h = HISTOGRAMS.get(name);
+        return h != null ? h : HISTOGRAMS.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    public static MongoCommandMetrics commandListener() { return COMMANDS; }
+
+    public static MongoPoolMetrics poolListener() { return POOL; }
+
+    /** Registers the JMX MBean once; safe to call repeatedly. */
+    public static synchronized void registerMBean() {
+        if (registered) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(new InventoryMetrics(), new ObjectName("com.inventory:type=Metrics"));
+            registered = true;
+        } catch (JMException ex) {
+            System.err.println("Could not register metrics MBean: " + ex.getMessage());
+        }
+    }
+
+    static List<String> histogramLines() {
+        List<String> lines = new ArrayList<>();
+        for (LatencyHistogram h : new ConcurrentSkipListMap<>(HISTOGRAMS).values()) {
+            if (h.getCount() > 0) lines.add(h.toString());
+        }
+        return lines;
+    }
+
+    public static String report() {
+        StringBuilder sb = new StringBuilder("DAO and command latencies:\n");
+        for (String line : histogramLines()) sb.append("  ").append(line).append('\n');
+        sb.append(POOL).append('\n');
+        sb.append("Failed commands: ").append(COMMANDS.getFailedCount())
+                .append(", slow commands (>").append(COMMANDS.getSlowThresholdMs()).append("ms): ")
+                .append(COMMANDS.getSlowCount());
+        return sb.toString();
+    }
+
+    public static void reset() {
+        for (LatencyHistogram h : HISTOGRAMS.values()) h.reset();
+        COMMANDS.reset();
+        POOL.reset();
+    }
+}
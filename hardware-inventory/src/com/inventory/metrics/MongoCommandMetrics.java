@@ -0,0 +1,144 @@
+package com.inventory.metrics;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Driver CommandListener: a latency histogram per command name ("mongo.find", "mongo.update", ...)
+ * and a log line on stderr for every command slower than the threshold.
+ *
+ * getMores on change streams and tailable cursors are left out of both: the server holds them
+ * until data arrives or its await time (a second by default) runs out, so their duration is idle
+ * time, not latency. Such cursors are recognised by the $changeStream aggregate or tailable find
+ * that opened them.
+ */
+public class MongoCommandMetrics implements CommandListener {
+    private final long slowThresholdMs;
+    // requestId -> target collection of in-flight commands, for the slow-command log
+    private final Map<Integer, String> targets = new ConcurrentHashMap<>();
+    // requestIds of commands opening an awaiting cursor, the ids of those cursors,
+    // and requestId -> cursor id of getMores in flight on them
+    private final Set<Integer> opening = ConcurrentHashMap.newKeySet();
+    private final Set<Long> awaitCursors = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, Long> awaiting = new ConcurrentHashMap<>();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder slow = new LongAdder();
+    // command name -> its "mongo.<name>" histogram, so an event builds no string
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    public MongoCommandMetrics(long slowThresholdMs) {
+        this.slowThresholdMs = slowThresholdMs;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        BsonValue target = event.getCommand().get(event.getCommandName());
+        if (target != null && target.isString()) {
+            targets.put(event.getRequestId(), event.getDatabaseName() + "." + target.asString().getValue());
+        }
+        BsonDocument command = event.getCommand();
+        switch (event.getCommandName()) {
+            case "aggregate":
+                if (isChangeStream(command.get("pipeline"))) opening.add(event.getRequestId());
+                break;
+            case "find":
+                if (isTrue(command.get("tailable")) && isTrue(command.get("awaitData"))) opening.add(event.getRequestId());
+                break;
+            case "getMore":
+                BsonValue id = command.get("getMore");
+                if (id != null && id.isNumber() && awaitCursors.contains(id.asNumber().longValue())) {
+                    awaiting.put(event.getRequestId(), id.asNumber().longValue());
+                }
+                break;
+            case "killCursors":
+                BsonValue cursors = command.get("cursors");
+                if (cursors != null && cursors.isArray()) {
+                    for (BsonValue c : cursors.asArray()) {
+                        if (c.isNumber()) awaitCursors.remove(c.asNumber().longValue());
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        if (opening.remove(event.getRequestId())) {
+            long cursorId = cursorId(event.getResponse());
+            if (cursorId != 0) awaitCursors.add(cursorId);
+        }
+        Long awaited = awaiting.remove(event.getRequestId());
+        if (awaited != null) {
+            if (cursorId(event.getResponse()) == 0) awaitCursors.remove(awaited);
+            targets.remove(event.getRequestId());
+            return;
+        }
+        long nanos = event.getElapsedTime(TimeUnit.NANOSECONDS);
+        histogram(event.getCommandName()).record(nanos);
+        finish(event.getRequestId(), event.getCommandName(), nanos, "ok");
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        opening.remove(event.getRequestId());
+        Long awaited = awaiting.remove(event.getRequestId());
+        if (awaited != null) awaitCursors.remove(awaited);
+        failed.increment();
+        long nanos = event.getElapsedTime(TimeUnit.NANOSECONDS);
+        histogram(event.getCommandName()).record(nanos);
+        finish(event.getRequestId(), event.getCommandName(), nanos, "failed: " + event.getThrowable().getMessage());
+    }
+
+    private LatencyHistogram histogram(String commandName) {
+        LatencyHistogram h = histograms.get(commandName);
+        return h != null ? h : histograms.computeIfAbsent(commandName, n -> Metrics.histogram("mongo." + n));
+    }
+
+    private void finish(int requestId, String commandName, long nanos, String outcome) {
+        String target = targets.remove(requestId);
+        if (TimeUnit.NANOSECONDS.toMillis(nanos) >= slowThresholdMs) {
+            slow.increment();
+            System.err.printf("Slow MongoDB command: %s on %s took %.1f ms (%s)%n",
+                    commandName, target != null ? target : "?", nanos / 1e6, outcome);
+        }
+    }
+
+    private static boolean isChangeStream(BsonValue pipeline) {
+        if (pipeline == null || !pipeline.isArray() || pipeline.asArray().isEmpty()) return false;
+        BsonValue first = pipeline.asArray().get(0);
+        return first.isDocument() && first.asDocument().containsKey("$changeStream");
+    }
+
+    private static boolean isTrue(BsonValue value) {
+        return value != null && value.isBoolean() && value.asBoolean().getValue();
+    }
+
+    /** The cursor id in a find/aggregate/getMore reply, 0 when exhausted or absent. */
+    private static long cursorId(BsonDocument response) {
+        BsonValue cursor = response != null ? response.get("cursor") : null;
+        if (cursor == null || !cursor.isDocument()) return 0;
+        BsonValue id = cursor.asDocument().get("id");
+        return id != null && id.isNumber() ? id.asNumber().longValue() : 0;
+    }
+
+    public long getSlowThresholdMs() { return slowThresholdMs; }
+    public long getFailedCount() { return failed.sum(); }
+    public long getSlowCount() { return slow.sum(); }
+
+    void reset() {
+        failed.reset();
+        slow.reset();
+    }
+}
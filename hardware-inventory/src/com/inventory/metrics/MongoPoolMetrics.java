@@ -0,0 +1,65 @@
+package com.inventory.metrics;
+
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionCreatedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Driver ConnectionPoolListener: open and checked-out connections, check-out wait times and failures. */
+public class MongoPoolMetrics implements ConnectionPoolListener {
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicInteger checkedOut = new AtomicInteger();
+    private final LongAccumulator peakCheckedOut = new LongAccumulator(Math::max, 0);
+    private final LongAdder checkOutFailures = new LongAdder();
+    private final LatencyHistogram checkOutWait = Metrics.histogram("mongo.pool.checkOutWait");
+
+    @Override
+    public void connectionCreated(ConnectionCreatedEvent event) {
+        open.incrementAndGet();
+    }
+
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        open.decrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        peakCheckedOut.accumulate(checkedOut.incrementAndGet());
+        checkOutWait.record(event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        checkOutFailures.increment();
+        checkOutWait.record(event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        checkedOut.decrementAndGet();
+    }
+
+    public int getOpenConnections() { return open.get(); }
+    public int getCheckedOutConnections() { return checkedOut.get(); }
+    public long getPeakCheckedOutConnections() { return peakCheckedOut.get(); }
+    public long getCheckOutFailures() { return checkOutFailures.sum(); }
+
+    void reset() {
+        peakCheckedOut.reset();
+        checkOutFailures.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "Connection pool: open=" + getOpenConnections() + ", checkedOut=" + getCheckedOutConnections() +
+                ", peakCheckedOut=" + getPeakCheckedOutConnections() + ", checkOutFailures=" + getCheckOutFailures();
+    }
+}
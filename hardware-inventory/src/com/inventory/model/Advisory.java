@@ -0,0 +1,48 @@
+package com.inventory.model;
+
+/**
+ * A single entry of the "vulnerabilities" collection.
+ */
+public class Advisory {
+    private String groupId;
+    private String artifactId;
+    private String vulnerableVersion;
+    private String cve;
+    private String severity;
+    private String patchedVersion;
+    private String recommendation;
+
+    public Advisory() {}
+
+    public Advisory(String groupId, String artifactId, String vulnerableVersion,
+                    String cve, String severity, String patchedVersion, String recommendation) {
+        this.groupId = groupId;
+        this.artifactId = artifactId;
+        this.vulnerableVersion = vulnerableVersion;
+        this.cve = cve;
+        this.severity = severity;
+        this.patchedVersion = patchedVersion;
+        this.recommendation = recommendation;
+    }
+
+    public String getGroupId() { return groupId; }
+    public void setGroupId(String groupId) { this.groupId = groupId; }
+    public String getArtifactId() { return artifactId; }
+    public void setArtifactId(String artifactId) { this.artifactId = artifactId; }
+    public String getVulnerableVersion() { return vulnerableVersion; }
+    public void setVulnerableVersion(String vulnerableVersion) { this.vulnerableVersion = vulnerableVersion; }
+    public String getCve() { return cve; }
+    public void setCve(String cve) { this.cve = cve; }
+    public String getSeverity() { return severity; }
+    public void setSeverity(String severity) { this.severity = severity; }
+    public String getPatchedVersion() { return patchedVersion; }
+    public void setPatchedVersion(String patchedVersion) { this.patchedVersion = patchedVersion; }
+    public String getRecommendation() { return recommendation; }
+    public void setRecommendation(String recommendation) { this.recommendation = recommendation; }
+
+    @Override
+    public String toString() {
+        return "Advisory{" + groupId + ":" + artifactId + ":" + vulnerableVersion + ", cve=" + cve +
+                ", severity=" + severity + ", patched=" + patchedVersion + "}";
+    }
+}
@@ -0,0 +1,35 @@
+package com.inventory.model;
+
+/**
+ * A single entry of the "dependency_recommendations" collection.
+ */
+public class DependencyRecommendation {
+    private String groupId;
+    private String artifactId;
+    private String suggestedVersion;
+    private String reason;
+
+    public DependencyRecommendation() {}
+
+    public DependencyRecommendation(String groupId, String artifactId, String suggestedVersion, String reason) {
+        this.groupId = groupId;
+        this.artifactId = artifactId;
+        this.suggestedVersion = suggestedVersion;
+        this.reason = reason;
+    }
+
+    public String getGroupId() { return groupId; }
+    public void setGroupId(String groupId) { this.groupId = groupId; }
+    public String getArtifactId() { return artifactId; }
+    public void setArtifactId(String artifactId) { this.artifactId = artifactId; }
+    public String getSuggestedVersion() { return suggestedVersion; }
+    public void setSuggestedVersion(String suggestedVersion) { this.suggestedVersion = suggestedVersion; }
+    public String getReason() { return reason; }
+    public void setReason(String reason) { this.reason = reason; }
+
+    @Override
+    public String toString() {
+        return "DependencyRecommendation{" + groupId + ":" + artifactId + " -> " + suggestedVersion +
+                ", reason=" + reason + "}";
+    }
+}
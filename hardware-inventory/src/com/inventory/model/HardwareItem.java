@@ -8,6 +8,7 @@ public class HardwareItem {
     private String serialNumber;
     private String location;
     private String status;
+    private Long version; // bumped by every update; null on items stored before versioning (counts as 0)
 
     public HardwareItem() {}
 
@@ -24,15 +25,17 @@ public class HardwareItem {
     public String getSerialNumber() { return serialNumber; }
     public String getLocation() { return location; }
     public String getStatus() { return status; }
+    public Long getVersion() { return version; }
 
     public void setName(String name) { this.name = name; }
     public void setSerialNumber(String serialNumber) { this.serialNumber = serialNumber; }
     public void setLocation(String location) { this.location = location; }
     public void setStatus(String status) { this.status = status; }
+    public void setVersion(Long version) { this.version = version; }
 
     @Override
     public String toString() {
         return "HardwareItem{id=" + id + ", name=" + name + ", serial=" + serialNumber +
-                ", location=" + location + ", status=" + status + "}";
+                ", location=" + location + ", status=" + status + ", version=" + version + "}";
     }
 }
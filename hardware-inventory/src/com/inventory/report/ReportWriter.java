@@ -0,0 +1,261 @@
+package com.inventory.report;
+
+import com.inventory.model.Dependency;
+import com.inventory.model.Project;
+import com.inventory.model.VulnerabilityReport;
+import com.inventory.util.Config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Writes vulnerability findings to a file as they are produced:
+ * <ul>
+ *   <li>CSV ({@code *.csv}): a header row, then one row per finding.</li>
+ *   <li>JSON Lines ({@code *.jsonl}, {@code *.ndjson}): one object per finding.</li>
+ *   <li>SARIF 2.1.0 ({@code *.sarif}): one run whose results are the findings, with the CVE as
+ *       ruleId and the project and dependency as logical locations, for code-scanning tools.</li>
+ * </ul>
+ *
+ * Nothing is collected: each finding is encoded straight into a direct buffer of
+ * {@code inventory.report.bufferSize} bytes (default 64 KiB), which is written to the file channel
+ * whenever it fills up. Memory use is therefore the same for ten findings as for ten million.
+ *
+ * {@link #write} is synchronized, so scan threads can share one writer; the findings of one
+ * project stay together. {@link #close()} writes the trailer (for SARIF, the closing brackets)
+ * and must be called for the file to be complete.
+ */
+public class ReportWriter implements Closeable {
+    private static final String[] CSV_COLUMNS = {
+            "projectId", "projectName", "groupId", "artifactId", "version", "cve", "severity", "patchedVersion", "recommendation"
+    };
+
+    private final FileChannel channel;
+    private final Format format;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private long projects;
+    private long findings;
+    private boolean closed;
+
+    public enum Format { CSV, JSONL, SARIF }
+
+    public ReportWriter(Path file, Format format) throws IOException {
+        this(file, format, Config.getInt("inventory.report.bufferSize", 64 * 1024));
+    }
+
+    public ReportWriter(Path file, Format format, int bufferSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.format = format;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(4096, bufferSize));
+        try {
+            header();
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /** The format of a report file by name, or null if the extension is not one of the above. */
+    public static Format formatOf(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) return Format.CSV;
+        if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) return Format.JSONL;
+        if (name.endsWith(".sarif") || name.endsWith(".sarif.json")) return Format.SARIF;
+        return null;
+    }
+
+    /** Parses a format name as accepted on the command line (csv, jsonl, sarif). */
+    public static Format parseFormat(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "csv": return Format.CSV;
+            case "jsonl": case "ndjson": case "json": return Format.JSONL;
+            case "sarif": return Format.SARIF;
+            default: throw new IllegalArgumentException("Unknown report format: " + name);
+        }
+    }
+
+    /** Appends the findings of one project. I/O errors are rethrown unchecked so this can be a scan callback. */
+    public synchronized void write(Project project, VulnerabilityReport report) {
+        if (closed) throw new IllegalStateException("Report writer is closed");
+        try {
+            for (VulnerabilityReport.Finding f : report.getFindings()) {
+                switch (format) {
+                    case CSV: csv(project, f); break;
+                    case JSONL: jsonLine(project, f); break;
+                    case SARIF: sarifResult(project, f); break;
+                    default: throw new IllegalStateException(format.name());
+                }
+                findings++;
+            }
+            projects++;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public synchronized long getProjects() { return projects; }
+    public synchronized long getFindings() { return findings; }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            if (format == Format.SARIF) append("\n]}]}\n");
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void header() throws IOException {
+        switch (format) {
+            case CSV:
+                append(String.join(",", CSV_COLUMNS));
+                append("\n");
+                break;
+            case SARIF:
+                append("{\"$schema\":\"https://json.schemastore.org/sarif-2.1.0.json\",\"version\":\"2.1.0\",\"runs\":[{");
+                append("\"tool\":{\"driver\":{\"name\":\"hardware-inventory\",\"informationUri\":\"https://osv.dev\"}},");
+                append("\"results\":[");
+                break;
+            default: break;
+        }
+    }
+
+    private void csv(Project p, VulnerabilityReport.Finding f) throws IOException {
+        Dependency d = f.dependency;
+        String[] values = {p.getId(), p.getName(), d.getGroupId(), d.getArtifactId(), d.getVersion(),
+                f.cve, f.severity, f.patchedVersion, f.recommendation};
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) append(",");
+            csvField(values[i]);
+        }
+        append("\n");
+    }
+
+    private void csvField(String value) throws IOException {
+        if (value == null) return;
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            append(value);
+            return;
+        }
+        append("\"");
+        append(value.replace("\"", "\"\""));
+        append("\"");
+    }
+
+    private void jsonLine(Project p, VulnerabilityReport.Finding f) throws IOException {
+        Dependency d = f.dependency;
+        append("{\"projectId\":");
+        json(p.getId());
+        append(",\"projectName\":");
+        json(p.getName());
+        append(",\"groupId\":");
+        json(d.getGroupId());
+        append(",\"artifactId\":");
+        json(d.getArtifactId());
+        append(",\"version\":");
+        json(d.getVersion());
+        append(",\"cve\":");
+        json(f.cve);
+        append(",\"severity\":");
+        json(f.severity);
+        append(",\"patchedVersion\":");
+        json(f.patchedVersion);
+        append(",\"recommendation\":");
+        json(f.recommendation);
+        append("}\n");
+    }
+
+    private void sarifResult(Project p, VulnerabilityReport.Finding f) throws IOException {
+        Dependency d = f.dependency;
+        append(findings == 0 ? "\n" : ",\n");
+        append("{\"ruleId\":");
+        json(f.cve);
+        append(",\"level\":\"");
+        append(sarifLevel(f.severity));
+        append("\",\"message\":{\"text\":");
+        json(d + " is affected by " + f.cve + " (" + f.severity + ")"
+                + (f.patchedVersion != null ? ", fixed in " + f.patchedVersion : "")
+                + (f.recommendation != null ? ". " + f.recommendation : ""));
+        append("},\"locations\":[{\"logicalLocations\":[{\"kind\":\"module\",\"name\":");
+        json(p.getName());
+        append(",\"fullyQualifiedName\":");
+        json(p.getId());
+        append("},{\"kind\":\"package\",\"name\":");
+        json(d.getGroupId() + ":" + d.getArtifactId());
+        append(",\"fullyQualifiedName\":");
+        json(d.toString());
+        append("}]}],\"properties\":{\"severity\":");
+        json(f.severity);
+        append(",\"patchedVersion\":");
+        json(f.patchedVersion);
+        append("}}");
+    }
+
+    private static String sarifLevel(String severity) {
+        switch (severity == null ? "" : severity.toUpperCase(Locale.ROOT)) {
+            case "CRITICAL": case "HIGH": return "error";
+            case "LOW": return "note";
+            default: return "warning";
+        }
+    }
+
+    private void json(String value) throws IOException {
+        if (value == null) {
+            append("null");
+            return;
+        }
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        append(sb.append('"'));
+    }
+
+    /** Encodes {@code text} into the buffer, writing the buffer out each time it fills up. */
+    private void append(CharSequence text) throws IOException {
+        CharBuffer in = CharBuffer.wrap(text);
+        while (true) {
+            CoderResult r = encoder.encode(in, buffer, true);
+            if (r.isUnderflow()) break;
+            if (r.isOverflow()) flush();
+            else r.throwException();
+        }
+        encoder.reset();
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,405 @@
+package com.inventory.resolve;
+
+import com.inventory.metrics.LatencyHistogram;
+import com.inventory.metrics.Metrics;
+import com.inventory.model.Dependency;
+import com.inventory.model.Project;
+import com.inventory.util.Config;
+import com.inventory.util.MavenVersion;
+import com.inventory.util.VersionRange;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Expands a project's declared dependencies into its transitive dependency set, offline, from the
+ * POMs in a local repository laid out like {@code ~/.m2/repository}. Settings:
+ *
+ * <pre>
+ *   inventory.resolve.repository     repository directory (default ~/.m2/repository)
+ *   inventory.resolve.maxDepth       levels below the declared dependencies to follow (default 32)
+ *   inventory.resolve.parallelism    threads for {@link #resolveAll} (default: number of CPUs)
+ * </pre>
+ *
+ * Resolution follows Maven's rules where they affect which artifacts end up on the runtime
+ * classpath: parent POMs and imported BOMs are merged, ${...} properties interpolated and
+ * dependencyManagement applied; test, provided and optional dependencies of dependencies are
+ * dropped; exclusions apply to everything below the dependency that declares them; and when the
+ * same groupId:artifactId appears more than once, the occurrence nearest to the project wins
+ * (the first declared on a tie). Version ranges pick the highest version present in the repository.
+ *
+ * The effective dependency list of each GAV, which is where parsing, parent merging and
+ * interpolation cost goes, is computed once and shared by every project and thread, so a
+ * portfolio that keeps using the same libraries mostly walks cached lists. The walk itself stays
+ * per project, because nearest-wins depends on everything else in that project's graph. POMs
+ * missing from the repository are remembered too and end that branch of the walk.
+ */
+public class MavenResolver {
+    private static final LatencyHistogram RESOLVE_LATENCY = Metrics.histogram("MavenResolver.resolve");
+
+    private final Path repository;
+    private final int maxDepth;
+    private final int parallelism;
+
+    // groupId:artifactId:version -> parsed POM / effective dependencies; empty when the POM is missing
+    private final Map<String, Optional<Pom>> poms = new ConcurrentHashMap<>();
+    private final Map<String, Optional<List<Pom.Dep>>> effective = new ConcurrentHashMap<>();
+    private final AtomicLong resolutions = new AtomicLong();
+    private final AtomicLong pomReads = new AtomicLong();
+
+    /** One artifact in a resolved graph, with the path it was reached through. */
+    public static final class Resolved {
+        public final Dependency dependency;
+        public final int depth;           // 1 for declared dependencies
+        public final Resolved parent;     // null for declared dependencies
+
+        Resolved(Dependency dependency, int depth, Resolved parent) {
+            this.dependency = dependency;
+            this.depth = depth;
+            this.parent = parent;
+        }
+
+        /** "a:b:1 > c:d:2 > this", from the declared dependency down. */
+        public String path() {
+            return parent == null ? dependency.toString() : parent.path() + " > " + dependency;
+        }
+    }
+
+    /** A project's resolved dependencies in breadth-first order, declared ones first. */
+    public static final class Resolution {
+        private final List<Resolved> artifacts;
+        private final Set<String> missing;
+
+        Resolution(List<Resolved> artifacts, Set<String> missing) {
+            this.artifacts = artifacts;
+            this.missing = missing;
+        }
+
+        public List<Resolved> getArtifacts() { return artifacts; }
+        /** GAVs whose POM is not in the repository; their own dependencies are unknown. */
+        public Set<String> getMissing() { return missing; }
+
+        public List<Dependency> dependencies() {
+            List<Dependency> out = new ArrayList<>(artifacts.size());
+            for (Resolved r : artifacts) out.add(r.dependency);
+            return out;
+        }
+    }
+
+    /** A pending node of the walk. */
+    private static final class Step {
+        final Dependency dependency;
+        final int depth;
+        final Resolved parent;
+        final Set<String> exclusions;
+
+        Step(Dependency dependency, int depth, Resolved parent, Set<String> exclusions) {
+            this.dependency = dependency;
+            this.depth = depth;
+            this.parent = parent;
+            this.exclusions = exclusions;
+        }
+    }
+
+    public MavenResolver() {
+        this(Paths.get(Config.get("inventory.resolve.repository",
+                        Paths.get(System.getProperty("user.home"), ".m2", "repository").toString())),
+                Config.getInt("inventory.resolve.maxDepth", 32),
+                Config.getInt("inventory.resolve.parallelism", Runtime.getRuntime().availableProcessors()));
+    }
+
+    public MavenResolver(Path repository, int maxDepth, int parallelism) {
+        this.repository = repository;
+        this.maxDepth = maxDepth;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /** Resolves the declared dependencies of one project. */
+    public Resolution resolve(List<Dependency> declared) {
+        long start = System.nanoTime();
+        try {
+            resolutions.incrementAndGet();
+            Map<String, Resolved> chosen = new LinkedHashMap<>();
+            Set<String> missing = new LinkedHashSet<>();
+            ArrayDeque<Step> queue = new ArrayDeque<>();
+            for (Dependency d : declared) queue.add(new Step(d, 1, null, Collections.emptySet()));
+
+            while (!queue.isEmpty()) {
+                Step step = queue.poll();
+                Dependency d = step.dependency;
+                String ga = d.getGroupId() + ":" + d.getArtifactId();
+                if (chosen.containsKey(ga)) continue;   // a nearer (or earlier) occurrence already won
+                String version = pickVersion(d.getGroupId(), d.getArtifactId(), d.getVersion());
+                if (version == null) {
+                    // keep what the project declared even if it cannot be followed; drop unresolvable transitive ones
+                    if (step.parent == null) chosen.put(ga, new Resolved(d, 1, null));
+                    continue;
+                }
+                Dependency picked = version.equals(d.getVersion()) ? d : new Dependency(d.getGroupId(), d.getArtifactId(), version);
+                Resolved node = new Resolved(picked, step.depth, step.parent);
+                chosen.put(ga, node);
+                if (step.depth > maxDepth) continue;
+
+                List<Pom.Dep> children = dependenciesOf(picked.getGroupId(), picked.getArtifactId(), version);
+                if (children == null) {
+                    missing.add(picked.toString());
+                    continue;
+                }
+                for (Pom.Dep c : children) {
+                    if (!isTransitive(c) || excluded(c, step.exclusions)) continue;
+                    if (chosen.containsKey(c.groupId + ":" + c.artifactId)) continue;
+                    Set<String> exclusions = step.exclusions;
+                    if (!c.exclusions.isEmpty()) {
+                        exclusions = new HashSet<>(step.exclusions);
+                        exclusions.addAll(c.exclusions);
+                    }
+                    queue.add(new Step(new Dependency(c.groupId, c.artifactId, c.version), step.depth + 1, node, exclusions));
+                }
+            }
+            return new Resolution(new ArrayList<>(chosen.values()), missing);
+        } finally {
+            RESOLVE_LATENCY.recordSince(start);
+        }
+    }
+
+    /** Resolves many projects in parallel; results keyed by project id. */
+    public Map<String, Resolution> resolveAll(List<Project> projects) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.submit(() -> projects.parallelStream()
+                    .collect(Collectors.toConcurrentMap(Project::getId, p -> resolve(p.getDependencies()))))
+                    .get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while resolving", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+            throw new IllegalStateException("Resolution failed", ex.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public String stats() {
+        long missingPoms = poms.values().stream().filter(p -> !p.isPresent()).count();
+        return "MavenResolver{repository=" + repository + ", poms=" + poms.size() + " (" + missingPoms +
+                " missing), effectiveModels=" + effective.size() + ", pomReads=" + pomReads.get() +
+                ", resolutions=" + resolutions.get() + "}";
+    }
+
+    /** Compile and runtime dependencies of a dependency are inherited; test, provided, system and optional ones are not. */
+    private static boolean isTransitive(Pom.Dep c) {
+        if (c.optional) return false;
+        String scope = c.scope == null ? "compile" : c.scope;
+        return scope.equals("compile") || scope.equals("runtime");
+    }
+
+    private static boolean excluded(Pom.Dep c, Set<String> exclusions) {
+        if (exclusions.isEmpty()) return false;
+        return exclusions.contains(c.groupId + ":" + c.artifactId) || exclusions.contains(c.groupId + ":*")
+                || exclusions.contains("*:" + c.artifactId) || exclusions.contains("*:*");
+    }
+
+    /** The concrete version to use: the declared one, or for a range the highest matching one on disk. */
+    private String pickVersion(String groupId, String artifactId, String version) {
+        if (version == null || version.contains("${")) return null;
+        if (!version.startsWith("[") && !version.startsWith("(")) return version;
+        VersionRange range = VersionRange.parse(version);
+        MavenVersion best = null;
+        Path dir = artifactDir(groupId, artifactId);
+        if (!Files.isDirectory(dir)) return null;
+        try (DirectoryStream<Path> versions = Files.newDirectoryStream(dir, Files::isDirectory)) {
+            for (Path v : versions) {
+                MavenVersion candidate = MavenVersion.parse(v.getFileName().toString());
+                if (range.containsVersion(candidate) && (best == null || candidate.compareTo(best) > 0)) best = candidate;
+            }
+        } catch (IOException ex) {
+            return null;
+        }
+        return best == null ? null : best.toString();
+    }
+
+    /** Effective dependencies of a GAV (memoized), or null if its POM is not in the repository. */
+    List<Pom.Dep> dependenciesOf(String groupId, String artifactId, String version) {
+        String gav = groupId + ":" + artifactId + ":" + version;
+        Optional<List<Pom.Dep>> cached = effective.get(gav);
+        if (cached == null) {
+            // computed outside the map: building a model reads parents and BOMs through the same caches
+            Model model = model(groupId, artifactId, version, new HashSet<>());
+            cached = Optional.ofNullable(model == null ? null : model.dependencies);
+            Optional<List<Pom.Dep>> raced = effective.putIfAbsent(gav, cached);
+            if (raced != null) cached = raced;
+        }
+        return cached.orElse(null);
+    }
+
+    /** Interpolated dependencies and dependencyManagement of a GAV, keyed by management key. */
+    private static final class Model {
+        final List<Pom.Dep> dependencies;
+        final Map<String, Pom.Dep> managed;
+
+        Model(List<Pom.Dep> dependencies, Map<String, Pom.Dep> managed) {
+            this.dependencies = dependencies;
+            this.managed = managed;
+        }
+    }
+
+    /**
+     * Merges the POM with its parents (nearest definition wins for properties, dependencies and
+     * managed versions), imports BOMs, interpolates and fills versions and scopes from
+     * dependencyManagement. {@code visiting} guards against parent/import cycles.
+     */
+    private Model model(String groupId, String artifactId, String version, Set<String> visiting) {
+        String gav = groupId + ":" + artifactId + ":" + version;
+        if (!visiting.add(gav)) return null;
+        Pom pom = pom(groupId, artifactId, version);
+        if (pom == null) return null;
+
+        // child first, then each ancestor
+        List<Pom> lineage = new ArrayList<>();
+        lineage.add(pom);
+        for (Pom p = pom; p.hasParent(); ) {
+            if (!visiting.add(p.parentGroupId + ":" + p.parentArtifactId + ":" + p.parentVersion)) break;
+            Pom parent = pom(p.parentGroupId, p.parentArtifactId, p.parentVersion);
+            if (parent == null) break;
+            lineage.add(parent);
+            p = parent;
+        }
+
+        Map<String, String> props = new LinkedHashMap<>();
+        for (int i = lineage.size() - 1; i >= 0; i--) props.putAll(lineage.get(i).properties);
+        String g = pom.getGroupId();
+        String v = pom.getVersion();
+        props.put("project.groupId", g);
+        props.put("pom.groupId", g);
+        props.putIfAbsent("groupId", g);
+        props.put("project.artifactId", artifactId);
+        props.put("project.version", v);
+        props.put("pom.version", v);
+        props.putIfAbsent("version", v);
+        if (pom.parentVersion != null) props.put("project.parent.version", pom.parentVersion);
+        if (pom.parentGroupId != null) props.put("project.parent.groupId", pom.parentGroupId);
+
+        Map<String, Pom.Dep> deps = new LinkedHashMap<>();
+        Map<String, Pom.Dep> managed = new LinkedHashMap<>();
+        List<Pom.Dep> imports = new ArrayList<>();
+        for (Pom p : lineage) {
+            for (Pom.Dep d : p.dependencies) {
+                Pom.Dep dep = interpolate(d, props);
+                deps.putIfAbsent(dep.managementKey(), dep);
+            }
+            for (Pom.Dep d : p.dependencyManagement) {
+                Pom.Dep m = interpolate(d, props);
+                if ("import".equals(m.scope) && "pom".equals(m.type)) {
+                    imports.add(m);
+                } else {
+                    managed.putIfAbsent(m.managementKey(), m);
+                }
+            }
+        }
+        // imported BOMs only fill in what the POM and its parents do not manage themselves
+        for (Pom.Dep bom : imports) {
+            String bomVersion = pickVersion(bom.groupId, bom.artifactId, bom.version);
+            if (bomVersion == null) continue;
+            Model imported = model(bom.groupId, bom.artifactId, bomVersion, new HashSet<>(visiting));
+            if (imported == null) continue;
+            for (Map.Entry<String, Pom.Dep> e : imported.managed.entrySet()) managed.putIfAbsent(e.getKey(), e.getValue());
+        }
+
+        List<Pom.Dep> out = new ArrayList<>(deps.size());
+        for (Pom.Dep d : deps.values()) {
+            Pom.Dep m = managed.get(d.managementKey());
+            if (m != null) {
+                if (d.version == null) d.version = m.version;
+                if (d.scope == null) d.scope = m.scope;
+                if (d.exclusions.isEmpty()) d.exclusions.addAll(m.exclusions);
+            }
+            out.add(d);
+        }
+        return new Model(Collections.unmodifiableList(out), managed);
+    }
+
+    /** A copy of the dependency with ${...} references replaced; unknown ones are left as they are. */
+    private static Pom.Dep interpolate(Pom.Dep d, Map<String, String> props) {
+        Pom.Dep out = new Pom.Dep(d);
+        out.groupId = interpolate(d.groupId, props);
+        out.artifactId = interpolate(d.artifactId, props);
+        out.version = interpolate(d.version, props);
+        out.type = interpolate(d.type, props);
+        out.classifier = interpolate(d.classifier, props);
+        out.scope = interpolate(d.scope, props);
+        return out;
+    }
+
+    static String interpolate(String value, Map<String, String> props) {
+        if (value == null || !value.contains("${")) return value;
+        String out = value;
+        // properties may refer to other properties; a few rounds settle any sane chain
+        for (int round = 0; round < 8 && out.contains("${"); round++) {
+            StringBuilder sb = new StringBuilder();
+            int i = 0;
+            boolean changed = false;
+            while (i < out.length()) {
+                int open = out.indexOf("${", i);
+                int close = open < 0 ? -1 : out.indexOf('}', open);
+                if (open < 0 || close < 0) {
+                    sb.append(out, i, out.length());
+                    break;
+                }
+                sb.append(out, i, open);
+                String replacement = props.get(out.substring(open + 2, close));
+                if (replacement != null) {
+                    sb.append(replacement);
+                    changed = true;
+                } else {
+                    sb.append(out, open, close + 1);
+                }
+                i = close + 1;
+            }
+            out = sb.toString();
+            if (!changed) break;
+        }
+        return out;
+    }
+
+    /** The parsed POM of a GAV (memoized), or null if it is missing or unreadable. */
+    private Pom pom(String groupId, String artifactId, String version) {
+        String gav = groupId + ":" + artifactId + ":" + version;
+        Optional<Pom> cached = poms.get(gav);
+        if (cached != null) return cached.orElse(null);
+        Pom pom = null;
+        Path file = artifactDir(groupId, artifactId).resolve(version).resolve(artifactId + "-" + version + ".pom");
+        if (Files.isRegularFile(file)) {
+            pomReads.incrementAndGet();
+            try {
+                pom = PomReader.read(file);
+            } catch (IOException ex) {
+                System.err.println("Skipping unreadable POM " + file + ": " + ex.getMessage());
+            }
+        }
+        Optional<Pom> raced = poms.putIfAbsent(gav, Optional.ofNullable(pom));
+        return raced != null ? raced.orElse(null) : pom;
+    }
+
+    private Path artifactDir(String groupId, String artifactId) {
+        return repository.resolve(groupId.replace('.', '/')).resolve(artifactId);
+    }
+}
@@ -0,0 +1,89 @@
+package com.inventory.resolve;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The parts of a pom.xml that matter for dependency resolution, as written in the file: values
+ * may still hold ${property} references and inherited coordinates may be missing.
+ */
+public final class Pom {
+    String groupId;
+    String artifactId;
+    String version;
+    String packaging;
+    String parentGroupId;
+    String parentArtifactId;
+    String parentVersion;
+    final Map<String, String> properties = new LinkedHashMap<>();
+    final List<Dep> dependencyManagement = new ArrayList<>();
+    final List<Dep> dependencies = new ArrayList<>();
+
+    /** A {@code <dependency>} element. Exclusions are "groupId:artifactId" and may use "*". */
+    public static final class Dep {
+        String groupId;
+        String artifactId;
+        String version;
+        String type;
+        String classifier;
+        String scope;
+        boolean optional;
+        final List<String> exclusions = new ArrayList<>();
+
+        Dep() {}
+
+        Dep(Dep d) {
+            groupId = d.groupId;
+            artifactId = d.artifactId;
+            version = d.version;
+            type = d.type;
+            classifier = d.classifier;
+            scope = d.scope;
+            optional = d.optional;
+            exclusions.addAll(d.exclusions);
+        }
+
+        public String getGroupId() { return groupId; }
+        public String getArtifactId() { return artifactId; }
+        public String getVersion() { return version; }
+        public String getScope() { return scope; }
+        public boolean isOptional() { return optional; }
+
+        /** groupId:artifactId:type:classifier, what Maven merges inherited and managed entries on. */
+        String managementKey() {
+            return groupId + ":" + artifactId + ":" + (type == null ? "jar" : type) + ":" + (classifier == null ? "" : classifier);
+        }
+
+        @Override
+        public String toString() {
+            return groupId + ":" + artifactId + ":" + version + (scope == null ? "" : " (" + scope + ")");
+        }
+    }
+
+    public String getGroupId() { return groupId != null ? groupId : parentGroupId; }
+    public String getArtifactId() { return artifactId; }
+    public String getVersion() { return version != null ? version : parentVersion; }
+    public String getPackaging() { return packaging == null ? "jar" : packaging; }
+    public Map<String, String> getProperties() { return properties; }
+    public List<Dep> getDependencies() { return dependencies; }
+    public List<Dep> getDependencyManagement() { return dependencyManagement; }
+
+    /**
+     * Replaces ${...} references with this POM's own properties and coordinates; references to
+     * anything defined only in a parent are left as they are.
+     */
+    public String interpolate(String value) {
+        Map<String, String> props = new LinkedHashMap<>(properties);
+        props.put("project.groupId", getGroupId());
+        props.put("project.artifactId", artifactId);
+        props.put("project.version", getVersion());
+        if (parentVersion != null) props.put("project.parent.version", parentVersion);
+        return MavenResolver.interpolate(value, props);
+    }
+
+    boolean hasParent() {
+        return parentGroupId != null && parentArtifactId != null && parentVersion != null;
+    }
+}
@@ -0,0 +1,135 @@
+package com.inventory.resolve;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads a pom.xml with a StAX cursor in one pass, keeping only coordinates, parent, properties,
+ * dependencies and dependencyManagement. Everything else (build, plugins, profiles, reporting) is
+ * skipped without building a DOM, which keeps parsing thousands of POMs cheap.
+ *
+ * DTDs and external entities are disabled; POMs never need them.
+ */
+public final class PomReader {
+    private static final String DEPENDENCY = "project/dependencies/dependency";
+    private static final String MANAGED = "project/dependencyManagement/dependencies/dependency";
+
+    private static final XMLInputFactory FACTORY = newFactory();
+
+    private PomReader() {}
+
+    private static XMLInputFactory newFactory() {
+        XMLInputFactory f = XMLInputFactory.newFactory();
+        f.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        f.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        f.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return f;
+    }
+
+    public static Pom read(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in);
+        } catch (XMLStreamException ex) {
+            throw new IOException("Malformed POM " + file + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    public static Pom read(InputStream in) throws XMLStreamException {
+        XMLStreamReader r = FACTORY.createXMLStreamReader(in);
+        try {
+            Pom pom = new Pom();
+            StringBuilder path = new StringBuilder();
+            StringBuilder text = new StringBuilder();
+            Pom.Dep dep = null;
+            String exclusionGroup = null;
+            String exclusionArtifact = null;
+            while (r.hasNext()) {
+                switch (r.next()) {
+                    case XMLStreamConstants.START_ELEMENT: {
+                        if (path.length() > 0) path.append('/');
+                        path.append(r.getLocalName());
+                        text.setLength(0);
+                        String p = path.toString();
+                        if (p.equals(DEPENDENCY) || p.equals(MANAGED)) {
+                            dep = new Pom.Dep();
+                        } else if (dep != null && p.endsWith("/exclusions/exclusion")) {
+                            exclusionGroup = null;
+                            exclusionArtifact = null;
+                        }
+                        break;
+                    }
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                        text.append(r.getText());
+                        break;
+                    case XMLStreamConstants.END_ELEMENT: {
+                        String p = path.toString();
+                        String value = text.toString().trim();
+                        text.setLength(0);
+                        if (dep != null) {
+                            if (p.equals(DEPENDENCY)) {
+                                pom.dependencies.add(dep);
+                                dep = null;
+                            } else if (p.equals(MANAGED)) {
+                                pom.dependencyManagement.add(dep);
+                                dep = null;
+                            } else if (p.endsWith("/exclusions/exclusion/groupId")) {
+                                exclusionGroup = value;
+                            } else if (p.endsWith("/exclusions/exclusion/artifactId")) {
+                                exclusionArtifact = value;
+                            } else if (p.endsWith("/exclusions/exclusion")) {
+                                dep.exclusions.add(exclusionGroup + ":" + exclusionArtifact);
+                            } else if (!p.contains("/exclusions")) {
+                                setDependencyField(dep, r.getLocalName(), value);
+                            }
+                        } else {
+                            setProjectField(pom, p, value);
+                        }
+                        int slash = path.lastIndexOf("/");
+                        path.setLength(Math.max(slash, 0));
+                        break;
+                    }
+                    default: break;
+                }
+            }
+            return pom;
+        } finally {
+            r.close();
+        }
+    }
+
+    private static void setDependencyField(Pom.Dep dep, String name, String value) {
+        switch (name) {
+            case "groupId": dep.groupId = value; break;
+            case "artifactId": dep.artifactId = value; break;
+            case "version": dep.version = value; break;
+            case "type": dep.type = value; break;
+            case "classifier": dep.classifier = value; break;
+            case "scope": dep.scope = value; break;
+            case "optional": dep.optional = Boolean.parseBoolean(value); break;
+            default: break;
+        }
+    }
+
+    private static void setProjectField(Pom pom, String path, String value) {
+        switch (path) {
+            case "project/groupId": pom.groupId = value; break;
+            case "project/artifactId": pom.artifactId = value; break;
+            case "project/version": pom.version = value; break;
+            case "project/packaging": pom.packaging = value; break;
+            case "project/parent/groupId": pom.parentGroupId = value; break;
+            case "project/parent/artifactId": pom.parentArtifactId = value; break;
+            case "project/parent/version": pom.parentVersion = value; break;
+            default:
+                if (path.startsWith("project/properties/") && path.indexOf('/', 19) < 0) {
+                    pom.properties.put(path.substring(19), value);
+                }
+        }
+    }
+}
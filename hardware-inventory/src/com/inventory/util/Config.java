@@ -0,0 +1,69 @@
+package com.inventory.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Application settings, looked up in this order (first hit wins):
+ * <ol>
+ *   <li>JVM system property, e.g. {@code -Dinventory.mongo.uri=...}</li>
+ *   <li>environment variable, the key upper-cased with dots as underscores ({@code INVENTORY_MONGO_URI})</li>
+ *   <li>the properties file named by {@code inventory.config} / {@code INVENTORY_CONFIG},
+ *       or {@code inventory.properties} in the working directory if it exists</li>
+ *   <li>the default passed by the caller</li>
+ * </ol>
+ */
+public final class Config {
+    private static final Properties FILE = loadFile();
+
+    private Config() {}
+
+    private static Properties loadFile() {
+        Properties props = new Properties();
+        String location = System.getProperty("inventory.config", System.getenv("INVENTORY_CONFIG"));
+        Path path = Paths.get(location != null ? location : "inventory.properties");
+        if (!Files.isRegularFile(path)) {
+            if (location != null) System.err.println("Config file not found: " + path);
+            return props;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            props.load(in);
+        } catch (IOException ex) {
+            System.err.println("Could not read config file " + path + ": " + ex.getMessage());
+        }
+        return props;
+    }
+
+    /** The configured value, or null if the key is not set anywhere. */
+    public static String get(String key) {
+        String v = System.getProperty(key);
+        if (v == null) v = System.getenv(key.toUpperCase(Locale.ROOT).replace('.', '_'));
+        if (v == null) v = FILE.getProperty(key);
+        return v == null || v.isBlank() ? null : v.trim();
+    }
+
+    public static String get(String key, String def) {
+        String v = get(key);
+        return v != null ? v : def;
+    }
+
+    public static int getInt(String key, int def) {
+        String v = get(key);
+        return v != null ? Integer.parseInt(v) : def;
+    }
+
+    public static long getLong(String key, long def) {
+        String v = get(key);
+        return v != null ? Long.parseLong(v) : def;
+    }
+
+    public static boolean getBoolean(String key, boolean def) {
+        String v = get(key);
+        return v != null ? Boolean.parseBoolean(v) : def;
+    }
+}
@@ -0,0 +1,227 @@
+package com.inventory.util;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A version string ordered the way Maven orders versions (same rules as Maven's ComparableVersion):
+ * numeric parts compare numerically, "1.0" == "1" == "1-ga", and qualifiers sort as
+ * alpha &lt; beta &lt; milestone &lt; rc &lt; snapshot &lt; release &lt; sp &lt; anything else.
+ *
+ * Instances are immutable; use {@link #parse(String)} to get a cached instance.
+ */
+public final class MavenVersion implements Comparable<MavenVersion> {
+    private static final int CACHE_LIMIT = 100_000;
+    private static final Map<String, MavenVersion> CACHE = new ConcurrentHashMap<>();
+
+    private final String value;
+    private final ListItem items;
+
+    private MavenVersion(String value) {
+        this.value = value;
+        this.items = parseItems(value);
+    }
+
+    /** Returns the parsed version, reusing an earlier parse of the same string when possible. */
+    public static MavenVersion parse(String version) {
+        MavenVersion v = CACHE.get(version);
+        if (v != null) return v;
+        v = new MavenVersion(version);
+        if (CACHE.size() >= CACHE_LIMIT) CACHE.clear();
+        CACHE.putIfAbsent(version, v);
+        return v;
+    }
+
+    @Override
+    public int compareTo(MavenVersion o) {
+        return items.compareTo(o.items);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof MavenVersion && compareTo((MavenVersion) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return items.toString().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+
+    private interface Item {
+        int compareTo(Item item);
+        boolean isNull();
+    }
+
+    private static final class IntItem implements Item {
+        static final IntItem ZERO = new IntItem("0");
+        final BigInteger value;
+
+        IntItem(String digits) {
+            this.value = new BigInteger(digits);
+        }
+
+        public boolean isNull() { return value.signum() == 0; }
+
+        public int compareTo(Item item) {
+            if (item == null) return isNull() ? 0 : 1;
+            if (item instanceof IntItem) return value.compareTo(((IntItem) item).value);
+            return 1; // 1.1 > 1-sp and 1.1 > 1-1
+        }
+
+        @Override
+        public String toString() { return value.toString(); }
+    }
+
+    private static final class StringItem implements Item {
+        private static final List<String> QUALIFIERS =
+                Arrays.asList("alpha", "beta", "milestone", "rc", "snapshot", "", "sp");
+        private static final String RELEASE_INDEX = String.valueOf(QUALIFIERS.indexOf(""));
+
+        final String value;
+
+        StringItem(String value, boolean followedByDigit) {
+            if (followedByDigit && value.length() == 1) {
+                switch (value.charAt(0)) {
+                    case 'a': value = "alpha"; break;
+                    case 'b': value = "beta"; break;
+                    case 'm': value = "milestone"; break;
+                    default: break;
+                }
+            }
+            switch (value) {
+                case "ga":
+                case "final":
+                case "release": value = ""; break;
+                case "cr": value = "rc"; break;
+                default: break;
+            }
+            this.value = value;
+        }
+
+        static String comparable(String qualifier) {
+            int i = QUALIFIERS.indexOf(qualifier);
+            return i == -1 ? QUALIFIERS.size() + "-" + qualifier : String.valueOf(i);
+        }
+
+        public boolean isNull() { return comparable(value).equals(RELEASE_INDEX); }
+
+        public int compareTo(Item item) {
+            if (item == null) return comparable(value).compareTo(RELEASE_INDEX);
+            if (item instanceof StringItem) return comparable(value).compareTo(comparable(((StringItem) item).value));
+            return -1; // 1.any < 1.1 and 1.any < 1-1
+        }
+
+        @Override
+        public String toString() { return value; }
+    }
+
+    private static final class ListItem extends ArrayList<Item> implements Item {
+        private static final long serialVersionUID = 1L;
+
+        public boolean isNull() { return isEmpty(); }
+
+        void normalize() {
+            for (int i = size() - 1; i >= 0; i--) {
+                Item last = get(i);
+                if (last.isNull()) {
+                    remove(i);
+                } else if (!(last instanceof ListItem)) {
+                    break;
+                }
+            }
+        }
+
+        public int compareTo(Item item) {
+            if (item == null) {
+                return isEmpty() ? 0 : get(0).compareTo(null);
+            }
+            if (item instanceof IntItem) return -1; // 1-1 < 1.0.x
+            if (item instanceof StringItem) return 1; // 1-1 > 1-sp
+
+            ListItem other = (ListItem) item;
+            int n = Math.max(size(), other.size());
+            for (int i = 0; i < n; i++) {
+                Item l = i < size() ? get(i) : null;
+                Item r = i < other.size() ? other.get(i) : null;
+                int result = l == null ? (r == null ? 0 : -r.compareTo(null)) : l.compareTo(r);
+                if (result != 0) return result;
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (Item item : this) {
+                if (sb.length() > 0) sb.append(item instanceof ListItem ? '-' : '.');
+                sb.append(item);
+            }
+            return sb.toString();
+        }
+    }
+
+    private static ListItem parseItems(String version) {
+        String v = version.toLowerCase(Locale.ENGLISH);
+        ListItem root = new ListItem();
+        ListItem list = root;
+        Deque<ListItem> stack = new ArrayDeque<>();
+        stack.push(list);
+
+        boolean isDigit = false;
+        int start = 0;
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            if (c == '.') {
+                list.add(i == start ? IntItem.ZERO : parseItem(isDigit, v.substring(start, i)));
+                start = i + 1;
+            } else if (c == '-') {
+                list.add(i == start ? IntItem.ZERO : parseItem(isDigit, v.substring(start, i)));
+                start = i + 1;
+                ListItem sub = new ListItem();
+                list.add(sub);
+                list = sub;
+                stack.push(list);
+            } else if (Character.isDigit(c)) {
+                if (!isDigit && i > start) {
+                    list.add(new StringItem(v.substring(start, i), true));
+                    start = i;
+                    ListItem sub = new ListItem();
+                    list.add(sub);
+                    list = sub;
+                    stack.push(list);
+                }
+                isDigit = true;
+            } else {
+                if (isDigit && i > start) {
+                    list.add(parseItem(true, v.substring(start, i)));
+                    start = i;
+                    ListItem sub = new ListItem();
+                    list.add(sub);
+                    list = sub;
+                    stack.push(list);
+                }
+                isDigit = false;
+            }
+        }
+        if (v.length() > start) list.add(parseItem(isDigit, v.substring(start)));
+
+        while (!stack.isEmpty()) stack.pop().normalize();
+        return root;
+    }
+
+    private static Item parseItem(boolean isDigit, String buf) {
+        return isDigit ? new IntItem(buf) : new StringItem(buf, false);
+    }
+}
@@ -0,0 +1,134 @@
+package com.inventory.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A Maven-style version range such as {@code [2.0,2.17.1)}, {@code (,1.2.3]}, {@code [1.0]} or a
+ * union like {@code [1.0,1.5),[2.0,2.3)}. A bare version ("2.14.1") matches exactly that version,
+ * which keeps single-version advisories working unchanged.
+ */
+public final class VersionRange {
+
+    /** One contiguous interval; a null bound means unbounded on that side. */
+    public static final class Restriction {
+        private final MavenVersion lower;
+        private final boolean lowerInclusive;
+        private final MavenVersion upper;
+        private final boolean upperInclusive;
+
+        public Restriction(MavenVersion lower, boolean lowerInclusive, MavenVersion upper, boolean upperInclusive) {
+            this.lower = lower;
+            this.lowerInclusive = lowerInclusive;
+            this.upper = upper;
+            this.upperInclusive = upperInclusive;
+        }
+
+        public MavenVersion getLower() { return lower; }
+        public boolean isLowerInclusive() { return lowerInclusive; }
+        public MavenVersion getUpper() { return upper; }
+        public boolean isUpperInclusive() { return upperInclusive; }
+
+        public boolean containsVersion(MavenVersion v) {
+            if (lower != null) {
+                int c = lower.compareTo(v);
+                if (c > 0 || (c == 0 && !lowerInclusive)) return false;
+            }
+            if (upper != null) {
+                int c = upper.compareTo(v);
+                if (c < 0 || (c == 0 && !upperInclusive)) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            if (lower != null && lower.equals(upper) && lowerInclusive && upperInclusive) return "[" + lower + "]";
+            return (lowerInclusive ? "[" : "(") + (lower == null ? "" : lower) + "," +
+                    (upper == null ? "" : upper) + (upperInclusive ? "]" : ")");
+        }
+    }
+
+    private final String spec;
+    private final List<Restriction> restrictions;
+
+    private VersionRange(String spec, List<Restriction> restrictions) {
+        this.spec = spec;
+        this.restrictions = Collections.unmodifiableList(restrictions);
+    }
+
+    /**
+     * Parses a range spec.
+     *
+     * @throws IllegalArgumentException if the spec is malformed
+     */
+    public static VersionRange parse(String spec) {
+        if (spec == null || spec.trim().isEmpty()) throw new IllegalArgumentException("Empty version range");
+        String s = spec.trim();
+        List<Restriction> restrictions = new ArrayList<>();
+
+        char first = s.charAt(0);
+        if (first != '[' && first != '(') {
+            MavenVersion v = MavenVersion.parse(s);
+            restrictions.add(new Restriction(v, true, v, true));
+            return new VersionRange(spec, restrictions);
+        }
+
+        int i = 0;
+        while (i < s.length()) {
+            char open = s.charAt(i);
+            if (open != '[' && open != '(') throw new IllegalArgumentException("Malformed version range: " + spec);
+            int close = i + 1;
+            while (close < s.length() && s.charAt(close) != ']' && s.charAt(close) != ')') close++;
+            if (close == s.length()) throw new IllegalArgumentException("Unclosed version range: " + spec);
+            restrictions.add(parseRestriction(s.substring(i, close + 1), spec));
+
+            i = close + 1;
+            while (i < s.length() && (s.charAt(i) == ',' || Character.isWhitespace(s.charAt(i)))) i++;
+        }
+        return new VersionRange(spec, restrictions);
+    }
+
+    private static Restriction parseRestriction(String r, String spec) {
+        boolean lowerInclusive = r.charAt(0) == '[';
+        boolean upperInclusive = r.charAt(r.length() - 1) == ']';
+        String body = r.substring(1, r.length() - 1).trim();
+
+        int comma = body.indexOf(',');
+        if (comma < 0) {
+            if (!lowerInclusive || !upperInclusive || body.isEmpty()) {
+                throw new IllegalArgumentException("Single version must be written as [x]: " + spec);
+            }
+            MavenVersion v = MavenVersion.parse(body);
+            return new Restriction(v, true, v, true);
+        }
+
+        String lo = body.substring(0, comma).trim();
+        String hi = body.substring(comma + 1).trim();
+        MavenVersion lower = lo.isEmpty() ? null : MavenVersion.parse(lo);
+        MavenVersion upper = hi.isEmpty() ? null : MavenVersion.parse(hi);
+        if (lower != null && upper != null && lower.compareTo(upper) > 0) {
+            throw new IllegalArgumentException("Lower bound above upper bound: " + spec);
+        }
+        return new Restriction(lower, lower != null && lowerInclusive, upper, upper != null && upperInclusive);
+    }
+
+    public List<Restriction> getRestrictions() { return restrictions; }
+
+    public boolean containsVersion(MavenVersion v) {
+        for (Restriction r : restrictions) {
+            if (r.containsVersion(v)) return true;
+        }
+        return false;
+    }
+
+    public boolean containsVersion(String version) {
+        return version != null && containsVersion(MavenVersion.parse(version));
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
@@ -0,0 +1,135 @@
+package com.inventory.dao;
+
+import com.inventory.model.Advisory;
+import com.inventory.model.Dependency;
+import com.inventory.util.VersionRange;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AdvisoryRangeIndexTest {
+
+    private static Advisory advisory(String artifact, String range, String cve) {
+        return new Advisory("org.example", artifact, range, cve, "HIGH", null, null);
+    }
+
+    private static Dependency dep(String artifact, String version) {
+        return new Dependency("org.example", artifact, version);
+    }
+
+    @Test
+    void matchesRangesPerArtifact() {
+        AdvisoryRangeIndex index = AdvisoryRangeIndex.build(List.of(
+                advisory("core", "[2.0,2.17.1)", "CVE-1"),
+                advisory("api", "[1.0]", "CVE-2")));
+        assertEquals("CVE-1", index.find(dep("core", "2.14.1")).getCve());
+        assertNull(index.find(dep("core", "2.17.1")));
+        assertNull(index.find(dep("core", "1.9")));
+        assertEquals("CVE-2", index.find(dep("api", "1.0.0")).getCve());
+        assertNull(index.find(dep("other", "1.0")));
+        assertNull(index.find(dep("core", null)));
+    }
+
+    @Test
+    void firstAdvisoryInLoadOrderWins() {
+        AdvisoryRangeIndex index = AdvisoryRangeIndex.build(List.of(
+                advisory("core", "[2.5,3.0)", "CVE-late-start"),
+                advisory("core", "[1.0,2.8)", "CVE-early-start"),
+                advisory("core", "(,2.6]", "CVE-open")));
+        assertEquals("CVE-late-start", index.find(dep("core", "2.6")).getCve());
+        assertEquals("CVE-early-start", index.find(dep("core", "2.0")).getCve());
+        assertEquals("CVE-open", index.find(dep("core", "0.5")).getCve());
+    }
+
+    @Test
+    void earlierUnboundedIntervalStillMatches() {
+        AdvisoryRangeIndex index = AdvisoryRangeIndex.build(List.of(
+                advisory("core", "[1.0,)", "CVE-unbounded"),
+                advisory("core", "[2.0,2.1)", "CVE-2"),
+                advisory("core", "[3.0,3.1)", "CVE-3")));
+        assertEquals("CVE-unbounded", index.find(dep("core", "5.0")).getCve());
+        assertEquals("CVE-unbounded", index.find(dep("core", "2.0")).getCve());
+        assertNull(index.find(dep("core", "0.9")));
+    }
+
+    @Test
+    void unionRangesCountEachRestriction() {
+        AdvisoryRangeIndex index = AdvisoryRangeIndex.build(List.of(
+                advisory("core", "[1.0,1.5),[2.0,2.3)", "CVE-1")));
+        assertEquals(1, index.advisoryCount());
+        assertEquals(2, index.intervalCount());
+        assertEquals("CVE-1", index.find(dep("core", "2.1")).getCve());
+        assertNull(index.find(dep("core", "1.7")));
+    }
+
+    @Test
+    void skipsMissingAndMalformedRanges() {
+        AdvisoryRangeIndex index = AdvisoryRangeIndex.build(List.of(
+                advisory("core", null, "CVE-none"),
+                advisory("core", "[2.0,1.0]", "CVE-bad"),
+                advisory("core", "[1.0,2.0)", "CVE-good")));
+        assertEquals(1, index.advisoryCount());
+        assertEquals("CVE-good", index.find(dep("core", "1.5")).getCve());
+    }
+
+    @Test
+    void changedArtifactsComparesPerArtifactAdvisories() {
+        AdvisoryRangeIndex before = AdvisoryRangeIndex.build(List.of(
+                advisory("a", "[1.0,2.0)", "CVE-1"),
+                advisory("b", "[1.0,2.0)", "CVE-2"),
+                advisory("c", "[1.0,2.0)", "CVE-3")));
+        AdvisoryRangeIndex after = AdvisoryRangeIndex.build(List.of(
+                advisory("a", "[1.0,2.0)", "CVE-1"),
+                advisory("b", "[1.0,2.1)", "CVE-2"),
+                advisory("d", "[1.0,2.0)", "CVE-4")));
+        assertEquals(Set.of("org.example:b", "org.example:c", "org.example:d"), after.changedArtifacts(before));
+    }
+
+    @Test
+    void changedArtifactsSeesChangesWithEqualHashes() {
+        // "Aa" and "BB" have the same String.hashCode
+        AdvisoryRangeIndex before = AdvisoryRangeIndex.build(List.of(advisory("a", "[1.0,2.0)", "CVE-Aa")));
+        AdvisoryRangeIndex after = AdvisoryRangeIndex.build(List.of(advisory("a", "[1.0,2.0)", "CVE-BB")));
+        assertEquals(Set.of("org.example:a"), after.changedArtifacts(before));
+        assertEquals(Set.of(), after.changedArtifacts(AdvisoryRangeIndex.build(List.of(advisory("a", "[1.0,2.0)", "CVE-BB")))));
+    }
+
+    @Test
+    void agreesWithLinearScan() {
+        Random random = new Random(11);
+        for (int trial = 0; trial < 200; trial++) {
+            List<Advisory> advisories = new ArrayList<>();
+            int count = 1 + random.nextInt(30);
+            for (int i = 0; i < count; i++) advisories.add(advisory("core", randomRange(random), "CVE-" + i));
+            AdvisoryRangeIndex index = AdvisoryRangeIndex.build(advisories);
+            for (int v = 0; v <= 21; v++) {
+                String version = v / 2 + "." + v % 2 * 5;
+                Advisory expected = null;
+                for (Advisory a : advisories) {
+                    if (VersionRange.parse(a.getVulnerableVersion()).containsVersion(version)) {
+                        expected = a;
+                        break;
+                    }
+                }
+                Advisory found = index.find(dep("core", version));
+                assertEquals(expected == null ? null : expected.getCve(), found == null ? null : found.getCve(),
+                        "version " + version + " in " + advisories);
+            }
+        }
+    }
+
+    /** A range over versions 0..10, sometimes open on either side. */
+    private static String randomRange(Random random) {
+        int lo = random.nextInt(10);
+        int hi = lo + random.nextInt(10 - lo + 1);
+        String lower = random.nextInt(5) == 0 ? "(" : (random.nextBoolean() ? "[" : "(") + lo;
+        String upper = random.nextInt(4) == 0 ? ")" : hi + (random.nextBoolean() ? "]" : ")");
+        return lower + "," + upper;
+    }
+}
@@ -0,0 +1,71 @@
+package com.inventory.dao;
+
+import com.inventory.model.Dependency;
+import com.inventory.model.Project;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DependencyUsageIndexTest {
+
+    private static Project project(String id, Dependency... deps) {
+        Project p = new Project(id, "");
+        p.setId(id);
+        for (Dependency d : deps) p.addDependency(d);
+        return p;
+    }
+
+    private static Dependency dep(String artifact, String version) {
+        return new Dependency("org.example", artifact, version);
+    }
+
+    @Test
+    void findsProjectsAndVersions() {
+        DependencyUsageIndex index = new DependencyUsageIndex();
+        index.addProject(project("p1", dep("a", "1.0"), dep("a", "2.0"), dep("b", "1.0")));
+        index.addProject(project("p2", dep("a", "1.0")));
+        assertEquals(Map.of("p1", Set.of("1.0", "2.0"), "p2", Set.of("1.0")), index.find("org.example", "a", v -> true));
+        assertEquals(Map.of("p1", Set.of("2.0")), index.find("org.example", "a", "2.0"::equals));
+
+        index.remove("p1", dep("a", "2.0"));
+        index.removeProject(project("p2", dep("a", "1.0")));
+        assertEquals(Map.of("p1", Set.of("1.0")), index.find("org.example", "a", v -> true));
+    }
+
+    @Test
+    void writesDuringLoadAreRepairedFromStoredState() {
+        DependencyUsageIndex index = new DependencyUsageIndex();
+        index.beginLoad();
+        assertFalse(index.isLoaded());
+
+        // p1 was read by the load after an update to a:2.0 reached the database but before the
+        // update's index change: the load adds 2.0, then the change removes 1.0 and adds 2.0 again
+        index.load(project("p1", dep("a", "2.0"), dep("b", "1.0")));
+        index.remove("p1", dep("a", "1.0"));
+        index.add("p1", dep("a", "2.0"));
+        // p2 was created during the load and deleted again; the load never saw it
+        index.add("p2", dep("c", "1.0"));
+        index.remove("p2", dep("c", "1.0"));
+        // p3 is untouched by writes
+        index.load(project("p3", dep("a", "1.0")));
+
+        assertEquals(Set.of("p1", "p2"), index.writtenProjects());
+        index.finishLoad(Map.of("p1", project("p1", dep("a", "2.0"), dep("b", "1.0"))));
+        assertTrue(index.isLoaded());
+
+        assertEquals(Map.of("p1", Set.of("2.0"), "p3", Set.of("1.0")), index.find("org.example", "a", v -> true));
+        index.remove("p1", dep("a", "2.0"));   // the version is listed once again, so one removal clears it
+        assertEquals(Map.of("p3", Set.of("1.0")), index.find("org.example", "a", v -> true));
+        assertEquals(Map.of("p1", Set.of("1.0")), index.find("org.example", "b", v -> true));
+        assertTrue(index.find("org.example", "c", v -> true).isEmpty());
+
+        // once loaded, writes are no longer recorded
+        index.add("p3", dep("d", "1.0"));
+        assertTrue(index.writtenProjects().isEmpty());
+    }
+}
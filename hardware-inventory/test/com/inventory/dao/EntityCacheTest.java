@@ -0,0 +1,39 @@
+package com.inventory.dao;
+
+import org.bson.BsonInt32;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntityCacheTest {
+
+    @Test
+    void changeEventIdsMapToCacheKeys() {
+        ObjectId oid = new ObjectId();
+        assertEquals(oid.toHexString(), EntityCache.id(new BsonObjectId(oid)));
+        assertEquals("legacy-42", EntityCache.id(new BsonString("legacy-42")));
+        assertNull(EntityCache.id(new BsonInt32(42)));
+        assertNull(EntityCache.id(null));
+    }
+
+    @Test
+    void invalidateForcesAReload() {
+        AtomicInteger loads = new AtomicInteger();
+        try (EntityCache<String> cache = new EntityCache<>("test", 1 << 20, 0, EntityCache::sizeOf, s -> s)) {
+            assertEquals("v1", cache.get("legacy-42", id -> "v" + loads.incrementAndGet()));
+            assertEquals("v1", cache.get("legacy-42", id -> "v" + loads.incrementAndGet()));
+            cache.invalidate("legacy-42");
+            assertEquals("v2", cache.get("legacy-42", id -> "v" + loads.incrementAndGet()));
+            assertEquals(1, cache.getHits());
+            assertEquals(2, cache.getMisses());
+            assertTrue(cache.stats().contains("watch=off"));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.inventory.dao;
+
+import com.inventory.model.HardwareItem;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HardwareQueryTest {
+
+    private static BsonDocument render(Bson bson) {
+        return bson.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+    private static HardwareItem item(String id, String name, String serial, String location, String status) {
+        HardwareItem item = new HardwareItem(name, serial, location, status);
+        item.setId(id);
+        return item;
+    }
+
+    @Test
+    void emptyQueryMatchesEverything() {
+        HardwareQuery q = new HardwareQuery().status(" ").location(null).namePrefix("");
+        assertEquals(new BsonDocument(), render(q.toFilter()));
+        assertTrue(q.matches(new HardwareItem()));
+        assertTrue(q.isSummarizable());
+    }
+
+    @Test
+    void singleCriterionIsNotWrappedInAnd() {
+        assertEquals(BsonDocument.parse("{status: 'available'}"), render(new HardwareQuery().status("available").toFilter()));
+    }
+
+    @Test
+    void combinesCriteriaAndAnchorsEscapedPrefixes() {
+        HardwareQuery q = new HardwareQuery().status("in-use").location("Chennai").namePrefix("Dell (XPS").serialPrefix("SN.1");
+        assertEquals(BsonDocument.parse("{$and: [{status: 'in-use'}, {location: 'Chennai'},"
+                + " {name: {$regex: '^Dell \\\\(XPS', $options: ''}},"
+                + " {serialNumber: {$gt: ''}}, {serialNumber: {$regex: '^SN\\\\.1', $options: ''}}]}"), render(q.toFilter()));
+        assertFalse(q.isSummarizable());
+        assertTrue(q.hasSerialFilter());
+
+        assertTrue(q.matches(item("1", "Dell (XPS 13)", "SN.100", "Chennai", "in-use")));
+        assertFalse(q.matches(item("2", "Dell (XPS 13)", "SNX100", "Chennai", "in-use")));
+        assertFalse(q.matches(item("3", "Dell XPS", "SN.100", "Chennai", "in-use")));
+        assertFalse(q.matches(item("4", "Dell (XPS 13)", "SN.100", "Pune", "in-use")));
+    }
+
+    @Test
+    void serialPrefixSkipsItemsWithoutSerial() {
+        HardwareQuery q = new HardwareQuery().serialPrefix("S");
+        assertFalse(q.matches(item("1", "a", null, null, null)));
+        assertFalse(q.matches(item("2", "a", "", null, null)));
+        assertTrue(q.matches(item("3", "a", "S1", null, null)));
+    }
+
+    @Test
+    void sortsMissingValuesFirstLikeMongo() {
+        List<HardwareItem> items = new ArrayList<>(Arrays.asList(
+                item("1", "b", null, null, null), item("2", null, null, null, null), item("3", "a", null, null, null)));
+        HardwareQuery q = new HardwareQuery().sortBy("name", true);
+        assertEquals(BsonDocument.parse("{name: 1}"), render(q.toSort()));
+        items.sort(q.comparator());
+        assertEquals(Arrays.asList("2", "3", "1"), items.stream().map(HardwareItem::getId).collect(Collectors.toList()));
+        items.sort(new HardwareQuery().sortBy("name", false).comparator());
+        assertEquals("1", items.get(0).getId());
+        assertThrows(IllegalArgumentException.class, () -> new HardwareQuery().sortBy("version", true));
+    }
+
+    @Test
+    void projectsOnlyKnownFields() {
+        assertNull(HardwareQuery.projection());
+        assertEquals(BsonDocument.parse("{status: 1, version: 1}"), render(HardwareQuery.projection("status", "version")));
+        assertThrows(IllegalArgumentException.class, () -> new HardwareQuery().fields("owner"));
+
+        HardwareItem full = item("1", "Laptop", "SN-1", "Chennai", "available");
+        full.setVersion(3L);
+        HardwareItem cut = HardwareQuery.project(full, "status");
+        assertEquals("1", cut.getId());
+        assertEquals("available", cut.getStatus());
+        assertNull(cut.getName());
+        assertNull(cut.getVersion());
+    }
+}
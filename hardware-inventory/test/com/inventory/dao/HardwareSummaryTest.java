@@ -0,0 +1,72 @@
+package com.inventory.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HardwareSummaryTest {
+
+    @Test
+    void missingValuesDoNotMixWithTheStringNull() {
+        HardwareSummary summary = new HardwareSummary();
+        summary.add(null, "Lab", 2);
+        summary.add("null", "Lab", 3);
+        summary.add("ACTIVE", null, 1);
+
+        Map<String, Long> byStatus = summary.countBy("status");
+        assertEquals(Arrays.asList(null, "ACTIVE", "null"), Arrays.asList(byStatus.keySet().toArray()));
+        assertEquals(2L, byStatus.get(null));
+        assertEquals(3L, byStatus.get("null"));
+        assertEquals(1L, summary.countBy("location").get(null));
+        assertEquals(6L, summary.total());
+    }
+
+    @Test
+    void snapshotDropsZeroCountsAndKeepsNullKeysFirst() {
+        HardwareSummary summary = new HardwareSummary();
+        summary.add("ACTIVE", "Lab", 1);
+        summary.add("ACTIVE", "Lab", -1);
+        summary.add("RETIRED", null, 4);
+        summary.add("RETIRED", "Attic", 1);
+
+        Map<String, Map<String, Long>> snapshot = summary.snapshot();
+        assertEquals(1, snapshot.size());
+        Map<String, Long> retired = snapshot.get("RETIRED");
+        assertNull(retired.keySet().iterator().next());
+        assertEquals(4L, retired.get(null));
+        assertEquals(1L, retired.get("Attic"));
+    }
+
+    @Test
+    void resetReplacesEveryCount() {
+        HardwareSummary summary = new HardwareSummary();
+        summary.add("ACTIVE", "Lab", 5);
+        Map<String, Long> byLocation = new LinkedHashMap<>();
+        byLocation.put(null, 2L);
+        Map<String, Map<String, Long>> counts = new LinkedHashMap<>();
+        counts.put(null, byLocation);
+        summary.reset(counts);
+
+        assertEquals(0L, summary.count("ACTIVE", null));
+        assertEquals(2L, summary.total());
+        assertEquals(counts, summary.snapshot());
+    }
+
+    @Test
+    void countByFiltersOnStatusAndLocation() {
+        HardwareSummary summary = new HardwareSummary();
+        summary.add("ACTIVE", "Lab", 2);
+        summary.add("ACTIVE", "Office", 1);
+        summary.add("RETIRED", "Lab", 4);
+
+        assertEquals(Map.of("ACTIVE", 2L, "RETIRED", 4L), summary.countBy("status", null, "Lab"));
+        assertEquals(3L, summary.count("ACTIVE", null));
+        assertThrows(IllegalArgumentException.class, () -> summary.countBy("name"));
+    }
+}
@@ -0,0 +1,96 @@
+package com.inventory.dao;
+
+import com.inventory.model.HardwareItem;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HardwareUpdateTest {
+    private static final String ID = new ObjectId().toHexString();
+
+    private static BsonDocument render(Bson bson) {
+        return bson.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+    private static HardwareItem item(String name, String serial, String location, String status, Long version) {
+        HardwareItem item = new HardwareItem(name, serial, location, status);
+        item.setId(ID);
+        item.setVersion(version);
+        return item;
+    }
+
+    @Test
+    void filterMatchesOnlyWhenSomethingChanges() {
+        assertEquals(BsonDocument.parse("{$and: [{_id: {$oid: '" + ID + "'}}, {status: {$ne: 'in-use'}}]}"),
+                render(new HardwareUpdate().status("in-use").toFilter(ID)));
+        assertEquals(BsonDocument.parse("{$and: [{_id: {$oid: '" + ID + "'}}, {version: {$numberLong: '3'}}, "
+                        + "{$or: [{status: {$ne: 'in-use'}}, {location: {$ne: null}}]}]}"),
+                render(new HardwareUpdate().status("in-use").location(null).expectVersion(3L).toFilter(ID)));
+    }
+
+    @Test
+    void versionZeroAlsoMatchesUnversionedItems() {
+        BsonDocument filter = render(new HardwareUpdate().status("spare").expectVersion(0L).toFilter(ID));
+        assertEquals(BsonDocument.parse("{version: {$in: [{$numberLong: '0'}, null]}}"), filter.getArray("$and").get(1).asDocument());
+    }
+
+    @Test
+    void updateSetsUnsetsAndBumpsTheVersion() {
+        assertEquals(BsonDocument.parse("{$set: {status: 'in-use'}, $unset: {location: ''}, $inc: {version: {$numberLong: '1'}}}"),
+                render(new HardwareUpdate().status("in-use").location(null).toUpdate()));
+    }
+
+    @Test
+    void applyToChangesOnlyTheNamedFields() {
+        HardwareItem current = item("Laptop", "SN-1", "Lab", "spare", null);
+        HardwareUpdate update = new HardwareUpdate().status("in-use").location(null);
+        assertTrue(update.changes(current));
+        HardwareItem next = update.applyTo(current);
+        assertEquals(ID, next.getId());
+        assertEquals("Laptop", next.getName());
+        assertEquals("SN-1", next.getSerialNumber());
+        assertNull(next.getLocation());
+        assertEquals("in-use", next.getStatus());
+        assertEquals(1L, next.getVersion());
+        assertEquals("spare", current.getStatus());
+        assertFalse(update.changes(next));
+    }
+
+    @Test
+    void ofReplacesEveryFieldWithoutAVersionCheck() {
+        HardwareUpdate update = HardwareUpdate.of(item("Laptop", null, "Lab", "spare", 7L));
+        assertNull(update.getExpectedVersion());
+        for (String field : HardwareUpdate.FIELDS) assertTrue(update.touches(field), field);
+        HardwareItem next = update.applyTo(item("Old", "SN-1", "Attic", "retired", 2L));
+        assertEquals("Laptop", next.getName());
+        assertNull(next.getSerialNumber());
+        assertEquals(3L, next.getVersion());
+    }
+
+    @Test
+    void diffCarriesOnlyChangedFieldsAndTheVersionReadAt() {
+        HardwareItem before = item("Laptop", "SN-1", "Lab", "spare", null);
+        HardwareItem after = item("Laptop", "SN-1", null, "in-use", null);
+        HardwareUpdate update = HardwareUpdate.diff(before, after);
+        assertTrue(update.touches("status"));
+        assertTrue(update.touches("location"));
+        assertFalse(update.touches("name"));
+        assertEquals(0L, update.getExpectedVersion());
+        assertTrue(HardwareUpdate.diff(before, before).isEmpty());
+    }
+
+    @Test
+    void rejectsUnknownFields() {
+        assertThrows(IllegalArgumentException.class, () -> new HardwareUpdate().set("version", "3"));
+        assertEquals(new HardwareUpdate().status("x").toUpdate().toString(),
+                new HardwareUpdate().set("status", "x").toUpdate().toString());
+    }
+}
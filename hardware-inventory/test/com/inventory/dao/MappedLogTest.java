@@ -0,0 +1,153 @@
+package com.inventory.dao;
+
+import com.inventory.dao.codec.DependencyCodec;
+import com.inventory.dao.codec.ProjectCodec;
+import com.inventory.model.Dependency;
+import com.inventory.model.Project;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedLogTest {
+    @TempDir
+    Path dir;
+
+    private MappedLog<Project> open() {
+        return new MappedLog<>(dir.resolve("projects.log"), new ProjectCodec(new DependencyCodec()),
+                Project::getId, Project::getName, false);
+    }
+
+    private static Project project(String name, String description) {
+        Project p = new Project(name, description);
+        p.setId(new ObjectId().toHexString());
+        return p;
+    }
+
+    @Test
+    void valuesSurviveReopen() {
+        Project a = project("a", "first");
+        Project b = project("b", "second");
+        try (MappedLog<Project> log = open()) {
+            log.insert(a);
+            log.insert(b);
+            b.addDependency(new Dependency("org.example", "lib", "1.0"));
+            assertTrue(log.replace(b));
+            assertEquals("a", log.remove(a.getId()).getName());
+        }
+        try (MappedLog<Project> log = open()) {
+            assertEquals(1, log.size());
+            assertNull(log.get(a.getId()));
+            assertEquals(1, log.get(b.getId()).getDependencies().size());
+        }
+    }
+
+    @Test
+    void rejectsDuplicateIdsAndKeys() {
+        Project a = project("a", "");
+        try (MappedLog<Project> log = open()) {
+            log.insert(a);
+            assertThrows(DuplicateKeyException.class, () -> log.insert(a));
+            assertThrows(DuplicateKeyException.class, () -> log.insert(project("a", "same name")));
+            Project b = project("b", "");
+            log.insert(b);
+            b.setName("a");
+            assertThrows(DuplicateKeyException.class, () -> log.replace(b));
+            assertFalse(log.replace(project("c", "never inserted")));
+        }
+    }
+
+    @Test
+    void dropsTornRecordOnOpen() throws IOException {
+        Project a = project("a", "kept");
+        Project b = project("b", "torn");
+        try (MappedLog<Project> log = open()) {
+            log.insert(a);
+            log.insert(b);
+        }
+        corruptLastRecord(dir.resolve("projects.log"));
+
+        Project c = project("c", "written after recovery");
+        try (MappedLog<Project> log = open()) {
+            assertEquals(1, log.size());
+            assertNotNull(log.get(a.getId()));
+            assertNull(log.get(b.getId()));
+            log.insert(c);
+        }
+        try (MappedLog<Project> log = open()) {
+            assertEquals(2, log.size());
+            assertEquals("written after recovery", log.get(c.getId()).getDescription());
+        }
+    }
+
+    @Test
+    void compactsIntoNextGeneration() throws IOException {
+        Project p = project("big", "");
+        Project other = project("other", "unchanged");
+        String filler = "x".repeat(8 * 1024);
+        try (MappedLog<Project> log = open()) {
+            log.insert(p);
+            log.insert(other);
+            for (int i = 0; i < 300; i++) {
+                p.setDescription(i + filler);
+                log.replace(p);
+            }
+        }
+        try (MappedLog<Project> log = open()) {
+            assertEquals("299" + filler, log.get(p.getId()).getDescription());
+            assertEquals("unchanged", log.get(other.getId()).getDescription());
+            p.setDescription("after compaction");
+            log.replace(p);
+        }
+        assertEquals(List.of("projects.log.1", "projects.log.lock"), files());
+        try (MappedLog<Project> log = open()) {
+            assertEquals(2, log.size());
+            assertEquals("after compaction", log.get(p.getId()).getDescription());
+            try (Stream<Project> values = log.stream()) {
+                assertEquals(List.of("other", "big"), values.map(Project::getName).collect(Collectors.toList()));
+            }
+        }
+    }
+
+    @Test
+    void secondOpenIsRefused() {
+        try (MappedLog<Project> log = open()) {
+            IllegalStateException ex = assertThrows(IllegalStateException.class, this::open);
+            assertTrue(ex.getMessage().contains("in use"), ex.getMessage());
+        }
+        open().close();
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> list = Files.list(dir)) {
+            return list.map(f -> f.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /** Flips the last non-zero byte of the file, which lies inside the last record. */
+    private static void corruptLastRecord(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.allocate((int) ch.size());
+            ch.read(bytes, 0);
+            int last = bytes.capacity() - 1;
+            while (bytes.get(last) == 0) last--;
+            ch.write(ByteBuffer.wrap(new byte[]{(byte) ~bytes.get(last)}), last);
+        }
+    }
+}
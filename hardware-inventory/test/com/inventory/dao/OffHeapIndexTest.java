@@ -0,0 +1,94 @@
+package com.inventory.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapIndexTest {
+
+    @Test
+    void findsPutEntries() {
+        OffHeapIndex index = new OffHeapIndex(4);
+        for (int i = 1; i <= 1000; i++) index.put(hash(i), i * 10);
+        assertEquals(1000, index.size());
+        for (int i = 1; i <= 1000; i++) {
+            int expected = i * 10;
+            assertEquals(expected, index.find(hash(i), o -> o == expected));
+        }
+        assertEquals(-1, index.find(hash(1001), o -> true));
+    }
+
+    @Test
+    void collidingHashesAreToldApartByPredicate() {
+        OffHeapIndex index = new OffHeapIndex(16);
+        index.put(42, 100);
+        index.put(42, 200);
+        assertEquals(100, index.find(42, o -> o == 100));
+        assertEquals(200, index.find(42, o -> o == 200));
+        assertEquals(-1, index.find(42, o -> o == 300));
+    }
+
+    @Test
+    void removeLeavesTombstoneThatKeepsProbeChain() {
+        OffHeapIndex index = new OffHeapIndex(16);
+        index.put(7, 100);
+        index.put(7, 200);
+        index.put(7, 300);
+        assertTrue(index.remove(7, 100));
+        assertFalse(index.remove(7, 100));
+        assertEquals(2, index.size());
+        assertEquals(-1, index.find(7, o -> o == 100));
+        assertEquals(300, index.find(7, o -> o == 300));
+
+        index.put(7, 400);   // reuses the tombstone
+        assertEquals(400, index.find(7, o -> o == 400));
+        assertEquals(200, index.find(7, o -> o == 200));
+    }
+
+    @Test
+    void replaceRepointsOnlyTheMatchingEntry() {
+        OffHeapIndex index = new OffHeapIndex(16);
+        index.put(7, 100);
+        index.put(7, 200);
+        assertTrue(index.replace(7, 100, 150));
+        assertFalse(index.replace(7, 100, 175));
+        assertEquals(150, index.find(7, o -> o == 150));
+        assertEquals(200, index.find(7, o -> o == 200));
+    }
+
+    @Test
+    void churnDoesNotFillTableWithTombstones() {
+        OffHeapIndex index = new OffHeapIndex(16);
+        Map<Long, Integer> live = new HashMap<>();
+        Random random = new Random(1);
+        int next = 1;
+        for (int round = 0; round < 50_000; round++) {
+            long key = hash(random.nextInt(200));
+            Integer offset = live.get(key);
+            if (offset != null) {
+                assertTrue(index.remove(key, offset));
+                live.remove(key);
+            } else {
+                index.put(key, next);
+                live.put(key, next++);
+            }
+        }
+        assertEquals(live.size(), index.size());
+        assertTrue(index.memoryBytes() <= 1024 * 12, "table grew to " + index.memoryBytes() + " bytes");
+        for (Map.Entry<Long, Integer> e : live.entrySet()) {
+            int expected = e.getValue();
+            assertEquals(expected, index.find(e.getKey(), o -> o == expected));
+        }
+    }
+
+    private static long hash(int i) {
+        return OffHeapIndex.hash(("key" + i).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,178 @@
+package com.inventory.dao;
+
+import com.inventory.model.Advisory;
+import com.inventory.model.Dependency;
+import com.inventory.model.Project;
+import com.inventory.model.VulnerabilityReport;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PortfolioScannerTest {
+
+    /** Projects and advisories in memory, counting how often each coordinate is looked up. */
+    private static final class FakeSource implements PortfolioScanner.Source {
+        final List<Project> projects = new ArrayList<>();
+        final Map<String, Advisory> advisories = new HashMap<>();
+        final Map<String, AtomicInteger> lookups = new ConcurrentHashMap<>();
+        PortfolioScanner.Results results;
+
+        @Override
+        public void forEachProject(Consumer<Project> action) {
+            projects.forEach(action);
+        }
+
+        @Override
+        public List<Dependency> scanDependencies(Project p) {
+            return p.getDependencies();
+        }
+
+        @Override
+        public Map<String, Advisory> findVulnerabilities(List<Dependency> deps) {
+            Map<String, Advisory> out = new HashMap<>();
+            for (Dependency d : deps) {
+                lookups.computeIfAbsent(d.toString(), k -> new AtomicInteger()).incrementAndGet();
+                Advisory a = advisories.get(d.toString());
+                if (a != null) out.put(d.toString(), a);
+            }
+            return out;
+        }
+
+        @Override
+        public PortfolioScanner.Results scanResults() {
+            return results;
+        }
+    }
+
+    /** Stored results in memory at one dataset version. */
+    private static final class FakeResults implements PortfolioScanner.Results {
+        final Map<String, ScanResultStore.CachedScan> stored = new LinkedHashMap<>();
+        final List<String> saved = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public long datasetVersion() {
+            return 7;
+        }
+
+        @Override
+        public Map<String, ScanResultStore.CachedScan> findAll(Collection<String> projectIds) {
+            Map<String, ScanResultStore.CachedScan> out = new HashMap<>();
+            for (String id : projectIds) {
+                if (stored.containsKey(id)) out.put(id, stored.get(id));
+            }
+            return out;
+        }
+
+        @Override
+        public void saveAll(List<ScanResultStore.Scan> scans) {
+            for (ScanResultStore.Scan s : scans) saved.add(s.projectId);
+        }
+    }
+
+    private static Dependency dep(String artifact, String version) {
+        return new Dependency("org.example", artifact, version);
+    }
+
+    private static Project project(String id, Dependency... deps) {
+        Project p = new Project(id, "");
+        p.setId(id);
+        for (Dependency d : deps) p.addDependency(d);
+        return p;
+    }
+
+    private static FakeSource portfolio() {
+        FakeSource source = new FakeSource();
+        source.projects.add(project("p1", dep("a", "1.0"), dep("b", "2.0")));
+        source.projects.add(project("p2", dep("a", "1.0"), dep("c", "3.0")));
+        source.projects.add(project("p3", dep("b", "2.0")));
+        source.advisories.put("org.example:a:1.0",
+                new Advisory("org.example", "a", "[1.0]", "CVE-1", "HIGH", "1.1", null));
+        return source;
+    }
+
+    @Test
+    void looksUpEachCoordinateOnce() {
+        FakeSource source = portfolio();
+        PortfolioScanner.Result result = new PortfolioScanner(source, 2).scan();
+
+        assertEquals(3, source.lookups.size());
+        source.lookups.values().forEach(n -> assertEquals(1, n.get()));
+        PortfolioScanner.Summary s = result.getSummary();
+        assertEquals(3, s.projects);
+        assertEquals(3, s.rescanned);
+        assertEquals(5, s.dependencies);
+        assertEquals(3, s.uniqueCoordinates);
+        assertEquals(2, s.vulnerableProjects);
+        assertEquals(2, s.findings);
+        assertEquals("CVE-1", result.getReports().get("p2").getFindings().get(0).cve);
+        assertTrue(result.getReports().get("p3").getFindings().isEmpty());
+    }
+
+    @Test
+    void sharesLookupsAcrossChunksAndThreads() {
+        FakeSource source = new FakeSource();
+        for (int i = 0; i < 2000; i++) {
+            source.projects.add(project("p" + i, dep("lib" + (i % 50), "1.0"), dep("lib" + (i % 7), "1.0"), dep("app" + i, "1.0")));
+        }
+        PortfolioScanner.Summary s = new PortfolioScanner(source, 8).scan().getSummary();
+
+        assertEquals(2050, s.uniqueCoordinates);
+        assertEquals(2050, source.lookups.size());
+        source.lookups.values().forEach(n -> assertEquals(1, n.get()));
+        assertEquals(6000, s.dependencies);
+    }
+
+    @Test
+    void refreshReusesCurrentResultsAndRescansTheRest() {
+        FakeSource source = portfolio();
+        FakeResults results = new FakeResults();
+        source.results = results;
+        VulnerabilityReport storedP1 = new VulnerabilityReport();
+        results.stored.put("p1", new ScanResultStore.CachedScan(
+                ScanResultStore.dependencyHash(source.projects.get(0).getDependencies()), 7, false, Long.MAX_VALUE, storedP1));
+        // p2's dependencies changed since its stored scan, p3's was marked stale
+        results.stored.put("p2", new ScanResultStore.CachedScan("old", 7, false, Long.MAX_VALUE, new VulnerabilityReport()));
+        results.stored.put("p3", new ScanResultStore.CachedScan(
+                ScanResultStore.dependencyHash(source.projects.get(2).getDependencies()), 7, true, Long.MAX_VALUE, new VulnerabilityReport()));
+
+        PortfolioScanner.Result result = new PortfolioScanner(source, 2).refresh();
+
+        assertSame(storedP1, result.getReports().get("p1"));
+        assertEquals(3, result.getSummary().projects);
+        assertEquals(2, result.getSummary().rescanned);
+        assertEquals(List.of("p2", "p3"), results.saved.stream().sorted().collect(Collectors.toList()));
+        assertEquals(Map.of("org.example:a:1.0", 1, "org.example:b:2.0", 1, "org.example:c:3.0", 1),
+                counts(source.lookups));
+
+        // a full scan ignores what is stored
+        results.saved.clear();
+        assertEquals(3, new PortfolioScanner(source, 2).scan().getSummary().rescanned);
+        assertEquals(3, results.saved.size());
+    }
+
+    @Test
+    void refreshWithoutStoredResultsScansEverything() {
+        PortfolioScanner.Summary s = new PortfolioScanner(portfolio(), 2).refresh().getSummary();
+        assertEquals(3, s.rescanned);
+    }
+
+    private static Map<String, Integer> counts(Map<String, AtomicInteger> lookups) {
+        Map<String, Integer> out = new HashMap<>();
+        lookups.forEach((k, v) -> out.put(k, v.get()));
+        return out;
+    }
+}
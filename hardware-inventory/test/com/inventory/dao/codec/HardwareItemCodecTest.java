@@ -0,0 +1,39 @@
+package com.inventory.dao.codec;
+
+import com.inventory.model.HardwareItem;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HardwareItemCodecTest {
+    private final HardwareItemCodec codec = new HardwareItemCodec();
+
+    private BsonDocument roundTrip(BsonDocument stored) {
+        HardwareItem item = codec.decode(new BsonDocumentReader(stored), DecoderContext.builder().build());
+        BsonDocument written = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(written), item, EncoderContext.builder().build());
+        assertEquals(stored.get("_id"), codec.getDocumentId(item));
+        return written;
+    }
+
+    @Test
+    void writesBackTheIdTypeItRead() {
+        BsonDocument objectId = new BsonDocument("_id", new BsonObjectId(new ObjectId()))
+                .append("name", new BsonString("laptop"));
+        assertEquals(objectId.get("_id"), roundTrip(objectId).get("_id"));
+
+        BsonDocument stringId = new BsonDocument("_id", new BsonString("asset-42"))
+                .append("name", new BsonString("laptop"));
+        BsonDocument written = roundTrip(stringId);
+        assertEquals(new BsonString("asset-42"), written.get("_id"));
+        assertEquals(new BsonString("laptop"), written.get("name"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.inventory.ingest;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdvisoryLoaderTest {
+
+    private static List<String> ranges(List<Document> docs) {
+        return docs.stream().map(d -> d.getString("vulnerableVersion")).collect(Collectors.toList());
+    }
+
+    @Test
+    void turnsEventsIntoMavenRanges() {
+        Document osv = Document.parse("{id: 'GHSA-1', aliases: ['GHSA-x', 'CVE-2021-44228'],"
+                + " database_specific: {severity: 'CRITICAL'},"
+                + " affected: [{package: {ecosystem: 'Maven', name: 'org.apache.logging.log4j:log4j-core'},"
+                + "   ranges: [{type: 'ECOSYSTEM', events: [{introduced: '0'}, {fixed: '2.3.1'},"
+                + "     {introduced: '2.4'}, {fixed: '2.12.2'}, {introduced: '2.13.0'}, {last_affected: '2.15.0'},"
+                + "     {introduced: '2.16.0'}]}]}]}");
+        List<Document> docs = AdvisoryLoader.normalize(osv, "a/GHSA-1.json");
+        assertEquals(List.of("(,2.3.1)", "[2.4,2.12.2)", "[2.13.0,2.15.0]", "[2.16.0,)"), ranges(docs));
+
+        Document first = docs.get(0);
+        assertEquals("org.apache.logging.log4j", first.getString("groupId"));
+        assertEquals("log4j-core", first.getString("artifactId"));
+        assertEquals("CVE-2021-44228", first.getString("cve"));
+        assertEquals("CRITICAL", first.getString("severity"));
+        assertEquals("2.3.1", first.getString("patchedVersion"));
+        assertEquals("Upgrade to 2.3.1 or later", first.getString("recommendation"));
+        assertEquals("GHSA-1|org.apache.logging.log4j:log4j-core|(,2.3.1)", first.getString("_id"));
+        assertEquals("a/GHSA-1.json", first.getString("sourceFile"));
+        assertNull(docs.get(2).getString("patchedVersion"));
+    }
+
+    @Test
+    void fallsBackToListedVersionsAndOsvId() {
+        Document osv = Document.parse("{id: 'GHSA-2', summary: 'Bad things',"
+                + " affected: [{package: {ecosystem: 'Maven', name: 'g:a'},"
+                + "   ecosystem_specific: {severity: 'moderate'}, versions: ['1.0', '1.1']}]}");
+        List<Document> docs = AdvisoryLoader.normalize(osv, "GHSA-2.json");
+        assertEquals(List.of("[1.0],[1.1]"), ranges(docs));
+        assertEquals("GHSA-2", docs.get(0).getString("cve"));
+        assertEquals("MEDIUM", docs.get(0).getString("severity"));
+        assertEquals("Bad things", docs.get(0).getString("recommendation"));
+    }
+
+    @Test
+    void skipsOtherEcosystemsAndWithdrawnRecords() {
+        Document npm = Document.parse("{id: 'GHSA-3', affected: [{package: {ecosystem: 'npm', name: 'left-pad'},"
+                + " ranges: [{type: 'SEMVER', events: [{introduced: '0'}]}]},"
+                + " {package: {ecosystem: 'Maven', name: 'no-colon'}, versions: ['1.0']}]}");
+        assertTrue(AdvisoryLoader.normalize(npm, "x.json").isEmpty());
+
+        Document withdrawn = Document.parse("{id: 'GHSA-4', withdrawn: '2024-01-01T00:00:00Z',"
+                + " affected: [{package: {ecosystem: 'Maven', name: 'g:a'}, versions: ['1.0']}]}");
+        assertTrue(AdvisoryLoader.normalize(withdrawn, "y.json").isEmpty());
+    }
+
+    @Test
+    void dropsDuplicateRangesAndRejectsBadRecords() {
+        Document dup = Document.parse("{id: 'GHSA-5', affected: ["
+                + " {package: {ecosystem: 'Maven', name: 'g:a'}, ranges: [{type: 'ECOSYSTEM', events: [{introduced: '1.0'}, {fixed: '2.0'}]}]},"
+                + " {package: {ecosystem: 'Maven', name: 'g:a'}, ranges: [{type: 'ECOSYSTEM', events: [{introduced: '1.0'}, {fixed: '2.0'}]}]}]}");
+        assertEquals(1, AdvisoryLoader.normalize(dup, "z.json").size());
+
+        assertThrows(IllegalArgumentException.class, () -> AdvisoryLoader.normalize(Document.parse("{affected: []}"), "n.json"));
+        Document inverted = Document.parse("{id: 'GHSA-6', affected: [{package: {ecosystem: 'Maven', name: 'g:a'},"
+                + " ranges: [{type: 'ECOSYSTEM', events: [{introduced: '3.0'}, {fixed: '2.0'}]}]}]}");
+        assertThrows(IllegalArgumentException.class, () -> AdvisoryLoader.normalize(inverted, "i.json"));
+    }
+}
@@ -0,0 +1,35 @@
+package com.inventory.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HardwareImporterTest {
+
+    @Test
+    void splitsPlainFieldsAndTrimsThem() {
+        assertEquals(List.of("Laptop", "SN-1", "Room 4", "available"),
+                HardwareImporter.parseCsvLine("Laptop, SN-1 ,Room 4,available"));
+    }
+
+    @Test
+    void keepsEmptyFields() {
+        assertEquals(List.of("Laptop", "", "", ""), HardwareImporter.parseCsvLine("Laptop,,,"));
+        assertEquals(List.of(""), HardwareImporter.parseCsvLine(""));
+    }
+
+    @Test
+    void quotedFieldsHoldCommasAndEscapedQuotes() {
+        assertEquals(List.of("Monitor, 27\"", "SN-2", "Desk \"A\"", "in-use"),
+                HardwareImporter.parseCsvLine("\"Monitor, 27\"\"\",SN-2,\"Desk \"\"A\"\"\",in-use"));
+        assertEquals(List.of("", "x"), HardwareImporter.parseCsvLine("\"\",x"));
+    }
+
+    @Test
+    void rejectsUnterminatedQuotes() {
+        assertThrows(IllegalArgumentException.class, () -> HardwareImporter.parseCsvLine("\"Laptop,SN-1"));
+    }
+}
@@ -0,0 +1,77 @@
+package com.inventory.ingest;
+
+import com.inventory.dao.EmbeddedProjectStore;
+import com.inventory.model.Dependency;
+import com.inventory.model.Project;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProjectImporterTest {
+
+    private static final PrintStream QUIET = new PrintStream(OutputStream.nullOutputStream());
+
+    private static Set<String> dependencies(EmbeddedProjectStore store, String name) {
+        Project p = store.read(store.findIdByName(name));
+        Set<String> out = new TreeSet<>();
+        for (Dependency d : p.getDependencies()) out.add(d.toString());
+        return out;
+    }
+
+    private static String lockfile(String prefix, int count) {
+        StringBuilder sb = new StringBuilder("# lockfile\n");
+        for (int i = 0; i < count; i++) sb.append("org.example:").append(prefix).append(i).append(":1.0=runtimeClasspath\n");
+        return sb.toString();
+    }
+
+    @Test
+    void reimportReplacesDependencies(@TempDir Path dir) throws IOException {
+        try (EmbeddedProjectStore store = new EmbeddedProjectStore(dir, false)) {
+            ProjectImporter importer = new ProjectImporter(store, 2, 1, QUIET);
+            importer.importStream(new ByteArrayInputStream(lockfile("a", 3).getBytes(StandardCharsets.UTF_8)),
+                    ProjectImporter.Format.GRADLE_LOCKFILE, "app", "first");
+            ProjectImporter.Result r = importer.importStream(new ByteArrayInputStream(
+                    "org.example:a0:1.0=runtimeClasspath\norg.example:b:2.0=compileClasspath\norg.example:t:1.0=testRuntimeClasspath\n"
+                            .getBytes(StandardCharsets.UTF_8)), ProjectImporter.Format.GRADLE_LOCKFILE, "app", "second");
+            assertEquals(1, r.added);
+            assertEquals(2, r.removed);
+            assertEquals(1, r.skipped);
+            assertEquals(Set.of("org.example:a0:1.0", "org.example:b:2.0"), dependencies(store, "app"));
+        }
+    }
+
+    @Test
+    void parallelImportsOfOneProjectDoNotMix(@TempDir Path dir) throws IOException {
+        Path manifests = dir.resolve("manifests");
+        for (String side : new String[]{"left", "right"}) {
+            Path lockfile = manifests.resolve(side).resolve("app").resolve("gradle.lockfile");
+            Files.createDirectories(lockfile.getParent());
+            Files.writeString(lockfile, lockfile(side, 200));
+        }
+        try (EmbeddedProjectStore store = new EmbeddedProjectStore(dir.resolve("store"), false)) {
+            ProjectImporter importer = new ProjectImporter(store, 10, 4, QUIET);
+            for (int round = 0; round < 5; round++) {
+                List<ProjectImporter.Result> results = importer.importDirectory(manifests);
+                assertEquals(2, results.size());
+                // whichever manifest went last, the project holds exactly its dependencies
+                Set<String> deps = dependencies(store, "app");
+                assertEquals(200, deps.size());
+                assertTrue(deps.stream().allMatch(d -> d.startsWith("org.example:left"))
+                        || deps.stream().allMatch(d -> d.startsWith("org.example:right")), deps.toString());
+            }
+        }
+    }
+}
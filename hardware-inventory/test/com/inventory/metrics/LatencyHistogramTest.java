@@ -0,0 +1,56 @@
+package com.inventory.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void smallValuesHaveExactBuckets() {
+        LatencyHistogram h = new LatencyHistogram("test");
+        for (long v = 0; v < 8; v++) h.record(v);
+        assertEquals(3, h.percentileNanos(0.5));
+        assertEquals(7, h.percentileNanos(1.0));
+        assertEquals(8, h.getCount());
+    }
+
+    @Test
+    void percentilesStayWithinABucketOfTheValue() {
+        for (long v = 9; v < TimeUnit.MINUTES.toNanos(10); v = v * 3 + 7) {
+            LatencyHistogram h = new LatencyHistogram("test");
+            h.record(v);
+            h.record(Long.MAX_VALUE / 2);
+            long p50 = h.percentileNanos(0.5);
+            assertTrue(p50 >= v && p50 <= v + v / 8, v + " reported as " + p50);
+        }
+    }
+
+    @Test
+    void percentilesFollowTheDistributionAndAreCappedAtTheMax() {
+        LatencyHistogram h = new LatencyHistogram("test");
+        for (int i = 0; i < 990; i++) h.record(TimeUnit.MILLISECONDS.toNanos(1));
+        for (int i = 0; i < 10; i++) h.record(TimeUnit.MILLISECONDS.toNanos(100));
+
+        long p50 = h.percentileNanos(0.5);
+        assertTrue(p50 >= 1_000_000 && p50 <= 1_125_000, "p50 " + p50);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), h.percentileNanos(0.999));
+        assertEquals(100, h.getMax(TimeUnit.MILLISECONDS));
+        assertEquals(1.99, h.getMeanMillis(), 1e-9);
+    }
+
+    @Test
+    void negativeValuesCountAsZeroAndResetClearsEverything() {
+        LatencyHistogram h = new LatencyHistogram("test");
+        h.record(-5);
+        assertEquals(0, h.percentileNanos(1.0));
+        assertEquals(1, h.getCount());
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.percentileNanos(0.5));
+        assertEquals(0, h.getMeanMillis());
+    }
+}
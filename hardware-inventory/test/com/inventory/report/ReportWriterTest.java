@@ -0,0 +1,107 @@
+package com.inventory.report;
+
+import com.inventory.model.Dependency;
+import com.inventory.model.Project;
+import com.inventory.model.VulnerabilityReport;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReportWriterTest {
+    private static final String AWKWARD = "say \"hi\", then\nleave\\ \t\u0001 café ☃ 😀";
+
+    @TempDir
+    Path dir;
+
+    private static Project project(String name) {
+        Project p = new Project(name, "");
+        p.setId("65f000000000000000000001");
+        return p;
+    }
+
+    private static VulnerabilityReport report(String recommendation, int findings) {
+        VulnerabilityReport r = new VulnerabilityReport();
+        for (int i = 0; i < findings; i++) {
+            r.addFinding(new VulnerabilityReport.Finding(new Dependency("org.example", "lib", "1." + i),
+                    "CVE-" + i, "HIGH", null, recommendation));
+        }
+        return r;
+    }
+
+    @Test
+    void quotesCsvFieldsThatNeedIt() throws IOException {
+        Path file = dir.resolve("r.csv");
+        try (ReportWriter w = new ReportWriter(file, ReportWriter.Format.CSV)) {
+            w.write(project("plain"), report("a,b", 1));
+            w.write(project("x"), report("say \"hi\"\r\nbye", 1));
+        }
+        String csv = Files.readString(file, StandardCharsets.UTF_8);
+        assertEquals("projectId,projectName,groupId,artifactId,version,cve,severity,patchedVersion,recommendation\n"
+                + "65f000000000000000000001,plain,org.example,lib,1.0,CVE-0,HIGH,,\"a,b\"\n"
+                + "65f000000000000000000001,x,org.example,lib,1.0,CVE-0,HIGH,,\"say \"\"hi\"\"\r\nbye\"\n", csv);
+    }
+
+    @Test
+    void escapesJsonLines() throws IOException {
+        Path file = dir.resolve("r.jsonl");
+        try (ReportWriter w = new ReportWriter(file, ReportWriter.Format.JSONL)) {
+            w.write(project(AWKWARD), report(AWKWARD, 2));
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        Document first = Document.parse(lines.get(0));
+        assertEquals(AWKWARD, first.getString("projectName"));
+        assertEquals(AWKWARD, first.getString("recommendation"));
+        assertEquals(null, first.get("patchedVersion"));
+        assertEquals("1.1", Document.parse(lines.get(1)).getString("version"));
+    }
+
+    @Test
+    void sarifIsOneValidDocumentAcrossBufferFlushes() throws IOException {
+        Path file = dir.resolve("r.sarif");
+        try (ReportWriter w = new ReportWriter(file, ReportWriter.Format.SARIF, 4096)) {
+            for (int i = 0; i < 50; i++) w.write(project(AWKWARD + i), report(AWKWARD, 20));
+            assertEquals(1000, w.getFindings());
+            assertEquals(50, w.getProjects());
+        }
+        Document sarif = Document.parse(Files.readString(file, StandardCharsets.UTF_8));
+        Document run = sarif.getList("runs", Document.class).get(0);
+        List<Document> results = run.getList("results", Document.class);
+        assertEquals(1000, results.size());
+        assertEquals("CVE-19", results.get(999).getString("ruleId"));
+        assertEquals("error", results.get(0).getString("level"));
+    }
+
+    @Test
+    void emptySarifIsStillValid() throws IOException {
+        Path file = dir.resolve("empty.sarif");
+        new ReportWriter(file, ReportWriter.Format.SARIF).close();
+        Document run = Document.parse(Files.readString(file)).getList("runs", Document.class).get(0);
+        assertEquals(0, run.getList("results", Document.class).size());
+    }
+
+    @Test
+    void refusesWritesAfterClose() throws IOException {
+        ReportWriter w = new ReportWriter(dir.resolve("r.csv"), ReportWriter.Format.CSV);
+        w.close();
+        assertThrows(IllegalStateException.class, () -> w.write(project("p"), report("r", 1)));
+    }
+
+    @Test
+    void formatsByExtensionAndName() {
+        assertEquals(ReportWriter.Format.SARIF, ReportWriter.formatOf(Path.of("out.sarif.json")));
+        assertEquals(ReportWriter.Format.JSONL, ReportWriter.formatOf(Path.of("OUT.NDJSON")));
+        assertEquals(null, ReportWriter.formatOf(Path.of("out.txt")));
+        assertEquals(ReportWriter.Format.JSONL, ReportWriter.parseFormat("json"));
+        assertThrows(IllegalArgumentException.class, () -> ReportWriter.parseFormat("xml"));
+    }
+}
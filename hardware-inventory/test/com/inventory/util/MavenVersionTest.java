@@ -0,0 +1,72 @@
+package com.inventory.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MavenVersionTest {
+
+    @Test
+    void ordersQualifiersLikeMaven() {
+        assertAscending("1.0-alpha-1", "1.0-beta-1", "1.0-milestone-1", "1.0-rc-1", "1.0-SNAPSHOT", "1.0", "1.0-sp-1",
+                "1.0-foo", "1.0.1", "1.1", "1.9", "1.10", "2.0");
+    }
+
+    @Test
+    void comparesNumericPartsNumerically() {
+        assertAscending("2.9.10", "2.10.0", "2.17.0", "2.17.1", "10.0", "100");
+        assertAscending("1.0.0-rc9", "1.0.0-rc10");
+    }
+
+    @Test
+    void treatsEquivalentSpellingsAsEqual() {
+        assertSame("1", "1.0");
+        assertSame("1.0", "1.0.0");
+        assertSame("1.0", "1-ga");
+        assertSame("1.0", "1.0-final");
+        assertSame("1.0-a1", "1.0-alpha-1");
+        assertSame("1.0-cr1", "1.0-rc1");
+        assertSame("1.0-RC1", "1.0-rc1");
+        assertNotEquals(MavenVersion.parse("1.0"), MavenVersion.parse("1.0.1"));
+    }
+
+    @Test
+    void sortIsAConsistentTotalOrder() {
+        List<String> pool = List.of("1", "1.0", "1.0.1", "1-SNAPSHOT", "1-alpha", "1-beta-2", "1-rc", "1-sp",
+                "1.1", "2", "2.0-M1", "0.9", "1-xyz");
+        Random random = new Random(7);
+        List<MavenVersion> versions = new ArrayList<>();
+        for (int i = 0; i < 200; i++) versions.add(MavenVersion.parse(pool.get(random.nextInt(pool.size()))));
+        Collections.sort(versions);
+        for (int i = 1; i < versions.size(); i++) {
+            MavenVersion a = versions.get(i - 1), b = versions.get(i);
+            assertTrue(a.compareTo(b) <= 0);
+            assertEquals(-Integer.signum(a.compareTo(b)), Integer.signum(b.compareTo(a)));
+            if (a.equals(b)) assertEquals(a.hashCode(), b.hashCode());
+        }
+    }
+
+    private static void assertAscending(String... versions) {
+        for (int i = 1; i < versions.length; i++) {
+            MavenVersion lower = MavenVersion.parse(versions[i - 1]);
+            MavenVersion higher = MavenVersion.parse(versions[i]);
+            assertTrue(lower.compareTo(higher) < 0, versions[i - 1] + " < " + versions[i]);
+            assertTrue(higher.compareTo(lower) > 0, versions[i] + " > " + versions[i - 1]);
+        }
+    }
+
+    private static void assertSame(String a, String b) {
+        MavenVersion va = MavenVersion.parse(a);
+        MavenVersion vb = MavenVersion.parse(b);
+        assertEquals(0, va.compareTo(vb), a + " == " + b);
+        assertEquals(va, vb);
+        assertEquals(va.hashCode(), vb.hashCode());
+    }
+}
@@ -0,0 +1,64 @@
+package com.inventory.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VersionRangeTest {
+
+    @Test
+    void halfOpenRange() {
+        VersionRange r = VersionRange.parse("[2.0,2.17.1)");
+        assertFalse(r.containsVersion("1.9"));
+        assertTrue(r.containsVersion("2.0"));
+        assertTrue(r.containsVersion("2.14.1"));
+        assertTrue(r.containsVersion("2.17.1-rc1"));
+        assertFalse(r.containsVersion("2.17.1"));
+    }
+
+    @Test
+    void unboundedSides() {
+        VersionRange below = VersionRange.parse("(,1.2.3]");
+        assertTrue(below.containsVersion("0.1"));
+        assertTrue(below.containsVersion("1.2.3"));
+        assertFalse(below.containsVersion("1.2.4"));
+        assertNull(below.getRestrictions().get(0).getLower());
+
+        VersionRange above = VersionRange.parse("[3.0,)");
+        assertFalse(above.containsVersion("2.9"));
+        assertTrue(above.containsVersion("300"));
+        assertNull(above.getRestrictions().get(0).getUpper());
+    }
+
+    @Test
+    void exactVersions() {
+        assertTrue(VersionRange.parse("[1.0]").containsVersion("1.0.0"));
+        assertFalse(VersionRange.parse("[1.0]").containsVersion("1.0.1"));
+        assertTrue(VersionRange.parse("2.14.1").containsVersion("2.14.1"));
+        assertFalse(VersionRange.parse("2.14.1").containsVersion("2.14.2"));
+    }
+
+    @Test
+    void unions() {
+        VersionRange r = VersionRange.parse("[1.0,1.5), [2.0,2.3)");
+        assertEquals(2, r.getRestrictions().size());
+        assertTrue(r.containsVersion("1.4"));
+        assertFalse(r.containsVersion("1.7"));
+        assertTrue(r.containsVersion("2.2.9"));
+        assertFalse(r.containsVersion("2.3"));
+        assertFalse(r.containsVersion((String) null));
+    }
+
+    @Test
+    void rejectsMalformedSpecs() {
+        assertThrows(IllegalArgumentException.class, () -> VersionRange.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> VersionRange.parse("[1.0,2.0"));
+        assertThrows(IllegalArgumentException.class, () -> VersionRange.parse("(1.0)"));
+        assertThrows(IllegalArgumentException.class, () -> VersionRange.parse("[2.0,1.0]"));
+        assertThrows(IllegalArgumentException.class, () -> VersionRange.parse("[1.0,2.0) x"));
+    }
+}